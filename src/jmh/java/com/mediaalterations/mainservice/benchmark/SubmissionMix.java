@@ -0,0 +1,119 @@
+package com.mediaalterations.mainservice.benchmark;
+
+import com.mediaalterations.mainservice.dto.AudioConvertRequest;
+import com.mediaalterations.mainservice.dto.ConvertRequest;
+import com.mediaalterations.mainservice.dto.GifConvertRequest;
+import com.mediaalterations.mainservice.dto.MergeConvertRequest;
+import com.mediaalterations.mainservice.dto.OrderedMedia;
+import com.mediaalterations.mainservice.dto.VideoConvertRequest;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Request mixes shaped like production submissions: mostly video, then
+ * audio and GIF, with a small share of requests the validation rejects.
+ * Benchmarks cycle through a mix so neither the JIT nor the compiler's
+ * template caches see a single constant request.
+ */
+public final class SubmissionMix {
+
+    public static final String INPUT_PATH = "/data/storage/u-4f2a/uploads/holiday footage (final).mov";
+    public static final String OUTPUT_PATH = "/data/storage/u-4f2a/outputs/7c9e6679-7425-40de-944b-e07fc1f90ae7.mp4";
+
+    // share of each kind in a mixed batch, out of 20
+    private static final int VIDEO_SHARE = 11;
+    private static final int AUDIO_SHARE = 6;
+
+    private SubmissionMix() {
+    }
+
+    public static List<AudioConvertRequest> audio() {
+        return List.of(
+                new AudioConvertRequest("s-a1", "podcast.wav", "00:42:10", "mp3", 192, "stereo", 44100),
+                new AudioConvertRequest("s-a2", "interview.mp4", "00:18:03", "aac", 128, "mono", 48000),
+                new AudioConvertRequest("s-a3", "master.flac", "00:04:31", "wav", 320, "stereo", 44100),
+                new AudioConvertRequest("s-a4", "voice memo.m4a", "00:01:12", "flac", 256, "mono", 96000),
+                new AudioConvertRequest("s-a5", "set.mp3", "01:58:40", "ogg", 96, "stereo", 22050),
+                new AudioConvertRequest("s-a6", "clip.mkv", "00:03:00", "m4a", 64, "stereo", 44100));
+    }
+
+    public static List<VideoConvertRequest> video() {
+        return List.of(
+                new VideoConvertRequest("s-v1", "holiday.mov", "00:10:00", "mp4", "h264", "aac", "medium", 23, 30, "p720"),
+                new VideoConvertRequest("s-v2", "lecture.mkv", "01:32:00", "mp4", "h264", "aac", "fast", 26, 0, "p1080"),
+                new VideoConvertRequest("s-v3", "drone.mp4", "00:06:40", "mkv", "h265", "flac", "slow", 20, 0, "source"),
+                new VideoConvertRequest("s-v4", "screen.mov", "00:25:13", "webm", "vp9", "opus", "fast", 30, 60, "p1080"),
+                new VideoConvertRequest("s-v5", "raw.avi", "00:02:05", "mp4", "source", "source", "ultrafast", 0, 0, "source"),
+                new VideoConvertRequest("s-v6", "film.mkv", "02:01:44", "mkv", "av1", "dts", "slow", 28, 24, "p2160"),
+                new VideoConvertRequest("s-v7", "phone.mp4", "00:00:48", "mp4", "h264", "aac", "veryslow", 18, 30, "p480"),
+                new VideoConvertRequest("s-v8", "stream.flv", "03:10:00", "avi", "source", "ac3", "medium", 0, 0, "source"));
+    }
+
+    public static List<GifConvertRequest> gif() {
+        return List.of(
+                new GifConvertRequest("s-g1", "reaction.mp4", "00:00:30", "gif", 3, 4, 12, "p360"),
+                new GifConvertRequest("s-g2", "goal.mkv", "00:01:30", "gif", 61, 6, 15, "p480"),
+                new GifConvertRequest("s-g3", "cat.mov", "00:00:12", "gif", 0, 10, 0, "source"));
+    }
+
+    public static List<MergeConvertRequest> merge() {
+        return List.of(
+                new MergeConvertRequest(List.of(
+                        new OrderedMedia(INPUT_PATH, "video"),
+                        new OrderedMedia("/data/storage/u-4f2a/uploads/music.mp3", "audio")),
+                        "00:03:00", "mp4", "h264", "aac", 720),
+                new MergeConvertRequest(List.of(
+                        new OrderedMedia("/data/storage/u-4f2a/uploads/intro.mp4", "video"),
+                        new OrderedMedia(INPUT_PATH, "video"),
+                        new OrderedMedia("/data/storage/u-4f2a/uploads/outro.mp4", "video"),
+                        new OrderedMedia("/data/storage/u-4f2a/uploads/narration.wav", "audio")),
+                        "00:12:40", "mkv", "h265", "aac", 1080),
+                new MergeConvertRequest(List.of(
+                        new OrderedMedia("/data/storage/u-4f2a/uploads/a.webm", "video"),
+                        new OrderedMedia("/data/storage/u-4f2a/uploads/b.webm", "video")),
+                        "00:01:10", "webm", "vp9", "opus", 0));
+    }
+
+    // each fails a different check, so the mix exercises early and late rejections
+    public static List<ConvertRequest> invalid() {
+        return List.of(
+                new AudioConvertRequest("s-x1", "a.wav", "00:01:00", "mp5", 192, "stereo", 44100),
+                new AudioConvertRequest("s-x2", "a.wav", "00:01:00", "flac", 100, "stereo", 44100),
+                new VideoConvertRequest("s-x3", "v.mov", "00:10:00", "mp4", "h266", "aac", "medium", 23, 30, "p720"),
+                new VideoConvertRequest("s-x4", "v.mov", "00:10:00", "mp4", "vp9", "aac", "medium", 23, 30, "p720"),
+                new VideoConvertRequest("s-x5", "v.mov", "00:10:00", "webm", "h264", "opus", "fast", 30, 0, "p1080"),
+                new VideoConvertRequest("s-x6", "v.mov", "00:10:00", "mp4", "h264", "aac", "medium", 60, 30, "p720"),
+                new GifConvertRequest("s-x7", "g.mp4", "00:00:30", "gif", 0, 0, 12, "p360"));
+    }
+
+    /**
+     * A shuffled batch of {@code size} single-input requests of which
+     * {@code invalidPercent} percent fail validation.
+     */
+    public static List<ConvertRequest> mixed(int size, int invalidPercent, long seed) {
+        Random random = new Random(seed);
+        List<AudioConvertRequest> audio = audio();
+        List<VideoConvertRequest> video = video();
+        List<GifConvertRequest> gif = gif();
+        List<ConvertRequest> invalid = invalid();
+
+        int invalidCount = size * invalidPercent / 100;
+        List<ConvertRequest> requests = new ArrayList<>(size);
+        for (int i = 0; i < invalidCount; i++)
+            requests.add(invalid.get(i % invalid.size()));
+        for (int i = invalidCount; i < size; i++) {
+            int slot = random.nextInt(20);
+            if (slot < VIDEO_SHARE)
+                requests.add(video.get(random.nextInt(video.size())));
+            else if (slot < VIDEO_SHARE + AUDIO_SHARE)
+                requests.add(audio.get(random.nextInt(audio.size())));
+            else
+                requests.add(gif.get(random.nextInt(gif.size())));
+        }
+        Collections.shuffle(requests, random);
+        return requests;
+    }
+}
@@ -0,0 +1,81 @@
+package com.mediaalterations.mainservice.command;
+
+import com.mediaalterations.mainservice.benchmark.SubmissionMix;
+import com.mediaalterations.mainservice.dto.AudioConvertRequest;
+import com.mediaalterations.mainservice.dto.GifConvertRequest;
+import com.mediaalterations.mainservice.dto.MergeConvertRequest;
+import com.mediaalterations.mainservice.dto.VideoConvertRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The four command builders on their request mixes. Each call takes the
+ * next request of its mix, so the template caches are warm but every
+ * template of the mix stays in play; {@code render} is included because
+ * the creation path stores the rendered command on the process row.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CommandCompilerBenchmark {
+
+    private final FfmpegCommandCompiler compiler = new FfmpegCommandCompiler();
+
+    private AudioConvertRequest[] audio;
+    private VideoConvertRequest[] video;
+    private GifConvertRequest[] gif;
+    private MergeConvertRequest[] merge;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        audio = SubmissionMix.audio().toArray(AudioConvertRequest[]::new);
+        video = SubmissionMix.video().toArray(VideoConvertRequest[]::new);
+        gif = SubmissionMix.gif().toArray(GifConvertRequest[]::new);
+        merge = SubmissionMix.merge().toArray(MergeConvertRequest[]::new);
+    }
+
+    @Benchmark
+    public String audio() {
+        return compiler.compile(audio[next++ % audio.length], SubmissionMix.INPUT_PATH, SubmissionMix.OUTPUT_PATH)
+                .render();
+    }
+
+    @Benchmark
+    public String video() {
+        return compiler.compile(video[next++ % video.length], SubmissionMix.INPUT_PATH, SubmissionMix.OUTPUT_PATH)
+                .render();
+    }
+
+    @Benchmark
+    public String gif() {
+        return compiler.compile(gif[next++ % gif.length], SubmissionMix.INPUT_PATH, SubmissionMix.OUTPUT_PATH)
+                .render();
+    }
+
+    @Benchmark
+    public String merge() {
+        return compiler.compile(merge[next++ % merge.length], SubmissionMix.OUTPUT_PATH).render();
+    }
+
+    // argv only, as handed to the outbox payload
+    @Benchmark
+    public List<String> videoArgs() {
+        return compiler.compile(video[next++ % video.length], SubmissionMix.INPUT_PATH, SubmissionMix.OUTPUT_PATH)
+                .args();
+    }
+}
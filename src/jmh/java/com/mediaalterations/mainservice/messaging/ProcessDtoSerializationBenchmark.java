@@ -0,0 +1,79 @@
+package com.mediaalterations.mainservice.messaging;
+
+import com.mediaalterations.mainservice.benchmark.SubmissionMix;
+import com.mediaalterations.mainservice.dto.ProcessDto;
+import com.mediaalterations.mainservice.entity.ProcessStatus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.JacksonJsonMessageConverter;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serializing the worker payload the way ProcessEventOutbox does when it
+ * writes an outbox row, for a single-output job and for a fan-out job that
+ * carries the paths of its other outputs.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProcessDtoSerializationBenchmark {
+
+    @Param({ "0", "4" })
+    public int fanOutOutputs;
+
+    private final JacksonJsonMessageConverter converter = new JacksonJsonMessageConverter();
+    private ProcessDto event;
+
+    @Setup
+    public void setUp() {
+        List<String> args = new ArrayList<>(List.of("-y", "-i", SubmissionMix.INPUT_PATH, "-progress", "pipe:1",
+                "-map", "0:v:0", "-map", "0:a?", "-c:v", "libx264", "-preset", "medium", "-crf", "23",
+                "-vf", "scale=-2:720", "-pix_fmt", "yuv420p", "-c:a", "aac", "-b:a", "192k",
+                SubmissionMix.OUTPUT_PATH));
+        Map<String, String> others = null;
+        if (fanOutOutputs > 0) {
+            others = new LinkedHashMap<>();
+            for (int i = 0; i < fanOutOutputs; i++)
+                others.put(UUID.randomUUID().toString(), SubmissionMix.OUTPUT_PATH.replace(".mp4", "-" + i + ".mkv"));
+        }
+        event = new ProcessDto(
+                UUID.fromString("0192f3a4-5b6c-7d8e-9f01-23456789abcd"),
+                Map.of("s-v1", SubmissionMix.INPUT_PATH),
+                "o-v1",
+                SubmissionMix.OUTPUT_PATH,
+                "7c9e6679-7425-40de-944b-e07fc1f90ae7.mp4",
+                "0 KB",
+                String.join(" ", args),
+                args,
+                others,
+                ProcessStatus.WAITING,
+                "u-4f2a",
+                LocalDateTime.now());
+    }
+
+    @Benchmark
+    public Message toMessage() {
+        return converter.toMessage(event, new MessageProperties());
+    }
+}
@@ -0,0 +1,63 @@
+package com.mediaalterations.mainservice.service;
+
+import com.mediaalterations.mainservice.benchmark.SubmissionMix;
+import com.mediaalterations.mainservice.dto.ProcessDto;
+import com.mediaalterations.mainservice.dto.ProcessResponseDto;
+import com.mediaalterations.mainservice.entity.Process;
+import com.mediaalterations.mainservice.entity.ProcessStatus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mapping a saved process to the worker payload and to the API response,
+ * both done once per created process.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProcessMappingBenchmark {
+
+    private Process process;
+    private Map<String, String> inputs;
+    private List<String> args;
+
+    @Setup
+    public void setUp() {
+        args = List.of("-y", "-i", SubmissionMix.INPUT_PATH, "-progress", "pipe:1", "-map", "0:v:0", "-map", "0:a?",
+                "-c:v", "libx264", "-preset", "medium", "-crf", "23", "-r", "30", "-vf", "scale=-2:720",
+                "-pix_fmt", "yuv420p", "-c:a", "aac", "-b:a", "192k", "-movflags", "+faststart",
+                SubmissionMix.OUTPUT_PATH);
+        process = new Process("s-v1", "o-v1", String.join(" ", args), ProcessStatus.WAITING, "u-4f2a",
+                "00:10:00", "7c9e6679-7425-40de-944b-e07fc1f90ae7.mp4", "0 KB", true);
+        process.setId(UUID.fromString("0192f3a4-5b6c-7d8e-9f01-23456789abcd"));
+        process.setCreatedAt(LocalDateTime.now());
+        inputs = Map.of("s-v1", SubmissionMix.INPUT_PATH);
+    }
+
+    @Benchmark
+    public ProcessDto toDto() {
+        return ProcessServiceImpl.mapToDto(process, inputs, SubmissionMix.OUTPUT_PATH, process.getFileName(), args);
+    }
+
+    @Benchmark
+    public ProcessResponseDto toResponseDto() {
+        return ProcessResponseDto.from(process);
+    }
+}
@@ -0,0 +1,65 @@
+package com.mediaalterations.mainservice.service;
+
+import com.mediaalterations.mainservice.benchmark.SubmissionMix;
+import com.mediaalterations.mainservice.dto.ConvertRequest;
+import com.mediaalterations.mainservice.dto.MergeConvertRequest;
+import com.mediaalterations.mainservice.exceptions.ProcessCreationException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The validateRequest overloads over mixes with a growing share of
+ * rejected requests. A rejection throws ProcessCreationException with a
+ * full stack trace, so the invalid share dominates the cost and the
+ * allocation rate.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequestValidationBenchmark {
+
+    @Param({ "0", "5", "50" })
+    public int invalidPercent;
+
+    private ConvertRequest[] requests;
+    private MergeConvertRequest[] merges;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        requests = SubmissionMix.mixed(1024, invalidPercent, 42).toArray(ConvertRequest[]::new);
+        merges = SubmissionMix.merge().toArray(MergeConvertRequest[]::new);
+    }
+
+    // returns the rejection so the exception path cannot be optimized away
+    @Benchmark
+    public Object single() {
+        try {
+            ProcessServiceImpl.validateRequest(requests[next++ & (requests.length - 1)]);
+            return null;
+        } catch (ProcessCreationException e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public MergeConvertRequest merge() {
+        MergeConvertRequest request = merges[next++ % merges.length];
+        ProcessServiceImpl.validateRequest(request);
+        return request;
+    }
+}
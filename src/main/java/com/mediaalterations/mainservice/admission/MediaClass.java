@@ -0,0 +1,19 @@
+package com.mediaalterations.mainservice.admission;
+
+import com.mediaalterations.mainservice.dto.AudioConvertRequest;
+import com.mediaalterations.mainservice.dto.ConvertRequest;
+import com.mediaalterations.mainservice.dto.GifConvertRequest;
+import com.mediaalterations.mainservice.dto.VideoConvertRequest;
+
+// what a submission produces, each with its own per-user rate limit
+public enum MediaClass {
+    AUDIO, VIDEO, GIF, MERGE;
+
+    public static MediaClass of(ConvertRequest request) {
+        return switch (request) {
+            case AudioConvertRequest audio -> AUDIO;
+            case VideoConvertRequest video -> VIDEO;
+            case GifConvertRequest gif -> GIF;
+        };
+    }
+}
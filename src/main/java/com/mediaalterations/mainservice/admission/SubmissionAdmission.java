@@ -0,0 +1,118 @@
+package com.mediaalterations.mainservice.admission;
+
+import com.mediaalterations.mainservice.config.AdmissionProperties;
+import com.mediaalterations.mainservice.dto.ConvertRequest;
+import com.mediaalterations.mainservice.exceptions.RateLimitedException;
+import com.mediaalterations.mainservice.exceptions.ServiceOverloadedException;
+import com.mediaalterations.mainservice.queue.FairShareDispatcher;
+import com.mediaalterations.mainservice.queue.WaitingQueueIndex;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Gate in front of the creation endpoints. A submission is first checked
+ * against the global load, the number of jobs waiting for a worker and the
+ * estimated worker-seconds held back by the dispatcher, and rejected with
+ * 503 above either limit. It then takes permits from the user's token
+ * bucket for each of its media classes and is rejected with 429 when one of
+ * them is empty, giving back what the other classes already took. The
+ * load is sampled on a schedule so the check itself never takes the queue
+ * locks.
+ */
+@Component
+@Slf4j
+public class SubmissionAdmission {
+
+    private record BucketKey(String userId, MediaClass mediaClass) {
+    }
+
+    private final AdmissionProperties properties;
+    private final WaitingQueueIndex waitingQueue;
+    private final FairShareDispatcher dispatcher;
+    private final MeterRegistry meterRegistry;
+
+    private final Map<BucketKey, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private volatile int waitingJobs;
+    private volatile double backlogSeconds;
+
+    public SubmissionAdmission(AdmissionProperties properties, WaitingQueueIndex waitingQueue,
+            FairShareDispatcher dispatcher, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.waitingQueue = waitingQueue;
+        this.dispatcher = dispatcher;
+        this.meterRegistry = meterRegistry;
+    }
+
+    public void admit(String userId, MediaClass mediaClass) {
+        admit(userId, Map.of(mediaClass, 1));
+    }
+
+    // one permit per output, taken from the bucket of each output's media class
+    public void admit(String userId, List<? extends ConvertRequest> requests) {
+        Map<MediaClass, Integer> permits = new EnumMap<>(MediaClass.class);
+        for (ConvertRequest request : requests) {
+            if (request != null)
+                permits.merge(MediaClass.of(request), 1, Integer::sum);
+        }
+        admit(userId, permits);
+    }
+
+    @Scheduled(fixedDelayString = "${process.admission.load-sample-ms:1000}")
+    public void sampleLoad() {
+        waitingJobs = waitingQueue.size() + dispatcher.heldCount();
+        backlogSeconds = dispatcher.heldSeconds();
+    }
+
+    @Scheduled(fixedDelayString = "${process.admission.cleanup-ms:60000}")
+    public void evictIdleBuckets() {
+        long now = System.nanoTime();
+        long idle = properties.idleBucketTtl().toNanos();
+        buckets.values().removeIf(bucket -> bucket.idleSince(now, idle));
+    }
+
+    private void admit(String userId, Map<MediaClass, Integer> permits) {
+        if (!properties.enabled() || permits.isEmpty())
+            return;
+
+        if (waitingJobs > properties.maxWaitingJobs() || backlogSeconds > properties.maxBacklogSeconds()) {
+            reject("overloaded", permits);
+            log.warn("Submission rejected, pipeline overloaded. userId={}, waitingJobs={}, backlogSeconds={}",
+                    userId, waitingJobs, backlogSeconds);
+            throw new ServiceOverloadedException("Too many jobs are queued, try again later",
+                    properties.overloadRetryAfter());
+        }
+
+        long now = System.nanoTime();
+        Map<MediaClass, TokenBucket> taken = new EnumMap<>(MediaClass.class);
+        for (Map.Entry<MediaClass, Integer> entry : permits.entrySet()) {
+            AdmissionProperties.Limit limit = properties.limitFor(entry.getKey());
+            TokenBucket bucket = buckets.computeIfAbsent(new BucketKey(userId, entry.getKey()),
+                    key -> new TokenBucket(limit.perMinute(), limit.burst(), now));
+            long waitNanos = bucket.tryAcquire(entry.getValue(), now);
+            if (waitNanos == 0) {
+                taken.put(entry.getKey(), bucket);
+            } else {
+                taken.forEach((mediaClass, acquired) -> acquired.release(permits.get(mediaClass)));
+                reject("rate_limited", permits);
+                log.info("Submission rate limited. userId={}, mediaClass={}, permits={}",
+                        userId, entry.getKey(), entry.getValue());
+                throw new RateLimitedException("Too many " + entry.getKey().name().toLowerCase()
+                        + " submissions, slow down", Duration.ofNanos(waitNanos));
+            }
+        }
+    }
+
+    private void reject(String reason, Map<MediaClass, Integer> permits) {
+        for (MediaClass mediaClass : permits.keySet())
+            meterRegistry.counter("process.admission.rejected",
+                    "reason", reason, "mediaClass", mediaClass.name()).increment();
+    }
+}
@@ -0,0 +1,54 @@
+package com.mediaalterations.mainservice.admission;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket in its virtual scheduling form: the only state is
+ * the time at which the bucket would be full again, advanced by one
+ * emission interval per permit with a compare-and-set. A request is
+ * admitted while that time stays within the burst tolerance of now.
+ */
+final class TokenBucket {
+
+    private final long emissionNanos;
+    private final long toleranceNanos;
+    private final AtomicLong fullAt;
+
+    TokenBucket(double permitsPerMinute, int burst, long nowNanos) {
+        this.emissionNanos = (long) (60_000_000_000L / permitsPerMinute);
+        this.toleranceNanos = emissionNanos * Math.max(1, burst);
+        this.fullAt = new AtomicLong(nowNanos);
+    }
+
+    /**
+     * A request for more permits than the burst only fits a full bucket and
+     * is still charged in full, so the bucket stays in debt until the rate
+     * has paid for every permit.
+     *
+     * @return 0 when the permits were taken, otherwise the nanoseconds until
+     *         they would be available
+     */
+    long tryAcquire(int permits, long nowNanos) {
+        long cost = emissionNanos * permits;
+        long allowance = Math.max(cost, toleranceNanos);
+        while (true) {
+            long current = fullAt.get();
+            long next = Math.max(current, nowNanos) + cost;
+            long wait = next - nowNanos - allowance;
+            if (wait > 0)
+                return wait;
+            if (fullAt.compareAndSet(current, next))
+                return 0;
+        }
+    }
+
+    // gives back permits taken by tryAcquire for a submission that was rejected after all
+    void release(int permits) {
+        fullAt.addAndGet(-emissionNanos * permits);
+    }
+
+    // a full bucket that has not been used for the given time can be dropped and recreated
+    boolean idleSince(long nowNanos, long idleNanos) {
+        return fullAt.get() + idleNanos < nowNanos;
+    }
+}
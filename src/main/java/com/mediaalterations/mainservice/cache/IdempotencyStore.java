@@ -0,0 +1,89 @@
+package com.mediaalterations.mainservice.cache;
+
+import com.mediaalterations.mainservice.exceptions.IdempotencyKeyReusedException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Remembers the response of a creation request per (user, operation,
+ * Idempotency-Key) so client retries replay the original result instead of
+ * creating a second process. A retry that arrives while the first attempt is
+ * still running waits for it; failed attempts are forgotten so they can be
+ * retried. Each key also keeps a fingerprint of the request body, and reusing
+ * a key with a different body is rejected instead of replayed.
+ */
+@Component
+@Slf4j
+public class IdempotencyStore {
+
+    private record Entry(byte[] fingerprint, CompletableFuture<Object> response) {
+    }
+
+    private final ExpiringLruCache<String, Entry> responses;
+    private final JsonMapper jsonMapper;
+
+    public IdempotencyStore(
+            @Value("${process.idempotency.max-keys:10000}") int maxKeys,
+            @Value("${process.idempotency.ttl:24h}") Duration ttl,
+            JsonMapper jsonMapper) {
+        this.responses = new ExpiringLruCache<>(maxKeys, ttl);
+        this.jsonMapper = jsonMapper;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String userId, String operation, String idempotencyKey, Object request, Callable<T> action)
+            throws Exception {
+        if (idempotencyKey == null || idempotencyKey.isBlank())
+            return action.call();
+
+        String key = userId + '|' + operation + '|' + idempotencyKey;
+        Entry pending = new Entry(fingerprint(request), new CompletableFuture<>());
+        Entry existing = responses.putIfAbsent(key, pending);
+
+        if (existing != null) {
+            if (!MessageDigest.isEqual(existing.fingerprint(), pending.fingerprint())) {
+                log.warn("Idempotency key reused with a different request. userId={}, operation={}, key={}",
+                        userId, operation, idempotencyKey);
+                throw new IdempotencyKeyReusedException(
+                        "Idempotency-Key was already used for a different request");
+            }
+            log.info("Replaying idempotent request. userId={}, operation={}, key={}",
+                    userId, operation, idempotencyKey);
+            try {
+                return (T) existing.response().join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof Exception cause)
+                    throw cause;
+                throw e;
+            }
+        }
+
+        // Throwable, so waiting retries are released even when the action dies with an Error
+        try {
+            T result = action.call();
+            pending.response().complete(result);
+            return result;
+        } catch (Throwable e) {
+            responses.remove(key, pending);
+            pending.response().completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private byte[] fingerprint(Object request) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(jsonMapper.writeValueAsBytes(request));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
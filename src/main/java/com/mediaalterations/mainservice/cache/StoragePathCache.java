@@ -0,0 +1,201 @@
+package com.mediaalterations.mainservice.cache;
+
+import com.mediaalterations.mainservice.exceptions.ExternalServiceException;
+import com.mediaalterations.mainservice.feignClients.StorageCalls;
+import com.mediaalterations.mainservice.feignClients.StorageClient;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caches storage id to path resolution per user in front of
+ * {@link StorageClient}. Concurrent misses for the same key share one remote
+ * call; entries expire after a TTL and the least recently used are evicted
+ * once the cache is full.
+ */
+@Component
+@Slf4j
+public class StoragePathCache {
+
+    private record Key(String userId, String storageId) {
+    }
+
+    private final StorageClient storageClient;
+    private final StorageCalls storageCalls;
+    private final ExpiringLruCache<Key, String> paths;
+    private final Map<Key, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Timer loadTimer;
+
+    public StoragePathCache(
+            StorageClient storageClient,
+            StorageCalls storageCalls,
+            MeterRegistry meterRegistry,
+            @Value("${services.storage-service.path-cache.max-entries:10000}") int maxEntries,
+            @Value("${services.storage-service.path-cache.ttl:10m}") Duration ttl) {
+        this.storageClient = storageClient;
+        this.storageCalls = storageCalls;
+        this.paths = new ExpiringLruCache<>(maxEntries, ttl);
+        this.hits = Counter.builder("storage.path.cache")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("storage.path.cache")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        this.loadTimer = Timer.builder("storage.path.cache.load")
+                .description("Latency of storage path lookups on cache miss")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        Gauge.builder("storage.path.cache.hit.ratio", this, StoragePathCache::hitRatio)
+                .register(meterRegistry);
+        Gauge.builder("storage.path.cache.size", paths, ExpiringLruCache::size)
+                .register(meterRegistry);
+    }
+
+    public String getPath(String storageId, String userId) {
+        Key key = new Key(userId, storageId);
+        String cached = paths.get(key);
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+        misses.increment();
+
+        CompletableFuture<String> loading = new CompletableFuture<>();
+        CompletableFuture<String> existing = inFlight.putIfAbsent(key, loading);
+        if (existing != null)
+            return await(existing);
+
+        try {
+            String path = loadTimer.record(() -> loadPath(storageId, userId));
+            complete(key, loading, path);
+            return path;
+        } catch (RuntimeException e) {
+            inFlight.remove(key, loading);
+            loading.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Resolves several storage ids with at most one remote call for the ids
+     * that are neither cached nor already being loaded. Unknown ids are
+     * absent from the result.
+     */
+    public Map<String, String> getPaths(String[] storageIds, String userId) {
+        Map<String, String> resolved = new LinkedHashMap<>();
+        Map<String, CompletableFuture<String>> owned = new LinkedHashMap<>();
+        Map<String, CompletableFuture<String>> joined = new LinkedHashMap<>();
+
+        for (String storageId : Arrays.stream(storageIds).distinct().toList()) {
+            Key key = new Key(userId, storageId);
+            String cached = paths.get(key);
+            if (cached != null) {
+                hits.increment();
+                resolved.put(storageId, cached);
+                continue;
+            }
+            misses.increment();
+            CompletableFuture<String> loading = new CompletableFuture<>();
+            CompletableFuture<String> existing = inFlight.putIfAbsent(key, loading);
+            if (existing != null)
+                joined.put(storageId, existing);
+            else
+                owned.put(storageId, loading);
+        }
+
+        if (!owned.isEmpty()) {
+            String[] missing = owned.keySet().toArray(String[]::new);
+            Map<String, String> loaded;
+            try {
+                loaded = loadTimer.record(() -> loadPaths(missing, userId));
+            } catch (RuntimeException e) {
+                owned.forEach((storageId, loading) -> {
+                    inFlight.remove(new Key(userId, storageId), loading);
+                    loading.completeExceptionally(e);
+                });
+                throw e;
+            }
+            owned.forEach((storageId, loading) -> {
+                String path = loaded.get(storageId);
+                complete(new Key(userId, storageId), loading, path);
+                if (path != null)
+                    resolved.put(storageId, path);
+            });
+        }
+
+        joined.forEach((storageId, loading) -> {
+            String path = await(loading);
+            if (path != null)
+                resolved.put(storageId, path);
+        });
+
+        return resolved;
+    }
+
+    public void invalidate(String userId, Collection<String> storageIds) {
+        for (String storageId : storageIds) {
+            Key key = new Key(userId, storageId);
+            paths.remove(key);
+            // a load racing with the invalidation must not repopulate the entry
+            inFlight.remove(key);
+        }
+    }
+
+    private void complete(Key key, CompletableFuture<String> loading, String path) {
+        if (inFlight.remove(key, loading) && path != null)
+            paths.put(key, path);
+        loading.complete(path);
+    }
+
+    private String loadPath(String storageId, String userId) {
+        ResponseEntity<String> res = storageCalls.call(StorageCalls.GET_PATH,
+                () -> storageClient.getPathFromStorageId(storageId, userId));
+        if (res.getStatusCode().isError() || res.getBody() == null) {
+            log.error("Storage service error while resolving path. storageId={}", storageId);
+            throw new ExternalServiceException("Storage service failure");
+        }
+        return res.getBody();
+    }
+
+    private Map<String, String> loadPaths(String[] storageIds, String userId) {
+        ResponseEntity<Map<String, String>> res = storageCalls.call(StorageCalls.GET_ALL_PATHS,
+                () -> storageClient.getAllPathsFromStorageIds(storageIds, userId));
+        if (res.getStatusCode().isError() || res.getBody() == null) {
+            log.error("Storage service error while resolving paths. count={}", storageIds.length);
+            throw new ExternalServiceException("Storage service failure");
+        }
+        return res.getBody();
+    }
+
+    private static String await(CompletableFuture<String> loading) {
+        try {
+            return loading.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause)
+                throw cause;
+            throw e;
+        }
+    }
+
+    private double hitRatio() {
+        double total = hits.count() + misses.count();
+        return total == 0 ? 0 : hits.count() / total;
+    }
+}
@@ -0,0 +1,67 @@
+package com.mediaalterations.mainservice.cache;
+
+import com.mediaalterations.mainservice.entity.Process;
+import com.mediaalterations.mainservice.entity.ProcessStatus;
+import com.mediaalterations.mainservice.repository.ProcessRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * Finds completed processes that already produced the requested output. The
+ * key is the input storage id, the output container and the ffmpeg command
+ * rendered with placeholder paths, so only settings that actually change the
+ * output take part in the match. The container is keyed on its own because
+ * ffmpeg picks the muxer from the output path's extension, so e.g. mkv and
+ * mov stream copies render the same command.
+ */
+@Component
+public class TranscodeResultCache {
+
+    public static final String INPUT_PLACEHOLDER = "{input}";
+    public static final String OUTPUT_PLACEHOLDER = "{output}";
+
+    private final ProcessRepository processRepository;
+    private final Counter hits;
+    private final Counter misses;
+
+    public TranscodeResultCache(ProcessRepository processRepository, MeterRegistry meterRegistry) {
+        this.processRepository = processRepository;
+        this.hits = Counter.builder("process.result.cache")
+                .description("Lookups of reusable completed transcodes")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("process.result.cache")
+                .description("Lookups of reusable completed transcodes")
+                .tag("result", "miss")
+                .register(meterRegistry);
+    }
+
+    public String keyFor(String storageIdInput, String container, String commandTemplate) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(storageIdInput.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) '\n');
+            digest.update(container.toLowerCase(Locale.ROOT).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) '\n');
+            digest.update(commandTemplate.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    public Optional<Process> findCompleted(String resultKey) {
+        Optional<Process> existing = processRepository
+                .findFirstByResultKeyAndStatusOrderByCreatedAtDesc(resultKey, ProcessStatus.COMPLETED);
+        (existing.isPresent() ? hits : misses).increment();
+        return existing;
+    }
+}
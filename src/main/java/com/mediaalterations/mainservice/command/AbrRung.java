@@ -0,0 +1,38 @@
+package com.mediaalterations.mainservice.command;
+
+import com.mediaalterations.mainservice.dto.ResolutionType;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * One rendition of an adaptive bitrate ladder. Bitrates follow the common
+ * h264 VOD ladders; peak rate and buffer are derived from the average so
+ * every rendition is constrained the same way.
+ */
+public record AbrRung(ResolutionType resolution, int height, int videoKbps) {
+
+    private static final Map<ResolutionType, AbrRung> RUNGS = new EnumMap<>(Map.of(
+            ResolutionType.p144, new AbrRung(ResolutionType.p144, 144, 200),
+            ResolutionType.p240, new AbrRung(ResolutionType.p240, 240, 400),
+            ResolutionType.p360, new AbrRung(ResolutionType.p360, 360, 800),
+            ResolutionType.p480, new AbrRung(ResolutionType.p480, 480, 1400),
+            ResolutionType.p720, new AbrRung(ResolutionType.p720, 720, 2800),
+            ResolutionType.p1080, new AbrRung(ResolutionType.p1080, 1080, 5000),
+            ResolutionType.p1440, new AbrRung(ResolutionType.p1440, 1440, 8000),
+            ResolutionType.p2160, new AbrRung(ResolutionType.p2160, 2160, 14000)));
+
+    // empty for source, which has no fixed height to scale to
+    public static Optional<AbrRung> of(ResolutionType resolution) {
+        return Optional.ofNullable(RUNGS.get(resolution));
+    }
+
+    public int maxRateKbps() {
+        return videoKbps * 107 / 100;
+    }
+
+    public int bufferKbps() {
+        return videoKbps * 3 / 2;
+    }
+}
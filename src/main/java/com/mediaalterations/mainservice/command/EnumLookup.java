@@ -0,0 +1,46 @@
+package com.mediaalterations.mainservice.command;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Exception-free replacement for {@code Enum.valueOf} on request fields.
+ * Name tables are built once per enum type.
+ */
+public final class EnumLookup {
+
+    private record Names(Map<String, Enum<?>> exact, Map<String, Enum<?>> folded) {
+    }
+
+    private static final ClassValue<Names> NAMES = new ClassValue<>() {
+        @Override
+        protected Names computeValue(Class<?> type) {
+            Map<String, Enum<?>> exact = new HashMap<>();
+            Map<String, Enum<?>> folded = new HashMap<>();
+            for (Object constant : type.getEnumConstants()) {
+                Enum<?> value = (Enum<?>) constant;
+                exact.put(value.name(), value);
+                folded.putIfAbsent(value.name().toLowerCase(Locale.ROOT), value);
+            }
+            return new Names(Map.copyOf(exact), Map.copyOf(folded));
+        }
+    };
+
+    private EnumLookup() {
+    }
+
+    /** Same matching rules as {@code valueOf}, but empty instead of throwing. */
+    public static <E extends Enum<E>> Optional<E> find(Class<E> type, String name) {
+        if (name == null)
+            return Optional.empty();
+        return Optional.ofNullable(type.cast(NAMES.get(type).exact().get(name)));
+    }
+
+    public static <E extends Enum<E>> Optional<E> findIgnoreCase(Class<E> type, String name) {
+        if (name == null)
+            return Optional.empty();
+        return Optional.ofNullable(type.cast(NAMES.get(type).folded().get(name.toLowerCase(Locale.ROOT))));
+    }
+}
@@ -0,0 +1,25 @@
+package com.mediaalterations.mainservice.command;
+
+import java.util.List;
+
+/**
+ * A compiled FFmpeg invocation as an argv list (without the {@code ffmpeg}
+ * binary itself). Workers should execute {@link #args()} directly; the
+ * rendered form is kept for display, logging and result-cache keys.
+ */
+public record FfmpegCommand(List<String> args) {
+
+    public FfmpegCommand {
+        args = List.copyOf(args);
+    }
+
+    /** Space-joined form, identical to the legacy command string. */
+    public String render() {
+        return String.join(" ", args);
+    }
+
+    @Override
+    public String toString() {
+        return render();
+    }
+}
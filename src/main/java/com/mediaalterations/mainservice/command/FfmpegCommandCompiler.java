@@ -0,0 +1,670 @@
+package com.mediaalterations.mainservice.command;
+
+import com.mediaalterations.mainservice.dto.AudioCodecType;
+import com.mediaalterations.mainservice.dto.AudioConvertRequest;
+import com.mediaalterations.mainservice.dto.ConvertRequest;
+import com.mediaalterations.mainservice.dto.EncodingPresetType;
+import com.mediaalterations.mainservice.dto.GifConvertRequest;
+import com.mediaalterations.mainservice.dto.MediaType;
+import com.mediaalterations.mainservice.dto.MergeConvertRequest;
+import com.mediaalterations.mainservice.dto.OrderedMedia;
+import com.mediaalterations.mainservice.dto.ResolutionType;
+import com.mediaalterations.mainservice.dto.StreamingFormat;
+import com.mediaalterations.mainservice.dto.VideoCodecType;
+import com.mediaalterations.mainservice.dto.VideoConvertRequest;
+import com.mediaalterations.mainservice.exceptions.ProcessCreationException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Compiles convert requests into FFmpeg argv lists.
+ * <p>
+ * Everything that only depends on enum-valued request fields (codec, preset,
+ * resolution, container) is resolved once into a template and cached; a call
+ * only splices paths and numeric options into the template.
+ */
+@Component
+@Slf4j
+public class FfmpegCommandCompiler {
+
+    private static final Set<String> VIDEO_EXTENSIONS = Set.of(
+            "mp4", "mkv", "avi", "mov", "flv", "webm", "wmv", "m4v", "3gp");
+
+    private static final String PROGRESS = "pipe:1";
+    private static final String AUDIO_NORMALIZE =
+            ":a:0]aformat=sample_fmts=fltp:sample_rates=44100:channel_layouts=stereo[a";
+    private static final String GIF_PALETTE = ",split[s0][s1];[s0]palettegen[p];[s1][p]paletteuse";
+    private static final String GIF_DEFAULT_SCALE = "-2:480";
+    private static final int GIF_DEFAULT_FPS = 10;
+    private static final int MERGE_DEFAULT_HEIGHT = 720;
+
+    private record AudioTemplate(List<String> codecArgs, boolean channels, boolean bitrate) {
+    }
+
+    private record VideoKey(
+            VideoCodecType videoCodec,
+            AudioCodecType audioCodec,
+            EncodingPresetType preset,
+            ResolutionType resolution,
+            boolean faststart) {
+    }
+
+    private record VideoTemplate(
+            List<String> encoderArgs,
+            boolean rateControl,
+            boolean frameRate,
+            List<String> tailArgs) {
+    }
+
+    private record GifKey(int fps, ResolutionType resolution) {
+    }
+
+    private static final Map<MediaType, AudioTemplate> AUDIO_TEMPLATES = new EnumMap<>(MediaType.class);
+    private static final Map<ResolutionType, String> VIDEO_SCALES = new EnumMap<>(Map.of(
+            ResolutionType.p144, "-2:144",
+            ResolutionType.p240, "-2:240",
+            ResolutionType.p360, "-2:360",
+            ResolutionType.p480, "-2:480",
+            ResolutionType.p720, "-2:720",
+            ResolutionType.p1080, "-2:1080",
+            ResolutionType.p1440, "-2:1440",
+            ResolutionType.p2160, "-2:2160"));
+    private static final Map<ResolutionType, String> GIF_SCALES = new EnumMap<>(Map.of(
+            ResolutionType.source, GIF_DEFAULT_SCALE,
+            ResolutionType.p144, "-2:144",
+            ResolutionType.p240, "-2:240",
+            ResolutionType.p360, "-2:360",
+            ResolutionType.p480, "-2:480",
+            ResolutionType.p720, "-2:720",
+            ResolutionType.p1080, "-2:1080"));
+
+    static {
+        for (MediaType mediaType : MediaType.values()) {
+            AUDIO_TEMPLATES.put(mediaType, switch (mediaType) {
+                case aac, m4a -> new AudioTemplate(List.of("-c:a", "aac"), true, true);
+                case wav -> new AudioTemplate(List.of("-c:a", "pcm_s16le"), false, false);
+                case flac -> new AudioTemplate(List.of("-c:a", "flac"), false, false);
+                case ogg -> new AudioTemplate(List.of("-c:a", "libvorbis"), true, true);
+                default -> new AudioTemplate(List.of("-c:a", "libmp3lame"), true, true);
+            });
+        }
+    }
+
+    // keys are bounded by the enum domains, so these never grow past a few thousand entries
+    private final Map<VideoKey, VideoTemplate> videoTemplates = new ConcurrentHashMap<>();
+    private final Map<GifKey, String> gifFilters = new ConcurrentHashMap<>();
+
+    public FfmpegCommand compile(ConvertRequest request, String inputPath, String outputPath) {
+        return switch (request) {
+            case AudioConvertRequest audio -> compile(audio, inputPath, outputPath);
+            case VideoConvertRequest video -> compile(video, inputPath, outputPath);
+            case GifConvertRequest gif -> compile(gif, inputPath, outputPath);
+        };
+    }
+
+    public FfmpegCommand compile(AudioConvertRequest request, String inputPath, String outputPath) {
+        List<String> args = new ArrayList<>(16);
+        addInput(args, inputPath);
+        addOutput(args, request, outputPath);
+        return finish(args);
+    }
+
+    public FfmpegCommand compile(VideoConvertRequest request, String inputPath, String outputPath) {
+        List<String> args = new ArrayList<>(32);
+        addInput(args, inputPath);
+        addOutput(args, request, outputPath);
+        return finish(args);
+    }
+
+    private static void addInput(List<String> args, String inputPath) {
+        args.add("-y");
+        args.add("-i");
+        args.add(inputPath);
+        args.add("-progress");
+        args.add(PROGRESS);
+    }
+
+    private void addOutput(List<String> args, AudioConvertRequest request, String outputPath) {
+        AudioTemplate template = EnumLookup.find(MediaType.class, request.toMediaType())
+                .map(AUDIO_TEMPLATES::get)
+                .orElseThrow(() -> new ProcessCreationException("Unsupported media type", null));
+
+        if (hasVideoExtension(request.fileName()))
+            args.add("-vn");
+
+        args.addAll(template.codecArgs());
+
+        // Only add channel option when needed
+        if (template.channels()) {
+            args.add("-ac");
+            args.add("STEREO".equals(request.channelType()) ? "2" : "1");
+        }
+
+        args.add("-ar");
+        args.add(Integer.toString(request.sampleRate()));
+
+        if (template.bitrate()) {
+            args.add("-b:a");
+            args.add(request.bitrate() + "k");
+        }
+
+        args.add(outputPath);
+    }
+
+    private void addOutput(List<String> args, VideoConvertRequest request, String outputPath) {
+        VideoTemplate template = videoTemplates.computeIfAbsent(videoKey(request), FfmpegCommandCompiler::videoTemplate);
+
+        args.add("-map");
+        args.add("0:v:0");
+        args.add("-map");
+        args.add("0:a?");
+        args.addAll(template.encoderArgs());
+
+        if (template.rateControl() && request.crf() > 0) {
+            args.add("-crf");
+            args.add(Integer.toString(request.crf()));
+        }
+        if (template.frameRate() && request.frameRate() > 0) {
+            args.add("-r");
+            args.add(Integer.toString(request.frameRate()));
+        }
+
+        args.addAll(template.tailArgs());
+        args.add(outputPath);
+    }
+
+    public FfmpegCommand compile(GifConvertRequest request, String inputPath, String outputPath) {
+        String filter = gifScale(request) + GIF_PALETTE;
+
+        List<String> args = new ArrayList<>(16);
+        args.add("-y");
+        if (request.startTimeSeconds() > 0) {
+            args.add("-ss");
+            args.add(Integer.toString(request.startTimeSeconds()));
+        }
+        args.add("-i");
+        args.add(inputPath);
+        if (request.durationSeconds() > 0) {
+            args.add("-t");
+            args.add(Integer.toString(request.durationSeconds()));
+        }
+        args.add("-progress");
+        args.add(PROGRESS);
+        args.add("-filter_complex");
+        args.add(filter);
+        args.add("-loop");
+        args.add("0");
+        args.add(outputPath);
+        return finish(args);
+    }
+
+    /**
+     * Expects {@code mediaFiles} to carry resolved input paths in place of
+     * storage ids.
+     */
+    public FfmpegCommand compile(MergeConvertRequest request, String outputPath) {
+        List<OrderedMedia> media = request.mediaFiles();
+        int height = request.resolutionHeight() > 0 ? request.resolutionHeight() : MERGE_DEFAULT_HEIGHT;
+
+        List<String> args = new ArrayList<>(2 * media.size() + 20);
+        args.add("-y");
+        for (OrderedMedia file : media) {
+            args.add("-i");
+            args.add(file.storageId());
+        }
+        args.add("-progress");
+        args.add(PROGRESS);
+
+        StringBuilder filter = new StringBuilder(160 * media.size() + 48);
+        for (int i = 0; i < media.size(); i++) {
+            if ("video".equalsIgnoreCase(media.get(i).type())) {
+                filter.append('[').append(i).append(":v:0]scale=-2:").append(height)
+                        .append(":flags=lanczos[v").append(i).append("];");
+            } else {
+                // AUDIO → generate black screen video
+                filter.append("color=c=black:s=1280x").append(height)
+                        .append(":r=30:d=10[v").append(i).append("];");
+            }
+            filter.append('[').append(i).append(AUDIO_NORMALIZE).append(i).append("];");
+        }
+        for (int i = 0; i < media.size(); i++) {
+            filter.append("[v").append(i).append("][a").append(i).append(']');
+        }
+        filter.append("concat=n=").append(media.size()).append(":v=1:a=1[vout][aout]");
+
+        args.add("-filter_complex");
+        args.add(filter.toString());
+        args.add("-map");
+        args.add("[vout]");
+        args.add("-map");
+        args.add("[aout]");
+        args.add("-c:v");
+        args.add(request.videoCodec());
+        args.add("-c:a");
+        args.add(request.audioCodec());
+        args.add("-pix_fmt");
+        args.add("yuv420p");
+        if ("mp4".equalsIgnoreCase(request.toMediaType())) {
+            args.add("-movflags");
+            args.add("+faststart");
+        }
+        args.add(outputPath);
+        return finish(args);
+    }
+
+    /**
+     * Decodes the input once and writes every requested output from the same
+     * ffmpeg run. Audio and video outputs keep their single-output options;
+     * GIFs get a labelled chain in one filter graph that trims the decoded
+     * stream instead of seeking the shared input.
+     */
+    public FfmpegCommand compileFanOut(String inputPath, List<ConvertRequest> outputs, List<String> outputPaths) {
+        if (outputs.size() != outputPaths.size())
+            throw new IllegalArgumentException("Every output needs exactly one path");
+
+        List<String> args = new ArrayList<>(24 * outputs.size() + 8);
+        addInput(args, inputPath);
+
+        StringBuilder graph = new StringBuilder();
+        for (int i = 0; i < outputs.size(); i++) {
+            if (outputs.get(i) instanceof GifConvertRequest gif) {
+                if (!graph.isEmpty())
+                    graph.append(';');
+                graph.append("[0:v:0]");
+                if (gif.startTimeSeconds() > 0 || gif.durationSeconds() > 0) {
+                    graph.append("trim=");
+                    if (gif.startTimeSeconds() > 0)
+                        graph.append("start=").append(gif.startTimeSeconds());
+                    if (gif.durationSeconds() > 0)
+                        graph.append(gif.startTimeSeconds() > 0 ? ":" : "").append("duration=")
+                                .append(gif.durationSeconds());
+                    graph.append(",setpts=PTS-STARTPTS,");
+                }
+                graph.append(gifScale(gif))
+                        .append(",split[s0_").append(i).append("][s1_").append(i).append("];")
+                        .append("[s0_").append(i).append("]palettegen[p").append(i).append("];")
+                        .append("[s1_").append(i).append("][p").append(i).append("]paletteuse[gif").append(i)
+                        .append(']');
+            }
+        }
+        if (!graph.isEmpty()) {
+            args.add("-filter_complex");
+            args.add(graph.toString());
+        }
+
+        for (int i = 0; i < outputs.size(); i++) {
+            switch (outputs.get(i)) {
+                case AudioConvertRequest audio -> addOutput(args, audio, outputPaths.get(i));
+                case VideoConvertRequest video -> addOutput(args, video, outputPaths.get(i));
+                case GifConvertRequest gif -> {
+                    args.add("-map");
+                    args.add("[gif" + i + "]");
+                    args.add("-loop");
+                    args.add("0");
+                    args.add(outputPaths.get(i));
+                }
+            }
+        }
+        return finish(args);
+    }
+
+    /**
+     * Packages every rung of an ABR ladder from one decode: the video is split
+     * once and scaled per rung, keyframes are forced on the segment grid so
+     * renditions switch cleanly, and the muxer writes variant playlists or
+     * representations next to the master at {@code outputPath}. Segment files
+     * are named after the master so several ladders can share a directory.
+     * <p>
+     * Video rungs are mapped before any audio, so output stream i, and in DASH
+     * RepresentationID i, is rung i. Without {@code audio} the stream map and
+     * adaptation sets name video only, which silent sources need.
+     */
+    public FfmpegCommand compileAbr(
+            List<AbrRung> ladder,
+            StreamingFormat format,
+            EncodingPresetType preset,
+            int segmentSeconds,
+            boolean audio,
+            String inputPath,
+            String outputPath) {
+        if (ladder.isEmpty())
+            throw new IllegalArgumentException("ABR ladder needs at least one rendition");
+
+        int slash = outputPath.lastIndexOf('/');
+        String directory = outputPath.substring(0, slash + 1);
+        String masterName = outputPath.substring(slash + 1);
+        int dot = masterName.lastIndexOf('.');
+        String base = dot > 0 ? masterName.substring(0, dot) : masterName;
+
+        StringBuilder graph = new StringBuilder("[0:v:0]");
+        if (ladder.size() > 1) {
+            graph.append("split=").append(ladder.size());
+            for (int i = 0; i < ladder.size(); i++)
+                graph.append("[s").append(i).append(']');
+            graph.append(';');
+        }
+        for (int i = 0; i < ladder.size(); i++) {
+            if (ladder.size() > 1)
+                graph.append("[s").append(i).append(']');
+            graph.append("scale=-2:").append(ladder.get(i).height()).append("[v").append(i).append(']');
+            if (i < ladder.size() - 1)
+                graph.append(';');
+        }
+
+        List<String> args = new ArrayList<>(16 * ladder.size() + 40);
+        addInput(args, inputPath);
+        args.add("-filter_complex");
+        args.add(graph.toString());
+
+        for (int i = 0; i < ladder.size(); i++) {
+            args.add("-map");
+            args.add("[v" + i + "]");
+        }
+        // HLS pairs an audio copy with every variant; DASH shares one audio adaptation set
+        int audioCopies = !audio ? 0 : format == StreamingFormat.hls ? ladder.size() : 1;
+        for (int i = 0; i < audioCopies; i++) {
+            args.add("-map");
+            args.add("0:a:0?");
+        }
+
+        args.add("-c:v");
+        args.add("libx264");
+        if (preset != null) {
+            args.add("-preset");
+            args.add(preset.name());
+        }
+        args.add("-sc_threshold");
+        args.add("0");
+        args.add("-force_key_frames");
+        args.add("expr:gte(t,n_forced*" + segmentSeconds + ")");
+        args.add("-pix_fmt");
+        args.add("yuv420p");
+        for (int i = 0; i < ladder.size(); i++) {
+            AbrRung rung = ladder.get(i);
+            args.add("-b:v:" + i);
+            args.add(rung.videoKbps() + "k");
+            args.add("-maxrate:v:" + i);
+            args.add(rung.maxRateKbps() + "k");
+            args.add("-bufsize:v:" + i);
+            args.add(rung.bufferKbps() + "k");
+        }
+        if (audio) {
+            args.add("-c:a");
+            args.add("aac");
+            args.add("-b:a");
+            args.add("128k");
+            args.add("-ac");
+            args.add("2");
+        }
+
+        switch (format) {
+            case hls -> {
+                StringBuilder streamMap = new StringBuilder();
+                for (int i = 0; i < ladder.size(); i++) {
+                    if (i > 0)
+                        streamMap.append(' ');
+                    streamMap.append("v:").append(i);
+                    if (audio)
+                        streamMap.append(",a:").append(i);
+                }
+                args.add("-f");
+                args.add("hls");
+                args.add("-hls_time");
+                args.add(Integer.toString(segmentSeconds));
+                args.add("-hls_playlist_type");
+                args.add("vod");
+                args.add("-hls_flags");
+                args.add("independent_segments");
+                args.add("-hls_segment_filename");
+                args.add(directory + base + "_%v_%05d.ts");
+                args.add("-master_pl_name");
+                args.add(masterName);
+                args.add("-var_stream_map");
+                args.add(streamMap.toString());
+                args.add(directory + base + "_%v.m3u8");
+            }
+            case dash -> {
+                args.add("-f");
+                args.add("dash");
+                args.add("-seg_duration");
+                args.add(Integer.toString(segmentSeconds));
+                args.add("-use_template");
+                args.add("1");
+                args.add("-use_timeline");
+                args.add("1");
+                args.add("-init_seg_name");
+                args.add(base + "_init_$RepresentationID$.m4s");
+                args.add("-media_seg_name");
+                args.add(base + "_$RepresentationID$_$Number%05d$.m4s");
+                args.add("-adaptation_sets");
+                args.add(audio ? "id=0,streams=v id=1,streams=a" : "id=0,streams=v");
+                args.add(outputPath);
+            }
+        }
+        return finish(args);
+    }
+
+    // variant playlist the HLS muxer writes for rendition index, see compileAbr
+    public static String hlsVariantName(String outputPath, int index) {
+        String masterName = outputPath.substring(outputPath.lastIndexOf('/') + 1);
+        int dot = masterName.lastIndexOf('.');
+        return (dot > 0 ? masterName.substring(0, dot) : masterName) + "_" + index + ".m3u8";
+    }
+
+    /**
+     * One time range of a segmented encode, written as MPEG-TS so the finished
+     * segments can be joined with the concat protocol. Keyframes are forced on
+     * a fixed GOP grid; segment boundaries from {@link SegmentPlanner} lie on
+     * the same grid.
+     */
+    public FfmpegCommand compileSegment(
+            VideoConvertRequest request,
+            String inputPath,
+            String outputPath,
+            VideoSegment segment,
+            double gopSeconds) {
+        VideoKey key = videoKey(request);
+        VideoTemplate template = videoTemplates.computeIfAbsent(
+                new VideoKey(key.videoCodec(), key.audioCodec(), key.preset(), key.resolution(), false),
+                FfmpegCommandCompiler::videoTemplate);
+
+        List<String> args = new ArrayList<>(40);
+        args.add("-y");
+        if (segment.startSeconds() > 0) {
+            // input seeking: jumps to the previous keyframe, then decodes up to the exact start
+            args.add("-ss");
+            args.add(seconds(segment.startSeconds()));
+        }
+        args.add("-i");
+        args.add(inputPath);
+        if (!segment.last()) {
+            args.add("-t");
+            args.add(seconds(segment.durationSeconds()));
+        }
+        args.add("-progress");
+        args.add(PROGRESS);
+        args.add("-map");
+        args.add("0:v:0");
+        args.add("-map");
+        args.add("0:a?");
+        args.addAll(template.encoderArgs());
+
+        if (template.rateControl() && request.crf() > 0) {
+            args.add("-crf");
+            args.add(Integer.toString(request.crf()));
+        }
+        if (template.frameRate() && request.frameRate() > 0) {
+            args.add("-r");
+            args.add(Integer.toString(request.frameRate()));
+        }
+        args.add("-force_key_frames");
+        args.add("expr:gte(t,n_forced*" + seconds(gopSeconds) + ")");
+
+        args.addAll(template.tailArgs());
+        args.add("-f");
+        args.add("mpegts");
+        args.add(outputPath);
+        return finish(args);
+    }
+
+    /**
+     * Joins finished MPEG-TS segments, in order, into the final container
+     * without re-encoding.
+     */
+    public FfmpegCommand compileConcat(List<String> segmentPaths, String outputPath, VideoConvertRequest request) {
+        for (String path : segmentPaths) {
+            if (path.indexOf('|') >= 0)
+                throw new ProcessCreationException("Segment path cannot be concatenated", null);
+        }
+
+        List<String> args = new ArrayList<>(16);
+        args.add("-y");
+        args.add("-i");
+        args.add("concat:" + String.join("|", segmentPaths));
+        args.add("-progress");
+        args.add(PROGRESS);
+        args.add("-map");
+        args.add("0");
+        args.add("-c");
+        args.add("copy");
+
+        boolean mp4Family = "mp4".equalsIgnoreCase(request.toMediaType())
+                || "mov".equalsIgnoreCase(request.toMediaType());
+        if (mp4Family && AudioCodecType.aac.name().equalsIgnoreCase(request.audioCodec())) {
+            // ADTS headers from the transport stream are not valid in MP4
+            args.add("-bsf:a");
+            args.add("aac_adtstoasc");
+        }
+        if ("mp4".equalsIgnoreCase(request.toMediaType())) {
+            args.add("-movflags");
+            args.add("+faststart");
+        }
+        args.add(outputPath);
+        return finish(args);
+    }
+
+    // fps and scale part of the palette graph, shared by single and fan-out GIFs
+    private String gifScale(GifConvertRequest request) {
+        ResolutionType resolution = lookup(ResolutionType.class, request.resolution(), "Unsupported resolution");
+        if (resolution != null && !GIF_SCALES.containsKey(resolution))
+            throw new ProcessCreationException("Unsupported resolution", null);
+
+        int fps = request.fps() > 0 ? request.fps() : GIF_DEFAULT_FPS;
+        return gifFilters.computeIfAbsent(new GifKey(fps, resolution),
+                key -> "fps=" + key.fps() + ",scale="
+                        + (key.resolution() == null ? GIF_DEFAULT_SCALE : GIF_SCALES.get(key.resolution()))
+                        + ":flags=lanczos");
+    }
+
+    int cachedTemplateCount() {
+        return videoTemplates.size() + gifFilters.size();
+    }
+
+    private static VideoKey videoKey(VideoConvertRequest request) {
+        return new VideoKey(
+                lookup(VideoCodecType.class, request.videoCodec(), "Unsupported video codec"),
+                lookup(AudioCodecType.class, request.audioCodec(), "Unsupported audio codec"),
+                lookup(EncodingPresetType.class, request.encoderPreset(), "Unsupported encoder preset"),
+                lookup(ResolutionType.class, request.resolution(), "Unsupported resolution"),
+                "mp4".equalsIgnoreCase(request.toMediaType()));
+    }
+
+    private static VideoTemplate videoTemplate(VideoKey key) {
+        if (key.videoCodec() == null)
+            throw new ProcessCreationException("Unsupported video codec", null);
+        if (key.audioCodec() == null)
+            throw new ProcessCreationException("Unsupported audio codec", null);
+
+        List<String> encoder = new ArrayList<>();
+        List<String> tail = new ArrayList<>();
+        boolean transcodeVideo = key.videoCodec() != VideoCodecType.source;
+        boolean rateControl = key.videoCodec() == VideoCodecType.h264 || key.videoCodec() == VideoCodecType.h265;
+
+        if (!transcodeVideo) {
+            encoder.add("-c:v");
+            encoder.add("copy");
+        } else {
+            encoder.add("-c:v");
+            encoder.add(switch (key.videoCodec()) {
+                case h264 -> "libx264";
+                case h265 -> "libx265";
+                case vp9 -> "libvpx-vp9";
+                case av1 -> "libaom-av1";
+                case source -> throw new IllegalStateException();
+            });
+            // preset and CRF only for x264/x265
+            if (rateControl && key.preset() != null) {
+                encoder.add("-preset");
+                encoder.add(key.preset().name());
+            }
+            if (key.resolution() != null && key.resolution() != ResolutionType.source) {
+                tail.add("-vf");
+                tail.add("scale=" + VIDEO_SCALES.get(key.resolution()));
+            }
+            // Pixel format for compatibility
+            tail.add("-pix_fmt");
+            tail.add("yuv420p");
+        }
+
+        if (key.audioCodec() == AudioCodecType.source) {
+            tail.add("-c:a");
+            tail.add("copy");
+        } else {
+            tail.add("-c:a");
+            tail.add(switch (key.audioCodec()) {
+                case aac -> "aac";
+                case ac3 -> "ac3";
+                case flac -> "flac";
+                case dts -> "dca";
+                case opus -> "libopus";
+                case source -> throw new IllegalStateException();
+            });
+            // Bitrate only for lossy codecs
+            if (key.audioCodec() != AudioCodecType.flac) {
+                tail.add("-b:a");
+                tail.add("192k");
+            }
+        }
+
+        if (key.faststart()) {
+            tail.add("-movflags");
+            tail.add("+faststart");
+        }
+
+        return new VideoTemplate(List.copyOf(encoder), rateControl, transcodeVideo, List.copyOf(tail));
+    }
+
+    // null stays null (option omitted); anything else must name a constant
+    private static <E extends Enum<E>> E lookup(Class<E> type, String name, String error) {
+        if (name == null)
+            return null;
+        return EnumLookup.findIgnoreCase(type, name)
+                .orElseThrow(() -> new ProcessCreationException(error, null));
+    }
+
+    private static String seconds(double value) {
+        return BigDecimal.valueOf(value).stripTrailingZeros().toPlainString();
+    }
+
+    private static boolean hasVideoExtension(String fileName) {
+        if (fileName == null)
+            return false;
+        int dot = fileName.lastIndexOf('.');
+        return dot >= 0 && VIDEO_EXTENSIONS.contains(fileName.substring(dot + 1).toLowerCase(Locale.ROOT));
+    }
+
+    private static FfmpegCommand finish(List<String> args) {
+        FfmpegCommand command = new FfmpegCommand(args);
+        log.debug("Generated FFmpeg command: {}", command);
+        return command;
+    }
+}
@@ -0,0 +1,38 @@
+package com.mediaalterations.mainservice.command;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits a media duration into segments whose boundaries are whole multiples
+ * of the GOP length. Segment encodes force keyframes on the same grid, so
+ * every boundary starts a closed GOP and the pieces can be joined with a
+ * stream copy.
+ */
+public final class SegmentPlanner {
+
+    private SegmentPlanner() {
+    }
+
+    public static List<VideoSegment> plan(
+            double totalSeconds,
+            double targetSegmentSeconds,
+            double gopSeconds,
+            int maxSegments) {
+        if (totalSeconds <= 0 || targetSegmentSeconds <= 0 || gopSeconds <= 0 || maxSegments < 1)
+            throw new IllegalArgumentException("Segment plan needs positive durations and at least one segment");
+
+        int count = (int) Math.min(maxSegments, Math.max(1, Math.ceil(totalSeconds / targetSegmentSeconds)));
+        double length = Math.ceil(totalSeconds / count / gopSeconds) * gopSeconds;
+
+        List<VideoSegment> segments = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            double start = i * length;
+            boolean last = i == count - 1 || start + length >= totalSeconds;
+            segments.add(new VideoSegment(i, start, length, last));
+            if (last)
+                break;
+        }
+        return segments;
+    }
+}
@@ -0,0 +1,9 @@
+package com.mediaalterations.mainservice.command;
+
+/**
+ * Time range of a segmented encode. The last segment has no duration limit
+ * and runs to the end of the input, so an inaccurate client-reported duration
+ * never truncates the output.
+ */
+public record VideoSegment(int index, double startSeconds, double durationSeconds, boolean last) {
+}
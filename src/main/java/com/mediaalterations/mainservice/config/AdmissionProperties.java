@@ -0,0 +1,34 @@
+package com.mediaalterations.mainservice.config;
+
+import com.mediaalterations.mainservice.admission.MediaClass;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Per-user submission rate limits, keyed by media class, and the global
+ * load above which new submissions are turned away.
+ */
+@ConfigurationProperties("process.admission")
+public record AdmissionProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("5000") int maxWaitingJobs,
+        @DefaultValue("36000") double maxBacklogSeconds,
+        @DefaultValue("30s") Duration overloadRetryAfter,
+        @DefaultValue("10m") Duration idleBucketTtl,
+        Map<MediaClass, Limit> limits) {
+
+    private static final Limit DEFAULT_LIMIT = new Limit(30, 10);
+
+    public record Limit(
+            double perMinute,
+            int burst) {
+    }
+
+    public Limit limitFor(MediaClass mediaClass) {
+        Limit limit = limits == null ? null : limits.get(mediaClass);
+        return limit == null ? DEFAULT_LIMIT : limit;
+    }
+}
@@ -1,12 +1,16 @@
 package com.mediaalterations.mainservice.config;
 
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
 @Configuration
+@EnableScheduling
+@EnableConfigurationProperties({ StorageCallProperties.class, AdmissionProperties.class })
 public class AppConfig {
 
     @Bean
@@ -1,11 +1,17 @@
 package com.mediaalterations.mainservice.config;
 
+import org.springframework.amqp.core.Binding;
+import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.core.QueueBuilder;
 import org.springframework.amqp.core.TopicExchange;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.amqp.support.converter.JacksonJsonMessageConverter;
 import org.springframework.amqp.support.converter.MessageConverter;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.amqp.autoconfigure.SimpleRabbitListenerContainerFactoryConfigurer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -15,11 +21,99 @@ public class RabbitMQConfig {
     @Value("${rabbitmq.exchange.process}")
     private String exchange;
 
+    @Value("${rabbitmq.queue.process.created-long}")
+    private String longLaneQueue;
+
+    @Value("${rabbitmq.queue.process.status}")
+    private String statusQueue;
+
+    @Value("${rabbitmq.queue.process.progress}")
+    private String progressQueue;
+
+    @Value("${rabbitmq.queue.process.heartbeat}")
+    private String heartbeatQueue;
+
+    @Value("${rabbitmq.queue.process.parked}")
+    private String parkedQueue;
+
+    @Value("${rabbitmq.status.batch-size:100}")
+    private int statusBatchSize;
+
+    @Value("${rabbitmq.status.batch-wait-ms:200}")
+    private long statusBatchWaitMs;
+
     @Bean
     public TopicExchange exchange() {
         return new TopicExchange(exchange);
     }
 
+    // the short lane is the existing process.created queue owned by the workers
+    @Bean
+    public Queue longLaneQueue() {
+        return QueueBuilder.durable(longLaneQueue).build();
+    }
+
+    @Bean
+    public Binding longLaneBinding() {
+        return BindingBuilder.bind(longLaneQueue()).to(exchange()).with(longLaneQueue);
+    }
+
+    @Bean
+    public Queue statusQueue() {
+        return QueueBuilder.durable(statusQueue).build();
+    }
+
+    @Bean
+    public Binding statusBinding() {
+        return BindingBuilder.bind(statusQueue()).to(exchange()).with(statusQueue);
+    }
+
+    @Bean
+    public Queue progressQueue() {
+        return QueueBuilder.durable(progressQueue).build();
+    }
+
+    @Bean
+    public Binding progressBinding() {
+        return BindingBuilder.bind(progressQueue()).to(exchange()).with(progressQueue);
+    }
+
+    @Bean
+    public Queue heartbeatQueue() {
+        return QueueBuilder.durable(heartbeatQueue).build();
+    }
+
+    @Bean
+    public Binding heartbeatBinding() {
+        return BindingBuilder.bind(heartbeatQueue()).to(exchange()).with(heartbeatQueue);
+    }
+
+    @Bean
+    public Queue parkedQueue() {
+        return QueueBuilder.durable(parkedQueue).build();
+    }
+
+    @Bean
+    public Binding parkedBinding() {
+        return BindingBuilder.bind(parkedQueue()).to(exchange()).with(parkedQueue);
+    }
+
+    // hands worker status reports to the listener in batches, acknowledged together
+    @Bean
+    public SimpleRabbitListenerContainerFactory statusBatchContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer,
+            ConnectionFactory connectionFactory) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(statusBatchSize);
+        factory.setPrefetchCount(statusBatchSize * 2);
+        // a partial batch is delivered once no message arrived for this long
+        factory.setReceiveTimeout(statusBatchWaitMs);
+        return factory;
+    }
+
     @Bean
     public MessageConverter jsonMessageConverter(){
         return new JacksonJsonMessageConverter();
@@ -0,0 +1,34 @@
+package com.mediaalterations.mainservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Per-method deadlines and hedging for calls to the storage service, keyed by
+ * the names in {@code StorageCalls}.
+ */
+@ConfigurationProperties("services.storage-service.calls")
+public record StorageCallProperties(
+        @DefaultValue("5s") Duration defaultTimeout,
+        @DefaultValue("50ms") Duration minHedgeDelay,
+        @DefaultValue("500ms") Duration initialHedgeDelay,
+        Map<String, Method> methods) {
+
+    public record Method(
+            Duration timeout,
+            boolean hedge) {
+    }
+
+    public Duration timeoutFor(String method) {
+        Method settings = methods == null ? null : methods.get(method);
+        return settings == null || settings.timeout() == null ? defaultTimeout : settings.timeout();
+    }
+
+    public boolean hedgeEnabledFor(String method) {
+        Method settings = methods == null ? null : methods.get(method);
+        return settings != null && settings.hedge();
+    }
+}
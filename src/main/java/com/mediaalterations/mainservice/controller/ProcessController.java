@@ -1,17 +1,34 @@
 package com.mediaalterations.mainservice.controller;
 
-import com.mediaalterations.mainservice.dto.ProcessDto;
+import com.mediaalterations.mainservice.admission.MediaClass;
+import com.mediaalterations.mainservice.admission.SubmissionAdmission;
+import com.mediaalterations.mainservice.cache.IdempotencyStore;
+import com.mediaalterations.mainservice.dto.AbrPackageRequest;
+import com.mediaalterations.mainservice.dto.BatchConvertItem;
+import com.mediaalterations.mainservice.dto.BatchTranscodeResponse;
+import com.mediaalterations.mainservice.dto.ConvertRequest;
+import com.mediaalterations.mainservice.dto.FanOutConvertRequest;
+import com.mediaalterations.mainservice.dto.FanOutTranscodeResponse;
+import com.mediaalterations.mainservice.dto.ProcessDetailDto;
+import com.mediaalterations.mainservice.dto.ProcessPage;
 import com.mediaalterations.mainservice.dto.ProcessResponseDto;
 import com.mediaalterations.mainservice.dto.AudioConvertRequest;
 import com.mediaalterations.mainservice.dto.GifConvertRequest;
+import com.mediaalterations.mainservice.dto.LeaseHeartbeat;
 import com.mediaalterations.mainservice.dto.MergeConvertRequest;
+import com.mediaalterations.mainservice.dto.ProgressReport;
+import com.mediaalterations.mainservice.dto.QueuePositionResponse;
+import com.mediaalterations.mainservice.dto.RenditionDto;
+import com.mediaalterations.mainservice.dto.RenditionSizeUpdate;
 import com.mediaalterations.mainservice.dto.TranscodeResponse;
 import com.mediaalterations.mainservice.dto.VideoConvertRequest;
 import com.mediaalterations.mainservice.entity.ProcessStatus;
+import com.mediaalterations.mainservice.events.ProcessEventHub;
 import com.mediaalterations.mainservice.service.ProcessService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
 
@@ -20,12 +37,18 @@ import java.util.List;
 @RequiredArgsConstructor
 public class ProcessController {
 
+    private static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+
     private final ProcessService processService;
+    private final IdempotencyStore idempotencyStore;
+    private final ProcessEventHub processEvents;
+    private final SubmissionAdmission admission;
 
     @PostMapping("/video/transcode")
     public ResponseEntity<String> transcodeVideo(
             @RequestBody AudioConvertRequest request,
             @RequestHeader("user_id") String userId) {
+        admission.admit(userId, MediaClass.VIDEO);
         processService.transcodeVideo(request, userId);
         return ResponseEntity.ok("");
     }
@@ -33,29 +56,78 @@ public class ProcessController {
     @PostMapping("/toAudio")
     public ResponseEntity<TranscodeResponse> extractAndConvertAudio(
             @RequestBody AudioConvertRequest request,
-            @RequestHeader("user_id") String userId) throws Exception {
-        return ResponseEntity.ok(processService.extractAndConvertAudio(request, userId));
+            @RequestHeader("user_id") String userId,
+            @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey) throws Exception {
+        return ResponseEntity.ok(idempotencyStore.execute(userId, "toAudio", idempotencyKey, request, () -> {
+            admission.admit(userId, MediaClass.AUDIO);
+            return processService.extractAndConvertAudio(request, userId);
+        }));
     }
 
     @PostMapping("/video/toVideo")
     public ResponseEntity<TranscodeResponse> convertVideoToAnotherFormat(
             @RequestBody VideoConvertRequest request,
-            @RequestHeader("user_id") String userId) throws Exception {
-        return ResponseEntity.ok(processService.convertVideoToAnotherFormat(request, userId));
+            @RequestHeader("user_id") String userId,
+            @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey) throws Exception {
+        return ResponseEntity.ok(idempotencyStore.execute(userId, "toVideo", idempotencyKey, request, () -> {
+            admission.admit(userId, MediaClass.VIDEO);
+            return processService.convertVideoToAnotherFormat(request, userId);
+        }));
     }
 
     @PostMapping("/video/toGif")
     public ResponseEntity<TranscodeResponse> convertVideoToGif(
             @RequestBody GifConvertRequest request,
-            @RequestHeader("user_id") String userId) throws Exception {
-        return ResponseEntity.ok(processService.convertVideoToGif(request, userId));
+            @RequestHeader("user_id") String userId,
+            @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey) throws Exception {
+        return ResponseEntity.ok(idempotencyStore.execute(userId, "toGif", idempotencyKey, request, () -> {
+            admission.admit(userId, MediaClass.GIF);
+            return processService.convertVideoToGif(request, userId);
+        }));
     }
 
     @PostMapping("/merge")
     public ResponseEntity<TranscodeResponse> mergeMedia(
             @RequestBody MergeConvertRequest request,
-            @RequestHeader("user_id") String userId) throws Exception {
-        return ResponseEntity.ok(processService.mergeMedia(request, userId));
+            @RequestHeader("user_id") String userId,
+            @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey) throws Exception {
+        return ResponseEntity.ok(idempotencyStore.execute(userId, "merge", idempotencyKey, request, () -> {
+            admission.admit(userId, MediaClass.MERGE);
+            return processService.mergeMedia(request, userId);
+        }));
+    }
+
+    @PostMapping("/batch")
+    public ResponseEntity<BatchTranscodeResponse> submitBatch(
+            @RequestBody List<BatchConvertItem> items,
+            @RequestHeader("user_id") String userId,
+            @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey) throws Exception {
+        return ResponseEntity.ok(idempotencyStore.execute(userId, "batch", idempotencyKey, items, () -> {
+            admission.admit(userId, requestsOf(items));
+            return processService.submitBatch(items, userId);
+        }));
+    }
+
+    @PostMapping("/video/abr")
+    public ResponseEntity<TranscodeResponse> packageAbr(
+            @RequestBody AbrPackageRequest request,
+            @RequestHeader("user_id") String userId,
+            @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey) throws Exception {
+        return ResponseEntity.ok(idempotencyStore.execute(userId, "abr", idempotencyKey, request, () -> {
+            admission.admit(userId, MediaClass.VIDEO);
+            return processService.packageAbr(request, userId);
+        }));
+    }
+
+    @PostMapping("/fanout")
+    public ResponseEntity<FanOutTranscodeResponse> fanOut(
+            @RequestBody FanOutConvertRequest request,
+            @RequestHeader("user_id") String userId,
+            @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey) throws Exception {
+        return ResponseEntity.ok(idempotencyStore.execute(userId, "fanout", idempotencyKey, request, () -> {
+            admission.admit(userId, requestsOf(request.outputs()));
+            return processService.fanOut(request, userId);
+        }));
     }
 
     @PutMapping("/updateStatus/{status}/{fileSize}/{fileDuration}/{id}")
@@ -63,8 +135,31 @@ public class ProcessController {
             @PathVariable("status") ProcessStatus status,
             @PathVariable("fileSize") String fileSize,
             @PathVariable("fileDuration") String fileDuration,
-            @PathVariable("id") String processId) {
-        processService.updateStatusForProcess(status, fileSize, fileDuration, processId);
+            @PathVariable("id") String processId,
+            @RequestParam(value = "attempt", required = false) Integer attempt) {
+        processService.updateStatusForProcess(status, fileSize, fileDuration, processId, attempt);
+        return ResponseEntity.ok("");
+    }
+
+    // worker progress ticks; the same reports may also go through the progress queue
+    @PutMapping("/progress")
+    ResponseEntity<String> recordProgress(@RequestBody List<ProgressReport> reports) {
+        processService.recordProgress(reports);
+        return ResponseEntity.ok("");
+    }
+
+    // workers renew the lease of every job they are running; also accepted on the heartbeat queue
+    @PutMapping("/heartbeat")
+    ResponseEntity<String> renewLeases(@RequestBody List<LeaseHeartbeat> heartbeats) {
+        processService.renewLeases(heartbeats);
+        return ResponseEntity.ok("");
+    }
+
+    @PutMapping("/updateRenditions/{id}")
+    ResponseEntity<String> updateRenditionSizes(
+            @PathVariable("id") String processId,
+            @RequestBody List<RenditionSizeUpdate> sizes) {
+        processService.updateRenditionSizes(processId, sizes);
         return ResponseEntity.ok("");
     }
 
@@ -73,7 +168,47 @@ public class ProcessController {
             @RequestBody List<String> processIds,
             @RequestHeader("user_id") String userId) {
         processService.deleteProcessAndStorage(processIds, userId);
-        return ResponseEntity.ok("");
+        // files and rows are removed in the background
+        return ResponseEntity.accepted().body("");
+    }
+
+    @GetMapping("/{id}/queuePosition")
+    public ResponseEntity<QueuePositionResponse> getQueuePosition(
+            @PathVariable("id") String processId,
+            @RequestHeader("user_id") String userId) {
+        return ResponseEntity.ok(processService.getQueuePosition(processId, userId));
+    }
+
+    @GetMapping("/{id}/renditions")
+    public ResponseEntity<List<RenditionDto>> getRenditions(
+            @PathVariable("id") String processId,
+            @RequestHeader("user_id") String userId) {
+        return ResponseEntity.ok(processService.getRenditions(processId, userId));
+    }
+
+    // replaces polling /getAll; reconnecting clients send Last-Event-ID to resume
+    @GetMapping(path = "/events", produces = "text/event-stream")
+    public SseEmitter streamEvents(
+            @RequestHeader("user_id") String userId,
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        return processEvents.subscribe(userId, lastEventId);
+    }
+
+    @GetMapping("/history")
+    public ResponseEntity<ProcessPage> getProcessHistory(
+            @RequestHeader("user_id") String userId,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", required = false) Integer limit,
+            @RequestParam(value = "status", required = false) ProcessStatus status,
+            @RequestParam(value = "isVideo", required = false) Boolean isVideo) {
+        return ResponseEntity.ok(processService.getProcessHistory(userId, cursor, limit, status, isVideo));
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<ProcessDetailDto> getProcessDetail(
+            @PathVariable("id") String processId,
+            @RequestHeader("user_id") String userId) {
+        return ResponseEntity.ok(processService.getProcessDetail(processId, userId));
     }
 
     @GetMapping("/getAll")
@@ -81,4 +216,9 @@ public class ProcessController {
             @RequestHeader("user_id") String userId) throws Exception {
         return ResponseEntity.ok(processService.getAllProcessOfUser(userId));
     }
+
+    // invalid items are admitted without a permit and rejected by the service
+    private static List<ConvertRequest> requestsOf(List<BatchConvertItem> items) {
+        return items == null ? List.of() : items.stream().map(BatchConvertItem::request).toList();
+    }
 }
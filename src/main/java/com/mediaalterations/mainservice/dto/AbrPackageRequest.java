@@ -0,0 +1,20 @@
+package com.mediaalterations.mainservice.dto;
+
+import java.util.List;
+
+public record AbrPackageRequest(
+        String storageId,
+        String fileName,
+        String duration,
+
+        String format,
+        // ResolutionType names; empty for the configured default ladder
+        List<String> renditions,
+        String encoderPreset,
+        int segmentSeconds,
+        // false for sources without an audio track; null means the source has one
+        Boolean audio
+
+) {
+
+}
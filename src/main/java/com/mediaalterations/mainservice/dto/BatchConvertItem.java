@@ -0,0 +1,17 @@
+package com.mediaalterations.mainservice.dto;
+
+// exactly one of audio, video or gif is expected per item
+public record BatchConvertItem(
+                AudioConvertRequest audio,
+                VideoConvertRequest video,
+                GifConvertRequest gif) {
+
+        public ConvertRequest request() {
+                int present = (audio != null ? 1 : 0) + (video != null ? 1 : 0) + (gif != null ? 1 : 0);
+                if (present != 1)
+                        return null;
+                if (audio != null)
+                        return audio;
+                return video != null ? video : gif;
+        }
+}
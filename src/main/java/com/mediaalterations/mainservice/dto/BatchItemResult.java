@@ -0,0 +1,9 @@
+package com.mediaalterations.mainservice.dto;
+
+public record BatchItemResult(
+                int index,
+                boolean accepted,
+                String message,
+                ProcessResponseDto processResponseDto,
+                int queueNo) {
+}
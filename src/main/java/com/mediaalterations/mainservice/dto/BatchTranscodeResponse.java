@@ -0,0 +1,10 @@
+package com.mediaalterations.mainservice.dto;
+
+import java.util.List;
+
+public record BatchTranscodeResponse(
+                String message,
+                int accepted,
+                int rejected,
+                List<BatchItemResult> results) {
+}
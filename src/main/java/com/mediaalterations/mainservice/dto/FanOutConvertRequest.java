@@ -0,0 +1,11 @@
+package com.mediaalterations.mainservice.dto;
+
+import java.util.List;
+
+// one input, several outputs; storageId, fileName and duration inside the output specs are ignored
+public record FanOutConvertRequest(
+                String storageId,
+                String fileName,
+                String duration,
+                List<BatchConvertItem> outputs) {
+}
@@ -0,0 +1,10 @@
+package com.mediaalterations.mainservice.dto;
+
+import java.util.List;
+
+// outputs are in request order; all of them share one queue slot
+public record FanOutTranscodeResponse(
+                String message,
+                List<ProcessResponseDto> outputs,
+                int queueNo) {
+}
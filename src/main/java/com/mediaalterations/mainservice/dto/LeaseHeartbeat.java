@@ -0,0 +1,8 @@
+package com.mediaalterations.mainservice.dto;
+
+// a worker still running the process; workerId is recorded as the lease owner, attempt as in ProcessStatusUpdate
+public record LeaseHeartbeat(
+                String processId,
+                String workerId,
+                Integer attempt) {
+}
@@ -0,0 +1,13 @@
+package com.mediaalterations.mainservice.dto;
+
+import java.time.LocalDateTime;
+
+// progress fields are null until the worker reported any
+public record ProcessDetailDto(
+                ProcessResponseDto process,
+                Double percent,
+                Double etaSeconds,
+                Long frame,
+                Double speed,
+                LocalDateTime progressUpdatedAt) {
+}
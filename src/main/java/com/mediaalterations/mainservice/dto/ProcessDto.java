@@ -3,6 +3,7 @@ package com.mediaalterations.mainservice.dto;
 import com.mediaalterations.mainservice.entity.ProcessStatus;
 
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
@@ -19,6 +20,10 @@ public record ProcessDto(
                 String fileName,
                 String finalFileSize,
                 String command,
+                // argv form of command; paths are single elements even when they contain spaces
+                List<String> commandArgs,
+                // fan-out only: process id -> output path of the other outputs written by this job
+                Map<String, String> fanOutOutputs,
 
                 ProcessStatus status,
 
@@ -0,0 +1,9 @@
+package com.mediaalterations.mainservice.dto;
+
+import java.util.List;
+
+// nextCursor is null on the last page
+public record ProcessPage(
+                List<ProcessResponseDto> items,
+                String nextCursor) {
+}
@@ -1,5 +1,6 @@
 package com.mediaalterations.mainservice.dto;
 
+import com.mediaalterations.mainservice.entity.Process;
 import com.mediaalterations.mainservice.entity.ProcessStatus;
 
 import java.time.LocalDateTime;
@@ -13,4 +14,16 @@ public record ProcessResponseDto(
                 String storageIdOutput,
                 ProcessStatus status,
                 LocalDateTime createdAt) {
+
+        public static ProcessResponseDto from(Process p) {
+                return new ProcessResponseDto(
+                                p.getFileName(),
+                                p.getDuration(),
+                                p.getFinalFileSize(),
+                                p.isVideo(),
+                                p.getId().toString(),
+                                p.getStorageIdOutput(),
+                                p.getStatus(),
+                                p.getCreatedAt());
+        }
 }
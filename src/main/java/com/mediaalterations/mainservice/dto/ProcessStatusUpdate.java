@@ -0,0 +1,17 @@
+package com.mediaalterations.mainservice.dto;
+
+import com.mediaalterations.mainservice.entity.ProcessStatus;
+
+// a worker's status report, from the status queue or PUT /process/updateStatus
+public record ProcessStatusUpdate(
+                String processId,
+                ProcessStatus status,
+                String fileSize,
+                String fileDuration,
+                // x-attempt header of the job the worker ran; null from workers that predate it, read as 0
+                Integer attempt) {
+
+        public ProcessStatusUpdate(String processId, ProcessStatus status, String fileSize, String fileDuration) {
+                this(processId, status, fileSize, fileDuration, null);
+        }
+}
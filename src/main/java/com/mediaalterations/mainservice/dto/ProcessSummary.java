@@ -0,0 +1,30 @@
+package com.mediaalterations.mainservice.dto;
+
+import com.mediaalterations.mainservice.entity.ProcessStatus;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// the listed columns of a process, selected without loading the command text
+public record ProcessSummary(
+                UUID id,
+                String fileName,
+                String duration,
+                String finalFileSize,
+                boolean isVideo,
+                String storageIdOutput,
+                ProcessStatus status,
+                LocalDateTime createdAt) {
+
+        public ProcessResponseDto toResponseDto() {
+                return new ProcessResponseDto(
+                                fileName,
+                                duration,
+                                finalFileSize,
+                                isVideo,
+                                id.toString(),
+                                storageIdOutput,
+                                status,
+                                createdAt);
+        }
+}
@@ -0,0 +1,9 @@
+package com.mediaalterations.mainservice.dto;
+
+// one tick of a worker's -progress output: out_time_us, frame and speed (without the trailing x)
+public record ProgressReport(
+                String processId,
+                long outTimeUs,
+                long frame,
+                double speed) {
+}
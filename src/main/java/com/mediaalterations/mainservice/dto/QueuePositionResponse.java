@@ -0,0 +1,9 @@
+package com.mediaalterations.mainservice.dto;
+
+import com.mediaalterations.mainservice.entity.ProcessStatus;
+
+public record QueuePositionResponse(
+                String processId,
+                ProcessStatus status,
+                int queueNo) {
+}
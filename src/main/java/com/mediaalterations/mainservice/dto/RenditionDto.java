@@ -0,0 +1,9 @@
+package com.mediaalterations.mainservice.dto;
+
+public record RenditionDto(
+                int index,
+                String resolution,
+                int videoBitrateKbps,
+                String playlistName,
+                String fileSize) {
+}
@@ -0,0 +1,7 @@
+package com.mediaalterations.mainservice.dto;
+
+// reported by the worker once packaging finished; index is the %v / RepresentationID of the rendition
+public record RenditionSizeUpdate(
+                int index,
+                String fileSize) {
+}
@@ -0,0 +1,5 @@
+package com.mediaalterations.mainservice.dto;
+
+public enum StreamingFormat {
+    hls, dash
+}
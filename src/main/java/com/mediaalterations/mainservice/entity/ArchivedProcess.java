@@ -0,0 +1,72 @@
+package com.mediaalterations.mainservice.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Immutable;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * A finished process moved out of the hot {@code process} table by
+ * ProcessArchiver. Columns match {@link Process}, minus the tombstone
+ * fields; rows are written and removed with native statements only.
+ */
+@Entity
+@Immutable
+@Table(name = "process_archive", indexes = {
+        @Index(name = "idx_process_archive_user_created", columnList = "userId, createdAt"),
+        @Index(name = "idx_process_archive_parent_id", columnList = "parentId")
+})
+@Getter
+@NoArgsConstructor
+public class ArchivedProcess {
+
+    @Id
+    @JdbcTypeCode(SqlTypes.BINARY)
+    @Column(columnDefinition = "BINARY(16)")
+    private UUID id;
+
+    private String storageIdInput;
+    private String storageIdOutput;
+
+    @Column(columnDefinition = "TEXT")
+    private String command;
+
+    @Enumerated(value = EnumType.STRING)
+    private ProcessStatus status;
+
+    private String userId;
+    private String duration;
+    private String fileName;
+    private String finalFileSize;
+
+    private boolean isVideo;
+
+    @Enumerated(value = EnumType.STRING)
+    private CostClass costClass;
+
+    @Column(length = 64)
+    private String resultKey;
+
+    @JdbcTypeCode(SqlTypes.BINARY)
+    @Column(columnDefinition = "BINARY(16)")
+    private UUID parentId;
+
+    @Enumerated(value = EnumType.STRING)
+    private ProcessRole role;
+
+    private Integer childIndex;
+    private Integer childCount;
+    private Integer childrenCompleted;
+
+    private Double progressPercent;
+    private Double etaSeconds;
+    private LocalDateTime progressUpdatedAt;
+
+    private LocalDateTime createdAt;
+    private LocalDateTime archivedAt;
+}
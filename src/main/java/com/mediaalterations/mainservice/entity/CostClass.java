@@ -0,0 +1,5 @@
+package com.mediaalterations.mainservice.entity;
+
+public enum CostClass {
+    SHORT, LONG
+}
@@ -0,0 +1,65 @@
+package com.mediaalterations.mainservice.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// message waiting to be relayed to RabbitMQ, written in the same transaction as its process
+@Entity
+@Table(name = "process_outbox", indexes = @Index(name = "idx_outbox_status_id", columnList = "status, id"))
+@Getter
+@Setter
+@NoArgsConstructor
+public class OutboxEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "process_outbox_seq")
+    @SequenceGenerator(name = "process_outbox_seq", sequenceName = "process_outbox_seq", allocationSize = 50)
+    private Long id;
+
+    @JdbcTypeCode(SqlTypes.BINARY)
+    @Column(columnDefinition = "BINARY(16)")
+    private UUID processId;
+    private String userId;
+    private String routingKey;
+
+    // estimated worker-seconds, weighs the job in fair share dispatch
+    private double cost;
+
+    @Column(columnDefinition = "TEXT")
+    private String payload;
+
+    // __TypeId__ header expected by the json converter on the consumer side
+    private String payloadType;
+
+    @Enumerated(value = EnumType.STRING)
+    private OutboxStatus status;
+
+    private int attempts;
+
+    // reclaim count of the process when this copy was written, sent as the x-attempt header
+    private int leaseAttempt;
+
+    @CreationTimestamp
+    private LocalDateTime createdAt;
+
+    private LocalDateTime sentAt;
+
+    public OutboxEvent(UUID processId, String userId, String routingKey, double cost, String payload,
+            String payloadType) {
+        this.processId = processId;
+        this.userId = userId;
+        this.routingKey = routingKey;
+        this.cost = cost;
+        this.payload = payload;
+        this.payloadType = payloadType;
+        this.status = OutboxStatus.PENDING;
+    }
+}
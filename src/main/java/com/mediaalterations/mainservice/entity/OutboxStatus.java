@@ -0,0 +1,8 @@
+package com.mediaalterations.mainservice.entity;
+
+public enum OutboxStatus {
+    PENDING,
+    // written up front but not publishable until released, e.g. a concat waiting for its segments
+    HELD,
+    SENT
+}
@@ -6,19 +6,40 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.annotations.SQLRestriction;
+import org.hibernate.annotations.UuidGenerator;
+import org.hibernate.type.SqlTypes;
 
 import java.time.LocalDateTime;
 import java.util.UUID;
 
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_process_result_key", columnList = "resultKey"),
+        @Index(name = "idx_process_parent_id", columnList = "parentId"),
+        // history pages seek on (createdAt, id); InnoDB appends the primary key to the index
+        @Index(name = "idx_process_user_created", columnList = "userId, createdAt"),
+        @Index(name = "idx_process_deleted", columnList = "deletedAt"),
+        // ProcessArchiver scans finished rows oldest first
+        @Index(name = "idx_process_status_created", columnList = "status, createdAt"),
+        // ProcessLeaseManager scans running rows by lease expiry
+        @Index(name = "idx_process_lease", columnList = "status, leaseExpiresAt")
+})
+// deleted rows stay as tombstones until ProcessReaper has removed their files
+@SQLRestriction("deleted_at IS NULL")
 @Getter
 @Setter
 @AllArgsConstructor
 @NoArgsConstructor
 public class Process {
 
+    // UUIDv7: time ordered, so inserts append to the clustered index instead of splitting pages
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
+    @GeneratedValue
+    @UuidGenerator(style = UuidGenerator.Style.VERSION_7)
+    @JdbcTypeCode(SqlTypes.BINARY)
+    @Column(columnDefinition = "BINARY(16)")
     private UUID id;
 
     private String storageIdInput;
@@ -37,6 +58,41 @@ public class Process {
 
     private boolean isVideo;
 
+    @Enumerated(value = EnumType.STRING)
+    private CostClass costClass;
+
+    // sha-256 of input + normalized command, see TranscodeResultCache
+    @Column(length = 64)
+    private String resultKey;
+
+    // parent/child links of a segmented encode, null for ordinary processes
+    @JdbcTypeCode(SqlTypes.BINARY)
+    @Column(columnDefinition = "BINARY(16)")
+    private UUID parentId;
+
+    @Enumerated(value = EnumType.STRING)
+    private ProcessRole role;
+
+    private Integer childIndex;
+    private Integer childCount;
+    private Integer childrenCompleted;
+
+    // last flushed progress of a running job, see ProgressTracker
+    private Double progressPercent;
+    private Double etaSeconds;
+    private LocalDateTime progressUpdatedAt;
+
+    // worker holding a running job and until when, renewed by heartbeats
+    private String leaseOwner;
+    private LocalDateTime leaseExpiresAt;
+    // times the job was taken back from a worker whose lease expired
+    private Integer reclaimCount;
+
+    // set on delete; the row is purged once its output file is gone
+    private LocalDateTime deletedAt;
+    private Integer purgeAttempts;
+    private LocalDateTime purgeNotBefore;
+
     @CreationTimestamp
     private LocalDateTime createdAt;
 
@@ -0,0 +1,53 @@
+package com.mediaalterations.mainservice.entity;
+
+import com.mediaalterations.mainservice.dto.ResolutionType;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.annotations.UuidGenerator;
+import org.hibernate.type.SqlTypes;
+
+import java.util.UUID;
+
+// one rung of an adaptive bitrate ladder produced by a single packaging process
+@Entity
+@Table(name = "process_rendition", indexes = @Index(name = "idx_rendition_process_id", columnList = "processId"))
+@Getter
+@Setter
+@NoArgsConstructor
+public class ProcessRendition {
+
+    @Id
+    @GeneratedValue
+    @UuidGenerator(style = UuidGenerator.Style.VERSION_7)
+    @JdbcTypeCode(SqlTypes.BINARY)
+    @Column(columnDefinition = "BINARY(16)")
+    private UUID id;
+
+    @JdbcTypeCode(SqlTypes.BINARY)
+    @Column(columnDefinition = "BINARY(16)")
+    private UUID processId;
+    private int renditionIndex;
+
+    @Enumerated(value = EnumType.STRING)
+    private ResolutionType resolution;
+
+    private int videoBitrateKbps;
+
+    // variant playlist next to the master, null for DASH where the manifest lists representations
+    private String playlistName;
+
+    private String fileSize;
+
+    public ProcessRendition(UUID processId, int renditionIndex, ResolutionType resolution, int videoBitrateKbps,
+            String playlistName) {
+        this.processId = processId;
+        this.renditionIndex = renditionIndex;
+        this.resolution = resolution;
+        this.videoBitrateKbps = videoBitrateKbps;
+        this.playlistName = playlistName;
+        this.fileSize = "0 KB";
+    }
+}
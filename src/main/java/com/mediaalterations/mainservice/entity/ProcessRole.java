@@ -0,0 +1,25 @@
+package com.mediaalterations.mainservice.entity;
+
+// null for ordinary single-run processes
+public enum ProcessRole {
+    // user-facing parent of a split encode, never dispatched itself
+    SEGMENTED,
+    // time range of the parent's input, encoded independently
+    SEGMENT,
+    // stream-copies the finished segments into the parent's output
+    CONCAT,
+    // first output of a fan-out request; its job writes every output of the request
+    FANOUT,
+    // further output of a fan-out, mirrors the status of its FANOUT parent
+    FANOUT_OUTPUT;
+
+    // false for processes that never get a job of their own
+    public boolean isDispatched() {
+        return this != SEGMENTED && this != FANOUT_OUTPUT;
+    }
+
+    // false for internal children that never appear in the user's process list
+    public boolean isListed() {
+        return this != SEGMENT && this != CONCAT;
+    }
+}
@@ -1,5 +1,32 @@
 package com.mediaalterations.mainservice.entity;
 
+import java.util.Arrays;
+import java.util.List;
+
 public enum ProcessStatus {
-    WAITING, PROCESSING, COMPLETED, FAILED
+    WAITING(0), PROCESSING(1), COMPLETED(2), FAILED(2);
+
+    private final int rank;
+
+    ProcessStatus(int rank) {
+        this.rank = rank;
+    }
+
+    public boolean isTerminal() {
+        return rank == 2;
+    }
+
+    /**
+     * Statuses only move forward. PROCESSING may repeat to refresh progress;
+     * terminal statuses are final, so a late or redelivered update never
+     * overwrites a finished process.
+     */
+    public boolean canMoveTo(ProcessStatus next) {
+        return next.rank > rank || (this == PROCESSING && next == PROCESSING);
+    }
+
+    // statuses a row may hold for an update to this status to apply
+    public List<ProcessStatus> predecessors() {
+        return Arrays.stream(values()).filter(status -> status.canMoveTo(this)).toList();
+    }
 }
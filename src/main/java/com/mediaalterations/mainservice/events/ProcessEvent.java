@@ -0,0 +1,5 @@
+package com.mediaalterations.mainservice.events;
+
+// id is per user and contiguous, so a gap in Last-Event-ID means events were lost
+record ProcessEvent(long id, String name, Object data) {
+}
@@ -0,0 +1,236 @@
+package com.mediaalterations.mainservice.events;
+
+import com.mediaalterations.mainservice.dto.ProcessResponseDto;
+import com.mediaalterations.mainservice.entity.Process;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * In-memory pub/sub for process changes, streamed to each user as
+ * server-sent events. Every subscriber drains its own bounded buffer on a
+ * virtual thread; one that falls behind is disconnected and resumes from
+ * the user's event log with Last-Event-ID, so a slow client never holds up
+ * publishers. Events are delivered after the publishing transaction commits.
+ * Only subscribers connected to this instance see its events.
+ */
+@Component
+@Slf4j
+public class ProcessEventHub {
+
+    static final String UPDATED = "process";
+    static final String DELETED = "deleted";
+    // the client's Last-Event-ID is too old: refetch /process/getAll and continue from here
+    static final String RESET = "reset";
+
+    private static final class Channel {
+        final ProcessEventLog log;
+        final List<Subscriber> subscribers = new ArrayList<>();
+        long lastActiveNanos = System.nanoTime();
+
+        Channel(int replaySize) {
+            this.log = new ProcessEventLog(replaySize);
+        }
+    }
+
+    private final ExecutorService virtualExecutor;
+    private final int bufferSize;
+    private final int replaySize;
+    private final int maxSubscribersPerUser;
+    private final Duration timeout;
+    private final Duration heartbeat;
+    private final Duration retention;
+
+    // all changes to a channel run inside compute, under the map's lock for that user
+    private final Map<String, Channel> channels = new ConcurrentHashMap<>();
+
+    public ProcessEventHub(
+            ExecutorService virtualExecutor,
+            @Value("${process.events.buffer-size:32}") int bufferSize,
+            @Value("${process.events.replay-size:256}") int replaySize,
+            @Value("${process.events.max-subscribers-per-user:8}") int maxSubscribersPerUser,
+            @Value("${process.events.timeout:30m}") Duration timeout,
+            @Value("${process.events.heartbeat:15s}") Duration heartbeat,
+            @Value("${process.events.retention:10m}") Duration retention) {
+        this.virtualExecutor = virtualExecutor;
+        this.bufferSize = bufferSize;
+        this.replaySize = replaySize;
+        this.maxSubscribersPerUser = maxSubscribersPerUser;
+        this.timeout = timeout;
+        this.heartbeat = heartbeat;
+        this.retention = retention;
+    }
+
+    public SseEmitter subscribe(String userId, String lastEventId) {
+        SseEmitter emitter = new SseEmitter(timeout.toMillis());
+        Subscriber subscriber = new Subscriber(userId, emitter);
+        List<Subscriber> evicted = new ArrayList<>();
+
+        channels.compute(userId, (key, channel) -> {
+            Channel current = channel == null ? new Channel(replaySize) : channel;
+            subscriber.backlog.addAll(backlogFor(current.log, lastEventId));
+            current.subscribers.add(subscriber);
+            while (current.subscribers.size() > maxSubscribersPerUser)
+                evicted.add(current.subscribers.removeFirst());
+            current.lastActiveNanos = System.nanoTime();
+            return current;
+        });
+        evicted.forEach(Subscriber::close);
+
+        emitter.onCompletion(subscriber::close);
+        emitter.onTimeout(subscriber::close);
+        emitter.onError(e -> subscriber.close());
+        subscriber.drain = virtualExecutor.submit(subscriber::run);
+
+        log.debug("Event stream opened. userId={}, lastEventId={}", userId, lastEventId);
+        return emitter;
+    }
+
+    public void publish(Process process) {
+        if (process.getRole() != null && !process.getRole().isListed())
+            return;
+        // mapped at commit so the event carries the committed state
+        afterCommit(process.getUserId(), UPDATED, () -> ProcessResponseDto.from(process));
+    }
+
+    public void publishDeleted(String userId, List<UUID> processIds) {
+        List<String> ids = processIds.stream().map(UUID::toString).toList();
+        afterCommit(userId, DELETED, () -> ids);
+    }
+
+    @Scheduled(fixedDelayString = "${process.events.cleanup-ms:60000}")
+    public void evictIdleChannels() {
+        long now = System.nanoTime();
+        for (String userId : channels.keySet()) {
+            channels.computeIfPresent(userId, (key, channel) -> channel.subscribers.isEmpty()
+                    && now - channel.lastActiveNanos > retention.toNanos() ? null : channel);
+        }
+    }
+
+    int subscriberCount(String userId) {
+        Channel channel = channels.get(userId);
+        return channel == null ? 0 : channel.subscribers.size();
+    }
+
+    private void afterCommit(String userId, String name, Supplier<Object> data) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            deliver(userId, name, data.get());
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                deliver(userId, name, data.get());
+            }
+        });
+    }
+
+    // users without a channel have never subscribed or have been idle past retention
+    private void deliver(String userId, String name, Object data) {
+        List<Subscriber> overflowed = new ArrayList<>();
+        channels.computeIfPresent(userId, (key, channel) -> {
+            ProcessEvent event = channel.log.append(name, data);
+            for (Subscriber subscriber : channel.subscribers) {
+                if (!subscriber.buffer.offer(event))
+                    overflowed.add(subscriber);
+            }
+            channel.subscribers.removeAll(overflowed);
+            channel.lastActiveNanos = System.nanoTime();
+            return channel;
+        });
+
+        for (Subscriber subscriber : overflowed) {
+            log.debug("Event subscriber fell behind, disconnecting. userId={}", userId);
+            subscriber.close();
+        }
+    }
+
+    private List<ProcessEvent> backlogFor(ProcessEventLog eventLog, String lastEventId) {
+        if (lastEventId == null || lastEventId.isBlank())
+            return List.of();
+        try {
+            return eventLog.since(Long.parseLong(lastEventId.trim()))
+                    .orElseGet(() -> List.of(new ProcessEvent(eventLog.lastId(), RESET, "")));
+        } catch (NumberFormatException e) {
+            return List.of(new ProcessEvent(eventLog.lastId(), RESET, ""));
+        }
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        channels.computeIfPresent(subscriber.userId, (key, channel) -> {
+            channel.subscribers.remove(subscriber);
+            channel.lastActiveNanos = System.nanoTime();
+            return channel;
+        });
+    }
+
+    private final class Subscriber {
+        final String userId;
+        final SseEmitter emitter;
+        final List<ProcessEvent> backlog = new ArrayList<>();
+        final BlockingQueue<ProcessEvent> buffer = new ArrayBlockingQueue<>(bufferSize);
+        final AtomicBoolean closed = new AtomicBoolean();
+        volatile Future<?> drain;
+
+        Subscriber(String userId, SseEmitter emitter) {
+            this.userId = userId;
+            this.emitter = emitter;
+        }
+
+        void run() {
+            try {
+                for (ProcessEvent event : backlog)
+                    send(event);
+                while (!closed.get()) {
+                    ProcessEvent event = buffer.poll(heartbeat.toMillis(), TimeUnit.MILLISECONDS);
+                    if (event == null)
+                        emitter.send(SseEmitter.event().comment("keepalive"));
+                    else
+                        send(event);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (IOException | IllegalStateException e) {
+                log.debug("Event stream closed by client. userId={}", userId);
+            } finally {
+                close();
+            }
+        }
+
+        private void send(ProcessEvent event) throws IOException {
+            emitter.send(SseEmitter.event()
+                    .id(Long.toString(event.id()))
+                    .name(event.name())
+                    .data(event.data()));
+        }
+
+        void close() {
+            if (!closed.compareAndSet(false, true))
+                return;
+            unsubscribe(this);
+            Future<?> running = drain;
+            if (running != null)
+                running.cancel(true);
+            emitter.complete();
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.mediaalterations.mainservice.events;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * The most recent events of one user, numbered without gaps. Reconnecting
+ * clients resume from their Last-Event-ID while it is still retained.
+ * Not thread safe; {@link ProcessEventHub} guards each log with its user's
+ * channel.
+ */
+class ProcessEventLog {
+
+    private final int capacity;
+    private final Deque<ProcessEvent> recent = new ArrayDeque<>();
+    private long lastId;
+
+    ProcessEventLog(int capacity) {
+        this.capacity = capacity;
+    }
+
+    ProcessEvent append(String name, Object data) {
+        ProcessEvent event = new ProcessEvent(++lastId, name, data);
+        recent.addLast(event);
+        if (recent.size() > capacity)
+            recent.removeFirst();
+        return event;
+    }
+
+    /**
+     * Events after {@code lastEventId}, or empty when some of them are no
+     * longer retained or the id was issued before a restart.
+     */
+    Optional<List<ProcessEvent>> since(long lastEventId) {
+        if (lastEventId > lastId)
+            return Optional.empty();
+        long firstRetained = recent.isEmpty() ? lastId + 1 : recent.peekFirst().id();
+        if (lastEventId + 1 < firstRetained)
+            return Optional.empty();
+
+        List<ProcessEvent> missed = new ArrayList<>();
+        for (ProcessEvent event : recent)
+            if (event.id() > lastEventId)
+                missed.add(event);
+        return Optional.of(missed);
+    }
+
+    long lastId() {
+        return lastId;
+    }
+}
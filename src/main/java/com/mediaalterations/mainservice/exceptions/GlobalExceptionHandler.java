@@ -1,11 +1,14 @@
 package com.mediaalterations.mainservice.exceptions;
 
 import com.mediaalterations.mainservice.dto.ApiError;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
+import java.time.Duration;
+
 @RestControllerAdvice
 public class GlobalExceptionHandler {
 
@@ -42,6 +45,44 @@ public class GlobalExceptionHandler {
                         .errorClass(ex.getClass().getName())
                         .build());
     }
+    @ExceptionHandler(InvalidRequestException.class)
+    public ResponseEntity<ApiError> handleInvalidRequestException(InvalidRequestException ex){
+        return ResponseEntity
+                .status(HttpStatus.BAD_REQUEST)
+                .body(ApiError.builder()
+                        .status(HttpStatus.BAD_REQUEST.value())
+                        .errorMessage(ex.getMessage())
+                        .errorClass(ex.getClass().getName())
+                        .build());
+    }
+    @ExceptionHandler(StatusConflictException.class)
+    public ResponseEntity<ApiError> handleStatusConflictException(StatusConflictException ex){
+        return ResponseEntity
+                .status(HttpStatus.CONFLICT)
+                .body(ApiError.builder()
+                        .status(HttpStatus.CONFLICT.value())
+                        .errorMessage(ex.getMessage())
+                        .errorClass(ex.getClass().getName())
+                        .build());
+    }
+    @ExceptionHandler(IdempotencyKeyReusedException.class)
+    public ResponseEntity<ApiError> handleIdempotencyKeyReusedException(IdempotencyKeyReusedException ex){
+        return ResponseEntity
+                .status(HttpStatus.UNPROCESSABLE_CONTENT)
+                .body(ApiError.builder()
+                        .status(HttpStatus.UNPROCESSABLE_CONTENT.value())
+                        .errorMessage(ex.getMessage())
+                        .errorClass(ex.getClass().getName())
+                        .build());
+    }
+    @ExceptionHandler(RateLimitedException.class)
+    public ResponseEntity<ApiError> handleRateLimitedException(RateLimitedException ex){
+        return retryLater(HttpStatus.TOO_MANY_REQUESTS, ex, ex.getRetryAfter());
+    }
+    @ExceptionHandler(ServiceOverloadedException.class)
+    public ResponseEntity<ApiError> handleServiceOverloadedException(ServiceOverloadedException ex){
+        return retryLater(HttpStatus.SERVICE_UNAVAILABLE, ex, ex.getRetryAfter());
+    }
     @ExceptionHandler(Exception.class)
     public ResponseEntity<ApiError> handleException(Exception ex){
         ex.printStackTrace();
@@ -53,4 +94,17 @@ public class GlobalExceptionHandler {
                         .errorClass(ex.getClass().getName())
                         .build());
     }
+
+    // Retry-After in whole seconds, rounded up so clients never retry too early
+    private ResponseEntity<ApiError> retryLater(HttpStatus status, RuntimeException ex, Duration retryAfter){
+        long seconds = Math.max(1, (retryAfter.toMillis() + 999) / 1000);
+        return ResponseEntity
+                .status(status)
+                .header(HttpHeaders.RETRY_AFTER, Long.toString(seconds))
+                .body(ApiError.builder()
+                        .status(status.value())
+                        .errorMessage(ex.getMessage())
+                        .errorClass(ex.getClass().getName())
+                        .build());
+    }
 }
@@ -0,0 +1,8 @@
+package com.mediaalterations.mainservice.exceptions;
+
+// a status report the process cannot accept in its current state
+public class StatusConflictException extends RuntimeException {
+    public StatusConflictException(String message) {
+        super(message);
+    }
+}
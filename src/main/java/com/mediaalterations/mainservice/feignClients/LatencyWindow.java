@@ -0,0 +1,37 @@
+package com.mediaalterations.mainservice.feignClients;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-size ring of recent latencies used to derive the hedge delay.
+ */
+class LatencyWindow {
+
+    private final long[] samples;
+    private int next;
+    private int count;
+
+    LatencyWindow(int size) {
+        this.samples = new long[size];
+    }
+
+    synchronized void record(long nanos) {
+        samples[next] = nanos;
+        next = (next + 1) % samples.length;
+        if (count < samples.length)
+            count++;
+    }
+
+    synchronized int count() {
+        return count;
+    }
+
+    synchronized long percentile(double p) {
+        if (count == 0)
+            return 0;
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        int rank = (int) Math.ceil(p * count) - 1;
+        return sorted[Math.max(0, Math.min(rank, count - 1))];
+    }
+}
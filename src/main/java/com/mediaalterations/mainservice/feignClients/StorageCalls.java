@@ -0,0 +1,180 @@
+package com.mediaalterations.mainservice.feignClients;
+
+import com.mediaalterations.mainservice.config.StorageCallProperties;
+import com.mediaalterations.mainservice.exceptions.ExternalServiceException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs {@link StorageClient} calls under a per-method deadline. Idempotent
+ * reads can additionally be hedged: when the first attempt has not answered
+ * after the recently observed p95 latency, a second attempt is fired and the
+ * first successful answer wins.
+ */
+@Component
+@Slf4j
+public class StorageCalls {
+
+    public static final String GET_PATH = "get-path-from-storage-id";
+    public static final String GET_ALL_PATHS = "get-all-paths-from-storage-ids";
+    public static final String GENERATE_OUTPUT_PATH = "generate-output-path";
+    public static final String COPY_STORAGE = "copy-storage";
+    public static final String DELETE_STORAGE = "delete-storage";
+
+    private static final int MIN_SAMPLES_FOR_P95 = 20;
+
+    private final StorageCallProperties properties;
+    private final ExecutorService virtualExecutor;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, LatencyWindow> latencies = new ConcurrentHashMap<>();
+    private final Map<String, CallTimers> timers = new ConcurrentHashMap<>();
+
+    private record CallTimers(Timer success, Timer error) {
+    }
+
+    public StorageCalls(StorageCallProperties properties, ExecutorService virtualExecutor,
+            MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.virtualExecutor = virtualExecutor;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Starts the call and returns a future that fails with
+     * {@link ExternalServiceException} once the method's deadline passes.
+     */
+    public <T> CompletableFuture<T> submit(String method, Supplier<T> call) {
+        CompletableFuture<T> attempt = properties.hedgeEnabledFor(method)
+                ? hedged(method, call)
+                : attempt(method, call);
+
+        Duration timeout = properties.timeoutFor(method);
+        CompletableFuture<T> bounded = new CompletableFuture<>();
+        attempt.orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS).whenComplete((value, error) -> {
+            if (error == null) {
+                bounded.complete(value);
+                return;
+            }
+            Throwable cause = unwrap(error);
+            if (cause instanceof TimeoutException) {
+                meterRegistry.counter("storage.call.timeouts", "method", method).increment();
+                log.error("Storage service call timed out. method={}, timeout={}", method, timeout);
+                bounded.completeExceptionally(
+                        new ExternalServiceException("Storage service timed out on " + method));
+            } else {
+                bounded.completeExceptionally(cause);
+            }
+        });
+        return bounded;
+    }
+
+    /**
+     * Blocking variant of {@link #submit} that rethrows the call's failure.
+     */
+    public <T> T call(String method, Supplier<T> call) {
+        try {
+            return submit(method, call).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ExternalServiceException("Interrupted while calling storage service");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause)
+                throw cause;
+            throw new ExternalServiceException("Storage service failure");
+        }
+    }
+
+    private <T> CompletableFuture<T> attempt(String method, Supplier<T> call) {
+        return CompletableFuture.supplyAsync(() -> {
+            long start = System.nanoTime();
+            boolean success = false;
+            try {
+                T result = call.get();
+                success = true;
+                return result;
+            } finally {
+                long elapsed = System.nanoTime() - start;
+                CallTimers callTimers = timers(method);
+                if (success) {
+                    window(method).record(elapsed);
+                    callTimers.success().record(elapsed, TimeUnit.NANOSECONDS);
+                } else {
+                    callTimers.error().record(elapsed, TimeUnit.NANOSECONDS);
+                }
+            }
+        }, virtualExecutor);
+    }
+
+    private <T> CompletableFuture<T> hedged(String method, Supplier<T> call) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        AtomicInteger pending = new AtomicInteger(1);
+
+        attempt(method, call).whenComplete((value, error) -> settle(result, pending, value, error, method, false));
+
+        CompletableFuture.delayedExecutor(hedgeDelay(method).toNanos(), TimeUnit.NANOSECONDS, virtualExecutor)
+                .execute(() -> {
+                    if (result.isDone())
+                        return;
+                    pending.incrementAndGet();
+                    meterRegistry.counter("storage.call.hedges", "method", method).increment();
+                    attempt(method, call).whenComplete(
+                            (value, error) -> settle(result, pending, value, error, method, true));
+                });
+        return result;
+    }
+
+    private <T> void settle(CompletableFuture<T> result, AtomicInteger pending, T value, Throwable error,
+            String method, boolean hedge) {
+        if (error == null) {
+            if (result.complete(value) && hedge)
+                meterRegistry.counter("storage.call.hedge.wins", "method", method).increment();
+        } else if (pending.decrementAndGet() == 0) {
+            result.completeExceptionally(unwrap(error));
+        }
+    }
+
+    private Duration hedgeDelay(String method) {
+        LatencyWindow window = window(method);
+        if (window.count() < MIN_SAMPLES_FOR_P95)
+            return properties.initialHedgeDelay();
+        Duration p95 = Duration.ofNanos(window.percentile(0.95));
+        return p95.compareTo(properties.minHedgeDelay()) < 0 ? properties.minHedgeDelay() : p95;
+    }
+
+    private CallTimers timers(String method) {
+        return timers.computeIfAbsent(method, m -> new CallTimers(timer(m, "success"), timer(m, "error")));
+    }
+
+    private Timer timer(String method, String outcome) {
+        return Timer.builder("storage.call")
+                .tag("method", method)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private LatencyWindow window(String method) {
+        return latencies.computeIfAbsent(method, m -> new LatencyWindow(256));
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        while ((error instanceof CompletionException || error instanceof ExecutionException)
+                && error.getCause() != null)
+            error = error.getCause();
+        return error;
+    }
+}
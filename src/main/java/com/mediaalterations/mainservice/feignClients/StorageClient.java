@@ -35,6 +35,11 @@ public interface StorageClient {
                         @RequestBody String[] storageIds,
                         @RequestHeader("user_id") String userId);
 
+        @PostMapping("/copy/{id}")
+        public ResponseEntity<OutputPathResponse> copyStorage(
+                        @PathVariable("id") String storageId,
+                        @RequestHeader("user_id") String userId);
+
         @DeleteMapping("/delete")
         public ResponseEntity<List<String>> deleteStorage(
                         @RequestBody List<String> storageIds,
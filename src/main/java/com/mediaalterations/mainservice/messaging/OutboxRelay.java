@@ -0,0 +1,115 @@
+package com.mediaalterations.mainservice.messaging;
+
+import com.mediaalterations.mainservice.entity.OutboxEvent;
+import com.mediaalterations.mainservice.queue.FairShareDispatcher;
+import com.mediaalterations.mainservice.queue.PendingJob;
+import com.mediaalterations.mainservice.repository.OutboxRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Publishes outbox rows to RabbitMQ in the order chosen by the
+ * {@link FairShareDispatcher}. Rows are marked SENT only after the broker
+ * confirmed them; unconfirmed rows go back to the dispatcher and are sent
+ * again on a later run, so delivery is at-least-once with the outbox id as
+ * message id. Each batch is claimed by locking its pending rows with SKIP
+ * LOCKED until they are marked SENT, so several instances never publish the
+ * same row concurrently.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class OutboxRelay {
+
+    private final OutboxRepository outboxRepository;
+    private final RabbitMQProducer producer;
+    private final FairShareDispatcher dispatcher;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${rabbitmq.outbox.batch-size:100}")
+    private int batchSize;
+
+    @Value("${rabbitmq.outbox.max-batches-per-run:20}")
+    private int maxBatchesPerRun;
+
+    @Value("${rabbitmq.outbox.retention:24h}")
+    private Duration retention;
+
+    @Scheduled(fixedDelayString = "${rabbitmq.outbox.relay-interval-ms:200}")
+    public void relay() {
+        for (int round = 0; round < maxBatchesPerRun; round++) {
+            List<PendingJob> jobs = dispatcher.nextBatch(batchSize);
+            if (jobs.isEmpty())
+                return;
+
+            // the row locks are the claim, so they are held until the batch is marked sent
+            Boolean more = transactionTemplate.execute(status -> relayBatch(jobs));
+            if (!Boolean.TRUE.equals(more))
+                return;
+        }
+    }
+
+    private boolean relayBatch(List<PendingJob> jobs) {
+        Map<Long, OutboxEvent> rows = outboxRepository
+                .lockPending(jobs.stream().map(PendingJob::outboxId).toList())
+                .stream()
+                .collect(Collectors.toMap(OutboxEvent::getId, Function.identity()));
+
+        List<OutboxEvent> batch = new ArrayList<>(jobs.size());
+        for (PendingJob job : jobs) {
+            OutboxEvent row = rows.get(job.outboxId());
+            if (row != null)
+                batch.add(row);
+            else
+                // process was deleted while held, or another instance has sent or is sending the row
+                dispatcher.finished(job.userId());
+        }
+
+        dispatcher.released(jobs.stream().filter(job -> rows.containsKey(job.outboxId())).toList());
+
+        List<Long> confirmed;
+        try {
+            confirmed = batch.isEmpty() ? List.of() : producer.publishConfirmed(batch);
+        } catch (RuntimeException e) {
+            log.error("Publishing outbox batch failed. size={}", batch.size(), e);
+            confirmed = List.of();
+        }
+        if (!confirmed.isEmpty())
+            outboxRepository.markSent(confirmed, LocalDateTime.now());
+
+        Set<Long> confirmedIds = new HashSet<>(confirmed);
+        List<PendingJob> unsent = jobs.stream()
+                .filter(job -> rows.containsKey(job.outboxId()) && !confirmedIds.contains(job.outboxId()))
+                .toList();
+
+        if (!unsent.isEmpty()) {
+            dispatcher.returnUnsent(unsent);
+            outboxRepository.incrementAttempts(unsent.stream().map(PendingJob::outboxId).toList());
+            log.warn("Outbox batch partially confirmed. sent={}, unconfirmed={}",
+                    confirmed.size(), unsent.size());
+            return false;
+        }
+        return jobs.size() >= batchSize;
+    }
+
+    @Scheduled(fixedDelayString = "${rabbitmq.outbox.purge-interval-ms:3600000}")
+    public void purgeSent() {
+        int purged = outboxRepository.deleteSentBefore(LocalDateTime.now().minus(retention));
+        if (purged > 0)
+            log.info("Purged sent outbox rows. count={}", purged);
+    }
+}
@@ -0,0 +1,120 @@
+package com.mediaalterations.mainservice.messaging;
+
+import com.mediaalterations.mainservice.dto.ProcessDto;
+import com.mediaalterations.mainservice.entity.OutboxEvent;
+import com.mediaalterations.mainservice.entity.OutboxStatus;
+import com.mediaalterations.mainservice.queue.FairShareDispatcher;
+import com.mediaalterations.mainservice.queue.JobCost;
+import com.mediaalterations.mainservice.queue.PendingJob;
+import com.mediaalterations.mainservice.repository.OutboxRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * Writes process events to the outbox table inside the caller's transaction.
+ * Once the transaction commits the row is handed to the
+ * {@link FairShareDispatcher}, and {@link OutboxRelay} publishes it when the
+ * user's turn comes. A rolled back insert never reaches the broker and a slow
+ * broker never holds a database transaction.
+ */
+@Component
+@RequiredArgsConstructor
+public class ProcessEventOutbox {
+
+    // header the json converter uses to carry the payload class
+    static final String TYPE_ID_HEADER = "__TypeId__";
+    // run number of the job; workers echo it in status reports and heartbeats so a reclaimed run is fenced off
+    static final String ATTEMPT_HEADER = "x-attempt";
+
+    private final OutboxRepository outboxRepository;
+    private final MessageConverter messageConverter;
+    private final FairShareDispatcher dispatcher;
+    private final WorkerLanes workerLanes;
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueueProcessCreated(ProcessDto event, JobCost cost) {
+        OutboxEvent saved = outboxRepository.save(toOutboxEvent(event, cost));
+
+        PendingJob job = new PendingJob(saved.getId(), event.id(), event.userId(), cost.seconds());
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                dispatcher.enqueue(job);
+            }
+        });
+    }
+
+    /**
+     * Like {@link #enqueueProcessCreated} but the row stays {@code HELD} until
+     * {@link #release} is called, so a job whose inputs do not exist yet can be
+     * fully prepared in the same transaction as its process.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void holdProcessCreated(ProcessDto event, JobCost cost) {
+        OutboxEvent held = toOutboxEvent(event, cost);
+        held.setStatus(OutboxStatus.HELD);
+        outboxRepository.save(held);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void release(UUID processId) {
+        for (OutboxEvent held : outboxRepository.findByProcessIdAndStatus(processId, OutboxStatus.HELD)) {
+            held.setStatus(OutboxStatus.PENDING);
+            PendingJob job = new PendingJob(held.getId(), held.getProcessId(), held.getUserId(), held.getCost());
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    dispatcher.enqueue(job);
+                }
+            });
+        }
+    }
+
+    /**
+     * Writes a copy of an already published job so it is dispatched again,
+     * e.g. after its worker stopped renewing the lease. {@code attempt} is the
+     * process's new reclaim count.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void requeue(OutboxEvent previous, int attempt) {
+        OutboxEvent copy = new OutboxEvent(
+                previous.getProcessId(),
+                previous.getUserId(),
+                previous.getRoutingKey(),
+                previous.getCost(),
+                previous.getPayload(),
+                previous.getPayloadType());
+        copy.setLeaseAttempt(attempt);
+        OutboxEvent saved = outboxRepository.save(copy);
+
+        PendingJob job = new PendingJob(saved.getId(), saved.getProcessId(), saved.getUserId(), saved.getCost());
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                dispatcher.enqueue(job);
+            }
+        });
+    }
+
+    private OutboxEvent toOutboxEvent(ProcessDto event, JobCost cost) {
+        Message message = messageConverter.toMessage(event, new MessageProperties());
+        Object typeId = message.getMessageProperties().getHeaders().get(TYPE_ID_HEADER);
+        return new OutboxEvent(
+                event.id(),
+                event.userId(),
+                workerLanes.routingKeyFor(cost.costClass()),
+                cost.seconds(),
+                new String(message.getBody(), StandardCharsets.UTF_8),
+                typeId == null ? null : typeId.toString());
+    }
+}
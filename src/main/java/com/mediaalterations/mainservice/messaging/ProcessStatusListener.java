@@ -0,0 +1,169 @@
+package com.mediaalterations.mainservice.messaging;
+
+import com.mediaalterations.mainservice.dto.LeaseHeartbeat;
+import com.mediaalterations.mainservice.dto.ProcessStatusUpdate;
+import com.mediaalterations.mainservice.dto.ProgressReport;
+import com.mediaalterations.mainservice.service.ProcessLeaseManager;
+import com.mediaalterations.mainservice.service.ProcessStatusUpdater;
+import com.mediaalterations.mainservice.service.ProgressTracker;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.converter.MessageConversionException;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.amqp.support.converter.SmartMessageConverter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Consumes worker status, progress and heartbeat reports. The container acknowledges
+ * a batch once the listener method returns and requeues it when applying
+ * it fails transiently, e.g. while the database is unreachable. Any other
+ * failure is retried report by report, and reports that still fail are
+ * parked on their own queue, so one poison message cannot block the rest.
+ * Malformed messages are dropped on their own so they cannot keep a batch
+ * from being applied.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ProcessStatusListener {
+
+    private static final ParameterizedTypeReference<ProcessStatusUpdate> STATUS_TYPE =
+            new ParameterizedTypeReference<>() {
+            };
+    private static final ParameterizedTypeReference<ProgressReport> PROGRESS_TYPE =
+            new ParameterizedTypeReference<>() {
+            };
+    private static final ParameterizedTypeReference<LeaseHeartbeat> HEARTBEAT_TYPE =
+            new ParameterizedTypeReference<>() {
+            };
+
+    private final ProcessStatusUpdater statusUpdater;
+    private final ProgressTracker progressTracker;
+    private final ProcessLeaseManager leaseManager;
+    private final MessageConverter messageConverter;
+    private final RabbitTemplate rabbitTemplate;
+
+    @Value("${rabbitmq.exchange.process}")
+    private String exchange;
+
+    @Value("${rabbitmq.queue.process.parked}")
+    private String parkedQueue;
+
+    @RabbitListener(queues = "${rabbitmq.queue.process.status}", containerFactory = "statusBatchContainerFactory")
+    public void onStatusBatch(List<Message> messages) {
+        List<Message> sources = new ArrayList<>(messages.size());
+        List<ProcessStatusUpdate> updates = new ArrayList<>(messages.size());
+        for (Message message : messages) {
+            if (convert(message, STATUS_TYPE) instanceof ProcessStatusUpdate update
+                    && update.processId() != null && update.status() != null) {
+                sources.add(message);
+                updates.add(update);
+            } else {
+                dropMalformed(message);
+            }
+        }
+
+        if (!updates.isEmpty())
+            applyOrPark(sources, updates, statusUpdater::apply);
+        log.debug("Status batch consumed. messages={}, applied={}", messages.size(), updates.size());
+    }
+
+    // progress only lives in memory until the next flush, so nothing here touches the database
+    @RabbitListener(queues = "${rabbitmq.queue.process.progress}", containerFactory = "statusBatchContainerFactory")
+    public void onProgressBatch(List<Message> messages) {
+        List<ProgressReport> reports = new ArrayList<>(messages.size());
+        for (Message message : messages) {
+            if (convert(message, PROGRESS_TYPE) instanceof ProgressReport report && report.processId() != null)
+                reports.add(report);
+            else
+                dropMalformed(message);
+        }
+
+        if (!reports.isEmpty())
+            progressTracker.record(reports);
+    }
+
+    @RabbitListener(queues = "${rabbitmq.queue.process.heartbeat}", containerFactory = "statusBatchContainerFactory")
+    public void onHeartbeatBatch(List<Message> messages) {
+        List<Message> sources = new ArrayList<>(messages.size());
+        List<LeaseHeartbeat> heartbeats = new ArrayList<>(messages.size());
+        for (Message message : messages) {
+            if (convert(message, HEARTBEAT_TYPE) instanceof LeaseHeartbeat heartbeat && heartbeat.processId() != null) {
+                sources.add(message);
+                heartbeats.add(heartbeat);
+            } else {
+                dropMalformed(message);
+            }
+        }
+
+        if (!heartbeats.isEmpty())
+            applyOrPark(sources, heartbeats, leaseManager::renew);
+    }
+
+    // sources.get(i) is the message reports.get(i) was read from
+    private <T> void applyOrPark(List<Message> sources, List<T> reports, Consumer<List<T>> action) {
+        try {
+            action.accept(reports);
+            return;
+        } catch (RuntimeException e) {
+            if (isTransient(e))
+                throw e;
+            log.warn("Worker report batch failed, applying reports one by one. size={}", reports.size(), e);
+        }
+
+        for (int i = 0; i < reports.size(); i++) {
+            try {
+                action.accept(List.of(reports.get(i)));
+            } catch (RuntimeException e) {
+                // the reports applied so far are idempotent, a redelivered batch only repeats them
+                if (isTransient(e))
+                    throw e;
+                park(sources.get(i), e);
+            }
+        }
+    }
+
+    private static boolean isTransient(Throwable e) {
+        return e instanceof TransientDataAccessException
+                || e instanceof RecoverableDataAccessException
+                || e instanceof CannotCreateTransactionException;
+    }
+
+    private void park(Message message, RuntimeException cause) {
+        log.error("Parking worker report that cannot be applied. queue={}, messageId={}",
+                message.getMessageProperties().getConsumerQueue(), message.getMessageProperties().getMessageId(),
+                cause);
+        message.getMessageProperties().setHeader("x-parked-from", message.getMessageProperties().getConsumerQueue());
+        message.getMessageProperties().setHeader("x-parked-reason", String.valueOf(cause.getMessage()));
+        rabbitTemplate.send(exchange, parkedQueue, message);
+    }
+
+    // workers send the payload as JSON without a type header
+    private Object convert(Message message, ParameterizedTypeReference<?> type) {
+        try {
+            return messageConverter instanceof SmartMessageConverter smart
+                    ? smart.fromMessage(message, type)
+                    : messageConverter.fromMessage(message);
+        } catch (MessageConversionException e) {
+            log.debug("Worker message conversion failed", e);
+            return null;
+        }
+    }
+
+    private void dropMalformed(Message message) {
+        log.warn("Dropping malformed worker message. queue={}, messageId={}",
+                message.getMessageProperties().getConsumerQueue(), message.getMessageProperties().getMessageId());
+    }
+}
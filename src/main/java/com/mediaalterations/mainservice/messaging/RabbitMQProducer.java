@@ -1,13 +1,21 @@
 package com.mediaalterations.mainservice.messaging;
 
-import com.mediaalterations.mainservice.dto.ProcessDto;
-import com.mediaalterations.mainservice.entity.Process;
+import com.mediaalterations.mainservice.entity.OutboxEvent;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageDeliveryMode;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
 @Service
 @RequiredArgsConstructor
 @Slf4j
@@ -18,15 +26,53 @@ public class RabbitMQProducer {
     @Value("${rabbitmq.exchange.process}")
     private String exchange;
 
-    @Value("${rabbitmq.queue.process.created}")
-    private String processCreatedQueue;
+    @Value("${rabbitmq.outbox.confirm-timeout-ms:5000}")
+    private long confirmTimeoutMs;
+
+    /**
+     * Publishes outbox rows and waits for publisher confirms.
+     *
+     * @return ids of the rows the broker acknowledged
+     */
+    public List<Long> publishConfirmed(List<OutboxEvent> events){
+        List<CorrelationData> correlations = new ArrayList<>(events.size());
+        for (OutboxEvent event : events) {
+            CorrelationData correlation = new CorrelationData(event.getId().toString());
+            rabbitTemplate.send(exchange, event.getRoutingKey(), toMessage(event), correlation);
+            correlations.add(correlation);
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(confirmTimeoutMs);
+        List<Long> confirmed = new ArrayList<>(events.size());
+        for (int i = 0; i < events.size(); i++) {
+            OutboxEvent event = events.get(i);
+            try {
+                long remaining = Math.max(0, deadline - System.nanoTime());
+                CorrelationData.Confirm confirm = correlations.get(i).getFuture().get(remaining, TimeUnit.NANOSECONDS);
+                if (confirm.ack())
+                    confirmed.add(event.getId());
+                else
+                    log.warn("Broker nacked process event. processId={}, reason={}", event.getProcessId(), confirm.reason());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                log.warn("No broker confirm for process event. processId={}", event.getProcessId());
+            }
+        }
+        log.info("Published process events. sent={}, confirmed={}", events.size(), confirmed.size());
+        return confirmed;
+    }
 
-    public void publishProcessCreated(ProcessDto event){
-        log.info("Process Created and publishing... id={}, command={}",event.id(),event.command());
-        rabbitTemplate.convertAndSend(
-                exchange,
-                processCreatedQueue,
-                event
-        );
+    private Message toMessage(OutboxEvent event) {
+        MessageProperties properties = new MessageProperties();
+        properties.setContentType(MessageProperties.CONTENT_TYPE_JSON);
+        properties.setContentEncoding(StandardCharsets.UTF_8.name());
+        properties.setDeliveryMode(MessageDeliveryMode.PERSISTENT);
+        properties.setMessageId(event.getId().toString());
+        if (event.getPayloadType() != null)
+            properties.setHeader(ProcessEventOutbox.TYPE_ID_HEADER, event.getPayloadType());
+        properties.setHeader(ProcessEventOutbox.ATTEMPT_HEADER, event.getLeaseAttempt());
+        return new Message(event.getPayload().getBytes(StandardCharsets.UTF_8), properties);
     }
 }
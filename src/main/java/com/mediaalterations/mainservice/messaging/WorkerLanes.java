@@ -0,0 +1,76 @@
+package com.mediaalterations.mainservice.messaging;
+
+import com.mediaalterations.mainservice.entity.CostClass;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.core.QueueInformation;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Maps cost classes to worker queues so short jobs never wait behind long
+ * encodes, and exposes per-lane queue depth and wait time.
+ */
+@Component
+@Slf4j
+public class WorkerLanes {
+
+    private final AmqpAdmin amqpAdmin;
+    private final Map<CostClass, String> queues = new EnumMap<>(CostClass.class);
+    private final Map<CostClass, AtomicLong> depths = new EnumMap<>(CostClass.class);
+    private final Map<CostClass, Timer> waits = new EnumMap<>(CostClass.class);
+
+    public WorkerLanes(
+            AmqpAdmin amqpAdmin,
+            MeterRegistry meterRegistry,
+            @Value("${rabbitmq.queue.process.created}") String shortLaneQueue,
+            @Value("${rabbitmq.queue.process.created-long}") String longLaneQueue) {
+        this.amqpAdmin = amqpAdmin;
+        queues.put(CostClass.SHORT, shortLaneQueue);
+        queues.put(CostClass.LONG, longLaneQueue);
+
+        for (CostClass costClass : CostClass.values()) {
+            AtomicLong depth = new AtomicLong();
+            depths.put(costClass, depth);
+            Gauge.builder("process.lane.depth", depth, AtomicLong::get)
+                    .description("Messages waiting in the worker queue of a cost class")
+                    .tag("costClass", costClass.name())
+                    .register(meterRegistry);
+            waits.put(costClass, Timer.builder("process.lane.wait")
+                    .description("Time from creation until a worker picked the job up")
+                    .tag("costClass", costClass.name())
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+        }
+    }
+
+    // queues are bound with their own name as routing key
+    public String routingKeyFor(CostClass costClass) {
+        return queues.get(costClass == null ? CostClass.SHORT : costClass);
+    }
+
+    public void recordWait(CostClass costClass, Duration waited) {
+        waits.get(costClass == null ? CostClass.SHORT : costClass).record(waited);
+    }
+
+    @Scheduled(fixedDelayString = "${rabbitmq.lanes.depth-refresh-ms:15000}")
+    public void refreshDepths() {
+        queues.forEach((costClass, queue) -> {
+            try {
+                QueueInformation info = amqpAdmin.getQueueInfo(queue);
+                depths.get(costClass).set(info == null ? 0 : info.getMessageCount());
+            } catch (RuntimeException e) {
+                log.debug("Could not read queue depth. queue={}", queue, e);
+            }
+        });
+    }
+}
@@ -0,0 +1,233 @@
+package com.mediaalterations.mainservice.queue;
+
+import com.mediaalterations.mainservice.entity.ProcessStatus;
+import com.mediaalterations.mainservice.repository.OutboxRepository;
+import com.mediaalterations.mainservice.repository.ProcessRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.UUID;
+
+/**
+ * Holds created jobs in per-user queues and releases them to the broker by
+ * deficit round robin: every visit grants a user {@code quantum} seconds of
+ * estimated work, and a job is released once the user's accumulated credit
+ * covers its cost. Each user has at most {@code maxInFlightPerUser} jobs
+ * released and not yet finished, so a large submission cannot monopolise the
+ * workers.
+ */
+@Component
+@Slf4j
+public class FairShareDispatcher {
+
+    private static final class UserQueue {
+        final Deque<PendingJob> jobs = new ArrayDeque<>();
+        double deficit;
+        int inFlight;
+    }
+
+    private final OutboxRepository outboxRepository;
+    private final ProcessRepository processRepository;
+    private final WaitingQueueIndex waitingQueue;
+    private final double quantum;
+    private final int maxInFlightPerUser;
+
+    private final Map<String, UserQueue> queues = new HashMap<>();
+    // users with held jobs, in round robin order
+    private final Deque<String> active = new ArrayDeque<>();
+
+    public FairShareDispatcher(
+            OutboxRepository outboxRepository,
+            ProcessRepository processRepository,
+            WaitingQueueIndex waitingQueue,
+            @Value("${process.dispatch.quantum-seconds:60}") double quantum,
+            @Value("${process.dispatch.max-in-flight-per-user:4}") int maxInFlightPerUser) {
+        this.outboxRepository = outboxRepository;
+        this.processRepository = processRepository;
+        this.waitingQueue = waitingQueue;
+        this.quantum = quantum;
+        this.maxInFlightPerUser = maxInFlightPerUser;
+    }
+
+    @PostConstruct
+    public synchronized void rebuild() {
+        queues.clear();
+        active.clear();
+
+        for (Object[] row : processRepository.countReleasedByUser(
+                List.of(ProcessStatus.WAITING, ProcessStatus.PROCESSING))) {
+            queue((String) row[0]).inFlight = ((Number) row[1]).intValue();
+        }
+        List<PendingJob> pending = outboxRepository.findPendingJobs();
+        pending.forEach(this::hold);
+
+        log.info("Fair share dispatcher rebuilt. held={}, users={}", pending.size(), active.size());
+    }
+
+    public synchronized void enqueue(PendingJob job) {
+        hold(job);
+    }
+
+    /**
+     * Picks up to {@code limit} jobs in fair order. The returned jobs count as
+     * in flight until {@link #returnUnsent} or {@link #finished} is called.
+     */
+    public synchronized List<PendingJob> nextBatch(int limit) {
+        List<PendingJob> batch = new ArrayList<>();
+        int blocked = 0;
+
+        while (batch.size() < limit && !active.isEmpty() && blocked < active.size()) {
+            String userId = active.pollFirst();
+            UserQueue queue = queues.get(userId);
+
+            if (queue.inFlight >= maxInFlightPerUser) {
+                active.addLast(userId);
+                blocked++;
+                continue;
+            }
+            blocked = 0;
+
+            queue.deficit += quantum;
+            while (!queue.jobs.isEmpty()
+                    && queue.jobs.peekFirst().cost() <= queue.deficit
+                    && queue.inFlight < maxInFlightPerUser
+                    && batch.size() < limit) {
+                PendingJob job = queue.jobs.pollFirst();
+                queue.deficit -= job.cost();
+                queue.inFlight++;
+                batch.add(job);
+            }
+
+            if (queue.jobs.isEmpty())
+                queue.deficit = 0;
+            else
+                active.addLast(userId);
+        }
+        return batch;
+    }
+
+    // jobs about to be published; indexed first so a fast worker's status update cannot overtake the add
+    public synchronized void released(Collection<PendingJob> jobs) {
+        for (PendingJob job : jobs)
+            waitingQueue.add(job.processId(), job.userId());
+    }
+
+    // publishing failed, put the jobs back at the head of their queues
+    public synchronized void returnUnsent(List<PendingJob> jobs) {
+        for (int i = jobs.size() - 1; i >= 0; i--) {
+            PendingJob job = jobs.get(i);
+            waitingQueue.remove(job.processId());
+            UserQueue queue = queue(job.userId());
+            queue.inFlight = Math.max(0, queue.inFlight - 1);
+            queue.deficit += job.cost();
+            if (queue.jobs.isEmpty() && !active.contains(job.userId()))
+                active.addLast(job.userId());
+            queue.jobs.addFirst(job);
+        }
+    }
+
+    // a released job reached COMPLETED or FAILED
+    public synchronized void finished(String userId) {
+        UserQueue queue = queues.get(userId);
+        if (queue == null)
+            return;
+        queue.inFlight = Math.max(0, queue.inFlight - 1);
+        if (queue.inFlight == 0 && queue.jobs.isEmpty())
+            queues.remove(userId);
+    }
+
+    public synchronized void remove(UUID processId, String userId) {
+        UserQueue queue = queues.get(userId);
+        if (queue == null)
+            return;
+        queue.jobs.removeIf(job -> job.processId().equals(processId));
+        if (queue.jobs.isEmpty()) {
+            queue.deficit = 0;
+            active.remove(userId);
+        }
+    }
+
+    /**
+     * Estimated number of jobs ahead of this one: everything already in the
+     * broker queue, plus the held jobs that deficit round robin would release
+     * first, i.e. the jobs of every user whose cumulative cost does not exceed
+     * the cumulative cost of this job in its own queue.
+     */
+    public synchronized OptionalInt positionOf(UUID processId, String userId) {
+        UserQueue own = queues.get(userId);
+        if (own == null || own.jobs.isEmpty())
+            return waitingQueue.positionOf(processId, userId);
+
+        int ahead = 0;
+        double cumulative = -own.deficit;
+        boolean found = false;
+        for (PendingJob job : own.jobs) {
+            cumulative += job.cost();
+            if (job.processId().equals(processId)) {
+                found = true;
+                break;
+            }
+            ahead++;
+        }
+        if (!found)
+            return waitingQueue.positionOf(processId, userId);
+
+        // on equal cumulative cost, users visited earlier in the round go first
+        boolean visitedEarlier = true;
+        for (String otherUserId : active) {
+            if (otherUserId.equals(userId)) {
+                visitedEarlier = false;
+                continue;
+            }
+            UserQueue other = queues.get(otherUserId);
+            double otherCumulative = -other.deficit;
+            Iterator<PendingJob> jobs = other.jobs.iterator();
+            while (jobs.hasNext()) {
+                otherCumulative += jobs.next().cost();
+                if (otherCumulative > cumulative || (otherCumulative == cumulative && !visitedEarlier))
+                    break;
+                ahead++;
+            }
+        }
+        return OptionalInt.of(waitingQueue.size() + ahead);
+    }
+
+    public synchronized int heldCount() {
+        int held = 0;
+        for (UserQueue queue : queues.values())
+            held += queue.jobs.size();
+        return held;
+    }
+
+    // estimated worker-seconds of the held jobs
+    public synchronized double heldSeconds() {
+        double seconds = 0;
+        for (UserQueue queue : queues.values()) {
+            for (PendingJob job : queue.jobs)
+                seconds += job.cost();
+        }
+        return seconds;
+    }
+
+    private void hold(PendingJob job) {
+        UserQueue queue = queue(job.userId());
+        if (queue.jobs.isEmpty())
+            active.addLast(job.userId());
+        queue.jobs.addLast(job);
+    }
+
+    private UserQueue queue(String userId) {
+        return queues.computeIfAbsent(userId, id -> new UserQueue());
+    }
+}
@@ -0,0 +1,49 @@
+package com.mediaalterations.mainservice.queue;
+
+/**
+ * Binary indexed tree over slots {@code 0..capacity-1} answering prefix sums
+ * in O(log n).
+ */
+class FenwickTree {
+
+    private final int[] tree;
+
+    FenwickTree(int capacity) {
+        this.tree = new int[capacity + 1];
+    }
+
+    /**
+     * Builds a tree where the first {@code count} slots hold 1, in O(n).
+     */
+    static FenwickTree ofOnes(int capacity, int count) {
+        FenwickTree fenwick = new FenwickTree(capacity);
+        int[] t = fenwick.tree;
+        for (int i = 1; i <= capacity; i++) {
+            if (i <= count)
+                t[i] += 1;
+            int parent = i + (i & -i);
+            if (parent <= capacity)
+                t[parent] += t[i];
+        }
+        return fenwick;
+    }
+
+    int capacity() {
+        return tree.length - 1;
+    }
+
+    void add(int slot, int delta) {
+        for (int i = slot + 1; i < tree.length; i += i & -i)
+            tree[i] += delta;
+    }
+
+    /**
+     * Sum of slots {@code 0..slot} inclusive; {@code slot = -1} yields 0.
+     */
+    int prefixSum(int slot) {
+        int sum = 0;
+        for (int i = slot + 1; i > 0; i -= i & -i)
+            sum += tree[i];
+        return sum;
+    }
+}
@@ -0,0 +1,8 @@
+package com.mediaalterations.mainservice.queue;
+
+import com.mediaalterations.mainservice.entity.CostClass;
+
+public record JobCost(
+        double seconds,
+        CostClass costClass) {
+}
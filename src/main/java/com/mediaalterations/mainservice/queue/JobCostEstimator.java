@@ -0,0 +1,158 @@
+package com.mediaalterations.mainservice.queue;
+
+import com.mediaalterations.mainservice.command.EnumLookup;
+import com.mediaalterations.mainservice.dto.AbrPackageRequest;
+import com.mediaalterations.mainservice.dto.AudioConvertRequest;
+import com.mediaalterations.mainservice.dto.ConvertRequest;
+import com.mediaalterations.mainservice.dto.EncodingPresetType;
+import com.mediaalterations.mainservice.dto.GifConvertRequest;
+import com.mediaalterations.mainservice.dto.MediaType;
+import com.mediaalterations.mainservice.dto.MergeConvertRequest;
+import com.mediaalterations.mainservice.dto.ResolutionType;
+import com.mediaalterations.mainservice.dto.VideoCodecType;
+import com.mediaalterations.mainservice.dto.VideoConvertRequest;
+import com.mediaalterations.mainservice.entity.CostClass;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rough encode cost of a job in worker-seconds: media duration scaled by how
+ * expensive the target codec, preset and resolution are relative to a
+ * 720p h264 medium encode. Used to weigh users in fair share dispatch and to
+ * route jobs into the short or long worker lane.
+ */
+@Component
+public class JobCostEstimator {
+
+    // used when the client did not send a parseable duration
+    private static final double UNKNOWN_DURATION_SECONDS = 60;
+    private static final double MIN_COST = 1;
+    // stream copy is bound by I/O, not by the encoder
+    private static final double REMUX_FACTOR = 0.02;
+
+    private static final Map<MediaType, Double> AUDIO_FACTORS = new EnumMap<>(Map.of(
+            MediaType.wav, 0.02,
+            MediaType.flac, 0.05));
+    private static final double DEFAULT_AUDIO_FACTOR = 0.1;
+
+    private static final Map<VideoCodecType, Double> CODEC_FACTORS = new EnumMap<>(Map.of(
+            VideoCodecType.source, 0.05,
+            VideoCodecType.h264, 1.0,
+            VideoCodecType.h265, 2.5,
+            VideoCodecType.vp9, 3.0,
+            VideoCodecType.av1, 8.0));
+
+    private static final Map<EncodingPresetType, Double> PRESET_FACTORS = new EnumMap<>(Map.of(
+            EncodingPresetType.ultrafast, 0.3,
+            EncodingPresetType.fast, 0.7,
+            EncodingPresetType.medium, 1.0,
+            EncodingPresetType.slow, 2.0,
+            EncodingPresetType.veryslow, 4.0));
+
+    // roughly proportional to pixel count, 720p = 1
+    private static final Map<ResolutionType, Double> RESOLUTION_FACTORS = new EnumMap<>(Map.of(
+            ResolutionType.source, 1.0,
+            ResolutionType.p144, 0.1,
+            ResolutionType.p240, 0.2,
+            ResolutionType.p360, 0.35,
+            ResolutionType.p480, 0.5,
+            ResolutionType.p720, 1.0,
+            ResolutionType.p1080, 2.0,
+            ResolutionType.p1440, 3.5,
+            ResolutionType.p2160, 8.0));
+
+    private final double longJobThresholdSeconds;
+
+    public JobCostEstimator(
+            @Value("${process.routing.long-job-threshold-seconds:600}") double longJobThresholdSeconds) {
+        this.longJobThresholdSeconds = longJobThresholdSeconds;
+    }
+
+    public JobCost estimate(ConvertRequest request) {
+        double cost = switch (request) {
+            case AudioConvertRequest audio -> durationOrDefault(audio.duration())
+                    * AUDIO_FACTORS.getOrDefault(parse(MediaType.class, audio.toMediaType()), DEFAULT_AUDIO_FACTOR);
+            case VideoConvertRequest video -> durationOrDefault(video.duration()) * videoFactor(video);
+            case GifConvertRequest gif -> gif.durationSeconds() * 0.5
+                    * RESOLUTION_FACTORS.getOrDefault(parse(ResolutionType.class, gif.resolution()), 1.0);
+        };
+        return of(cost);
+    }
+
+    public JobCost estimate(MergeConvertRequest request) {
+        double codec = CODEC_FACTORS.getOrDefault(parse(VideoCodecType.class, request.videoCodec()), 1.0);
+        double resolution = request.resolutionHeight() > 0 ? request.resolutionHeight() / 720.0 : 1.0;
+        return of(durationOrDefault(request.duration()) * codec * resolution * resolution);
+    }
+
+    // one decode, one encode per rung
+    public JobCost estimate(AbrPackageRequest request, List<ResolutionType> ladder) {
+        double factor = 0;
+        for (ResolutionType resolution : ladder)
+            factor += RESOLUTION_FACTORS.getOrDefault(resolution, 1.0);
+        factor *= PRESET_FACTORS.getOrDefault(parse(EncodingPresetType.class, request.encoderPreset()), 1.0);
+        return of(durationOrDefault(request.duration()) * factor);
+    }
+
+    // outputs share one decode; encode cost dominates, so the sum is a close upper bound
+    public JobCost estimateFanOut(List<ConvertRequest> outputs) {
+        double cost = 0;
+        for (ConvertRequest output : outputs)
+            cost += estimate(output).seconds();
+        return of(cost);
+    }
+
+    public JobCost estimateRemux(String duration) {
+        return of(durationOrDefault(duration) * REMUX_FACTOR);
+    }
+
+    public CostClass classify(double seconds) {
+        return seconds >= longJobThresholdSeconds ? CostClass.LONG : CostClass.SHORT;
+    }
+
+    private JobCost of(double cost) {
+        double seconds = Math.max(MIN_COST, cost);
+        return new JobCost(seconds, classify(seconds));
+    }
+
+    private static double videoFactor(VideoConvertRequest video) {
+        VideoCodecType codec = parse(VideoCodecType.class, video.videoCodec());
+        double factor = CODEC_FACTORS.getOrDefault(codec, 1.0);
+        if (codec == VideoCodecType.source)
+            return factor;
+        if (codec == VideoCodecType.h264 || codec == VideoCodecType.h265)
+            factor *= PRESET_FACTORS.getOrDefault(parse(EncodingPresetType.class, video.encoderPreset()), 1.0);
+        return factor * RESOLUTION_FACTORS.getOrDefault(parse(ResolutionType.class, video.resolution()), 1.0);
+    }
+
+    private static double durationOrDefault(String duration) {
+        double seconds = parseSeconds(duration);
+        return seconds > 0 ? seconds : UNKNOWN_DURATION_SECONDS;
+    }
+
+    private static <E extends Enum<E>> E parse(Class<E> type, String name) {
+        return EnumLookup.findIgnoreCase(type, name).orElse(null);
+    }
+
+    /**
+     * Parses {@code HH:MM:SS(.fff)}, {@code MM:SS} or plain seconds; returns 0
+     * for anything else.
+     */
+    public static double parseSeconds(String duration) {
+        if (duration == null || duration.isBlank())
+            return 0;
+        try {
+            String[] parts = duration.trim().split(":");
+            double seconds = 0;
+            for (String part : parts)
+                seconds = seconds * 60 + Double.parseDouble(part);
+            return seconds < 0 ? 0 : seconds;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.mediaalterations.mainservice.queue;
+
+import java.util.UUID;
+
+// an outbox row held back by the dispatcher until its user's turn
+public record PendingJob(
+        Long outboxId,
+        UUID processId,
+        String userId,
+        double cost) {
+}
@@ -0,0 +1,8 @@
+package com.mediaalterations.mainservice.queue;
+
+import java.util.UUID;
+
+public record WaitingProcessRef(
+        UUID id,
+        String userId) {
+}
@@ -0,0 +1,106 @@
+package com.mediaalterations.mainservice.queue;
+
+import com.mediaalterations.mainservice.entity.ProcessStatus;
+import com.mediaalterations.mainservice.repository.ProcessRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.UUID;
+
+/**
+ * In-memory order statistics over WAITING processes. Every process gets a slot
+ * in creation order and the queue position is the number of occupied slots
+ * in front of it, answered by a Fenwick tree in O(log n) instead of a COUNT
+ * over the process table.
+ * <p>
+ * Requeued processes take a fresh slot at the back, which matches where the
+ * republished job lands on the broker.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class WaitingQueueIndex {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private record Slot(int index, String userId) {
+    }
+
+    private final ProcessRepository processRepository;
+
+    private final Map<UUID, Slot> slots = new HashMap<>();
+    private FenwickTree tree = new FenwickTree(INITIAL_CAPACITY);
+    private int nextSlot = 0;
+
+    @PostConstruct
+    public synchronized void rebuild() {
+        List<WaitingProcessRef> waiting = processRepository.findWaitingRefs(ProcessStatus.WAITING);
+
+        slots.clear();
+        int capacity = INITIAL_CAPACITY;
+        while (capacity < waiting.size() * 2)
+            capacity <<= 1;
+
+        for (int i = 0; i < waiting.size(); i++)
+            slots.put(waiting.get(i).id(), new Slot(i, waiting.get(i).userId()));
+        nextSlot = waiting.size();
+        tree = FenwickTree.ofOnes(capacity, nextSlot);
+
+        log.info("Waiting queue index rebuilt. waiting={}", waiting.size());
+    }
+
+    public synchronized void add(UUID processId, String userId) {
+        if (slots.containsKey(processId))
+            return;
+        if (nextSlot == tree.capacity())
+            resize();
+        Slot slot = new Slot(nextSlot++, userId);
+        slots.put(processId, slot);
+        tree.add(slot.index(), 1);
+    }
+
+    public synchronized void remove(UUID processId) {
+        Slot slot = slots.remove(processId);
+        if (slot != null)
+            tree.add(slot.index(), -1);
+    }
+
+    /**
+     * Number of WAITING processes created before this one, or empty when the
+     * process is not waiting or belongs to another user.
+     */
+    public synchronized OptionalInt positionOf(UUID processId, String userId) {
+        Slot slot = slots.get(processId);
+        if (slot == null || !slot.userId().equals(userId))
+            return OptionalInt.empty();
+        return OptionalInt.of(tree.prefixSum(slot.index() - 1));
+    }
+
+    public synchronized int size() {
+        return slots.size();
+    }
+
+    // compacts live slots to the front, doubling the capacity when more than half is live
+    private void resize() {
+        int capacity = tree.capacity();
+        if (slots.size() * 2 >= capacity)
+            capacity <<= 1;
+
+        List<Map.Entry<UUID, Slot>> live = new ArrayList<>(slots.entrySet());
+        live.sort(Comparator.comparingInt(e -> e.getValue().index()));
+        for (int i = 0; i < live.size(); i++) {
+            Map.Entry<UUID, Slot> entry = live.get(i);
+            entry.setValue(new Slot(i, entry.getValue().userId()));
+        }
+        nextSlot = live.size();
+        tree = FenwickTree.ofOnes(capacity, nextSlot);
+    }
+}
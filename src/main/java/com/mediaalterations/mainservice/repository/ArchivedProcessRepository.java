@@ -0,0 +1,89 @@
+package com.mediaalterations.mainservice.repository;
+
+import com.mediaalterations.mainservice.dto.ProcessSummary;
+import com.mediaalterations.mainservice.entity.ArchivedProcess;
+import com.mediaalterations.mainservice.entity.ProcessStatus;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface ArchivedProcessRepository extends JpaRepository<ArchivedProcess, UUID> {
+
+        // columns shared by process and process_archive
+        String COLUMNS = "id, storage_id_input, storage_id_output, command, status, user_id, duration,"
+                        + " file_name, final_file_size, is_video, cost_class, result_key, parent_id, role,"
+                        + " child_index, child_count, children_completed, progress_percent, eta_seconds,"
+                        + " progress_updated_at, created_at";
+
+        @Modifying
+        @Query(value = "INSERT INTO process_archive (" + COLUMNS + ", archived_at)"
+                        + " SELECT " + COLUMNS + ", :now FROM process WHERE id IN :ids", nativeQuery = true)
+        int copyFromProcess(
+                        @Param("ids") List<byte[]> ids,
+                        @Param("now") LocalDateTime now);
+
+        // archived processes plus their segments and concat jobs, see ProcessRepository.findChildIds
+        String WITH_CHILDREN = "user_id = :userId"
+                        + " AND (id IN :ids OR (parent_id IN :ids AND role IN ('SEGMENT', 'CONCAT')))";
+
+        // brings archived processes and their children back as tombstones for ProcessReaper
+        @Modifying
+        @Query(value = "INSERT INTO process (" + COLUMNS + ", deleted_at)"
+                        + " SELECT " + COLUMNS + ", :now FROM process_archive"
+                        + " WHERE " + WITH_CHILDREN, nativeQuery = true)
+        int restoreAsTombstones(
+                        @Param("ids") List<byte[]> ids,
+                        @Param("userId") String userId,
+                        @Param("now") LocalDateTime now);
+
+        @Modifying
+        @Query(value = "DELETE FROM process_archive WHERE " + WITH_CHILDREN, nativeQuery = true)
+        int deleteWithChildren(
+                        @Param("ids") List<byte[]> ids,
+                        @Param("userId") String userId);
+
+        // fan-out outputs of deleted carriers stay as standalone processes
+        @Modifying
+        @Query(value = "UPDATE process_archive SET parent_id = NULL"
+                        + " WHERE user_id = :userId AND parent_id IN :ids AND role = 'FANOUT_OUTPUT'",
+                        nativeQuery = true)
+        int detachFanOutOutputs(
+                        @Param("ids") List<byte[]> ids,
+                        @Param("userId") String userId);
+
+        Optional<ArchivedProcess> findByIdAndUserId(UUID id, String userId);
+
+        // same page shape as ProcessRepository.findHistoryPage
+        @Query("""
+                        SELECT new com.mediaalterations.mainservice.dto.ProcessSummary(
+                                p.id, p.fileName, p.duration, p.finalFileSize, p.isVideo,
+                                p.storageIdOutput, p.status, p.createdAt)
+                        FROM ArchivedProcess p
+                        WHERE p.userId = :userId
+                        AND (p.role IS NULL OR p.role NOT IN (
+                                com.mediaalterations.mainservice.entity.ProcessRole.SEGMENT,
+                                com.mediaalterations.mainservice.entity.ProcessRole.CONCAT))
+                        AND (:status IS NULL OR p.status = :status)
+                        AND (:isVideo IS NULL OR p.isVideo = :isVideo)
+                        AND (:cursorCreatedAt IS NULL
+                                OR p.createdAt < :cursorCreatedAt
+                                OR (p.createdAt = :cursorCreatedAt AND p.id < :cursorId))
+                        ORDER BY p.createdAt DESC, p.id DESC
+                        """)
+        List<ProcessSummary> findHistoryPage(
+                        @Param("userId") String userId,
+                        @Param("status") ProcessStatus status,
+                        @Param("isVideo") Boolean isVideo,
+                        @Param("cursorCreatedAt") LocalDateTime cursorCreatedAt,
+                        @Param("cursorId") UUID cursorId,
+                        Limit limit);
+}
@@ -0,0 +1,85 @@
+package com.mediaalterations.mainservice.repository;
+
+import com.mediaalterations.mainservice.entity.OutboxEvent;
+import com.mediaalterations.mainservice.entity.OutboxStatus;
+import com.mediaalterations.mainservice.queue.PendingJob;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface OutboxRepository extends JpaRepository<OutboxEvent, Long> {
+
+        List<OutboxEvent> findByStatusOrderByIdAsc(OutboxStatus status, Limit limit);
+
+        @Query("""
+                        SELECT new com.mediaalterations.mainservice.queue.PendingJob(o.id, o.processId, o.userId, o.cost)
+                        FROM OutboxEvent o
+                        WHERE o.status = com.mediaalterations.mainservice.entity.OutboxStatus.PENDING
+                        ORDER BY o.id
+                        """)
+        List<PendingJob> findPendingJobs();
+
+        // claims the rows that are still pending; rows another relay has locked are skipped, not waited for
+        @Lock(LockModeType.PESSIMISTIC_WRITE)
+        @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+        @Query("""
+                        SELECT o FROM OutboxEvent o
+                        WHERE o.id IN :ids
+                        AND o.status = com.mediaalterations.mainservice.entity.OutboxStatus.PENDING
+                        """)
+        List<OutboxEvent> lockPending(@Param("ids") List<Long> ids);
+
+        List<OutboxEvent> findByProcessIdAndStatus(UUID processId, OutboxStatus status);
+
+        Optional<OutboxEvent> findFirstByProcessIdOrderByIdDesc(UUID processId);
+
+        @Transactional
+        @Modifying
+        @Query("""
+                        DELETE FROM OutboxEvent o
+                        WHERE o.processId IN :processIds
+                        AND o.userId = :userId
+                        AND o.status <> com.mediaalterations.mainservice.entity.OutboxStatus.SENT
+                        """)
+        int deleteUnsentByProcessIds(
+                        @Param("processIds") List<UUID> processIds,
+                        @Param("userId") String userId);
+
+        @Transactional
+        @Modifying
+        @Query("""
+                        UPDATE OutboxEvent o
+                        SET o.status = com.mediaalterations.mainservice.entity.OutboxStatus.SENT,
+                            o.sentAt = :sentAt
+                        WHERE o.id IN :ids
+                        """)
+        int markSent(@Param("ids") List<Long> ids, @Param("sentAt") LocalDateTime sentAt);
+
+        @Transactional
+        @Modifying
+        @Query("UPDATE OutboxEvent o SET o.attempts = o.attempts + 1 WHERE o.id IN :ids")
+        int incrementAttempts(@Param("ids") List<Long> ids);
+
+        @Transactional
+        @Modifying
+        @Query("""
+                        DELETE FROM OutboxEvent o
+                        WHERE o.status = com.mediaalterations.mainservice.entity.OutboxStatus.SENT
+                        AND o.sentAt < :before
+                        """)
+        int deleteSentBefore(@Param("before") LocalDateTime before);
+}
@@ -0,0 +1,21 @@
+package com.mediaalterations.mainservice.repository;
+
+import com.mediaalterations.mainservice.entity.ProcessRendition;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface ProcessRenditionRepository extends JpaRepository<ProcessRendition, UUID> {
+
+        List<ProcessRendition> findByProcessIdOrderByRenditionIndex(UUID processId);
+
+        @Modifying
+        @Query("DELETE FROM ProcessRendition r WHERE r.processId IN :processIds")
+        int deleteByProcessIds(@Param("processIds") List<UUID> processIds);
+}
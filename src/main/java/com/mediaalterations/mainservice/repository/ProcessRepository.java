@@ -1,35 +1,230 @@
 package com.mediaalterations.mainservice.repository;
 
+import com.mediaalterations.mainservice.dto.ProcessSummary;
 import com.mediaalterations.mainservice.entity.Process;
 import com.mediaalterations.mainservice.entity.ProcessStatus;
+import com.mediaalterations.mainservice.queue.WaitingProcessRef;
+import com.mediaalterations.mainservice.entity.ProcessRole;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 @Repository
 public interface ProcessRepository extends JpaRepository<Process, UUID> {
 
-        @Query("select p.storageIdOutput from Process p where p.id in :ids and p.userId=:userId")
-        List<String> getStorageIds(@Param("ids") List<UUID> ids, @Param("userId") String userId);
-
+        // tombstoned rows drop out of every entity query, see ProcessReaper for the purge
         @Modifying
         @Query("""
-                        DELETE FROM Process p
+                        UPDATE Process p SET p.deletedAt = :now
                         WHERE p.id IN :ids
                         AND p.userId = :userId
+                        AND p.deletedAt IS NULL
                         """)
-        void deleteByIdsAndUserId(
+        int tombstone(
                         @Param("ids") List<UUID> ids,
-                        @Param("userId") String userId);
+                        @Param("userId") String userId,
+                        @Param("now") LocalDateTime now);
+
+        // the tombstone queries below are native: entity queries never see tombstoned rows
+        @Query(value = """
+                        SELECT id, user_id, storage_id_output, purge_attempts FROM process
+                        WHERE deleted_at IS NOT NULL
+                        AND (purge_not_before IS NULL OR purge_not_before <= :now)
+                        ORDER BY deleted_at
+                        LIMIT :limit
+                        FOR UPDATE SKIP LOCKED
+                        """, nativeQuery = true)
+        List<Object[]> findPurgeableTombstones(
+                        @Param("now") LocalDateTime now,
+                        @Param("limit") int limit);
+
+        @Modifying
+        @Query(value = "UPDATE process SET purge_not_before = :until WHERE id IN :ids", nativeQuery = true)
+        int deferPurge(
+                        @Param("ids") List<byte[]> ids,
+                        @Param("until") LocalDateTime until);
+
+        @Modifying
+        @Query(value = """
+                        UPDATE process
+                        SET purge_attempts = COALESCE(purge_attempts, 0) + 1, purge_not_before = :retryAt
+                        WHERE id IN :ids
+                        """, nativeQuery = true)
+        int purgeFailed(
+                        @Param("ids") List<byte[]> ids,
+                        @Param("retryAt") LocalDateTime retryAt);
+
+        @Modifying
+        @Query(value = "DELETE FROM process WHERE id IN :ids AND deleted_at IS NOT NULL", nativeQuery = true)
+        int purge(@Param("ids") List<byte[]> ids);
+
+        // finished processes past the hot window, see ProcessArchiver
+        @Query(value = """
+                        SELECT id FROM process
+                        WHERE status IN ('COMPLETED', 'FAILED')
+                        AND created_at < :cutoff
+                        AND deleted_at IS NULL
+                        ORDER BY created_at
+                        LIMIT :limit
+                        FOR UPDATE SKIP LOCKED
+                        """, nativeQuery = true)
+        List<byte[]> findArchivable(
+                        @Param("cutoff") LocalDateTime cutoff,
+                        @Param("limit") int limit);
+
+        @Modifying
+        @Query(value = "DELETE FROM process WHERE id IN :ids", nativeQuery = true)
+        int deleteArchived(@Param("ids") List<byte[]> ids);
+
+        @Query("""
+                        SELECT new com.mediaalterations.mainservice.queue.WaitingProcessRef(p.id, p.userId)
+                        FROM Process p
+                        WHERE p.status = :status
+                        AND (p.role IS NULL OR p.role NOT IN (
+                                com.mediaalterations.mainservice.entity.ProcessRole.SEGMENTED,
+                                com.mediaalterations.mainservice.entity.ProcessRole.FANOUT_OUTPUT))
+                        AND NOT EXISTS (
+                                SELECT o.id FROM OutboxEvent o
+                                WHERE o.processId = p.id
+                                AND o.status <> com.mediaalterations.mainservice.entity.OutboxStatus.SENT)
+                        ORDER BY p.createdAt, p.id
+                        """)
+        List<WaitingProcessRef> findWaitingRefs(@Param("status") ProcessStatus status);
+
+        Optional<Process> findByIdAndUserId(UUID id, String userId);
+
+        boolean existsByIdAndUserId(UUID id, String userId);
+
+        // processes handed to the broker (no pending outbox row) per user
+        @Query("""
+                        SELECT p.userId, COUNT(p)
+                        FROM Process p
+                        WHERE p.status IN :statuses
+                        AND (p.role IS NULL OR p.role NOT IN (
+                                com.mediaalterations.mainservice.entity.ProcessRole.SEGMENTED,
+                                com.mediaalterations.mainservice.entity.ProcessRole.FANOUT_OUTPUT))
+                        AND NOT EXISTS (
+                                SELECT o.id FROM OutboxEvent o
+                                WHERE o.processId = p.id
+                                AND o.status <> com.mediaalterations.mainservice.entity.OutboxStatus.SENT)
+                        GROUP BY p.userId
+                        """)
+        List<Object[]> countReleasedByUser(@Param("statuses") List<ProcessStatus> statuses);
+
+        // the given processes that hold an in-flight slot of the dispatcher, same rules as countReleasedByUser
+        @Query("""
+                        SELECT p.id
+                        FROM Process p
+                        WHERE p.id IN :ids
+                        AND p.userId = :userId
+                        AND p.status IN (
+                                com.mediaalterations.mainservice.entity.ProcessStatus.WAITING,
+                                com.mediaalterations.mainservice.entity.ProcessStatus.PROCESSING)
+                        AND (p.role IS NULL OR p.role NOT IN (
+                                com.mediaalterations.mainservice.entity.ProcessRole.SEGMENTED,
+                                com.mediaalterations.mainservice.entity.ProcessRole.FANOUT_OUTPUT))
+                        AND NOT EXISTS (
+                                SELECT o.id FROM OutboxEvent o
+                                WHERE o.processId = p.id
+                                AND o.status <> com.mediaalterations.mainservice.entity.OutboxStatus.SENT)
+                        """)
+        List<UUID> findReleasedIds(@Param("ids") List<UUID> ids, @Param("userId") String userId);
+
+        /**
+         * One page of the user's listed processes, newest first, starting after
+         * the cursor row when one is given. Selects the listed columns only;
+         * segments and concat jobs are internal to their segmented parent.
+         */
+        @Query("""
+                        SELECT new com.mediaalterations.mainservice.dto.ProcessSummary(
+                                p.id, p.fileName, p.duration, p.finalFileSize, p.isVideo,
+                                p.storageIdOutput, p.status, p.createdAt)
+                        FROM Process p
+                        WHERE p.userId = :userId
+                        AND (p.role IS NULL OR p.role NOT IN (
+                                com.mediaalterations.mainservice.entity.ProcessRole.SEGMENT,
+                                com.mediaalterations.mainservice.entity.ProcessRole.CONCAT))
+                        AND (:status IS NULL OR p.status = :status)
+                        AND (:isVideo IS NULL OR p.isVideo = :isVideo)
+                        AND (:cursorCreatedAt IS NULL
+                                OR p.createdAt < :cursorCreatedAt
+                                OR (p.createdAt = :cursorCreatedAt AND p.id < :cursorId))
+                        ORDER BY p.createdAt DESC, p.id DESC
+                        """)
+        List<ProcessSummary> findHistoryPage(
+                        @Param("userId") String userId,
+                        @Param("status") ProcessStatus status,
+                        @Param("isVideo") Boolean isVideo,
+                        @Param("cursorCreatedAt") LocalDateTime cursorCreatedAt,
+                        @Param("cursorId") UUID cursorId,
+                        Limit limit);
+
+        List<Process> findByParentId(UUID parentId);
+
+        Optional<Process> findFirstByParentIdAndRole(UUID parentId, ProcessRole role);
+
+        // segments and concat jobs; fan-out outputs are siblings of their carrier, not parts of it
+        @Query("""
+                        SELECT p.id FROM Process p
+                        WHERE p.parentId IN :parentIds
+                        AND p.userId = :userId
+                        AND p.role IN (
+                                com.mediaalterations.mainservice.entity.ProcessRole.SEGMENT,
+                                com.mediaalterations.mainservice.entity.ProcessRole.CONCAT)
+                        """)
+        List<UUID> findChildIds(@Param("parentIds") List<UUID> parentIds, @Param("userId") String userId);
+
+        List<Process> findByParentIdInAndUserIdAndRole(List<UUID> parentIds, String userId, ProcessRole role);
+
+        // ordered by id so concurrent status batches take their locks in the same order
+        @Lock(LockModeType.PESSIMISTIC_WRITE)
+        @Query("select p from Process p where p.id in :ids order by p.id")
+        List<Process> findAllByIdForUpdate(@Param("ids") List<UUID> ids);
+
+        // id, duration and status of the processes a progress tracker starts following
+        @Query("select p.id, p.duration, p.status from Process p where p.id in :ids")
+        List<Object[]> findProgressTargets(@Param("ids") List<UUID> ids);
+
+        // running jobs whose worker stopped renewing; rows another instance is reclaiming are skipped
+        @Lock(LockModeType.PESSIMISTIC_WRITE)
+        @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+        @Query("""
+                        SELECT p FROM Process p
+                        WHERE p.status = com.mediaalterations.mainservice.entity.ProcessStatus.PROCESSING
+                        AND p.leaseExpiresAt < :now
+                        ORDER BY p.leaseExpiresAt
+                        """)
+        List<Process> findExpiredLeases(@Param("now") LocalDateTime now, Limit limit);
+
+        // seeds and reconciles the status gauges of ProcessMetrics
+        @Query("select p.status, count(p) from Process p where p.status in :statuses group by p.status")
+        List<Object[]> countByStatus(@Param("statuses") List<ProcessStatus> statuses);
+
+        // status counts of rows about to be deleted, taken out of the same gauges
+        @Query("""
+                        select p.status, count(p) from Process p
+                        where p.id in :ids and p.userId = :userId
+                        group by p.status
+                        """)
+        List<Object[]> countByStatusForIds(@Param("ids") List<UUID> ids, @Param("userId") String userId);
 
-        int countByStatusAndCreatedAtBefore(ProcessStatus status, LocalDateTime createdAt);
+        // serializes child status roll-ups on the parent row
+        @Lock(LockModeType.PESSIMISTIC_WRITE)
+        @Query("select p from Process p where p.id = :id")
+        Optional<Process> findByIdForUpdate(@Param("id") UUID id);
 
-        List<Process> getAllByUserIdOrderByCreatedAtDesc(String userId);
+        Optional<Process> findFirstByResultKeyAndStatusOrderByCreatedAtDesc(String resultKey, ProcessStatus status);
 
 }
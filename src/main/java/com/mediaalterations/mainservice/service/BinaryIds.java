@@ -0,0 +1,31 @@
+package com.mediaalterations.mainservice.service;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Conversions for native queries, which see process ids as their raw
+ * BINARY(16) column value, most significant bits first.
+ */
+final class BinaryIds {
+
+    private BinaryIds() {
+    }
+
+    static UUID toUuid(byte[] raw) {
+        ByteBuffer buffer = ByteBuffer.wrap(raw);
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+
+    static byte[] toBytes(UUID id) {
+        return ByteBuffer.allocate(16)
+                .putLong(id.getMostSignificantBits())
+                .putLong(id.getLeastSignificantBits())
+                .array();
+    }
+
+    static List<byte[]> toBytes(List<UUID> ids) {
+        return ids.stream().map(BinaryIds::toBytes).toList();
+    }
+}
@@ -0,0 +1,73 @@
+package com.mediaalterations.mainservice.service;
+
+import com.mediaalterations.mainservice.dto.OutputPathResponse;
+import com.mediaalterations.mainservice.feignClients.StorageCalls;
+import com.mediaalterations.mainservice.feignClients.StorageClient;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Deletes output paths that were generated for processes which end up not
+ * being created. Creation flows generate their output paths alongside the
+ * input lookup, so a failed lookup or a failed sibling call must not leave
+ * them behind in storage.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class GeneratedOutputs {
+
+    private final StorageClient storageClient;
+    private final StorageCalls storageCalls;
+
+    /**
+     * Waits for the input lookup and discards the given outputs when it
+     * fails.
+     */
+    public <T> T inputOrDiscard(
+            Future<T> inputFuture,
+            List<CompletableFuture<ResponseEntity<OutputPathResponse>>> outputFutures,
+            String userId) throws InterruptedException, ExecutionException {
+        try {
+            return inputFuture.get();
+        } catch (InterruptedException | ExecutionException | RuntimeException e) {
+            discard(outputFutures, userId);
+            throw e;
+        }
+    }
+
+    /**
+     * Waits for the generate calls in the background and deletes every path
+     * they produced with one storage call, so the request fails without
+     * waiting on them.
+     */
+    public void discard(
+            List<CompletableFuture<ResponseEntity<OutputPathResponse>>> outputFutures,
+            String userId) {
+        if (outputFutures.isEmpty())
+            return;
+        CompletableFuture.allOf(outputFutures.toArray(CompletableFuture[]::new)).whenComplete((ignored, error) -> {
+            List<String> storageIds = outputFutures.stream()
+                    .filter(future -> !future.isCompletedExceptionally())
+                    .map(CompletableFuture::join)
+                    .filter(res -> !res.getStatusCode().isError() && res.getBody() != null)
+                    .map(res -> res.getBody().storageId())
+                    .toList();
+            if (storageIds.isEmpty())
+                return;
+            storageCalls.submit(StorageCalls.DELETE_STORAGE, () -> storageClient.deleteStorage(storageIds, userId))
+                    .whenComplete((deleted, deleteError) -> {
+                        if (deleteError != null)
+                            log.warn("Deleting unused output paths failed. userId={}, storageIds={}",
+                                    userId, storageIds, deleteError);
+                    });
+        });
+    }
+}
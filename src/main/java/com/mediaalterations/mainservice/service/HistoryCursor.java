@@ -0,0 +1,82 @@
+package com.mediaalterations.mainservice.service;
+
+import com.mediaalterations.mainservice.dto.ProcessSummary;
+import com.mediaalterations.mainservice.exceptions.InvalidRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Position in a user's process history, ordered by (createdAt, id)
+ * descending. History reads the hot table and the archive from the same
+ * position and merges them, so a process archived between two page fetches
+ * stays on the side of the cursor it was on. Clients treat the encoded form
+ * as opaque.
+ */
+record HistoryCursor(LocalDateTime createdAt, UUID id) {
+
+    // cursors issued while history still walked the archive after the hot table
+    private static final String LEGACY_ARCHIVE_PREFIX = "archive|";
+
+    // the order of the history queries; ids compare as their BINARY(16) column value
+    static final Comparator<ProcessSummary> NEWEST_FIRST = Comparator
+            .comparing(ProcessSummary::createdAt)
+            .thenComparing(ProcessSummary::id, HistoryCursor::compareBinary)
+            .reversed();
+
+    String encode() {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((createdAt + "|" + id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    static HistoryCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (raw.startsWith(LEGACY_ARCHIVE_PREFIX))
+                raw = raw.substring(LEGACY_ARCHIVE_PREFIX.length());
+            int separator = raw.indexOf('|');
+            if (separator < 0)
+                throw new InvalidRequestException("Invalid cursor");
+            return new HistoryCursor(
+                    LocalDateTime.parse(raw.substring(0, separator)),
+                    UUID.fromString(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new InvalidRequestException("Invalid cursor");
+        }
+    }
+
+    /**
+     * The first {@code limit} rows of two pages read from the same cursor.
+     * A process archived while the pages were read can be in both; it is
+     * listed once.
+     */
+    static List<ProcessSummary> merge(List<ProcessSummary> hot, List<ProcessSummary> archived, int limit) {
+        List<ProcessSummary> all = new ArrayList<>(hot.size() + archived.size());
+        all.addAll(hot);
+        all.addAll(archived);
+        all.sort(NEWEST_FIRST);
+
+        Set<UUID> seen = new HashSet<>();
+        List<ProcessSummary> merged = new ArrayList<>(Math.min(limit, all.size()));
+        for (ProcessSummary row : all) {
+            if (merged.size() == limit)
+                break;
+            if (seen.add(row.id()))
+                merged.add(row);
+        }
+        return merged;
+    }
+
+    private static int compareBinary(UUID a, UUID b) {
+        int high = Long.compareUnsigned(a.getMostSignificantBits(), b.getMostSignificantBits());
+        return high != 0 ? high : Long.compareUnsigned(a.getLeastSignificantBits(), b.getLeastSignificantBits());
+    }
+}
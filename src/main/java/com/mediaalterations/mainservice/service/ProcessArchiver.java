@@ -0,0 +1,103 @@
+package com.mediaalterations.mainservice.service;
+
+import com.mediaalterations.mainservice.repository.ArchivedProcessRepository;
+import com.mediaalterations.mainservice.repository.ProcessRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the hot {@code process} table small by moving COMPLETED and FAILED
+ * processes older than the retention window into {@code process_archive}.
+ * Each batch copies and deletes its rows in one short transaction; rows are
+ * claimed with SKIP LOCKED, so instances can run concurrently. History reads
+ * both tables from the same cursor and merges them.
+ */
+@Component
+@Slf4j
+public class ProcessArchiver {
+
+    private final ProcessRepository processRepository;
+    private final ArchivedProcessRepository archivedRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final Duration after;
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+
+    private final AtomicLong hotRows = new AtomicLong();
+    private final Counter archivedRows;
+    private final Timer batchTimer;
+
+    public ProcessArchiver(
+            ProcessRepository processRepository,
+            ArchivedProcessRepository archivedRepository,
+            TransactionTemplate transactionTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${process.archive.enabled:true}") boolean enabled,
+            @Value("${process.archive.after:30d}") Duration after,
+            @Value("${process.archive.batch-size:500}") int batchSize,
+            @Value("${process.archive.max-batches-per-run:20}") int maxBatchesPerRun) {
+        this.processRepository = processRepository;
+        this.archivedRepository = archivedRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.enabled = enabled;
+        this.after = after;
+        this.batchSize = batchSize;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+
+        meterRegistry.gauge("process.hot.rows", hotRows);
+        this.archivedRows = meterRegistry.counter("process.archive.rows");
+        this.batchTimer = meterRegistry.timer("process.archive.batch");
+    }
+
+    @Scheduled(fixedDelayString = "${process.archive.interval-ms:60000}")
+    public void archive() {
+        if (!enabled)
+            return;
+
+        LocalDateTime cutoff = LocalDateTime.now().minus(after);
+        int total = 0;
+        // bounded per run so a large backlog drains over several runs
+        for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+            int moved;
+            try {
+                moved = batchTimer.record(() -> archiveBatch(cutoff));
+            } catch (RuntimeException e) {
+                log.warn("Archiving batch failed, retrying next run. archivedSoFar={}", total, e);
+                break;
+            }
+            total += moved;
+            if (moved < batchSize)
+                break;
+        }
+        hotRows.set(processRepository.count());
+
+        if (total > 0)
+            log.info("Processes archived. rows={}, cutoff={}, hotRows={}", total, cutoff, hotRows.get());
+    }
+
+    private int archiveBatch(LocalDateTime cutoff) {
+        Integer moved = transactionTemplate.execute(tx -> {
+            List<byte[]> ids = processRepository.findArchivable(cutoff, batchSize);
+            if (ids.isEmpty())
+                return 0;
+            archivedRepository.copyFromProcess(ids, LocalDateTime.now());
+            processRepository.deleteArchived(ids);
+            return ids.size();
+        });
+        int rows = moved == null ? 0 : moved;
+        archivedRows.increment(rows);
+        return rows;
+    }
+}
@@ -0,0 +1,221 @@
+package com.mediaalterations.mainservice.service;
+
+import com.mediaalterations.mainservice.dto.LeaseHeartbeat;
+import com.mediaalterations.mainservice.dto.ProcessStatusUpdate;
+import com.mediaalterations.mainservice.entity.OutboxEvent;
+import com.mediaalterations.mainservice.entity.Process;
+import com.mediaalterations.mainservice.entity.ProcessStatus;
+import com.mediaalterations.mainservice.events.ProcessEventHub;
+import com.mediaalterations.mainservice.messaging.ProcessEventOutbox;
+import com.mediaalterations.mainservice.queue.FairShareDispatcher;
+import com.mediaalterations.mainservice.repository.OutboxRepository;
+import com.mediaalterations.mainservice.repository.ProcessRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Lease based ownership of running jobs. A worker's first heartbeat for a
+ * job starts its lease and later ones renew it; workers that send no
+ * heartbeats never hold a lease and are never reclaimed. A worker that dies
+ * stops renewing, so its jobs are found by expiry, in bounded batches and
+ * with SKIP LOCKED so instances split the work: each goes back to WAITING and
+ * is dispatched again from a copy of its last outbox row, until it has been
+ * reclaimed max-reclaims times and is failed instead.
+ * <p>
+ * Every dispatch carries the process's reclaim count as its attempt number.
+ * Heartbeats and status reports of an earlier attempt are rejected, so a run
+ * that was reclaimed but is still alive cannot renew, finish or overwrite
+ * the job.
+ */
+@Component
+@Slf4j
+public class ProcessLeaseManager {
+
+    // JPQL condition on p matching the current attempt, bound as :attempt
+    static final String ATTEMPT_CONDITION = "COALESCE(p.reclaimCount, 0) = :attempt";
+
+    private final ProcessRepository processRepository;
+    private final OutboxRepository outboxRepository;
+    private final ProcessEventOutbox processOutbox;
+    private final ProcessStatusUpdater statusUpdater;
+    private final FairShareDispatcher dispatcher;
+    private final ProcessEventHub processEvents;
+    private final ProcessMetrics metrics;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration leaseDuration;
+    private final int maxReclaims;
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+
+    private final Counter requeued;
+    private final Counter failed;
+    private final Timer leaseAge;
+    private final DistributionSummary reclaimAttempts;
+
+    public ProcessLeaseManager(
+            ProcessRepository processRepository,
+            OutboxRepository outboxRepository,
+            ProcessEventOutbox processOutbox,
+            ProcessStatusUpdater statusUpdater,
+            FairShareDispatcher dispatcher,
+            ProcessEventHub processEvents,
+            ProcessMetrics metrics,
+            EntityManager entityManager,
+            TransactionTemplate transactionTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${process.lease.duration:2m}") Duration leaseDuration,
+            @Value("${process.lease.max-reclaims:3}") int maxReclaims,
+            @Value("${process.lease.batch-size:100}") int batchSize,
+            @Value("${process.lease.max-batches-per-run:10}") int maxBatchesPerRun) {
+        this.processRepository = processRepository;
+        this.outboxRepository = outboxRepository;
+        this.processOutbox = processOutbox;
+        this.statusUpdater = statusUpdater;
+        this.dispatcher = dispatcher;
+        this.processEvents = processEvents;
+        this.metrics = metrics;
+        this.entityManager = entityManager;
+        this.transactionTemplate = transactionTemplate;
+        this.leaseDuration = leaseDuration;
+        this.maxReclaims = maxReclaims;
+        this.batchSize = batchSize;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+
+        this.requeued = meterRegistry.counter("process.lease.reclaimed", "outcome", "requeued");
+        this.failed = meterRegistry.counter("process.lease.reclaimed", "outcome", "failed");
+        // time since the last renewal of each reclaimed lease
+        this.leaseAge = meterRegistry.timer("process.lease.age");
+        this.reclaimAttempts = meterRegistry.summary("process.lease.attempts");
+    }
+
+    /**
+     * Starts or extends the leases of running jobs by one lease duration;
+     * heartbeats for jobs that are no longer PROCESSING, or that come from an
+     * earlier attempt, are ignored.
+     */
+    public void renew(List<LeaseHeartbeat> heartbeats) {
+        Map<UUID, LeaseHeartbeat> latest = new LinkedHashMap<>();
+        for (LeaseHeartbeat heartbeat : heartbeats) {
+            UUID id = parseId(heartbeat.processId());
+            if (id != null)
+                latest.put(id, heartbeat);
+        }
+        if (latest.isEmpty())
+            return;
+
+        // one UPDATE per attempt number, fenced on the row's reclaim count
+        Map<Integer, List<Map.Entry<UUID, LeaseHeartbeat>>> byAttempt = new LinkedHashMap<>();
+        for (Map.Entry<UUID, LeaseHeartbeat> row : latest.entrySet())
+            byAttempt.computeIfAbsent(attemptOf(row.getValue().attempt()), attempt -> new ArrayList<>()).add(row);
+
+        LocalDateTime expiresAt = LocalDateTime.now().plus(leaseDuration);
+        Integer renewed = transactionTemplate.execute(tx -> {
+            int total = 0;
+            for (Map.Entry<Integer, List<Map.Entry<UUID, LeaseHeartbeat>>> group : byAttempt.entrySet())
+                total += new ProcessRowUpdate<>(group.getValue(), Map.Entry::getKey)
+                        .set("leaseExpiresAt", expiresAt)
+                        .setPerRow("leaseOwner", row -> row.getValue().workerId())
+                        .execute(entityManager, "p.status = :processing AND " + ATTEMPT_CONDITION,
+                                Map.of("processing", ProcessStatus.PROCESSING, "attempt", group.getKey()));
+            return total;
+        });
+        log.debug("Leases renewed. heartbeats={}, renewed={}", heartbeats.size(), renewed);
+    }
+
+    // attempt number a report or heartbeat belongs to; workers that predate the header only run attempt 0
+    static int attemptOf(Integer reported) {
+        return reported == null ? 0 : reported;
+    }
+
+    @Scheduled(fixedDelayString = "${process.lease.reclaim-interval-ms:30000}")
+    public void reclaimExpired() {
+        int total = 0;
+        for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+            Integer reclaimed;
+            try {
+                reclaimed = transactionTemplate.execute(tx -> reclaimBatch());
+            } catch (RuntimeException e) {
+                log.warn("Reclaiming expired leases failed, retrying next run. reclaimedSoFar={}", total, e);
+                break;
+            }
+            int count = reclaimed == null ? 0 : reclaimed;
+            total += count;
+            if (count < batchSize)
+                break;
+        }
+        if (total > 0)
+            log.info("Expired leases reclaimed. processes={}", total);
+    }
+
+    private int reclaimBatch() {
+        LocalDateTime now = LocalDateTime.now();
+        List<Process> expired = processRepository.findExpiredLeases(now, Limit.of(batchSize));
+        List<ProcessStatusUpdate> exhausted = new ArrayList<>();
+
+        for (Process process : expired) {
+            int attempts = (process.getReclaimCount() == null ? 0 : process.getReclaimCount()) + 1;
+            leaseAge.record(Duration.between(process.getLeaseExpiresAt().minus(leaseDuration), now));
+            reclaimAttempts.record(attempts);
+            log.warn("Lease expired. processId={}, worker={}, attempt={}",
+                    process.getId(), process.getLeaseOwner(), attempts);
+
+            process.setReclaimCount(attempts);
+            process.setLeaseOwner(null);
+            process.setLeaseExpiresAt(null);
+
+            // the published job is the only copy of the worker payload; sent rows are purged after retention
+            Optional<OutboxEvent> lastJob = attempts > maxReclaims
+                    ? Optional.empty()
+                    : outboxRepository.findFirstByProcessIdOrderByIdDesc(process.getId());
+            if (lastJob.isEmpty()) {
+                exhausted.add(new ProcessStatusUpdate(
+                        process.getId().toString(), ProcessStatus.FAILED, null, null, attempts));
+                failed.increment();
+                continue;
+            }
+
+            process.setStatus(ProcessStatus.WAITING);
+            metrics.statusChanged(process, ProcessStatus.PROCESSING);
+            process.setProgressPercent(null);
+            process.setEtaSeconds(null);
+            process.setProgressUpdatedAt(null);
+            processOutbox.requeue(lastJob.get(), attempts);
+            // the lost run no longer holds the user's dispatch slot
+            dispatcher.finished(process.getUserId());
+            processEvents.publish(process);
+            requeued.increment();
+        }
+
+        // flushes the requeued rows too; failing runs the usual terminal status handling
+        if (!exhausted.isEmpty())
+            statusUpdater.apply(exhausted);
+        return expired.size();
+    }
+
+    private static UUID parseId(String processId) {
+        try {
+            return processId == null ? null : UUID.fromString(processId);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,267 @@
+package com.mediaalterations.mainservice.service;
+
+import com.mediaalterations.mainservice.command.EnumLookup;
+import com.mediaalterations.mainservice.dto.AudioConvertRequest;
+import com.mediaalterations.mainservice.dto.ConvertRequest;
+import com.mediaalterations.mainservice.dto.GifConvertRequest;
+import com.mediaalterations.mainservice.dto.MediaType;
+import com.mediaalterations.mainservice.dto.MergeConvertRequest;
+import com.mediaalterations.mainservice.dto.StreamingFormat;
+import com.mediaalterations.mainservice.dto.VideoCodecType;
+import com.mediaalterations.mainservice.dto.VideoConvertRequest;
+import com.mediaalterations.mainservice.entity.Process;
+import com.mediaalterations.mainservice.entity.ProcessStatus;
+import com.mediaalterations.mainservice.repository.ProcessRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Meters of the process lifecycle: per-phase creation latency, creations by
+ * media type and codec, validation rejections by reason, the number of
+ * processes in each non-terminal status and the time from creation to
+ * completion. Status counts are adjusted on every transition and delete
+ * after its transaction commits and only reconciled against the table on a
+ * long interval, to correct drift from other instances. Each flow only
+ * registers timers for the creation phases it goes through.
+ */
+@Component
+@Slf4j
+public class ProcessMetrics {
+
+    public enum Flow {
+        SINGLE(EnumSet.allOf(Phase.class)),
+        MERGE(EnumSet.allOf(Phase.class)),
+        // batch and fan-out create their rows in bulk, so only validation has a per-request timer
+        BATCH(EnumSet.of(Phase.VALIDATE)),
+        FANOUT(EnumSet.of(Phase.VALIDATE)),
+        ABR(EnumSet.allOf(Phase.class));
+
+        private final Set<Phase> phases;
+
+        Flow(Set<Phase> phases) {
+            this.phases = phases;
+        }
+    }
+
+    public enum Phase {
+        VALIDATE, STORAGE, INSERT, PUBLISH, QUEUE_POSITION
+    }
+
+    private static final List<ProcessStatus> IN_FLIGHT = Arrays.stream(ProcessStatus.values())
+            .filter(status -> !status.isTerminal())
+            .toList();
+
+    private final ProcessRepository processRepository;
+    private final MeterRegistry meterRegistry;
+
+    private final Map<Flow, Map<Phase, Timer>> phases = new EnumMap<>(Flow.class);
+    private final Map<ProcessStatus, AtomicLong> inFlight = new EnumMap<>(ProcessStatus.class);
+    private final Map<ProcessStatus, Counter> finished = new EnumMap<>(ProcessStatus.class);
+    private final Timer completionLatency;
+
+    public ProcessMetrics(ProcessRepository processRepository, MeterRegistry meterRegistry) {
+        this.processRepository = processRepository;
+        this.meterRegistry = meterRegistry;
+
+        for (Flow flow : Flow.values()) {
+            Map<Phase, Timer> timers = new EnumMap<>(Phase.class);
+            for (Phase phase : flow.phases)
+                timers.put(phase, Timer.builder("process.create.phase")
+                        .description("Time spent in one phase of creating a process")
+                        .tag("flow", tagOf(flow))
+                        .tag("phase", tagOf(phase))
+                        .publishPercentileHistogram()
+                        .register(meterRegistry));
+            phases.put(flow, timers);
+        }
+
+        for (ProcessStatus status : ProcessStatus.values()) {
+            if (status.isTerminal()) {
+                finished.put(status, meterRegistry.counter("process.finished", "status", status.name()));
+                continue;
+            }
+            AtomicLong count = new AtomicLong();
+            inFlight.put(status, count);
+            Gauge.builder("process.status.count", count, AtomicLong::get)
+                    .description("Processes currently in a non-terminal status")
+                    .tag("status", status.name())
+                    .register(meterRegistry);
+        }
+
+        this.completionLatency = Timer.builder("process.completion.latency")
+                .description("Time from creation until a listed process completed")
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofSeconds(1))
+                .maximumExpectedValue(Duration.ofHours(12))
+                .register(meterRegistry);
+    }
+
+    // phases a flow does not go through have no timer
+    public void recordPhase(Flow flow, Phase phase, long startNanos) {
+        Timer timer = phases.get(flow).get(phase);
+        if (timer != null)
+            timer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Counts an accepted submission; {@code source} tells transcodes from
+     * results copied out of the cache.
+     */
+    public void created(Flow flow, ConvertRequest request, String source) {
+        created(flow, request.toMediaType(), codecOf(request), source);
+    }
+
+    public void created(Flow flow, MergeConvertRequest request) {
+        created(flow, request.toMediaType(), videoCodec(request.videoCodec()), "transcode");
+    }
+
+    // ABR packages are always H.264, so they are tagged by their streaming format instead
+    public void created(Flow flow, StreamingFormat format) {
+        count(flow, format.name(), VideoCodecType.h264.name(), "transcode");
+    }
+
+    // the messages of ProcessCreationException are fixed strings, so the tag stays bounded
+    public void rejected(Flow flow, String message) {
+        meterRegistry.counter("process.validation.rejected",
+                "flow", tagOf(flow), "reason", reasonOf(message)).increment();
+    }
+
+    public void entered(List<Process> processes) {
+        afterCommit(() -> {
+            for (Process process : processes)
+                adjust(process.getStatus(), 1);
+        });
+    }
+
+    public void entered(Process process) {
+        entered(List.of(process));
+    }
+
+    // deleted processes leave the counts; rows are (status, count) pairs as from countByStatus
+    public void deleted(List<Object[]> statusCounts) {
+        afterCommit(() -> {
+            for (Object[] row : statusCounts)
+                adjust((ProcessStatus) row[0], -((Number) row[1]).longValue());
+        });
+    }
+
+    /**
+     * Moves a process between the status counts; a transition to COMPLETED
+     * of a process the user sees also records its completion latency.
+     */
+    public void statusChanged(Process process, ProcessStatus previous) {
+        ProcessStatus status = process.getStatus();
+        if (status == previous)
+            return;
+        boolean listed = process.getRole() == null || process.getRole().isListed();
+        LocalDateTime createdAt = process.getCreatedAt();
+        LocalDateTime now = LocalDateTime.now();
+
+        afterCommit(() -> {
+            if (previous != null)
+                adjust(previous, -1);
+            adjust(status, 1);
+            if (status.isTerminal())
+                finished.get(status).increment();
+            if (status == ProcessStatus.COMPLETED && listed && createdAt != null)
+                completionLatency.record(Duration.between(createdAt, now));
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${process.metrics.reconcile-interval-ms:600000}")
+    public void reconcile() {
+        Map<ProcessStatus, Long> counts = new EnumMap<>(ProcessStatus.class);
+        try {
+            for (Object[] row : processRepository.countByStatus(IN_FLIGHT))
+                counts.put((ProcessStatus) row[0], ((Number) row[1]).longValue());
+        } catch (RuntimeException e) {
+            log.warn("Reconciling process status counts failed, keeping incremental counts.", e);
+            return;
+        }
+        inFlight.forEach((status, count) -> {
+            long actual = counts.getOrDefault(status, 0L);
+            long drift = count.getAndSet(actual) - actual;
+            if (drift != 0)
+                log.debug("Process status count reconciled. status={}, drift={}", status, drift);
+        });
+    }
+
+    long inFlight(ProcessStatus status) {
+        return inFlight.get(status).get();
+    }
+
+    static String reasonOf(String message) {
+        if (message == null || message.isBlank())
+            return "unknown";
+        return message.trim().toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9]+", "_").replaceAll("^_|_$", "");
+    }
+
+    private void created(Flow flow, String mediaType, String codec, String source) {
+        count(flow, EnumLookup.findIgnoreCase(MediaType.class, mediaType).map(Enum::name).orElse("other"),
+                codec, source);
+    }
+
+    private void count(Flow flow, String mediaType, String codec, String source) {
+        meterRegistry.counter("process.created",
+                "flow", tagOf(flow),
+                "mediaType", mediaType,
+                "codec", codec,
+                "source", source).increment();
+    }
+
+    // audio outputs have no codec choice; the container decides it
+    private static String codecOf(ConvertRequest request) {
+        return switch (request) {
+            case VideoConvertRequest video -> videoCodec(video.videoCodec());
+            case AudioConvertRequest audio -> "audio";
+            case GifConvertRequest gif -> "gif";
+        };
+    }
+
+    private static String videoCodec(String codec) {
+        return EnumLookup.find(VideoCodecType.class, codec).map(Enum::name).orElse("other");
+    }
+
+    private void adjust(ProcessStatus status, long delta) {
+        AtomicLong count = inFlight.get(status);
+        if (count != null)
+            count.updateAndGet(current -> Math.max(0, current + delta));
+    }
+
+    // a rolled back transition never reaches the counts
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private static String tagOf(Enum<?> value) {
+        return value.name().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,193 @@
+package com.mediaalterations.mainservice.service;
+
+import com.mediaalterations.mainservice.cache.StoragePathCache;
+import com.mediaalterations.mainservice.feignClients.StorageCalls;
+import com.mediaalterations.mainservice.feignClients.StorageClient;
+import com.mediaalterations.mainservice.repository.ProcessRenditionRepository;
+import com.mediaalterations.mainservice.repository.ProcessRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Purges deleted processes in the background. A delete only tombstones the
+ * rows; every interval the reaper claims a batch of due tombstones across
+ * all users, deletes their output files with one storage call per user and
+ * then removes the rows in chunks. A user whose storage call fails keeps
+ * their tombstones, which are retried with exponential backoff. Claims are
+ * taken with SKIP LOCKED and pushed past the claim timeout, so concurrent
+ * instances never work on the same rows.
+ */
+@Component
+@Slf4j
+public class ProcessReaper {
+
+    // failed purges past this many attempts are logged as errors
+    private static final int ALERT_AFTER_ATTEMPTS = 5;
+
+    record Tombstone(byte[] rawId, UUID id, String userId, String storageId, int attempts) {
+    }
+
+    private final ProcessRepository processRepository;
+    private final ProcessRenditionRepository renditionRepository;
+    private final StorageClient storageClient;
+    private final StorageCalls storageCalls;
+    private final StoragePathCache storagePaths;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final int deleteChunkSize;
+    private final Duration claimTimeout;
+    private final Duration backoffBase;
+    private final Duration backoffMax;
+
+    public ProcessReaper(
+            ProcessRepository processRepository,
+            ProcessRenditionRepository renditionRepository,
+            StorageClient storageClient,
+            StorageCalls storageCalls,
+            StoragePathCache storagePaths,
+            TransactionTemplate transactionTemplate,
+            @Value("${process.reaper.batch-size:500}") int batchSize,
+            @Value("${process.reaper.delete-chunk-size:100}") int deleteChunkSize,
+            @Value("${process.reaper.claim-timeout:5m}") Duration claimTimeout,
+            @Value("${process.reaper.backoff-base:30s}") Duration backoffBase,
+            @Value("${process.reaper.backoff-max:1h}") Duration backoffMax) {
+        this.processRepository = processRepository;
+        this.renditionRepository = renditionRepository;
+        this.storageClient = storageClient;
+        this.storageCalls = storageCalls;
+        this.storagePaths = storagePaths;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+        this.deleteChunkSize = deleteChunkSize;
+        this.claimTimeout = claimTimeout;
+        this.backoffBase = backoffBase;
+        this.backoffMax = backoffMax;
+    }
+
+    @Scheduled(fixedDelayString = "${process.reaper.interval-ms:10000}")
+    public void reap() {
+        List<Tombstone> claimed = claim();
+        if (claimed.isEmpty())
+            return;
+
+        Map<String, List<Tombstone>> byUser = new LinkedHashMap<>();
+        for (Tombstone tombstone : claimed)
+            byUser.computeIfAbsent(tombstone.userId(), key -> new ArrayList<>()).add(tombstone);
+
+        // every user's storage call runs concurrently, none inside a transaction
+        Map<String, CompletableFuture<?>> calls = new LinkedHashMap<>();
+        byUser.forEach((userId, rows) -> calls.put(userId, deleteFiles(userId, rows)));
+
+        List<Tombstone> purgeable = new ArrayList<>();
+        for (Map.Entry<String, List<Tombstone>> user : byUser.entrySet()) {
+            try {
+                calls.get(user.getKey()).get();
+                purgeable.addAll(user.getValue());
+            } catch (InterruptedException e) {
+                // unfinished claims expire and are picked up again
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                retryLater(user.getKey(), user.getValue(), e.getCause());
+            }
+        }
+        purge(purgeable);
+
+        log.info("Reaper pass finished. claimed={}, users={}, purged={}",
+                claimed.size(), byUser.size(), purgeable.size());
+    }
+
+    /**
+     * Delay before the given purge attempt: the base doubled per earlier
+     * failure and capped, of which the upper half is randomized so that
+     * failures of one storage outage do not all retry at once.
+     */
+    static Duration backoff(int attempt, Duration base, Duration max, double random) {
+        int doublings = Math.min(Math.max(attempt - 1, 0), 30);
+        long millis = Math.min(max.toMillis(), base.toMillis() << doublings);
+        return Duration.ofMillis(millis / 2 + (long) (random * (millis / 2)));
+    }
+
+    private List<Tombstone> claim() {
+        List<Tombstone> claimed = transactionTemplate.execute(tx -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<Tombstone> rows = processRepository.findPurgeableTombstones(now, batchSize).stream()
+                    .map(row -> new Tombstone(
+                            (byte[]) row[0],
+                            BinaryIds.toUuid((byte[]) row[0]),
+                            (String) row[1],
+                            (String) row[2],
+                            row[3] == null ? 0 : ((Number) row[3]).intValue()))
+                    .toList();
+            if (!rows.isEmpty())
+                processRepository.deferPurge(rawIds(rows), now.plus(claimTimeout));
+            return rows;
+        });
+        return claimed == null ? List.of() : claimed;
+    }
+
+    private CompletableFuture<?> deleteFiles(String userId, List<Tombstone> rows) {
+        // rows of a job that never got an output path have nothing to delete
+        List<String> storageIds = rows.stream()
+                .map(Tombstone::storageId)
+                .filter(Objects::nonNull)
+                .distinct()
+                .toList();
+        if (storageIds.isEmpty())
+            return CompletableFuture.completedFuture(null);
+        return storageCalls.submit(StorageCalls.DELETE_STORAGE, () -> storageClient.deleteStorage(storageIds, userId))
+                .thenRun(() -> storagePaths.invalidate(userId, storageIds));
+    }
+
+    private void purge(List<Tombstone> rows) {
+        for (int from = 0; from < rows.size(); from += deleteChunkSize) {
+            List<Tombstone> chunk = rows.subList(from, Math.min(rows.size(), from + deleteChunkSize));
+            try {
+                transactionTemplate.executeWithoutResult(tx -> {
+                    renditionRepository.deleteByProcessIds(chunk.stream().map(Tombstone::id).toList());
+                    processRepository.purge(rawIds(chunk));
+                });
+            } catch (RuntimeException e) {
+                // the files are gone; the rows are claimed again once the claim expires
+                log.warn("Purging tombstones failed. rows={}", chunk.size(), e);
+            }
+        }
+    }
+
+    private void retryLater(String userId, List<Tombstone> rows, Throwable cause) {
+        int attempt = rows.stream().mapToInt(Tombstone::attempts).max().orElse(0) + 1;
+        Duration delay = backoff(attempt, backoffBase, backoffMax, ThreadLocalRandom.current().nextDouble());
+        try {
+            transactionTemplate.executeWithoutResult(
+                    tx -> processRepository.purgeFailed(rawIds(rows), LocalDateTime.now().plus(delay)));
+        } catch (RuntimeException e) {
+            log.warn("Recording purge failure failed. userId={}, rows={}", userId, rows.size(), e);
+        }
+
+        if (attempt >= ALERT_AFTER_ATTEMPTS)
+            log.error("Deleting files keeps failing. userId={}, rows={}, attempt={}, retryIn={}",
+                    userId, rows.size(), attempt, delay, cause);
+        else
+            log.warn("Deleting files failed, retrying later. userId={}, rows={}, attempt={}, retryIn={}",
+                    userId, rows.size(), attempt, delay, cause);
+    }
+
+    private static List<byte[]> rawIds(List<Tombstone> rows) {
+        return rows.stream().map(Tombstone::rawId).toList();
+    }
+}
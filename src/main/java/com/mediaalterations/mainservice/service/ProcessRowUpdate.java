@@ -0,0 +1,74 @@
+package com.mediaalterations.mainservice.service;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Builds one bulk {@code UPDATE Process} over a set of rows where some
+ * columns take a different value per row, written as
+ * {@code CASE WHEN p.id = ... THEN ... ELSE <column> END}.
+ */
+final class ProcessRowUpdate<T> {
+
+    private final List<T> rows;
+    private final Function<T, UUID> id;
+    private final StringBuilder assignments = new StringBuilder();
+    private final Map<String, Object> params = new HashMap<>();
+
+    ProcessRowUpdate(List<T> rows, Function<T, UUID> id) {
+        this.rows = rows;
+        this.id = id;
+    }
+
+    ProcessRowUpdate<T> set(String field, Object value) {
+        separate();
+        assignments.append("p.").append(field).append(" = :").append(field);
+        params.put(field, value);
+        return this;
+    }
+
+    // rows whose value is null keep their current one
+    ProcessRowUpdate<T> setPerRow(String field, Function<T, ?> value) {
+        List<T> reported = rows.stream().filter(row -> value.apply(row) != null).toList();
+        if (reported.isEmpty())
+            return this;
+
+        separate();
+        assignments.append("p.").append(field).append(" = CASE");
+        for (int i = 0; i < reported.size(); i++) {
+            assignments.append(" WHEN p.id = :").append(field).append("Id").append(i)
+                    .append(" THEN :").append(field).append(i);
+            params.put(field + "Id" + i, id.apply(reported.get(i)));
+            params.put(field + i, value.apply(reported.get(i)));
+        }
+        assignments.append(" ELSE p.").append(field).append(" END");
+        return this;
+    }
+
+    /**
+     * @param condition extra JPQL condition on {@code p}, its parameters
+     *                  bound through {@code conditionParams}
+     * @return number of rows updated
+     */
+    int execute(EntityManager entityManager, String condition, Map<String, Object> conditionParams) {
+        String jpql = "UPDATE Process p SET " + assignments + " WHERE p.id IN :ids"
+                + (condition == null ? "" : " AND " + condition);
+
+        Query query = entityManager.createQuery(jpql);
+        query.setParameter("ids", rows.stream().map(id).toList());
+        params.forEach(query::setParameter);
+        conditionParams.forEach(query::setParameter);
+        return query.executeUpdate();
+    }
+
+    private void separate() {
+        if (!assignments.isEmpty())
+            assignments.append(", ");
+    }
+}
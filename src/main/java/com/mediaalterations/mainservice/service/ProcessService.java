@@ -1,6 +1,18 @@
 package com.mediaalterations.mainservice.service;
 
+import com.mediaalterations.mainservice.dto.AbrPackageRequest;
+import com.mediaalterations.mainservice.dto.BatchConvertItem;
+import com.mediaalterations.mainservice.dto.BatchTranscodeResponse;
+import com.mediaalterations.mainservice.dto.FanOutConvertRequest;
+import com.mediaalterations.mainservice.dto.FanOutTranscodeResponse;
 import com.mediaalterations.mainservice.dto.ProcessResponseDto;
+import com.mediaalterations.mainservice.dto.ProcessDetailDto;
+import com.mediaalterations.mainservice.dto.ProcessPage;
+import com.mediaalterations.mainservice.dto.LeaseHeartbeat;
+import com.mediaalterations.mainservice.dto.ProgressReport;
+import com.mediaalterations.mainservice.dto.QueuePositionResponse;
+import com.mediaalterations.mainservice.dto.RenditionDto;
+import com.mediaalterations.mainservice.dto.RenditionSizeUpdate;
 import com.mediaalterations.mainservice.dto.AudioConvertRequest;
 import com.mediaalterations.mainservice.dto.GifConvertRequest;
 import com.mediaalterations.mainservice.dto.MergeConvertRequest;
@@ -19,7 +31,16 @@ public interface ProcessService {
 
     List<ProcessResponseDto> getAllProcessOfUser(String userId);
 
-    String updateStatusForProcess(ProcessStatus status, String fileSize, String fileDuration, String processId);
+    ProcessDetailDto getProcessDetail(String processId, String userId);
+
+    void recordProgress(List<ProgressReport> reports);
+
+    void renewLeases(List<LeaseHeartbeat> heartbeats);
+
+    ProcessPage getProcessHistory(String userId, String cursor, Integer limit, ProcessStatus status, Boolean isVideo);
+
+    String updateStatusForProcess(ProcessStatus status, String fileSize, String fileDuration, String processId,
+            Integer attempt);
 
     TranscodeResponse convertVideoToAnotherFormat(VideoConvertRequest request, String userId);
 
@@ -27,4 +48,16 @@ public interface ProcessService {
 
     TranscodeResponse mergeMedia(MergeConvertRequest request, String userId);
 
+    BatchTranscodeResponse submitBatch(List<BatchConvertItem> items, String userId);
+
+    QueuePositionResponse getQueuePosition(String processId, String userId);
+
+    FanOutTranscodeResponse fanOut(FanOutConvertRequest request, String userId);
+
+    TranscodeResponse packageAbr(AbrPackageRequest request, String userId);
+
+    List<RenditionDto> getRenditions(String processId, String userId);
+
+    void updateRenditionSizes(String processId, List<RenditionSizeUpdate> sizes);
+
 }
@@ -1,40 +1,123 @@
 package com.mediaalterations.mainservice.service;
 
+import com.mediaalterations.mainservice.cache.StoragePathCache;
+import com.mediaalterations.mainservice.cache.TranscodeResultCache;
+import com.mediaalterations.mainservice.command.AbrRung;
+import com.mediaalterations.mainservice.command.EnumLookup;
+import com.mediaalterations.mainservice.command.FfmpegCommand;
+import com.mediaalterations.mainservice.command.FfmpegCommandCompiler;
 import com.mediaalterations.mainservice.dto.*;
+import com.mediaalterations.mainservice.entity.ArchivedProcess;
 import com.mediaalterations.mainservice.entity.Process;
+import com.mediaalterations.mainservice.entity.ProcessRendition;
+import com.mediaalterations.mainservice.entity.ProcessRole;
 import com.mediaalterations.mainservice.entity.ProcessStatus;
+import com.mediaalterations.mainservice.events.ProcessEventHub;
 import com.mediaalterations.mainservice.exceptions.ExternalServiceException;
+import com.mediaalterations.mainservice.exceptions.InvalidRequestException;
 import com.mediaalterations.mainservice.exceptions.ProcessCreationException;
 import com.mediaalterations.mainservice.exceptions.ProcessNotFoundException;
+import com.mediaalterations.mainservice.exceptions.StatusConflictException;
+import com.mediaalterations.mainservice.feignClients.StorageCalls;
 import com.mediaalterations.mainservice.feignClients.StorageClient;
-import com.mediaalterations.mainservice.messaging.RabbitMQProducer;
+import com.mediaalterations.mainservice.messaging.ProcessEventOutbox;
+import com.mediaalterations.mainservice.queue.FairShareDispatcher;
+import com.mediaalterations.mainservice.queue.JobCost;
+import com.mediaalterations.mainservice.queue.JobCostEstimator;
+import com.mediaalterations.mainservice.queue.WaitingQueueIndex;
+import com.mediaalterations.mainservice.repository.ArchivedProcessRepository;
+import com.mediaalterations.mainservice.repository.OutboxRepository;
 import com.mediaalterations.mainservice.repository.ProcessRepository;
+import com.mediaalterations.mainservice.repository.ProcessRenditionRepository;
+import com.mediaalterations.mainservice.service.ProcessMetrics.Flow;
+import com.mediaalterations.mainservice.service.ProcessMetrics.Phase;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
 import org.jspecify.annotations.Nullable;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.*;
 import java.util.function.BiFunction;
+import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.Supplier;
 
+/**
+ * Creates, lists and deletes processes and applies worker status reports.
+ * The validateRequest overloads and mapToDto are static and package-private
+ * so the JMH benchmarks in src/jmh can call them without a Spring context.
+ */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class ProcessServiceImpl implements ProcessService {
 
         private final ProcessRepository processRepository;
-        private final RabbitMQProducer processProducer;
+        private final OutboxRepository outboxRepository;
+        private final ProcessEventOutbox processOutbox;
         private final StorageClient storageClient;
         private final ExecutorService virtualExecutor;
+        private final TransactionTemplate transactionTemplate;
+        private final TranscodeResultCache resultCache;
+        private final WaitingQueueIndex waitingQueue;
+        private final FairShareDispatcher dispatcher;
+        private final JobCostEstimator costEstimator;
+        private final FfmpegCommandCompiler commandCompiler;
+        private final StoragePathCache storagePaths;
+        private final StorageCalls storageCalls;
+        private final ProcessStatusUpdater statusUpdater;
+        private final ProgressTracker progressTracker;
+        private final SegmentedEncodingService segmentedEncoding;
+        private final ProcessRenditionRepository renditionRepository;
+        private final ProcessEventHub processEvents;
+        private final ArchivedProcessRepository archivedRepository;
+        private final ProcessLeaseManager leaseManager;
+        private final ProcessMetrics metrics;
+        private final GeneratedOutputs generatedOutputs;
+
+        @Value("${process.batch.max-items:100}")
+        private int maxBatchItems;
+
+        @Value("${process.fanout.max-outputs:8}")
+        private int maxFanOutOutputs;
+
+        @Value("${process.abr.default-ladder:p360,p720,p1080}")
+        private List<String> defaultAbrLadder;
+
+        @Value("${process.abr.default-segment-seconds:4}")
+        private int defaultAbrSegmentSeconds;
+
+        @Value("${process.abr.max-renditions:6}")
+        private int maxAbrRenditions;
+
+        @Value("${process.history.default-page-size:50}")
+        private int defaultHistoryPageSize;
+
+        @Value("${process.history.max-page-size:200}")
+        private int maxHistoryPageSize;
+
+        @Value("${process.archive.after:30d}")
+        private Duration archiveAfter;
 
         @Override
         public void transcodeVideo(AudioConvertRequest request, String userId) {
@@ -46,105 +129,243 @@ public class ProcessServiceImpl implements ProcessService {
                         String contentType,
                         ConvertRequest request,
                         Runnable validator,
-                        BiFunction<String, String, String> commandBuilder,
+                        BiFunction<String, String, FfmpegCommand> commandBuilder,
                         String userId) throws InterruptedException, ExecutionException {
-                validator.run();
-                Future<ResponseEntity<String>> inputFuture = virtualExecutor
-                                .submit(() -> storageClient.getPathFromStorageId(
+                validate(Flow.SINGLE, validator);
+
+                String resultKey = resultCache.keyFor(request.storageId(), request.toMediaType(),
+                                commandBuilder.apply(TranscodeResultCache.INPUT_PLACEHOLDER,
+                                                TranscodeResultCache.OUTPUT_PLACEHOLDER).render());
+                Optional<TranscodeResponse> reused = resultCache.findCompleted(resultKey)
+                                .filter(existing -> ownsInput(request.storageId(), userId))
+                                .flatMap(existing -> reuseResult(existing, request, resultKey, userId));
+                if (reused.isPresent()) {
+                        metrics.created(Flow.SINGLE, request, "reused");
+                        return reused.get();
+                }
+
+                if (request instanceof VideoConvertRequest video && segmentedEncoding.supports(video)) {
+                        Process parent = segmentedEncoding.create(video, resultKey, userId);
+                        metrics.created(Flow.SINGLE, request, "segmented");
+                        int queueNo = segmentedEncoding.positionOf(parent).orElse(0);
+
+                        log.info("Segmented process created. processId={}, userId={}, queueNo={}",
+                                        parent.getId(), userId, queueNo);
+
+                        return new TranscodeResponse(
+                                        "Processing started successfully", ProcessResponseDto.from(parent),
+                                        queueNo);
+                }
+
+                long storageStart = System.nanoTime();
+                Future<String> inputFuture = virtualExecutor
+                                .submit(() -> storagePaths.getPath(
                                                 request.storageId(), userId));
 
-                Future<ResponseEntity<OutputPathResponse>> outputFuture = virtualExecutor
-                                .submit(() -> storageClient.generateOutputPath(
+                CompletableFuture<ResponseEntity<OutputPathResponse>> outputFuture = storageCalls
+                                .submit(StorageCalls.GENERATE_OUTPUT_PATH, () -> storageClient.generateOutputPath(
                                                 request.fileName(),
                                                 contentType,
                                                 request.duration(),
                                                 request.toMediaType(),
                                                 userId));
 
-                ResponseEntity<String> inputRes = inputFuture.get();
+                String inputPath = generatedOutputs.inputOrDiscard(inputFuture, List.of(outputFuture), userId);
                 ResponseEntity<OutputPathResponse> outputRes = outputFuture.get();
+                metrics.recordPhase(Flow.SINGLE, Phase.STORAGE, storageStart);
 
-                if (inputRes.getStatusCode().isError()
-                                || outputRes.getStatusCode().isError()) {
+                if (outputRes.getStatusCode().isError()) {
 
                         log.error("Storage service error during process creation.");
                         throw new ExternalServiceException("Storage service failure");
                 }
 
-                String inputPath = inputRes.getBody();
                 OutputPathResponse output = outputRes.getBody();
 
-                String ffmpegCmd = commandBuilder.apply(inputPath, output.path());
+                FfmpegCommand command = commandBuilder.apply(inputPath, output.path());
 
                 Process process = new Process(
                                 request.storageId(),
                                 output.storageId(),
-                                ffmpegCmd,
+                                command.render(),
                                 ProcessStatus.WAITING,
                                 userId,
                                 request.duration(),
                                 extractFileName(output.path()),
                                 "0 KB",
                                 isVideo(request.toMediaType()));
+                process.setResultKey(resultKey);
 
-                process = processRepository.saveAndFlush(process);
+                process = persistAndEnqueue(Flow.SINGLE, process, Map.of(request.storageId(), inputPath),
+                                output.path(), command, costEstimator.estimate(request));
+                metrics.created(Flow.SINGLE, request, "transcode");
 
                 log.info("Process created successfully. processId={}, userId={}",
                                 process.getId(), userId);
 
-                processProducer.publishProcessCreated(
-                                mapToDto(process, Map.of(request.storageId(), inputPath), output.path(),
-                                                extractFileName(output.path())));
-
-                int queueNo = processRepository.countByStatusAndCreatedAtBefore(
-                                ProcessStatus.WAITING,
-                                process.getCreatedAt());
+                long queueStart = System.nanoTime();
+                int queueNo = dispatcher.positionOf(process.getId(), userId).orElse(0);
+                metrics.recordPhase(Flow.SINGLE, Phase.QUEUE_POSITION, queueStart);
 
                 log.info("Queue position for processId={} is {}",
                                 process.getId(), queueNo);
 
                 return new TranscodeResponse(
-                                "Processing started successfully", mapToResponseDto(process),
+                                "Processing started successfully", ProcessResponseDto.from(process),
                                 queueNo);
 
         }
 
+        /**
+         * Satisfies a request from an earlier completed process by copying its
+         * output in storage. Returns empty when the copy fails so the caller
+         * falls back to a normal transcode.
+         */
+        // result keys are shared by all users, so a hit alone does not prove the caller may read the input
+        private boolean ownsInput(String storageId, String userId) {
+                try {
+                        return storagePaths.getPath(storageId, userId) != null;
+                } catch (RuntimeException e) {
+                        log.warn("Input not resolvable for caller, not reusing cached result. storageId={}, userId={}",
+                                        storageId, userId);
+                        return false;
+                }
+        }
+
+        private Optional<TranscodeResponse> reuseResult(
+                        Process existing,
+                        ConvertRequest request,
+                        String resultKey,
+                        String userId) {
+
+                ResponseEntity<OutputPathResponse> copyRes;
+                try {
+                        copyRes = storageCalls.call(StorageCalls.COPY_STORAGE,
+                                        () -> storageClient.copyStorage(existing.getStorageIdOutput(), userId));
+                } catch (Exception e) {
+                        log.warn("Copy of cached result failed, transcoding instead. sourceProcessId={}",
+                                        existing.getId(), e);
+                        return Optional.empty();
+                }
+                return reuseCopy(existing, request, resultKey, userId, copyRes);
+        }
+
+        private Optional<TranscodeResponse> reuseCopy(
+                        Process existing,
+                        ConvertRequest request,
+                        String resultKey,
+                        String userId,
+                        ResponseEntity<OutputPathResponse> copyRes) {
+
+                if (copyRes.getStatusCode().isError() || copyRes.getBody() == null) {
+                        log.warn("Copy of cached result failed, transcoding instead. sourceProcessId={}",
+                                        existing.getId());
+                        return Optional.empty();
+                }
+
+                OutputPathResponse output = copyRes.getBody();
+                Process process = new Process(
+                                request.storageId(),
+                                output.storageId(),
+                                existing.getCommand(),
+                                ProcessStatus.COMPLETED,
+                                userId,
+                                existing.getDuration(),
+                                extractFileName(output.path()),
+                                existing.getFinalFileSize(),
+                                isVideo(request.toMediaType()));
+                process.setResultKey(resultKey);
+
+                process = processRepository.saveAndFlush(process);
+                processEvents.publish(process);
+
+                log.info("Reused completed result. processId={}, sourceProcessId={}, userId={}",
+                                process.getId(), existing.getId(), userId);
+
+                return Optional.of(new TranscodeResponse(
+                                "Reused existing result", ProcessResponseDto.from(process), 0));
+        }
+
+        // the process row and its outbox event commit together; OutboxRelay publishes after commit
+        private Process persistAndEnqueue(
+                        Flow flow,
+                        Process process,
+                        Map<String, String> storageInputDetails,
+                        String outputPath,
+                        FfmpegCommand command,
+                        JobCost cost) {
+                return persistAndEnqueue(flow, process, storageInputDetails, outputPath, command, cost, saved -> {
+                });
+        }
+
+        // dependents are saved in the same transaction, after the process has its id
+        private Process persistAndEnqueue(
+                        Flow flow,
+                        Process process,
+                        Map<String, String> storageInputDetails,
+                        String outputPath,
+                        FfmpegCommand command,
+                        JobCost cost,
+                        Consumer<Process> dependents) {
+                process.setCostClass(cost.costClass());
+                return transactionTemplate.execute(tx -> {
+                        long insertStart = System.nanoTime();
+                        Process saved = processRepository.saveAndFlush(process);
+                        dependents.accept(saved);
+                        metrics.recordPhase(flow, Phase.INSERT, insertStart);
+
+                        long publishStart = System.nanoTime();
+                        processOutbox.enqueueProcessCreated(
+                                        mapToDto(saved, storageInputDetails, outputPath, saved.getFileName(),
+                                                        command.args()),
+                                        cost);
+                        processEvents.publish(saved);
+                        metrics.recordPhase(flow, Phase.PUBLISH, publishStart);
+                        metrics.entered(saved);
+                        return saved;
+                });
+        }
+
         private boolean isVideo(String mediaType) {
-                return switch (MediaType.valueOf(mediaType.toLowerCase())) {
-                        case mp4, avi, mkv, mov, wmv, flv, webm, mpeg, mpg, m4v -> true;
-                        default -> false;
-                };
+                return EnumLookup.findIgnoreCase(MediaType.class, mediaType)
+                                .map(type -> switch (type) {
+                                        case mp4, avi, mkv, mov, wmv, flv, webm, mpeg, mpg, m4v -> true;
+                                        default -> false;
+                                })
+                                .orElse(false);
         }
 
         private TranscodeResponse createMergeProcess(
                         String contentType,
                         MergeConvertRequest request,
                         Runnable validator,
-                        BiFunction<MergeConvertRequest, String, String> commandBuilder,
+                        BiFunction<MergeConvertRequest, String, FfmpegCommand> commandBuilder,
                         String userId) throws InterruptedException, ExecutionException {
 
                 log.info("Starting merge process creation. userId={}, mediaCount={}", userId,
                                 request.mediaFiles().size());
-                validator.run();
-                Future<ResponseEntity<Map<String, String>>> inputFuture = virtualExecutor
-                                .submit(() -> storageClient.getAllPathsFromStorageIds(
+                validate(Flow.MERGE, validator);
+                long storageStart = System.nanoTime();
+                Future<Map<String, String>> inputFuture = virtualExecutor
+                                .submit(() -> storagePaths.getPaths(
                                                 request.mediaFiles().stream().map(o -> o.storageId())
                                                                 .toArray(String[]::new),
                                                 userId));
                 log.info("Storage paths retrieval initiated for merge process. userId={}", userId);
-                Future<ResponseEntity<OutputPathResponse>> outputFuture = virtualExecutor
-                                .submit(() -> storageClient.generateOutputPath(
+                CompletableFuture<ResponseEntity<OutputPathResponse>> outputFuture = storageCalls
+                                .submit(StorageCalls.GENERATE_OUTPUT_PATH, () -> storageClient.generateOutputPath(
                                                 UUID.randomUUID().toString(),
                                                 contentType,
                                                 request.duration(),
                                                 request.toMediaType(),
                                                 userId));
                 log.info("Output path generation initiated for merge process. userId={}", userId);
-                ResponseEntity<Map<String, String>> inputRes = inputFuture.get();
+                Map<String, String> inputPaths = generatedOutputs.inputOrDiscard(
+                                inputFuture, List.of(outputFuture), userId);
                 ResponseEntity<OutputPathResponse> outputRes = outputFuture.get();
+                metrics.recordPhase(Flow.MERGE, Phase.STORAGE, storageStart);
 
-                if (inputRes.getStatusCode().isError()
-                                || outputRes.getStatusCode().isError()) {
+                if (outputRes.getStatusCode().isError()) {
 
                         log.error("Storage service error during process creation.");
                         throw new ExternalServiceException("Storage service failure");
@@ -153,7 +374,7 @@ public class ProcessServiceImpl implements ProcessService {
                 OutputPathResponse output = outputRes.getBody();
 
                 List<OrderedMedia> orderedMediaList = request.mediaFiles().stream()
-                                .map(or -> new OrderedMedia(inputRes.getBody().get(or.storageId()), or.type()))
+                                .map(or -> new OrderedMedia(inputPaths.get(or.storageId()), or.type()))
                                 .toList();
                 log.info("Storage paths retrieved for merge process. userId={}, mediaCount={}", userId,
                                 orderedMediaList.size());
@@ -165,13 +386,13 @@ public class ProcessServiceImpl implements ProcessService {
                                 request.audioCodec(),
                                 request.resolutionHeight());
 
-                String ffmpegCmd = commandBuilder.apply(newRequest, output.path());
+                FfmpegCommand command = commandBuilder.apply(newRequest, output.path());
 
-                log.info("Generated FFmpeg command for merge process: {}", ffmpegCmd);
+                log.info("Generated FFmpeg command for merge process: {}", command);
                 Process process = new Process(
                                 request.mediaFiles().get(0).storageId(),
                                 output.storageId(),
-                                ffmpegCmd,
+                                command.render(),
                                 ProcessStatus.WAITING,
                                 userId,
                                 request.duration(),
@@ -179,30 +400,27 @@ public class ProcessServiceImpl implements ProcessService {
                                 "0 KB",
                                 true);
 
-                process = processRepository.saveAndFlush(process);
+                process = persistAndEnqueue(Flow.MERGE, process, inputPaths, output.path(),
+                                command, costEstimator.estimate(request));
+                metrics.created(Flow.MERGE, request);
 
                 log.info("Process created successfully. processId={}, userId={}",
                                 process.getId(), userId);
 
-                processProducer.publishProcessCreated(
-                                mapToDto(process, inputRes.getBody(), output.path(),
-                                                extractFileName(output.path())));
-
-                int queueNo = processRepository.countByStatusAndCreatedAtBefore(
-                                ProcessStatus.WAITING,
-                                process.getCreatedAt());
+                long queueStart = System.nanoTime();
+                int queueNo = dispatcher.positionOf(process.getId(), userId).orElse(0);
+                metrics.recordPhase(Flow.MERGE, Phase.QUEUE_POSITION, queueStart);
 
                 log.info("Queue position for processId={} is {}",
                                 process.getId(), queueNo);
 
                 return new TranscodeResponse(
-                                "Processing started successfully", mapToResponseDto(process),
+                                "Processing started successfully", ProcessResponseDto.from(process),
                                 queueNo);
 
         }
 
         @Override
-        @Transactional
         public TranscodeResponse extractAndConvertAudio(
                         AudioConvertRequest request,
                         String userId) {
@@ -215,7 +433,7 @@ public class ProcessServiceImpl implements ProcessService {
                                         "audio",
                                         request,
                                         () -> validateRequest(request),
-                                        (inputPath, outputPath) -> buildFfmpegCommand(request, inputPath, outputPath),
+                                        (inputPath, outputPath) -> commandCompiler.compile(request, inputPath, outputPath),
                                         userId);
                 } catch (ProcessCreationException e) {
 
@@ -243,7 +461,7 @@ public class ProcessServiceImpl implements ProcessService {
                                         "video",
                                         request,
                                         () -> validateRequest(request),
-                                        (inputPath, outputPath) -> buildFfmpegCommand(request, inputPath, outputPath),
+                                        (inputPath, outputPath) -> commandCompiler.compile(request, inputPath, outputPath),
                                         userId);
                 } catch (ProcessCreationException e) {
 
@@ -272,7 +490,7 @@ public class ProcessServiceImpl implements ProcessService {
                                         "gif",
                                         request,
                                         () -> validateRequest(request),
-                                        (inputPath, outputPath) -> buildFfmpegCommand(request, inputPath, outputPath),
+                                        (inputPath, outputPath) -> commandCompiler.compile(request, inputPath, outputPath),
                                         userId);
                 } catch (ProcessCreationException e) {
 
@@ -300,7 +518,7 @@ public class ProcessServiceImpl implements ProcessService {
                                         "video",
                                         request,
                                         () -> validateRequest(request),
-                                        (newRequest, outputPath) -> buildOrderedMergeCommand(newRequest, outputPath),
+                                        commandCompiler::compile,
                                         userId);
                 } catch (ProcessCreationException e) {
 
@@ -318,9 +536,619 @@ public class ProcessServiceImpl implements ProcessService {
                 }
         }
 
+        // ===================== BATCH =====================
+
+        @Override
+        public BatchTranscodeResponse submitBatch(List<BatchConvertItem> items, String userId) {
+                log.info("Batch request received. userId={}, items={}",
+                                userId, items == null ? 0 : items.size());
+
+                if (items == null || items.isEmpty())
+                        throw new ProcessCreationException("Batch contains no items", null);
+                if (items.size() > maxBatchItems)
+                        throw new ProcessCreationException("Batch exceeds " + maxBatchItems + " items", null);
+
+                try {
+                        return createBatchProcesses(items, userId);
+                } catch (ProcessCreationException e) {
+
+                        log.error("{} userId={}", e.getMessage(), userId);
+
+                        throw new ProcessCreationException(
+                                        e.getMessage(), e);
+                } catch (Exception e) {
+
+                        log.error("Failed to create batch processes. userId={}", userId, e);
+
+                        throw new ProcessCreationException(
+                                        "Failed to create media processes", e);
+                }
+        }
+
+        /**
+         * Creates one process per valid item while paying the fixed costs once:
+         * a single storage lookup for all inputs, one batched insert and one
+         * publish round. Invalid items are reported back instead of failing the
+         * whole batch.
+         */
+        private BatchTranscodeResponse createBatchProcesses(
+                        List<BatchConvertItem> items,
+                        String userId) throws InterruptedException, ExecutionException {
+
+                BatchItemResult[] results = new BatchItemResult[items.size()];
+                List<Integer> accepted = new ArrayList<>();
+                Map<Integer, String> resultKeys = new HashMap<>();
+                Map<Integer, Process> candidates = new HashMap<>();
+
+                for (int i = 0; i < items.size(); i++) {
+                        ConvertRequest request = items.get(i).request();
+                        if (request == null) {
+                                results[i] = rejected(i, "Item must contain exactly one of audio, video or gif");
+                                continue;
+                        }
+                        try {
+                                validate(Flow.BATCH, () -> validateRequest(request));
+                        } catch (ProcessCreationException e) {
+                                results[i] = rejected(i, e.getMessage());
+                                continue;
+                        }
+
+                        String resultKey = resultCache.keyFor(request.storageId(), request.toMediaType(),
+                                        commandCompiler.compile(request, TranscodeResultCache.INPUT_PLACEHOLDER,
+                                                        TranscodeResultCache.OUTPUT_PLACEHOLDER).render());
+                        // reused only once the batched lookup below has shown the input is the caller's
+                        int item = i;
+                        resultCache.findCompleted(resultKey).ifPresent(existing -> candidates.put(item, existing));
+                        resultKeys.put(i, resultKey);
+                        accepted.add(i);
+                }
+
+                if (accepted.isEmpty()) {
+                        return batchResponse(results);
+                }
+
+                String[] storageIds = accepted.stream()
+                                .map(i -> items.get(i).request().storageId())
+                                .distinct()
+                                .toArray(String[]::new);
+
+                Future<Map<String, String>> inputFuture = virtualExecutor
+                                .submit(() -> storagePaths.getPaths(storageIds, userId));
+
+                Map<Integer, CompletableFuture<ResponseEntity<OutputPathResponse>>> outputFutures = new HashMap<>();
+                for (int i : accepted) {
+                        if (!candidates.containsKey(i)) {
+                                outputFutures.put(i, batchOutputPath(items.get(i).request(), userId));
+                        }
+                }
+
+                Map<String, String> inputPaths = generatedOutputs.inputOrDiscard(
+                                inputFuture, List.copyOf(outputFutures.values()), userId);
+
+                Map<Integer, CompletableFuture<ResponseEntity<OutputPathResponse>>> copies = new HashMap<>();
+                candidates.forEach((i, existing) -> {
+                        if (inputPaths.containsKey(items.get(i).request().storageId())) {
+                                copies.put(i, storageCalls.submit(StorageCalls.COPY_STORAGE,
+                                                () -> storageClient.copyStorage(existing.getStorageIdOutput(), userId)));
+                        }
+                });
+                for (Map.Entry<Integer, CompletableFuture<ResponseEntity<OutputPathResponse>>> copy : copies.entrySet()) {
+                        int i = copy.getKey();
+                        ConvertRequest request = items.get(i).request();
+                        Process existing = candidates.get(i);
+                        Optional<TranscodeResponse> reused;
+                        try {
+                                reused = reuseCopy(existing, request, resultKeys.get(i), userId, copy.getValue().get());
+                        } catch (ExecutionException e) {
+                                log.warn("Copy of cached result failed, transcoding instead. sourceProcessId={}",
+                                                existing.getId(), e.getCause());
+                                reused = Optional.empty();
+                        }
+                        if (reused.isPresent()) {
+                                metrics.created(Flow.BATCH, request, "reused");
+                                results[i] = new BatchItemResult(i, true, reused.get().message(),
+                                                reused.get().processResponseDto(), 0);
+                        } else {
+                                outputFutures.put(i, batchOutputPath(request, userId));
+                        }
+                }
+                accepted.removeIf(i -> results[i] != null);
+
+                List<CompletableFuture<ResponseEntity<OutputPathResponse>>> unused = new ArrayList<>();
+                List<Integer> created = new ArrayList<>();
+                List<Process> processes = new ArrayList<>();
+                List<String> outputPaths = new ArrayList<>();
+                List<FfmpegCommand> commands = new ArrayList<>();
+                List<JobCost> costs = new ArrayList<>();
+
+                for (int i : accepted) {
+                        ConvertRequest request = items.get(i).request();
+                        String inputPath = inputPaths.get(request.storageId());
+
+                        if (inputPath == null) {
+                                results[i] = rejected(i, "Input file not found");
+                                if (outputFutures.containsKey(i)) {
+                                        unused.add(outputFutures.get(i));
+                                }
+                                continue;
+                        }
+                        ResponseEntity<OutputPathResponse> outputRes = outputFutures.get(i).get();
+                        if (outputRes.getStatusCode().isError() || outputRes.getBody() == null) {
+                                results[i] = rejected(i, "Storage service failure");
+                                continue;
+                        }
+
+                        OutputPathResponse output = outputRes.getBody();
+                        FfmpegCommand command = commandCompiler.compile(request, inputPath, output.path());
+                        Process process = new Process(
+                                        request.storageId(),
+                                        output.storageId(),
+                                        command.render(),
+                                        ProcessStatus.WAITING,
+                                        userId,
+                                        request.duration(),
+                                        extractFileName(output.path()),
+                                        "0 KB",
+                                        isVideo(request.toMediaType()));
+                        process.setResultKey(resultKeys.get(i));
+                        processes.add(process);
+                        outputPaths.add(output.path());
+                        commands.add(command);
+                        JobCost cost = costEstimator.estimate(request);
+                        process.setCostClass(cost.costClass());
+                        costs.add(cost);
+                        created.add(i);
+                }
+                generatedOutputs.discard(unused, userId);
+
+                if (processes.isEmpty()) {
+                        return batchResponse(results);
+                }
+
+                // inserts are grouped into JDBC batches (hibernate.jdbc.batch_size)
+                List<Process> pending = processes;
+                processes = transactionTemplate.execute(tx -> {
+                        List<Process> saved = processRepository.saveAll(pending);
+                        for (int k = 0; k < saved.size(); k++) {
+                                Process process = saved.get(k);
+                                processOutbox.enqueueProcessCreated(mapToDto(process,
+                                                Map.of(process.getStorageIdInput(),
+                                                                inputPaths.get(process.getStorageIdInput())),
+                                                outputPaths.get(k),
+                                                process.getFileName(),
+                                                commands.get(k).args()),
+                                                costs.get(k));
+                                processEvents.publish(process);
+                        }
+                        metrics.entered(saved);
+                        return saved;
+                });
+
+                log.info("Batch processes created. userId={}, count={}", userId, processes.size());
+
+                for (int k = 0; k < processes.size(); k++) {
+                        Process process = processes.get(k);
+                        int i = created.get(k);
+                        metrics.created(Flow.BATCH, items.get(i).request(), "transcode");
+                        results[i] = new BatchItemResult(i, true, "Processing started successfully",
+                                        ProcessResponseDto.from(process),
+                                        dispatcher.positionOf(process.getId(), userId).orElse(0));
+                }
+
+                return batchResponse(results);
+        }
+
+        private CompletableFuture<ResponseEntity<OutputPathResponse>> batchOutputPath(
+                        ConvertRequest request,
+                        String userId) {
+                return storageCalls.submit(StorageCalls.GENERATE_OUTPUT_PATH, () -> storageClient.generateOutputPath(
+                                request.fileName(),
+                                contentType(request),
+                                request.duration(),
+                                request.toMediaType(),
+                                userId));
+        }
+
+        // ===================== ABR PACKAGING =====================
+
+        @Override
+        public TranscodeResponse packageAbr(AbrPackageRequest request, String userId) {
+                log.info("ABR packaging request received. userId={}, storageId={}, format={}",
+                                userId, request.storageId(), request.format());
+
+                try {
+                        return createAbrProcess(request, userId);
+                } catch (ProcessCreationException e) {
+
+                        log.error("{} userId={}, storageId={}", e.getMessage(), userId, request.storageId());
+
+                        throw new ProcessCreationException(
+                                        e.getMessage(), e);
+                } catch (Exception e) {
+
+                        log.error("Failed to create process. userId={}, storageId={}",
+                                        userId, request.storageId(), e);
+
+                        throw new ProcessCreationException(
+                                        "Failed to create media process", e);
+                }
+        }
+
+        /**
+         * Encodes every rung of the ladder from a single decode into one HLS or
+         * DASH package. The master playlist is the process output; one
+         * rendition row per rung tracks the variant and its size.
+         */
+        private TranscodeResponse createAbrProcess(
+                        AbrPackageRequest request,
+                        String userId) throws InterruptedException, ExecutionException {
+
+                AbrPlan plan = validate(Flow.ABR, () -> planAbr(request));
+                StreamingFormat format = plan.format();
+                List<AbrRung> ladder = plan.ladder();
+
+                long storageStart = System.nanoTime();
+                Future<String> inputFuture = virtualExecutor
+                                .submit(() -> storagePaths.getPath(
+                                                request.storageId(), userId));
+
+                CompletableFuture<ResponseEntity<OutputPathResponse>> outputFuture = storageCalls
+                                .submit(StorageCalls.GENERATE_OUTPUT_PATH, () -> storageClient.generateOutputPath(
+                                                request.fileName(),
+                                                "video",
+                                                request.duration(),
+                                                format == StreamingFormat.hls ? "m3u8" : "mpd",
+                                                userId));
+
+                String inputPath = generatedOutputs.inputOrDiscard(inputFuture, List.of(outputFuture), userId);
+                ResponseEntity<OutputPathResponse> outputRes = outputFuture.get();
+                metrics.recordPhase(Flow.ABR, Phase.STORAGE, storageStart);
+
+                if (outputRes.getStatusCode().isError() || outputRes.getBody() == null) {
+
+                        log.error("Storage service error during process creation.");
+                        throw new ExternalServiceException("Storage service failure");
+                }
+
+                OutputPathResponse output = outputRes.getBody();
+
+                FfmpegCommand command = commandCompiler.compileAbr(
+                                ladder, format, plan.preset(), plan.segmentSeconds(), !Boolean.FALSE.equals(request.audio()),
+                                inputPath, output.path());
+
+                Process process = new Process(
+                                request.storageId(),
+                                output.storageId(),
+                                command.render(),
+                                ProcessStatus.WAITING,
+                                userId,
+                                request.duration(),
+                                extractFileName(output.path()),
+                                "0 KB",
+                                true);
+
+                process = persistAndEnqueue(Flow.ABR, process, Map.of(request.storageId(), inputPath),
+                                output.path(), command,
+                                costEstimator.estimate(request, ladder.stream().map(AbrRung::resolution).toList()),
+                                saved -> {
+                                        List<ProcessRendition> renditions = new ArrayList<>();
+                                        for (int i = 0; i < ladder.size(); i++) {
+                                                renditions.add(new ProcessRendition(
+                                                                saved.getId(),
+                                                                i,
+                                                                ladder.get(i).resolution(),
+                                                                ladder.get(i).videoKbps(),
+                                                                format == StreamingFormat.hls
+                                                                                ? FfmpegCommandCompiler.hlsVariantName(output.path(), i)
+                                                                                : null));
+                                        }
+                                        renditionRepository.saveAll(renditions);
+                                });
+                metrics.created(Flow.ABR, format);
+
+                log.info("ABR process created. processId={}, userId={}, renditions={}",
+                                process.getId(), userId, ladder.size());
+
+                long queueStart = System.nanoTime();
+                int queueNo = dispatcher.positionOf(process.getId(), userId).orElse(0);
+                metrics.recordPhase(Flow.ABR, Phase.QUEUE_POSITION, queueStart);
+
+                return new TranscodeResponse(
+                                "Processing started successfully", ProcessResponseDto.from(process),
+                                queueNo);
+        }
+
+        private record AbrPlan(StreamingFormat format, List<AbrRung> ladder, EncodingPresetType preset,
+                        int segmentSeconds) {
+        }
+
+        private AbrPlan planAbr(AbrPackageRequest request) {
+                StreamingFormat format = EnumLookup.find(StreamingFormat.class, request.format())
+                                .orElseThrow(() -> new ProcessCreationException("Unsupported streaming format", null));
+                List<AbrRung> ladder = resolveLadder(request.renditions());
+                EncodingPresetType preset = request.encoderPreset() == null ? null
+                                : EnumLookup.find(EncodingPresetType.class, request.encoderPreset())
+                                                .orElseThrow(() -> new ProcessCreationException(
+                                                                "Unsupported encoder preset", null));
+                int segmentSeconds = request.segmentSeconds() == 0 ? defaultAbrSegmentSeconds
+                                : request.segmentSeconds();
+                if (segmentSeconds < 1 || segmentSeconds > 30)
+                        throw new ProcessCreationException("Unsupported segment duration", null);
+                return new AbrPlan(format, ladder, preset, segmentSeconds);
+        }
+
+        // lowest rung first, the order players expect in the master playlist
+        private List<AbrRung> resolveLadder(List<String> requested) {
+                List<String> names = requested == null || requested.isEmpty() ? defaultAbrLadder : requested;
+                if (names.size() > maxAbrRenditions)
+                        throw new ProcessCreationException("ABR ladder exceeds " + maxAbrRenditions + " renditions",
+                                        null);
+
+                List<AbrRung> ladder = new ArrayList<>();
+                for (String name : names) {
+                        AbrRung rung = EnumLookup.find(ResolutionType.class, name)
+                                        .flatMap(AbrRung::of)
+                                        .orElseThrow(() -> {
+                                                log.warn("Unsupported rendition. rendition={}", name);
+                                                return new ProcessCreationException("Unsupported rendition", null);
+                                        });
+                        if (!ladder.contains(rung))
+                                ladder.add(rung);
+                }
+                ladder.sort(Comparator.comparingInt(AbrRung::height));
+                return ladder;
+        }
+
+        @Override
+        public List<RenditionDto> getRenditions(String processId, String userId) {
+                UUID id = UUID.fromString(processId);
+                // renditions stay in their table when the process is archived
+                if (!processRepository.existsByIdAndUserId(id, userId)
+                                && archivedRepository.findByIdAndUserId(id, userId).isEmpty()) {
+                        log.warn("Process not found. processId={}", processId);
+                        throw new ProcessNotFoundException("No process found");
+                }
+
+                return renditionRepository.findByProcessIdOrderByRenditionIndex(id).stream()
+                                .map(r -> new RenditionDto(
+                                                r.getRenditionIndex(),
+                                                r.getResolution().name(),
+                                                r.getVideoBitrateKbps(),
+                                                r.getPlaylistName(),
+                                                r.getFileSize()))
+                                .toList();
+        }
+
+        @Override
+        @Transactional
+        public void updateRenditionSizes(String processId, List<RenditionSizeUpdate> sizes) {
+                List<ProcessRendition> renditions = renditionRepository
+                                .findByProcessIdOrderByRenditionIndex(UUID.fromString(processId));
+                if (renditions.isEmpty()) {
+                        log.warn("No renditions for process. processId={}", processId);
+                        throw new ProcessNotFoundException("No renditions found");
+                }
+
+                for (RenditionSizeUpdate size : sizes) {
+                        if (size.index() < 0 || size.index() >= renditions.size()) {
+                                log.warn("Unknown rendition index. processId={}, index={}", processId, size.index());
+                                continue;
+                        }
+                        renditions.get(size.index()).setFileSize(size.fileSize());
+                }
+        }
+
+        // ===================== FAN-OUT =====================
+
+        @Override
+        public FanOutTranscodeResponse fanOut(FanOutConvertRequest request, String userId) {
+                log.info("Fan-out request received. userId={}, storageId={}, outputs={}",
+                                userId, request.storageId(), request.outputs() == null ? 0 : request.outputs().size());
+
+                if (request.outputs() == null || request.outputs().isEmpty())
+                        throw new ProcessCreationException("Fan-out contains no outputs", null);
+                if (request.outputs().size() > maxFanOutOutputs)
+                        throw new ProcessCreationException("Fan-out exceeds " + maxFanOutOutputs + " outputs", null);
+
+                try {
+                        return createFanOutProcesses(request, userId);
+                } catch (ProcessCreationException e) {
+
+                        log.error("{} userId={}, storageId={}", e.getMessage(), userId, request.storageId());
+
+                        throw new ProcessCreationException(
+                                        e.getMessage(), e);
+                } catch (Exception e) {
+
+                        log.error("Failed to create fan-out processes. userId={}, storageId={}",
+                                        userId, request.storageId(), e);
+
+                        throw new ProcessCreationException(
+                                        "Failed to create media processes", e);
+                }
+        }
+
+        /**
+         * Decodes the input once for all outputs: a single ffmpeg run writes
+         * every output. Each output still gets its own process; the first one
+         * carries the job and the others mirror its status.
+         */
+        private FanOutTranscodeResponse createFanOutProcesses(
+                        FanOutConvertRequest request,
+                        String userId) throws InterruptedException, ExecutionException {
+
+                List<ConvertRequest> outputs = new ArrayList<>();
+                for (int i = 0; i < request.outputs().size(); i++) {
+                        ConvertRequest output = request.outputs().get(i).request();
+                        if (output == null)
+                                throw new ProcessCreationException(
+                                                "Output " + i + " must contain exactly one of audio, video or gif", null);
+                        ConvertRequest sourced = withSource(output, request);
+                        validate(Flow.FANOUT, () -> validateRequest(sourced));
+                        outputs.add(sourced);
+                }
+
+                Future<String> inputFuture = virtualExecutor
+                                .submit(() -> storagePaths.getPath(
+                                                request.storageId(), userId));
+
+                List<CompletableFuture<ResponseEntity<OutputPathResponse>>> outputFutures = new ArrayList<>();
+                for (ConvertRequest output : outputs) {
+                        outputFutures.add(storageCalls.submit(StorageCalls.GENERATE_OUTPUT_PATH,
+                                        () -> storageClient.generateOutputPath(
+                                                        request.fileName(),
+                                                        contentType(output),
+                                                        request.duration(),
+                                                        output.toMediaType(),
+                                                        userId)));
+                }
+
+                String inputPath = generatedOutputs.inputOrDiscard(inputFuture, outputFutures, userId);
+                List<OutputPathResponse> outputPaths = new ArrayList<>();
+                for (CompletableFuture<ResponseEntity<OutputPathResponse>> future : outputFutures) {
+                        ResponseEntity<OutputPathResponse> outputRes = future.get();
+                        if (outputRes.getStatusCode().isError() || outputRes.getBody() == null) {
+                                log.error("Storage service error during process creation.");
+                                // the outputs generated for the other formats would stay behind
+                                generatedOutputs.discard(outputFutures, userId);
+                                throw new ExternalServiceException("Storage service failure");
+                        }
+                        outputPaths.add(outputRes.getBody());
+                }
+
+                FfmpegCommand command = commandCompiler.compileFanOut(inputPath, outputs,
+                                outputPaths.stream().map(OutputPathResponse::path).toList());
+                JobCost cost = costEstimator.estimateFanOut(outputs);
+
+                List<Process> processes = new ArrayList<>();
+                for (int i = 0; i < outputs.size(); i++) {
+                        ConvertRequest output = outputs.get(i);
+                        Process process = new Process(
+                                        request.storageId(),
+                                        outputPaths.get(i).storageId(),
+                                        command.render(),
+                                        ProcessStatus.WAITING,
+                                        userId,
+                                        request.duration(),
+                                        extractFileName(outputPaths.get(i).path()),
+                                        "0 KB",
+                                        isVideo(output.toMediaType()));
+                        // keyed like a single-output run so later single requests can reuse the result
+                        process.setResultKey(resultCache.keyFor(request.storageId(), output.toMediaType(),
+                                        commandCompiler.compile(output, TranscodeResultCache.INPUT_PLACEHOLDER,
+                                                        TranscodeResultCache.OUTPUT_PLACEHOLDER).render()));
+                        process.setRole(i == 0 ? ProcessRole.FANOUT : ProcessRole.FANOUT_OUTPUT);
+                        process.setChildIndex(i);
+                        processes.add(process);
+                }
+                Process carrier = processes.get(0);
+                carrier.setChildCount(outputs.size() - 1);
+                carrier.setCostClass(cost.costClass());
+
+                List<Process> saved = transactionTemplate.execute(tx -> {
+                        Process savedCarrier = processRepository.saveAndFlush(carrier);
+                        List<Process> others = processes.subList(1, processes.size());
+                        others.forEach(p -> p.setParentId(savedCarrier.getId()));
+                        List<Process> savedOthers = processRepository.saveAll(others);
+
+                        Map<String, String> otherOutputs = new LinkedHashMap<>();
+                        for (int k = 0; k < savedOthers.size(); k++)
+                                otherOutputs.put(savedOthers.get(k).getId().toString(), outputPaths.get(k + 1).path());
+
+                        processOutbox.enqueueProcessCreated(mapToDto(savedCarrier,
+                                        Map.of(request.storageId(), inputPath),
+                                        outputPaths.get(0).path(),
+                                        savedCarrier.getFileName(),
+                                        command.args(),
+                                        otherOutputs),
+                                        cost);
+
+                        List<Process> all = new ArrayList<>();
+                        all.add(savedCarrier);
+                        all.addAll(savedOthers);
+                        all.forEach(processEvents::publish);
+                        metrics.entered(all);
+                        return all;
+                });
+                outputs.forEach(output -> metrics.created(Flow.FANOUT, output, "transcode"));
+
+                log.info("Fan-out processes created. userId={}, processId={}, outputs={}",
+                                userId, saved.get(0).getId(), saved.size());
+
+                return new FanOutTranscodeResponse(
+                                "Processing started successfully",
+                                saved.stream().map(ProcessResponseDto::from).toList(),
+                                dispatcher.positionOf(saved.get(0).getId(), userId).orElse(0));
+        }
+
+        private static ConvertRequest withSource(ConvertRequest output, FanOutConvertRequest request) {
+                return switch (output) {
+                        case AudioConvertRequest audio -> new AudioConvertRequest(
+                                        request.storageId(), request.fileName(), request.duration(),
+                                        audio.toMediaType(), audio.bitrate(), audio.channelType(), audio.sampleRate());
+                        case VideoConvertRequest video -> new VideoConvertRequest(
+                                        request.storageId(), request.fileName(), request.duration(),
+                                        video.toMediaType(), video.videoCodec(), video.audioCodec(),
+                                        video.encoderPreset(), video.crf(), video.frameRate(), video.resolution());
+                        case GifConvertRequest gif -> new GifConvertRequest(
+                                        request.storageId(), request.fileName(), request.duration(),
+                                        gif.toMediaType(), gif.startTimeSeconds(), gif.durationSeconds(), gif.fps(),
+                                        gif.resolution());
+                };
+        }
+
+        private static BatchItemResult rejected(int index, String reason) {
+                return new BatchItemResult(index, false, reason, null, -1);
+        }
+
+        private static BatchTranscodeResponse batchResponse(BatchItemResult[] results) {
+                int accepted = (int) Arrays.stream(results).filter(BatchItemResult::accepted).count();
+                return new BatchTranscodeResponse(
+                                accepted > 0 ? "Batch processing started" : "No batch items were accepted",
+                                accepted,
+                                results.length - accepted,
+                                List.of(results));
+        }
+
+        private static String contentType(ConvertRequest request) {
+                return switch (request) {
+                        case AudioConvertRequest audio -> "audio";
+                        case VideoConvertRequest video -> "video";
+                        case GifConvertRequest gif -> "gif";
+                };
+        }
+
         // ===================== VALIDATION =====================
 
-        private void validateRequest(AudioConvertRequest request) {
+        private void validate(Flow flow, Runnable validator) {
+                validate(flow, () -> {
+                        validator.run();
+                        return null;
+                });
+        }
+
+        // times the validation and counts rejections by their message
+        private <T> T validate(Flow flow, Supplier<T> validator) {
+                long start = System.nanoTime();
+                try {
+                        return validator.get();
+                } catch (ProcessCreationException e) {
+                        metrics.rejected(flow, e.getMessage());
+                        throw e;
+                } finally {
+                        metrics.recordPhase(flow, Phase.VALIDATE, start);
+                }
+        }
+
+        static void validateRequest(ConvertRequest request) {
+                switch (request) {
+                        case AudioConvertRequest audio -> validateRequest(audio);
+                        case VideoConvertRequest video -> validateRequest(video);
+                        case GifConvertRequest gif -> validateRequest(gif);
+                }
+        }
+
+        static void validateRequest(AudioConvertRequest request) {
                 if (!isValidMediaType(request.toMediaType())) {
                         log.warn("Invalid media type for fileName={}", request.fileName());
                         throw new ProcessCreationException("Unsupported media type", null);
@@ -340,7 +1168,7 @@ public class ProcessServiceImpl implements ProcessService {
 
         }
 
-        private void validateRequest(VideoConvertRequest request) {
+        static void validateRequest(VideoConvertRequest request) {
                 if (!isValidMediaType(request.toMediaType())) {
                         log.warn("Invalid media type for fileName={}", request.fileName());
                         throw new ProcessCreationException("Unsupported media type", null);
@@ -368,8 +1196,8 @@ public class ProcessServiceImpl implements ProcessService {
                 if (request.frameRate() < 0 || request.frameRate() > 240)
                         throw new ProcessCreationException("Invalid frame rate", null);
 
-                VideoCodecType videoCodec = VideoCodecType.valueOf(request.videoCodec());
-                AudioCodecType audioCodec = AudioCodecType.valueOf(request.audioCodec());
+                VideoCodecType videoCodec = EnumLookup.find(VideoCodecType.class, request.videoCodec()).orElseThrow();
+                AudioCodecType audioCodec = EnumLookup.find(AudioCodecType.class, request.audioCodec()).orElseThrow();
 
                 if (videoCodec == VideoCodecType.source && request.frameRate() > 0)
                         throw new ProcessCreationException("Cannot change frame rate when video codec is source", null);
@@ -395,7 +1223,7 @@ public class ProcessServiceImpl implements ProcessService {
                 }
         }
 
-        private void validateRequest(GifConvertRequest request) {
+        static void validateRequest(GifConvertRequest request) {
                 if (!isValidResolution(request.resolution())) {
                         log.warn("Invalid resolution for fileName={}", request.fileName());
                         throw new ProcessCreationException("Unsupported resolution", null);
@@ -408,7 +1236,7 @@ public class ProcessServiceImpl implements ProcessService {
                         throw new ProcessCreationException("Invalid duration", null);
         }
 
-        private void validateRequest(MergeConvertRequest request) {
+        static void validateRequest(MergeConvertRequest request) {
                 if (!isValidMediaType(request.toMediaType())) {
                         log.warn("Invalid media type for merge request. ");
                         throw new ProcessCreationException("Unsupported media type", null);
@@ -423,25 +1251,15 @@ public class ProcessServiceImpl implements ProcessService {
                 }
         }
 
-        private boolean isValidMediaType(String mediaType) {
-                try {
-                        MediaType.valueOf(mediaType);
-                        return true;
-                } catch (Exception e) {
-                        return false;
-                }
+        private static boolean isValidMediaType(String mediaType) {
+                return EnumLookup.find(MediaType.class, mediaType).isPresent();
         }
 
-        private boolean isValidChannelType(String channelType) {
-                try {
-                        ChannelType.valueOf(channelType);
-                        return true;
-                } catch (Exception e) {
-                        return false;
-                }
+        private static boolean isValidChannelType(String channelType) {
+                return EnumLookup.find(ChannelType.class, channelType).isPresent();
         }
 
-        private boolean isValidBitrate(int bitrate) {
+        private static boolean isValidBitrate(int bitrate) {
                 switch (bitrate) {
                         case 64:
                         case 96:
@@ -455,40 +1273,20 @@ public class ProcessServiceImpl implements ProcessService {
                 }
         }
 
-        private boolean isValidVideoCodec(String codec) {
-                try {
-                        VideoCodecType.valueOf(codec);
-                        return true;
-                } catch (Exception e) {
-                        return false;
-                }
+        private static boolean isValidVideoCodec(String codec) {
+                return EnumLookup.find(VideoCodecType.class, codec).isPresent();
         }
 
-        private boolean isValidAudioCodec(String codec) {
-                try {
-                        AudioCodecType.valueOf(codec);
-                        return true;
-                } catch (Exception e) {
-                        return false;
-                }
+        private static boolean isValidAudioCodec(String codec) {
+                return EnumLookup.find(AudioCodecType.class, codec).isPresent();
         }
 
-        private boolean isValidEncoderPreset(String preset) {
-                try {
-                        EncodingPresetType.valueOf(preset);
-                        return true;
-                } catch (Exception e) {
-                        return false;
-                }
+        private static boolean isValidEncoderPreset(String preset) {
+                return EnumLookup.find(EncodingPresetType.class, preset).isPresent();
         }
 
-        private boolean isValidResolution(String resolution) {
-                try {
-                        ResolutionType.valueOf(resolution);
-                        return true;
-                } catch (Exception e) {
-                        return false;
-                }
+        private static boolean isValidResolution(String resolution) {
+                return EnumLookup.find(ResolutionType.class, resolution).isPresent();
         }
 
         // ===================== UPDATE STATUS =====================
@@ -499,21 +1297,27 @@ public class ProcessServiceImpl implements ProcessService {
                         ProcessStatus status,
                         String fileSize,
                         String fileDuration,
-                        String processId) {
-
-                log.debug("Updating process. processId={}, status={}, fileSize={}, fileDuration={}",
-                                processId, status, fileSize, fileDuration);
+                        String processId,
+                        Integer attempt) {
 
-                Process process = processRepository.findById(
-                                UUID.fromString(processId))
-                                .orElseThrow(() -> {
-                                        log.warn("Process not found. processId={}", processId);
-                                        return new ProcessNotFoundException("No process found");
-                                });
+                log.debug("Updating process. processId={}, status={}, fileSize={}, fileDuration={}, attempt={}",
+                                processId, status, fileSize, fileDuration, attempt);
 
-                process.setStatus(status);
-                process.setFinalFileSize(fileSize);
-                process.setDuration(fileDuration);
+                // same path as the status queue, but a report that cannot apply is answered instead of dropped
+                switch (statusUpdater.apply(new ProcessStatusUpdate(processId, status, fileSize, fileDuration, attempt))) {
+                        case NOT_FOUND -> {
+                                log.warn("Process not found. processId={}", processId);
+                                throw new ProcessNotFoundException("No process found");
+                        }
+                        case REJECTED -> {
+                                log.warn("Status update rejected. processId={}, status={}, attempt={}",
+                                                processId, status, attempt);
+                                throw new StatusConflictException(
+                                                "Process cannot move to " + status + " from its current state or attempt");
+                        }
+                        case APPLIED -> {
+                        }
+                }
 
                 log.info("Process status updated. processId={}, newStatus={}",
                                 processId, status);
@@ -523,6 +1327,7 @@ public class ProcessServiceImpl implements ProcessService {
 
         // ===================== DELETE =====================
 
+        // only tombstones the rows; ProcessReaper deletes the files and the rows later
         @Override
         @Transactional
         public void deleteProcessAndStorage(
@@ -532,395 +1337,243 @@ public class ProcessServiceImpl implements ProcessService {
                 log.info("Delete process request. userId={}, totalProcesses={}",
                                 userId, processIds.size());
 
-                List<UUID> uuids = processIds.stream()
+                List<UUID> requested = processIds.stream()
                                 .map(UUID::fromString)
                                 .toList();
 
-                List<String> storageIds = processRepository.getStorageIds(uuids, userId);
-
-                if (storageIds.isEmpty()) {
-                        log.warn("No valid processes found for deletion. userId={}", userId);
-                        throw new ProcessNotFoundException("No valid files found");
-                }
-
-                storageClient.deleteStorage(storageIds, userId);
-
-                processRepository.deleteByIdsAndUserId(uuids, userId);
-
-                log.info("Processes deleted successfully. userId={}", userId);
-        }
-
-        // ===================== FETCH ALL =====================
-
-        @Override
-        public List<ProcessResponseDto> getAllProcessOfUser(String userId) {
-
-                log.debug("Fetching all processes for userId={}", userId);
-
-                List<Process> processes = processRepository.getAllByUserIdOrderByCreatedAtDesc(userId);
-
-                return processes.stream()
-                                .map(ProcessServiceImpl::mapToResponseDto)
-                                .toList();
-        }
-
-        // ===================== HELPERS =====================
-
-        private String buildFfmpegCommand(
-                        AudioConvertRequest request,
-                        String inputPath,
-                        String outputPath) {
+                LocalDateTime now = LocalDateTime.now();
 
-                boolean isVideo = false;
-                if (request.fileName() != null && request.fileName().contains(".")) {
-                        String extension = request.fileName().substring(request.fileName().lastIndexOf(".") + 1);
-                        isVideo = extension.matches("(?i)mp4|mkv|avi|mov|flv|webm|wmv|m4v|3gp");
+                // archived processes come back as tombstones so the reaper removes their files too
+                List<byte[]> rawIds = BinaryIds.toBytes(requested);
+                int marked = archivedRepository.restoreAsTombstones(rawIds, userId, now);
+                if (marked > 0) {
+                        archivedRepository.deleteWithChildren(rawIds, userId);
+                        archivedRepository.detachFanOutOutputs(rawIds, userId);
                 }
-                StringBuilder cmd = new StringBuilder();
-
-                cmd.append("-y -i ").append(inputPath)
-                                .append(" -progress pipe:1 ");
-
-                if (isVideo)
-                        cmd.append("-vn ");
 
-                String codec = "libmp3lame";
-                String bitrate = request.bitrate() + "k";
+                // segments and the concat job go with their segmented parent
+                List<UUID> uuids = new ArrayList<>(requested);
+                uuids.addAll(processRepository.findChildIds(requested, userId));
+                detachFanOutOutputs(requested, userId);
 
-                MediaType mediaType = MediaType.valueOf(request.toMediaType());
+                // read before the tombstone hides the rows; no terminal report will free their slots
+                List<UUID> released = processRepository.findReleasedIds(uuids, userId);
+                List<Object[]> statusCounts = processRepository.countByStatusForIds(uuids, userId);
 
-                switch (mediaType) {
-                        case mp3 -> codec = "libmp3lame";
-                        case aac, m4a -> codec = "aac";
-                        case wav -> {
-                                codec = "pcm_s16le";
-                                bitrate = null;
-                        }
-                        case flac -> {
-                                codec = "flac";
-                                bitrate = null;
-                        }
-                        case ogg -> codec = "libvorbis";
+                marked += processRepository.tombstone(uuids, userId, now);
+                if (marked == 0) {
+                        log.warn("No valid processes found for deletion. userId={}", userId);
+                        throw new ProcessNotFoundException("No valid files found");
                 }
 
-                cmd.append("-c:a ").append(codec).append(" ");
-
-                // Only add channel option when needed
-                if (!mediaType.equals(MediaType.wav) && !mediaType.equals(MediaType.flac)) {
-                        cmd.append("-ac ")
-                                        .append(request.channelType().equals("STEREO") ? "2 " : "1 ");
+                outboxRepository.deleteUnsentByProcessIds(uuids, userId);
+                for (UUID id : uuids) {
+                        waitingQueue.remove(id);
+                        dispatcher.remove(id, userId);
                 }
+                for (int i = 0; i < released.size(); i++)
+                        dispatcher.finished(userId);
+                metrics.deleted(statusCounts);
+                processEvents.publishDeleted(userId, requested);
 
-                cmd.append("-ar ").append(request.sampleRate()).append(" ");
-
-                if (bitrate != null) {
-                        cmd.append("-b:a ").append(bitrate).append(" ");
-                }
-
-                cmd.append(outputPath);
-
-                String finalCommand = cmd.toString().trim();
-
-                log.debug("Generated FFmpeg command: {}", finalCommand);
-
-                return finalCommand;
+                log.info("Processes marked for deletion. userId={}, count={}", userId, marked);
         }
 
-        private String buildFfmpegCommand(
-                        VideoConvertRequest request,
-                        String inputPath,
-                        String outputPath) {
-
-                StringBuilder cmd = new StringBuilder();
-
-                cmd.append("-y -i ").append(inputPath).append(" -progress pipe:1 ");
-
-                boolean videoCopy = VideoCodecType.source.name().equalsIgnoreCase(request.videoCodec());
-                boolean audioCopy = AudioCodecType.source.name().equalsIgnoreCase(request.audioCodec());
-
-                // ========================
-                // STREAM MAPPING
-                // ========================
-                cmd.append("-map 0:v:0 -map 0:a? ");
-
-                // ========================
-                // VIDEO SECTION
-                // ========================
-
-                if (videoCopy) {
-                        cmd.append("-c:v copy ");
-                } else {
-
-                        // ---- Select Video Codec ----
-                        String videoCodec = switch (VideoCodecType.valueOf(request.videoCodec())) {
-                                case h264 -> "libx264";
-                                case h265 -> "libx265";
-                                case vp9 -> "libvpx-vp9";
-                                case av1 -> "libaom-av1";
-                                default -> throw new ProcessCreationException("Unsupported video codec", null);
-                        };
-
-                        cmd.append("-c:v ").append(videoCodec).append(" ");
-
-                        // ---- Preset (only for x264/x265) ----
-                        if (videoCodec.equals("libx264") || videoCodec.equals("libx265")) {
-                                if (request.encoderPreset() != null &&
-                                                !request.encoderPreset().equalsIgnoreCase("source")) {
-
-                                        cmd.append("-preset ")
-                                                        .append(request.encoderPreset().toLowerCase())
-                                                        .append(" ");
-                                }
-
-                                // CRF only for x264/x265
-                                if (request.crf() > 0) {
-                                        cmd.append("-crf ").append(request.crf()).append(" ");
-                                }
-                        }
-
-                        // ---- Frame Rate ----
-                        if (request.frameRate() > 0) {
-                                cmd.append("-r ").append(request.frameRate()).append(" ");
-                        }
-
-                        // ---- Resolution ----
-                        if (request.resolution() != null &&
-                                        !request.resolution().equalsIgnoreCase("source")) {
-
-                                String scale = switch (request.resolution().toLowerCase()) {
-                                        case "p144" -> "-2:144";
-                                        case "p240" -> "-2:240";
-                                        case "p360" -> "-2:360";
-                                        case "p480" -> "-2:480";
-                                        case "p720" -> "-2:720";
-                                        case "p1080" -> "-2:1080";
-                                        case "p1440" -> "-2:1440";
-                                        case "p2160" -> "-2:2160";
-                                        default -> throw new IllegalArgumentException("Unsupported resolution");
-                                };
-
-                                cmd.append("-vf scale=").append(scale).append(" ");
-                        }
-
-                        // Pixel format for compatibility
-                        cmd.append("-pix_fmt yuv420p ");
-                }
-
-                // ========================
-                // AUDIO SECTION
-                // ========================
-
-                if (audioCopy) {
-                        cmd.append("-c:a copy ");
-                } else {
-
-                        String audioCodec = switch (request.audioCodec().toLowerCase()) {
-                                case "aac" -> "aac";
-                                case "ac3" -> "ac3";
-                                case "flac" -> "flac";
-                                case "dts" -> "dca";
-                                case "opus" -> "libopus";
-                                default -> throw new IllegalArgumentException("Unsupported audio codec");
-                        };
-
-                        cmd.append("-c:a ").append(audioCodec).append(" ");
-
-                        // Bitrate only for lossy codecs
-                        if (!audioCodec.equals("flac")) {
-                                cmd.append("-b:a 192k ");
-                        }
+        /**
+         * Fan-out outputs whose carrier is deleted stay as standalone processes.
+         * Outputs still waiting on the carrier's job are failed, since the job
+         * and its status reports go away with the carrier.
+         */
+        private void detachFanOutOutputs(List<UUID> deleted, String userId) {
+                List<Process> outputs = processRepository.findByParentIdInAndUserIdAndRole(
+                                deleted, userId, ProcessRole.FANOUT_OUTPUT);
+                List<ProcessStatusUpdate> orphaned = new ArrayList<>();
+                for (Process output : outputs) {
+                        if (deleted.contains(output.getId()))
+                                continue;
+                        output.setParentId(null);
+                        if (!output.getStatus().isTerminal())
+                                orphaned.add(new ProcessStatusUpdate(
+                                                output.getId().toString(), ProcessStatus.FAILED, null, null));
                 }
-
-                // ========================
-                // FASTSTART (For MP4 streaming)
-                // ========================
-                if (request.toMediaType().equalsIgnoreCase("mp4")) {
-                        cmd.append("-movflags +faststart ");
+                if (!orphaned.isEmpty()) {
+                        log.info("Failing fan-out outputs of a deleted carrier. userId={}, count={}",
+                                        userId, orphaned.size());
+                        statusUpdater.apply(orphaned);
                 }
-
-                cmd.append(outputPath);
-
-                String finalCommand = cmd.toString().trim();
-
-                log.debug("Generated FFmpeg command: {}", finalCommand);
-
-                return finalCommand;
         }
 
-        private String buildFfmpegCommand(
-                        GifConvertRequest request,
-                        String inputPath,
-                        String outputPath) {
-
-                StringBuilder cmd = new StringBuilder();
+        // ===================== QUEUE POSITION =====================
 
-                cmd.append("-y ");
-
-                if (request.startTimeSeconds() > 0) {
-                        cmd.append("-ss ").append(request.startTimeSeconds()).append(" ");
+        @Override
+        public QueuePositionResponse getQueuePosition(String processId, String userId) {
+                UUID id = UUID.fromString(processId);
+
+                OptionalInt position = dispatcher.positionOf(id, userId);
+                if (position.isPresent())
+                        return new QueuePositionResponse(processId, ProcessStatus.WAITING, position.getAsInt());
+
+                Optional<Process> found = processRepository.findByIdAndUserId(id, userId);
+                if (found.isEmpty())
+                        // archived processes are finished, so they have no queue position
+                        return archivedRepository.findByIdAndUserId(id, userId)
+                                        .map(archived -> new QueuePositionResponse(processId, archived.getStatus(), 0))
+                                        .orElseThrow(() -> {
+                                                log.warn("Process not found. processId={}", processId);
+                                                return new ProcessNotFoundException("No process found");
+                                        });
+                Process process = found.get();
+
+                if (process.getRole() == ProcessRole.FANOUT_OUTPUT && process.getParentId() != null
+                                && process.getStatus() == ProcessStatus.WAITING) {
+                        OptionalInt carrier = dispatcher.positionOf(process.getParentId(), userId);
+                        if (carrier.isPresent())
+                                return new QueuePositionResponse(processId, ProcessStatus.WAITING, carrier.getAsInt());
                 }
 
-                cmd.append("-i ").append(inputPath).append(" ");
-
-                if (request.durationSeconds() > 0) {
-                        cmd.append("-t ").append(request.durationSeconds()).append(" ");
+                if (process.getRole() == ProcessRole.SEGMENTED && process.getStatus() == ProcessStatus.WAITING) {
+                        OptionalInt first = segmentedEncoding.positionOf(process);
+                        if (first.isPresent())
+                                return new QueuePositionResponse(processId, ProcessStatus.WAITING, first.getAsInt());
                 }
 
-                cmd.append("-progress pipe:1 ");
-
-                int fps = request.fps() > 0 ? request.fps() : 10;
-
-                String scale = "-2:480"; // default
-
-                if (request.resolution() != null &&
-                                !request.resolution().equalsIgnoreCase("source")) {
-
-                        scale = switch (request.resolution().toLowerCase()) {
-                                case "p144" -> "-2:144";
-                                case "p240" -> "-2:240";
-                                case "p360" -> "-2:360";
-                                case "p480" -> "-2:480";
-                                case "p720" -> "-2:720";
-                                case "p1080" -> "-2:1080";
-                                default -> throw new IllegalArgumentException("Unsupported resolution");
-                        };
-                }
-
-                String filter = "fps=" + fps +
-                                ",scale=" + scale +
-                                ":flags=lanczos,split[s0][s1];" +
-                                "[s0]palettegen[p];" +
-                                "[s1][p]paletteuse";
-
-                cmd.append("-filter_complex ").append(filter).append(" ");
-
-                cmd.append("-loop 0 ");
+                // waiting but unknown to this instance's index: report the back of the queue
+                int queueNo = process.getStatus() == ProcessStatus.WAITING ? waitingQueue.size() : 0;
+                return new QueuePositionResponse(processId, process.getStatus(), queueNo);
+        }
 
-                cmd.append(outputPath);
+        // ===================== FETCH ALL =====================
 
-                String finalCommand = cmd.toString().trim();
+        // compatibility wrapper over the paged history, still returns every listed process
+        @Override
+        public List<ProcessResponseDto> getAllProcessOfUser(String userId) {
 
-                log.debug("Generated FFmpeg GIF command: {}", finalCommand);
+                log.debug("Fetching all processes for userId={}", userId);
 
-                return finalCommand;
+                List<ProcessResponseDto> all = new ArrayList<>();
+                String cursor = null;
+                do {
+                        ProcessPage page = getProcessHistory(userId, cursor, maxHistoryPageSize, null, null);
+                        all.addAll(page.items());
+                        cursor = page.nextCursor();
+                } while (cursor != null);
+                return all;
         }
 
-        private String extractFileName(String path) {
-                return Path.of(path).getFileName().toString();
+        @Override
+        public ProcessPage getProcessHistory(
+                        String userId,
+                        String cursor,
+                        Integer limit,
+                        ProcessStatus status,
+                        Boolean isVideo) {
+
+                int pageSize = limit == null ? defaultHistoryPageSize : limit;
+                if (pageSize < 1 || pageSize > maxHistoryPageSize)
+                        throw new InvalidRequestException("limit must be between 1 and " + maxHistoryPageSize);
+
+                HistoryCursor after = cursor == null || cursor.isBlank() ? null : HistoryCursor.decode(cursor);
+                LocalDateTime afterCreatedAt = after == null ? null : after.createdAt();
+                UUID afterId = after == null ? null : after.id();
+
+                // both tables from the same position; one extra row tells whether another page follows
+                List<ProcessSummary> rows = processRepository.findHistoryPage(
+                                userId, status, isVideo, afterCreatedAt, afterId, Limit.of(pageSize + 1));
+
+                // archived processes are older than the archive cutoff, so they cannot precede a full page of newer rows
+                if (rows.size() <= pageSize
+                                || rows.getLast().createdAt().isBefore(LocalDateTime.now().minus(archiveAfter)))
+                        rows = HistoryCursor.merge(rows,
+                                        archivedRepository.findHistoryPage(
+                                                        userId, status, isVideo, afterCreatedAt, afterId,
+                                                        Limit.of(pageSize + 1)),
+                                        pageSize + 1);
+
+                boolean hasMore = rows.size() > pageSize;
+                List<ProcessSummary> page = hasMore ? rows.subList(0, pageSize) : rows;
+                ProcessSummary last = page.isEmpty() ? null : page.getLast();
+
+                return new ProcessPage(
+                                page.stream().map(ProcessSummary::toResponseDto).toList(),
+                                hasMore ? new HistoryCursor(last.createdAt(), last.id()).encode() : null);
         }
 
-        private String buildOrderedMergeCommand(
-                        MergeConvertRequest request,
-                        String outputPath) {
-
-                StringBuilder cmd = new StringBuilder();
-                cmd.append("-y ");
-
-                List<OrderedMedia> media = request.mediaFiles();
-
-                int inputIndex = 0;
-
-                // =========================
-                // ADD INPUTS
-                // =========================
-                for (OrderedMedia file : media) {
-                        cmd.append("-i ").append(file.storageId()).append(" ");
-                        inputIndex++;
-                }
-
-                cmd.append("-progress pipe:1 ");
-
-                int resolution = request.resolutionHeight() > 0
-                                ? request.resolutionHeight()
-                                : 720;
-
-                StringBuilder filter = new StringBuilder();
-
-                // =========================
-                // NORMALIZE SEGMENTS
-                // =========================
-                for (int i = 0; i < media.size(); i++) {
+        // ===================== PROGRESS =====================
 
-                        OrderedMedia file = media.get(i);
-
-                        if (file.type().equalsIgnoreCase("video")) {
-
-                                filter.append("[")
-                                                .append(i)
-                                                .append(":v:0]scale=-2:")
-                                                .append(resolution)
-                                                .append(":flags=lanczos[v")
-                                                .append(i)
-                                                .append("];");
-
-                                filter.append("[")
-                                                .append(i)
-                                                .append(":a:0]aformat=sample_fmts=fltp:sample_rates=44100:channel_layouts=stereo[a")
-                                                .append(i)
-                                                .append("];");
-
-                        } else {
-
-                                // AUDIO → generate black screen video
-                                filter.append("color=c=black:s=1280x")
-                                                .append(resolution)
-                                                .append(":r=30:d=10[v")
-                                                .append(i)
-                                                .append("];");
-
-                                filter.append("[")
-                                                .append(i)
-                                                .append(":a:0]aformat=sample_fmts=fltp:sample_rates=44100:channel_layouts=stereo[a")
-                                                .append(i)
-                                                .append("];");
-                        }
-                }
-
-                // =========================
-                // CONCAT IN ORDER
-                // =========================
-                for (int i = 0; i < media.size(); i++) {
-                        filter.append("[v").append(i).append("][a").append(i).append("]");
-                }
-
-                filter.append("concat=n=")
-                                .append(media.size())
-                                .append(":v=1:a=1[vout][aout]");
-
-                cmd.append("-filter_complex ").append(filter).append(" ");
-                cmd.append("-map [vout] -map [aout] ");
-
-                cmd.append("-c:v ").append(request.videoCodec()).append(" ");
-                cmd.append("-c:a ").append(request.audioCodec()).append(" ");
-                cmd.append("-pix_fmt yuv420p ");
+        @Override
+        public ProcessDetailDto getProcessDetail(String processId, String userId) {
+                UUID id = UUID.fromString(processId);
+                Optional<Process> found = processRepository.findByIdAndUserId(id, userId);
+                if (found.isEmpty())
+                        return archivedRepository.findByIdAndUserId(id, userId)
+                                        .map(ProcessServiceImpl::archivedDetail)
+                                        .orElseThrow(() -> {
+                                                log.warn("Process not found. processId={}", processId);
+                                                return new ProcessNotFoundException("No process found");
+                                        });
+                Process process = found.get();
+
+                // live value from this instance, else the last flushed one
+                return progressTracker.live(process.getId())
+                                .map(live -> new ProcessDetailDto(
+                                                ProcessResponseDto.from(process),
+                                                live.percent(),
+                                                live.etaSeconds(),
+                                                live.frame(),
+                                                live.speed(),
+                                                live.updatedAt()))
+                                .orElseGet(() -> new ProcessDetailDto(
+                                                ProcessResponseDto.from(process),
+                                                process.getProgressPercent(),
+                                                process.getEtaSeconds(),
+                                                null,
+                                                null,
+                                                process.getProgressUpdatedAt()));
+        }
 
-                if (request.toMediaType().equalsIgnoreCase("mp4")) {
-                        cmd.append("-movflags +faststart ");
-                }
+        @Override
+        public void recordProgress(List<ProgressReport> reports) {
+                progressTracker.record(reports);
+        }
 
-                cmd.append(outputPath);
+        @Override
+        public void renewLeases(List<LeaseHeartbeat> heartbeats) {
+                leaseManager.renew(heartbeats);
+        }
 
-                String finalCommand = cmd.toString().trim();
+        // archived processes are finished, their stored progress is final
+        private static ProcessDetailDto archivedDetail(ArchivedProcess archived) {
+                ProcessSummary summary = new ProcessSummary(
+                                archived.getId(),
+                                archived.getFileName(),
+                                archived.getDuration(),
+                                archived.getFinalFileSize(),
+                                archived.isVideo(),
+                                archived.getStorageIdOutput(),
+                                archived.getStatus(),
+                                archived.getCreatedAt());
+                return new ProcessDetailDto(
+                                summary.toResponseDto(),
+                                archived.getProgressPercent(),
+                                archived.getEtaSeconds(),
+                                null,
+                                null,
+                                archived.getProgressUpdatedAt());
+        }
 
-                log.debug("Generated ordered merge command: {}", finalCommand);
+        // ===================== HELPERS =====================
 
-                return finalCommand;
+        private String extractFileName(String path) {
+                return Path.of(path).getFileName().toString();
         }
 
-        private static ProcessResponseDto mapToResponseDto(Process p) {
-                return new ProcessResponseDto(
-                                p.getFileName(),
-                                p.getDuration(),
-                                p.getFinalFileSize(),
-                                p.isVideo(),
-                                p.getId().toString(),
-                                p.getStorageIdOutput(),
-                                p.getStatus(),
-                                p.getCreatedAt());
+        static ProcessDto mapToDto(Process process, Map<String, String> storageInputDetails, String outputPath,
+                        String fileName, List<String> commandArgs) {
+                return mapToDto(process, storageInputDetails, outputPath, fileName, commandArgs, null);
         }
 
-        private ProcessDto mapToDto(Process process, Map<String, String> storageInputDetails, String outputPath,
-                        String fileName) {
+        static ProcessDto mapToDto(Process process, Map<String, String> storageInputDetails, String outputPath,
+                        String fileName, List<String> commandArgs, Map<String, String> fanOutOutputs) {
                 return new ProcessDto(
                                 process.getId(),
                                 storageInputDetails,
@@ -929,6 +1582,8 @@ public class ProcessServiceImpl implements ProcessService {
                                 fileName,
                                 process.getFinalFileSize(),
                                 process.getCommand(),
+                                commandArgs,
+                                fanOutOutputs,
                                 process.getStatus(),
                                 process.getUserId(),
                                 process.getCreatedAt());
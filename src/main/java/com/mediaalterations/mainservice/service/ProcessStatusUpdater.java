@@ -0,0 +1,213 @@
+package com.mediaalterations.mainservice.service;
+
+import com.mediaalterations.mainservice.dto.ProcessStatusUpdate;
+import com.mediaalterations.mainservice.entity.Process;
+import com.mediaalterations.mainservice.entity.ProcessRole;
+import com.mediaalterations.mainservice.entity.ProcessStatus;
+import com.mediaalterations.mainservice.events.ProcessEventHub;
+import com.mediaalterations.mainservice.messaging.WorkerLanes;
+import com.mediaalterations.mainservice.queue.FairShareDispatcher;
+import com.mediaalterations.mainservice.queue.WaitingQueueIndex;
+import com.mediaalterations.mainservice.repository.ProcessRepository;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Applies worker status reports in batches. The batch's rows are locked in
+ * one query and each report is checked against the status state machine in
+ * arrival order, and for dispatched processes against the current attempt
+ * (see {@link ProcessLeaseManager}). Accepted changes are written with one
+ * conditional UPDATE per target status and attempt, whose WHERE clause only
+ * matches rows that may still move to that status. Queue bookkeeping,
+ * roll-ups and events then run on the reloaded rows.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ProcessStatusUpdater {
+
+    private final ProcessRepository processRepository;
+    private final EntityManager entityManager;
+    private final WaitingQueueIndex waitingQueue;
+    private final FairShareDispatcher dispatcher;
+    private final WorkerLanes workerLanes;
+    private final SegmentedEncodingService segmentedEncoding;
+    private final ProcessEventHub processEvents;
+    private final ProgressTracker progressTracker;
+    private final ProcessMetrics metrics;
+
+    /**
+     * @return ids of the processes that exist; reports for unknown or
+     *         malformed ids are dropped
+     */
+    @Transactional
+    public Set<UUID> apply(List<ProcessStatusUpdate> updates) {
+        return applyBatch(updates).found();
+    }
+
+    public enum Outcome {
+        APPLIED,
+        // a move the state machine does not allow, or a report of an earlier attempt
+        REJECTED,
+        NOT_FOUND
+    }
+
+    // a single report whose caller answers for it, i.e. PUT /process/updateStatus
+    @Transactional
+    public Outcome apply(ProcessStatusUpdate update) {
+        BatchResult result = applyBatch(List.of(update));
+        if (result.found().isEmpty())
+            return Outcome.NOT_FOUND;
+        return result.changed().isEmpty() ? Outcome.REJECTED : Outcome.APPLIED;
+    }
+
+    private record BatchResult(Set<UUID> found, Set<UUID> changed) {
+    }
+
+    private BatchResult applyBatch(List<ProcessStatusUpdate> updates) {
+        List<UUID> ids = updates.stream()
+                .map(update -> parseId(update.processId()))
+                .filter(Objects::nonNull)
+                .distinct()
+                .toList();
+        if (ids.isEmpty())
+            return new BatchResult(Set.of(), Set.of());
+
+        Map<UUID, ProcessStatus> previous = new HashMap<>();
+        // attempt a report must carry, for processes that run as their own job
+        Map<UUID, Integer> fences = new HashMap<>();
+        List<Process> locked = processRepository.findAllByIdForUpdate(ids);
+        for (Process process : locked) {
+            previous.put(process.getId(), process.getStatus());
+            if (process.getRole() == null || process.getRole().isDispatched())
+                fences.put(process.getId(), ProcessLeaseManager.attemptOf(process.getReclaimCount()));
+        }
+
+        // the last report each process may accept, walking the state machine in arrival order
+        Map<UUID, ProcessStatus> current = new HashMap<>(previous);
+        Map<UUID, ProcessStatusUpdate> accepted = new LinkedHashMap<>();
+        for (ProcessStatusUpdate update : updates) {
+            UUID id = parseId(update.processId());
+            ProcessStatus status = id == null ? null : current.get(id);
+            if (status == null || update.status() == null)
+                continue;
+            Integer fence = fences.get(id);
+            if (fence != null && fence != ProcessLeaseManager.attemptOf(update.attempt())) {
+                log.debug("Ignoring report of a reclaimed run. processId={}, attempt={}, current={}",
+                        id, update.attempt(), fence);
+                continue;
+            }
+            if (!status.canMoveTo(update.status())) {
+                log.debug("Ignoring stale status update. processId={}, current={}, reported={}",
+                        id, status, update.status());
+                continue;
+            }
+            current.put(id, update.status());
+            accepted.put(id, update);
+        }
+
+        if (!accepted.isEmpty()) {
+            write(accepted, fences);
+            locked.forEach(entityManager::detach);
+            for (Process process : processRepository.findAllById(accepted.keySet()))
+                afterStatusChange(process, previous.get(process.getId()));
+        }
+
+        log.debug("Status batch applied. reports={}, processes={}, changed={}",
+                updates.size(), previous.size(), accepted.size());
+        return new BatchResult(previous.keySet(), accepted.keySet());
+    }
+
+    private record Target(ProcessStatus status, Integer attempt) {
+    }
+
+    private void write(Map<UUID, ProcessStatusUpdate> accepted, Map<UUID, Integer> fences) {
+        entityManager.flush();
+
+        Map<Target, List<ProcessStatusUpdate>> byTarget = new LinkedHashMap<>();
+        accepted.forEach((id, update) -> byTarget
+                .computeIfAbsent(new Target(update.status(), fences.get(id)), target -> new ArrayList<>())
+                .add(update));
+
+        byTarget.forEach((target, group) -> {
+            String condition = "p.status IN :from";
+            Map<String, Object> params = new HashMap<>(Map.of("from", target.status().predecessors()));
+            if (target.attempt() != null) {
+                condition += " AND " + ProcessLeaseManager.ATTEMPT_CONDITION;
+                params.put("attempt", target.attempt());
+            }
+            // the lease is started by the worker's first heartbeat, not by its PROCESSING report
+            int updated = new ProcessRowUpdate<>(group, report -> UUID.fromString(report.processId()))
+                    .set("status", target.status())
+                    .setPerRow("finalFileSize", ProcessStatusUpdate::fileSize)
+                    .setPerRow("duration", ProcessStatusUpdate::fileDuration)
+                    .execute(entityManager, condition, params);
+
+            if (updated < group.size())
+                log.warn("Status rows changed concurrently. status={}, expected={}, updated={}",
+                        target.status(), group.size(), updated);
+        });
+    }
+
+    private void afterStatusChange(Process process, ProcessStatus previous) {
+        ProcessStatus status = process.getStatus();
+        metrics.statusChanged(process, previous);
+        // fan-out outputs share their parent's job and hold no queue slot of their own
+        boolean dispatched = process.getRole() == null || process.getRole().isDispatched();
+
+        if (dispatched) {
+            if (previous == ProcessStatus.WAITING && process.getCreatedAt() != null)
+                workerLanes.recordWait(process.getCostClass(),
+                        Duration.between(process.getCreatedAt(), LocalDateTime.now()));
+            waitingQueue.remove(process.getId());
+            if (!previous.isTerminal() && status.isTerminal())
+                dispatcher.finished(process.getUserId());
+        }
+
+        if (status.isTerminal())
+            progressTracker.finish(process);
+
+        if (process.getRole() == ProcessRole.SEGMENT || process.getRole() == ProcessRole.CONCAT)
+            segmentedEncoding.onChildStatus(process, previous);
+        else if (process.getRole() == ProcessRole.FANOUT)
+            mirrorToFanOutOutputs(process);
+        processEvents.publish(process);
+    }
+
+    // outputs the worker reported on individually keep their own terminal status and size
+    private void mirrorToFanOutOutputs(Process carrier) {
+        for (Process output : processRepository.findByParentId(carrier.getId())) {
+            ProcessStatus previous = output.getStatus();
+            if (!previous.canMoveTo(carrier.getStatus()))
+                continue;
+            output.setStatus(carrier.getStatus());
+            if (carrier.getStatus() == ProcessStatus.COMPLETED)
+                output.setDuration(carrier.getDuration());
+            metrics.statusChanged(output, previous);
+            processEvents.publish(output);
+        }
+    }
+
+    private static UUID parseId(String processId) {
+        try {
+            return processId == null ? null : UUID.fromString(processId);
+        } catch (IllegalArgumentException e) {
+            log.warn("Status update with malformed process id. processId={}", processId);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package com.mediaalterations.mainservice.service;
+
+import com.mediaalterations.mainservice.dto.ProgressReport;
+import com.mediaalterations.mainservice.entity.Process;
+import com.mediaalterations.mainservice.entity.ProcessStatus;
+import com.mediaalterations.mainservice.queue.JobCostEstimator;
+import com.mediaalterations.mainservice.repository.ProcessRepository;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the latest progress tick of every running job in memory and derives
+ * percent complete and ETA from the process duration. Ticks only replace the
+ * in-memory value; changed values are written to the process rows in bulk
+ * every flush interval, and the final value is written with the terminal
+ * status. Only the first tick of a job reads the database.
+ */
+@Component
+@Slf4j
+public class ProgressTracker {
+
+    // a job is never reported as done before its terminal status arrives
+    private static final double MAX_RUNNING_PERCENT = 99.9;
+
+    public record Progress(
+            Double percent,
+            Double etaSeconds,
+            long frame,
+            double speed,
+            LocalDateTime updatedAt) {
+    }
+
+    private static final class Entry {
+        final double durationSeconds;
+        volatile Progress latest;
+        volatile boolean dirty;
+        // finished jobs stay as closed entries so late ticks are dropped without a lookup
+        volatile boolean closed;
+        volatile long touchedNanos = System.nanoTime();
+
+        Entry(double durationSeconds) {
+            this.durationSeconds = durationSeconds;
+        }
+    }
+
+    private final ProcessRepository processRepository;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final int flushBatchSize;
+    private final Duration staleAfter;
+
+    private final Map<UUID, Entry> entries = new ConcurrentHashMap<>();
+
+    public ProgressTracker(
+            ProcessRepository processRepository,
+            EntityManager entityManager,
+            TransactionTemplate transactionTemplate,
+            @Value("${process.progress.flush-batch-size:200}") int flushBatchSize,
+            @Value("${process.progress.stale-after:10m}") Duration staleAfter) {
+        this.processRepository = processRepository;
+        this.entityManager = entityManager;
+        this.transactionTemplate = transactionTemplate;
+        this.flushBatchSize = flushBatchSize;
+        this.staleAfter = staleAfter;
+    }
+
+    public void record(List<ProgressReport> reports) {
+        Map<UUID, ProgressReport> latest = new LinkedHashMap<>();
+        for (ProgressReport report : reports) {
+            UUID id = parseId(report.processId());
+            if (id != null)
+                latest.put(id, report);
+        }
+        if (latest.isEmpty())
+            return;
+
+        List<UUID> unknown = latest.keySet().stream().filter(id -> !entries.containsKey(id)).toList();
+        if (!unknown.isEmpty())
+            follow(unknown);
+
+        LocalDateTime now = LocalDateTime.now();
+        latest.forEach((id, report) -> {
+            Entry entry = entries.get(id);
+            if (entry == null || entry.closed)
+                return;
+            entry.latest = compute(entry.durationSeconds, report, now);
+            entry.dirty = true;
+            entry.touchedNanos = System.nanoTime();
+        });
+    }
+
+    public Optional<Progress> live(UUID processId) {
+        Entry entry = entries.get(processId);
+        return entry == null || entry.closed ? Optional.empty() : Optional.ofNullable(entry.latest);
+    }
+
+    /**
+     * Copies the final progress onto a process that just reached a terminal
+     * status; the caller's transaction writes it with the status.
+     */
+    public void finish(Process process) {
+        Entry entry = entries.computeIfAbsent(process.getId(), id -> new Entry(0));
+        entry.closed = true;
+        entry.dirty = false;
+        entry.touchedNanos = System.nanoTime();
+
+        Progress last = entry.latest;
+        if (process.getStatus() == ProcessStatus.COMPLETED) {
+            process.setProgressPercent(100.0);
+            process.setEtaSeconds(0.0);
+        } else if (last != null) {
+            process.setProgressPercent(last.percent());
+            process.setEtaSeconds(null);
+        }
+        process.setProgressUpdatedAt(LocalDateTime.now());
+    }
+
+    @Scheduled(fixedDelayString = "${process.progress.flush-interval-ms:5000}")
+    public void flush() {
+        List<Map.Entry<UUID, Progress>> changed = new ArrayList<>();
+        long staleBefore = System.nanoTime() - staleAfter.toNanos();
+
+        for (Map.Entry<UUID, Entry> e : entries.entrySet()) {
+            Entry entry = e.getValue();
+            if (entry.touchedNanos < staleBefore) {
+                // worker went away without a terminal status, or a closed entry aged out
+                entries.remove(e.getKey(), entry);
+                continue;
+            }
+            if (entry.dirty && !entry.closed) {
+                entry.dirty = false;
+                changed.add(Map.entry(e.getKey(), entry.latest));
+            }
+        }
+
+        for (int from = 0; from < changed.size(); from += flushBatchSize) {
+            List<Map.Entry<UUID, Progress>> chunk = changed.subList(from, Math.min(changed.size(), from + flushBatchSize));
+            try {
+                transactionTemplate.executeWithoutResult(tx -> new ProcessRowUpdate<>(chunk, Map.Entry::getKey)
+                        .setPerRow("progressPercent", row -> row.getValue().percent())
+                        .setPerRow("etaSeconds", row -> row.getValue().etaSeconds())
+                        .setPerRow("progressUpdatedAt", row -> row.getValue().updatedAt())
+                        // finished rows already carry their final progress
+                        .execute(entityManager, "p.status IN :running",
+                                Map.of("running", List.of(ProcessStatus.WAITING, ProcessStatus.PROCESSING))));
+            } catch (RuntimeException ex) {
+                log.warn("Progress flush failed, retrying next interval. rows={}", chunk.size(), ex);
+                chunk.forEach(row -> {
+                    Entry entry = entries.get(row.getKey());
+                    if (entry != null)
+                        entry.dirty = true;
+                });
+            }
+        }
+
+        if (!changed.isEmpty())
+            log.debug("Progress flushed. rows={}, tracked={}", changed.size(), entries.size());
+    }
+
+    int trackedCount() {
+        return entries.size();
+    }
+
+    static Progress compute(double durationSeconds, ProgressReport report, LocalDateTime at) {
+        double outSeconds = Math.max(0, report.outTimeUs() / 1_000_000.0);
+        if (durationSeconds <= 0)
+            return new Progress(null, null, report.frame(), report.speed(), at);
+
+        double percent = Math.min(MAX_RUNNING_PERCENT, outSeconds / durationSeconds * 100);
+        Double eta = report.speed() > 0 ? Math.max(0, (durationSeconds - outSeconds) / report.speed()) : null;
+        return new Progress(percent, eta, report.frame(), report.speed(), at);
+    }
+
+    // one query for every job first seen in a batch of ticks
+    private void follow(List<UUID> ids) {
+        for (Object[] row : processRepository.findProgressTargets(ids)) {
+            Entry entry = new Entry(JobCostEstimator.parseSeconds((String) row[1]));
+            entry.closed = ((ProcessStatus) row[2]).isTerminal();
+            entries.putIfAbsent((UUID) row[0], entry);
+        }
+        // deleted or unknown processes
+        for (UUID id : ids) {
+            Entry missing = new Entry(0);
+            missing.closed = true;
+            entries.putIfAbsent(id, missing);
+        }
+    }
+
+    private static UUID parseId(String processId) {
+        try {
+            return processId == null ? null : UUID.fromString(processId);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
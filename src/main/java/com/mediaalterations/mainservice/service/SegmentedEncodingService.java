@@ -0,0 +1,395 @@
+package com.mediaalterations.mainservice.service;
+
+import com.mediaalterations.mainservice.cache.StoragePathCache;
+import com.mediaalterations.mainservice.command.EnumLookup;
+import com.mediaalterations.mainservice.command.FfmpegCommand;
+import com.mediaalterations.mainservice.command.FfmpegCommandCompiler;
+import com.mediaalterations.mainservice.command.SegmentPlanner;
+import com.mediaalterations.mainservice.command.VideoSegment;
+import com.mediaalterations.mainservice.dto.AudioCodecType;
+import com.mediaalterations.mainservice.dto.MediaType;
+import com.mediaalterations.mainservice.dto.OutputPathResponse;
+import com.mediaalterations.mainservice.dto.ProcessDto;
+import com.mediaalterations.mainservice.dto.VideoCodecType;
+import com.mediaalterations.mainservice.dto.VideoConvertRequest;
+import com.mediaalterations.mainservice.entity.Process;
+import com.mediaalterations.mainservice.entity.ProcessRole;
+import com.mediaalterations.mainservice.entity.ProcessStatus;
+import com.mediaalterations.mainservice.events.ProcessEventHub;
+import com.mediaalterations.mainservice.exceptions.ExternalServiceException;
+import com.mediaalterations.mainservice.feignClients.StorageCalls;
+import com.mediaalterations.mainservice.feignClients.StorageClient;
+import com.mediaalterations.mainservice.messaging.ProcessEventOutbox;
+import com.mediaalterations.mainservice.queue.FairShareDispatcher;
+import com.mediaalterations.mainservice.queue.JobCost;
+import com.mediaalterations.mainservice.queue.JobCostEstimator;
+import com.mediaalterations.mainservice.queue.WaitingQueueIndex;
+import com.mediaalterations.mainservice.repository.OutboxRepository;
+import com.mediaalterations.mainservice.repository.ProcessRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Splits long video encodes into time-range segments that run on different
+ * workers in parallel.
+ * <p>
+ * The user sees one {@link ProcessRole#SEGMENTED} parent. It is never
+ * dispatched itself. Each {@link ProcessRole#SEGMENT} child encodes its range
+ * to MPEG-TS. A {@link ProcessRole#CONCAT} child is prepared up front with a
+ * held outbox event and released once every segment has completed; it
+ * stream-copies the segments into the parent's output. Child status updates
+ * roll up into the parent through {@link #onChildStatus}.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SegmentedEncodingService {
+
+    // codecs that can be carried in MPEG-TS and joined with the concat protocol
+    private static final Set<VideoCodecType> VIDEO_CODECS = EnumSet.of(VideoCodecType.h264, VideoCodecType.h265);
+    private static final Set<AudioCodecType> AUDIO_CODECS = EnumSet.of(AudioCodecType.aac, AudioCodecType.ac3);
+    private static final Set<MediaType> CONTAINERS = EnumSet.of(MediaType.mp4, MediaType.mkv, MediaType.mov);
+    private static final String SEGMENT_FILE_TYPE = "ts";
+
+    private final ProcessRepository processRepository;
+    private final OutboxRepository outboxRepository;
+    private final ProcessEventOutbox processOutbox;
+    private final StorageClient storageClient;
+    private final StorageCalls storageCalls;
+    private final StoragePathCache storagePaths;
+    private final FfmpegCommandCompiler commandCompiler;
+    private final JobCostEstimator costEstimator;
+    private final FairShareDispatcher dispatcher;
+    private final WaitingQueueIndex waitingQueue;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService virtualExecutor;
+    private final ProcessEventHub processEvents;
+    private final ProcessMetrics metrics;
+    private final GeneratedOutputs generatedOutputs;
+
+    @Value("${process.segmented.enabled:true}")
+    private boolean enabled;
+
+    @Value("${process.segmented.min-duration-seconds:1200}")
+    private double minDurationSeconds;
+
+    @Value("${process.segmented.segment-seconds:300}")
+    private double segmentSeconds;
+
+    @Value("${process.segmented.max-segments:16}")
+    private int maxSegments;
+
+    @Value("${process.segmented.gop-seconds:2}")
+    private double gopSeconds;
+
+    public boolean supports(VideoConvertRequest request) {
+        return enabled
+                && JobCostEstimator.parseSeconds(request.duration()) >= minDurationSeconds
+                && EnumLookup.find(VideoCodecType.class, request.videoCodec()).filter(VIDEO_CODECS::contains).isPresent()
+                && EnumLookup.find(AudioCodecType.class, request.audioCodec()).filter(AUDIO_CODECS::contains).isPresent()
+                && EnumLookup.find(MediaType.class, request.toMediaType()).filter(CONTAINERS::contains).isPresent();
+    }
+
+    /**
+     * Persists the parent with all of its children and hands the segments to
+     * the dispatcher. Expects a request already validated and accepted by
+     * {@link #supports}.
+     */
+    public Process create(VideoConvertRequest request, String resultKey, String userId)
+            throws InterruptedException, ExecutionException {
+
+        List<VideoSegment> plan = SegmentPlanner.plan(
+                JobCostEstimator.parseSeconds(request.duration()), segmentSeconds, gopSeconds, maxSegments);
+
+        log.info("Creating segmented process. userId={}, storageId={}, segments={}",
+                userId, request.storageId(), plan.size());
+
+        Future<String> inputFuture = virtualExecutor
+                .submit(() -> storagePaths.getPath(request.storageId(), userId));
+        CompletableFuture<ResponseEntity<OutputPathResponse>> finalFuture = storageCalls
+                .submit(StorageCalls.GENERATE_OUTPUT_PATH, () -> storageClient.generateOutputPath(
+                        request.fileName(), "video", request.duration(), request.toMediaType(), userId));
+        List<CompletableFuture<ResponseEntity<OutputPathResponse>>> segmentFutures = new ArrayList<>();
+        for (VideoSegment segment : plan) {
+            segmentFutures.add(storageCalls.submit(StorageCalls.GENERATE_OUTPUT_PATH,
+                    () -> storageClient.generateOutputPath(
+                            request.fileName(), "video", segmentDuration(request, segment), SEGMENT_FILE_TYPE,
+                            userId)));
+        }
+
+        List<CompletableFuture<ResponseEntity<OutputPathResponse>>> outputFutures = new ArrayList<>(segmentFutures);
+        outputFutures.add(finalFuture);
+
+        String inputPath = generatedOutputs.inputOrDiscard(inputFuture, outputFutures, userId);
+        OutputPathResponse finalOutput;
+        List<OutputPathResponse> segmentOutputs = new ArrayList<>();
+        try {
+            finalOutput = body(finalFuture.get());
+            for (CompletableFuture<ResponseEntity<OutputPathResponse>> future : segmentFutures)
+                segmentOutputs.add(body(future.get()));
+        } catch (InterruptedException | ExecutionException | RuntimeException e) {
+            // one failed generate call would leave the paths of all the others behind
+            generatedOutputs.discard(outputFutures, userId);
+            throw e;
+        }
+
+        Process parent = newProcess(request, finalOutput, userId,
+                commandCompiler.compile(request, inputPath, finalOutput.path()), request.duration());
+        parent.setRole(ProcessRole.SEGMENTED);
+        parent.setChildCount(plan.size());
+        parent.setChildrenCompleted(0);
+        parent.setResultKey(resultKey);
+
+        List<Process> segments = new ArrayList<>();
+        List<FfmpegCommand> segmentCommands = new ArrayList<>();
+        List<JobCost> segmentCosts = new ArrayList<>();
+        Map<String, String> segmentInputs = new LinkedHashMap<>();
+        for (VideoSegment segment : plan) {
+            OutputPathResponse output = segmentOutputs.get(segment.index());
+            FfmpegCommand command = commandCompiler.compileSegment(
+                    request, inputPath, output.path(), segment, gopSeconds);
+            VideoConvertRequest ranged = withDuration(request, segmentDuration(request, segment));
+            JobCost cost = costEstimator.estimate(ranged);
+
+            Process child = newProcess(request, output, userId, command, ranged.duration());
+            child.setRole(ProcessRole.SEGMENT);
+            child.setChildIndex(segment.index());
+            child.setCostClass(cost.costClass());
+
+            segments.add(child);
+            segmentCommands.add(command);
+            segmentCosts.add(cost);
+            segmentInputs.put(output.storageId(), output.path());
+        }
+
+        FfmpegCommand concatCommand = commandCompiler.compileConcat(
+                List.copyOf(segmentInputs.values()), finalOutput.path(), request);
+        JobCost concatCost = costEstimator.estimateRemux(request.duration());
+        Process concat = newProcess(request, finalOutput, userId, concatCommand, request.duration());
+        concat.setRole(ProcessRole.CONCAT);
+        concat.setChildIndex(plan.size());
+        concat.setCostClass(concatCost.costClass());
+
+        return transactionTemplate.execute(tx -> {
+            Process saved = processRepository.saveAndFlush(parent);
+            for (Process child : segments)
+                child.setParentId(saved.getId());
+            concat.setParentId(saved.getId());
+
+            List<Process> savedSegments = processRepository.saveAll(segments);
+            Process savedConcat = processRepository.save(concat);
+
+            for (int i = 0; i < savedSegments.size(); i++) {
+                processOutbox.enqueueProcessCreated(toDto(savedSegments.get(i),
+                        Map.of(request.storageId(), inputPath), segmentOutputs.get(i).path(),
+                        segmentCommands.get(i)), segmentCosts.get(i));
+            }
+            processOutbox.holdProcessCreated(
+                    toDto(savedConcat, segmentInputs, finalOutput.path(), concatCommand), concatCost);
+            processEvents.publish(saved);
+
+            List<Process> created = new ArrayList<>(savedSegments);
+            created.add(saved);
+            created.add(savedConcat);
+            metrics.entered(created);
+            return saved;
+        });
+    }
+
+    /**
+     * Rolls a child's status change up into its parent. Runs in the caller's
+     * transaction and locks the parent row, so concurrent segment completions
+     * count exactly once and release the concat job exactly once.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void onChildStatus(Process child, ProcessStatus previous) {
+        if (child.getStatus() == previous)
+            return;
+
+        Process parent = processRepository.findByIdForUpdate(child.getParentId()).orElse(null);
+        if (parent == null || isTerminal(parent.getStatus()))
+            return;
+
+        ProcessStatus parentBefore = parent.getStatus();
+        switch (child.getStatus()) {
+            case WAITING -> {
+            }
+            case PROCESSING -> {
+                if (parent.getStatus() == ProcessStatus.WAITING)
+                    parent.setStatus(ProcessStatus.PROCESSING);
+            }
+            case FAILED -> failParent(parent, child);
+            case COMPLETED -> {
+                // a batch of status reports may take a child straight from WAITING to COMPLETED
+                if (parent.getStatus() == ProcessStatus.WAITING)
+                    parent.setStatus(ProcessStatus.PROCESSING);
+                if (child.getRole() == ProcessRole.SEGMENT)
+                    segmentCompleted(parent);
+                else if (child.getRole() == ProcessRole.CONCAT)
+                    concatCompleted(parent, child);
+            }
+        }
+        if (parent.getStatus() != parentBefore) {
+            metrics.statusChanged(parent, parentBefore);
+            processEvents.publish(parent);
+        }
+    }
+
+    // a segmented parent is waiting as long as its earliest child is
+    public OptionalInt positionOf(Process parent) {
+        return processRepository.findByParentId(parent.getId()).stream()
+                .filter(child -> child.getStatus() == ProcessStatus.WAITING)
+                .map(child -> dispatcher.positionOf(child.getId(), child.getUserId()))
+                .filter(OptionalInt::isPresent)
+                .mapToInt(OptionalInt::getAsInt)
+                .min();
+    }
+
+    private void segmentCompleted(Process parent) {
+        int completed = parent.getChildrenCompleted() == null ? 1 : parent.getChildrenCompleted() + 1;
+        parent.setChildrenCompleted(completed);
+        if (completed < parent.getChildCount())
+            return;
+
+        processRepository.findFirstByParentIdAndRole(parent.getId(), ProcessRole.CONCAT)
+                .ifPresent(concat -> processOutbox.release(concat.getId()));
+        log.info("All segments completed, concat released. processId={}", parent.getId());
+    }
+
+    private void concatCompleted(Process parent, Process concat) {
+        parent.setStatus(ProcessStatus.COMPLETED);
+        parent.setFinalFileSize(concat.getFinalFileSize());
+        parent.setDuration(concat.getDuration());
+
+        // segments are intermediate; ProcessReaper removes their files and rows
+        List<UUID> segments = processRepository.findByParentId(parent.getId()).stream()
+                .filter(child -> child.getRole() == ProcessRole.SEGMENT)
+                .map(Process::getId)
+                .toList();
+        if (!segments.isEmpty())
+            processRepository.tombstone(segments, parent.getUserId(), LocalDateTime.now());
+
+        log.info("Segmented process completed. processId={}, segments={}", parent.getId(), segments.size());
+    }
+
+    // running segments are left to finish; their files go when the user deletes the parent
+    private void failParent(Process parent, Process child) {
+        parent.setStatus(ProcessStatus.FAILED);
+        List<Process> waiting = processRepository.findByParentId(parent.getId()).stream()
+                .filter(sibling -> sibling.getStatus() == ProcessStatus.WAITING)
+                .toList();
+        if (!waiting.isEmpty())
+            cancelWaiting(waiting, parent.getUserId());
+        log.warn("Segmented process failed. processId={}, failedChildId={}, cancelled={}",
+                parent.getId(), child.getId(), waiting.size());
+    }
+
+    // the held concat and the segments not yet encoding; none of their output can be used any more
+    private void cancelWaiting(List<Process> children, String userId) {
+        List<UUID> ids = children.stream().map(Process::getId).toList();
+        // read before the outbox rows go; a worker's report on a cancelled job is rejected and never frees its slot
+        List<UUID> released = processRepository.findReleasedIds(ids, userId);
+
+        outboxRepository.deleteUnsentByProcessIds(ids, userId);
+        for (Process child : children) {
+            dispatcher.remove(child.getId(), userId);
+            waitingQueue.remove(child.getId());
+            child.setStatus(ProcessStatus.FAILED);
+            metrics.statusChanged(child, ProcessStatus.WAITING);
+        }
+        for (int i = 0; i < released.size(); i++)
+            dispatcher.finished(userId);
+    }
+
+    private static boolean isTerminal(ProcessStatus status) {
+        return status == ProcessStatus.COMPLETED || status == ProcessStatus.FAILED;
+    }
+
+    private static OutputPathResponse body(ResponseEntity<OutputPathResponse> response) {
+        if (response.getStatusCode().isError() || response.getBody() == null) {
+            log.error("Storage service error during segmented process creation.");
+            throw new ExternalServiceException("Storage service failure");
+        }
+        return response.getBody();
+    }
+
+    private static String segmentDuration(VideoConvertRequest request, VideoSegment segment) {
+        double seconds = segment.last()
+                ? JobCostEstimator.parseSeconds(request.duration()) - segment.startSeconds()
+                : segment.durationSeconds();
+        return Long.toString(Math.max(1, Math.round(seconds)));
+    }
+
+    private static VideoConvertRequest withDuration(VideoConvertRequest request, String duration) {
+        return new VideoConvertRequest(
+                request.storageId(),
+                request.fileName(),
+                duration,
+                request.toMediaType(),
+                request.videoCodec(),
+                request.audioCodec(),
+                request.encoderPreset(),
+                request.crf(),
+                request.frameRate(),
+                request.resolution());
+    }
+
+    private static Process newProcess(
+            VideoConvertRequest request,
+            OutputPathResponse output,
+            String userId,
+            FfmpegCommand command,
+            String duration) {
+        return new Process(
+                request.storageId(),
+                output.storageId(),
+                command.render(),
+                ProcessStatus.WAITING,
+                userId,
+                duration,
+                Path.of(output.path()).getFileName().toString(),
+                "0 KB",
+                true);
+    }
+
+    private static ProcessDto toDto(
+            Process process,
+            Map<String, String> storageInputDetails,
+            String outputPath,
+            FfmpegCommand command) {
+        return new ProcessDto(
+                process.getId(),
+                storageInputDetails,
+                process.getStorageIdOutput(),
+                outputPath,
+                process.getFileName(),
+                process.getFinalFileSize(),
+                process.getCommand(),
+                command.args(),
+                null,
+                process.getStatus(),
+                process.getUserId(),
+                process.getCreatedAt());
+    }
+}
@@ -0,0 +1,56 @@
+-- Moves process ids and the columns referencing them to BINARY(16).
+--
+-- Run once against the main-service schema (MySQL 8) while the service is
+-- stopped, before starting the version that generates UUIDv7 ids. Columns
+-- that are already BINARY(16) are left untouched, so the script is safe to
+-- run again. Existing random (v4) ids keep their value; only new rows get
+-- time-ordered ids. UUID_TO_BIN without the swap flag keeps the byte order
+-- Hibernate uses for java.util.UUID.
+
+DROP PROCEDURE IF EXISTS uuid_column_to_binary;
+
+DELIMITER //
+
+CREATE PROCEDURE uuid_column_to_binary(IN tbl VARCHAR(64), IN col VARCHAR(64), IN primary_key BOOLEAN)
+BEGIN
+    DECLARE current_type VARCHAR(64);
+
+    SELECT DATA_TYPE INTO current_type
+    FROM information_schema.COLUMNS
+    WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = tbl AND COLUMN_NAME = col;
+
+    IF current_type IN ('char', 'varchar') THEN
+        SET @ddl = CONCAT('ALTER TABLE `', tbl, '` ADD COLUMN `', col, '_bin` BINARY(16) NULL');
+        PREPARE stmt FROM @ddl; EXECUTE stmt; DEALLOCATE PREPARE stmt;
+
+        SET @dml = CONCAT('UPDATE `', tbl, '` SET `', col, '_bin` = UUID_TO_BIN(`', col, '`) WHERE `', col, '` IS NOT NULL');
+        PREPARE stmt FROM @dml; EXECUTE stmt; DEALLOCATE PREPARE stmt;
+
+        SET @ddl = CONCAT('ALTER TABLE `', tbl, '` ',
+                IF(primary_key, 'DROP PRIMARY KEY, ', ''),
+                'DROP COLUMN `', col, '`, RENAME COLUMN `', col, '_bin` TO `', col, '`',
+                IF(primary_key, CONCAT(', MODIFY `', col, '` BINARY(16) NOT NULL, ADD PRIMARY KEY (`', col, '`)'), ''));
+        PREPARE stmt FROM @ddl; EXECUTE stmt; DEALLOCATE PREPARE stmt;
+    END IF;
+END //
+
+DELIMITER ;
+
+CALL uuid_column_to_binary('process', 'id', TRUE);
+CALL uuid_column_to_binary('process', 'parent_id', FALSE);
+CALL uuid_column_to_binary('process_rendition', 'id', TRUE);
+CALL uuid_column_to_binary('process_rendition', 'process_id', FALSE);
+CALL uuid_column_to_binary('process_outbox', 'process_id', FALSE);
+
+DROP PROCEDURE uuid_column_to_binary;
+
+-- indexes on a replaced column are dropped with it
+SET @idx = (SELECT COUNT(*) FROM information_schema.STATISTICS
+            WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'process' AND INDEX_NAME = 'idx_process_parent_id');
+SET @ddl = IF(@idx = 0, 'CREATE INDEX idx_process_parent_id ON process (parent_id)', 'DO 0');
+PREPARE stmt FROM @ddl; EXECUTE stmt; DEALLOCATE PREPARE stmt;
+
+SET @idx = (SELECT COUNT(*) FROM information_schema.STATISTICS
+            WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'process_rendition' AND INDEX_NAME = 'idx_rendition_process_id');
+SET @ddl = IF(@idx = 0, 'CREATE INDEX idx_rendition_process_id ON process_rendition (process_id)', 'DO 0');
+PREPARE stmt FROM @ddl; EXECUTE stmt; DEALLOCATE PREPARE stmt;
@@ -0,0 +1,89 @@
+package com.mediaalterations.mainservice.admission;
+
+import com.mediaalterations.mainservice.config.AdmissionProperties;
+import com.mediaalterations.mainservice.dto.AudioConvertRequest;
+import com.mediaalterations.mainservice.dto.VideoConvertRequest;
+import com.mediaalterations.mainservice.exceptions.RateLimitedException;
+import com.mediaalterations.mainservice.exceptions.ServiceOverloadedException;
+import com.mediaalterations.mainservice.queue.FairShareDispatcher;
+import com.mediaalterations.mainservice.queue.WaitingQueueIndex;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SubmissionAdmissionTests {
+
+	private final WaitingQueueIndex waitingQueue = mock(WaitingQueueIndex.class);
+	private final FairShareDispatcher dispatcher = mock(FairShareDispatcher.class);
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	private final SubmissionAdmission admission = new SubmissionAdmission(
+			new AdmissionProperties(true, 100, 3600, Duration.ofSeconds(30), Duration.ofMinutes(10),
+					Map.of(MediaClass.VIDEO, new AdmissionProperties.Limit(6, 2))),
+			waitingQueue, dispatcher, meterRegistry);
+
+	@Test
+	void limitsEachUserAndMediaClassSeparately() {
+		admission.admit("u1", MediaClass.VIDEO);
+		admission.admit("u1", MediaClass.VIDEO);
+
+		assertThatThrownBy(() -> admission.admit("u1", MediaClass.VIDEO))
+				.isInstanceOfSatisfying(RateLimitedException.class, ex -> assertThat(ex.getRetryAfter())
+						.isPositive()
+						.isLessThanOrEqualTo(Duration.ofSeconds(10)));
+		assertThatCode(() -> admission.admit("u2", MediaClass.VIDEO)).doesNotThrowAnyException();
+		assertThatCode(() -> admission.admit("u1", MediaClass.AUDIO)).doesNotThrowAnyException();
+		assertThat(meterRegistry.counter("process.admission.rejected",
+				"reason", "rate_limited", "mediaClass", "VIDEO").count()).isEqualTo(1);
+	}
+
+	@Test
+	void rejectedMixedSubmissionKeepsThePermitsOfOtherClasses() {
+		AudioConvertRequest audio = new AudioConvertRequest("s", "a.wav", "00:01:00", "mp3", 192, "stereo", 44100);
+		VideoConvertRequest video = new VideoConvertRequest("s", "v.mov", "00:01:00", "mp4", "h264", "aac",
+				"medium", 23, 30, "p720");
+		admission.admit("u1", List.of(video, video));
+
+		assertThatThrownBy(() -> admission.admit("u1", List.of(audio, video)))
+				.isInstanceOf(RateLimitedException.class);
+		// the audio permit the rejected batch took first was given back: still a full burst of ten
+		assertThatCode(() -> admission.admit("u1", Collections.nCopies(10, audio))).doesNotThrowAnyException();
+	}
+
+	@Test
+	void batchLargerThanTheBurstPaysForEveryOutput() {
+		VideoConvertRequest video = new VideoConvertRequest("s", "v.mov", "00:01:00", "mp4", "h264", "aac",
+				"medium", 23, 30, "p720");
+		admission.admit("u1", Collections.nCopies(10, video));
+
+		// ten permits at six a minute, less the burst of two
+		assertThatThrownBy(() -> admission.admit("u1", MediaClass.VIDEO))
+				.isInstanceOfSatisfying(RateLimitedException.class, ex -> assertThat(ex.getRetryAfter())
+						.isGreaterThan(Duration.ofSeconds(80)));
+	}
+
+	@Test
+	void turnsEveryoneAwayWhileTheBacklogIsTooLarge() {
+		when(waitingQueue.size()).thenReturn(80);
+		when(dispatcher.heldCount()).thenReturn(30);
+		admission.sampleLoad();
+
+		assertThatThrownBy(() -> admission.admit("u1", MediaClass.AUDIO))
+				.isInstanceOfSatisfying(ServiceOverloadedException.class,
+						ex -> assertThat(ex.getRetryAfter()).isEqualTo(Duration.ofSeconds(30)));
+
+		when(dispatcher.heldCount()).thenReturn(0);
+		admission.sampleLoad();
+		assertThatCode(() -> admission.admit("u1", MediaClass.AUDIO)).doesNotThrowAnyException();
+	}
+}
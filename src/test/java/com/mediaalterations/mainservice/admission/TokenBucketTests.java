@@ -0,0 +1,57 @@
+package com.mediaalterations.mainservice.admission;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenBucketTests {
+
+	private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+	@Test
+	void allowsBurstThenRefillsAtRate() {
+		// one permit per second, bursts of three
+		TokenBucket bucket = new TokenBucket(60, 3, 0);
+
+		assertThat(bucket.tryAcquire(1, 0)).isZero();
+		assertThat(bucket.tryAcquire(1, 0)).isZero();
+		assertThat(bucket.tryAcquire(1, 0)).isZero();
+		assertThat(bucket.tryAcquire(1, 0)).isEqualTo(SECOND);
+
+		assertThat(bucket.tryAcquire(1, SECOND)).isZero();
+		assertThat(bucket.tryAcquire(1, SECOND)).isEqualTo(SECOND);
+	}
+
+	@Test
+	void oversizedRequestFitsAFullBucketAndIsChargedInFull() {
+		TokenBucket bucket = new TokenBucket(60, 3, 0);
+
+		assertThat(bucket.tryAcquire(10, 0)).isZero();
+		// ten permits at one per second, minus the three second burst
+		assertThat(bucket.tryAcquire(1, 0)).isEqualTo(8 * SECOND);
+		// another oversized request waits until the bucket is full again
+		assertThat(bucket.tryAcquire(10, 0)).isEqualTo(10 * SECOND);
+		assertThat(bucket.tryAcquire(10, 10 * SECOND)).isZero();
+	}
+
+	@Test
+	void releasedPermitsCanBeTakenAgain() {
+		TokenBucket bucket = new TokenBucket(60, 3, 0);
+
+		assertThat(bucket.tryAcquire(3, 0)).isZero();
+		bucket.release(2);
+		assertThat(bucket.tryAcquire(2, 0)).isZero();
+		assertThat(bucket.tryAcquire(1, 0)).isEqualTo(SECOND);
+	}
+
+	@Test
+	void unusedBucketBecomesIdle() {
+		TokenBucket bucket = new TokenBucket(60, 3, 0);
+		bucket.tryAcquire(2, 0);
+
+		assertThat(bucket.idleSince(SECOND, 10 * SECOND)).isFalse();
+		assertThat(bucket.idleSince(20 * SECOND, 10 * SECOND)).isTrue();
+	}
+}
@@ -0,0 +1,137 @@
+package com.mediaalterations.mainservice.benchmark;
+
+import org.hibernate.id.uuid.UuidVersion7Strategy;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Insert throughput of random (v4) against time-ordered (v7) BINARY(16)
+ * primary keys on a process-shaped InnoDB table. Needs a scratch MySQL
+ * schema; run with
+ *
+ * <pre>
+ * BENCH_JDBC_URL='jdbc:mysql://localhost:3306/bench?rewriteBatchedStatements=true' \
+ * BENCH_JDBC_USER=root BENCH_JDBC_PASSWORD=... BENCH_ROWS=2000000 gradle benchmark
+ * </pre>
+ *
+ * The gap grows with table size: once the primary key no longer fits the
+ * buffer pool, random keys turn most inserts into page reads and splits.
+ */
+@Tag("benchmark")
+@EnabledIfEnvironmentVariable(named = "BENCH_JDBC_URL", matches = ".+")
+class ProcessIdInsertBenchmark {
+
+	private static final Logger log = LoggerFactory.getLogger(ProcessIdInsertBenchmark.class);
+
+	private static final int BATCH = 1_000;
+	private static final String COMMAND = "-y -i /in/input.mp4 -progress pipe:1 -map 0:v:0 -map 0:a? -c:v libx264 "
+			+ "-preset fast -crf 23 -vf scale=-2:720 -pix_fmt yuv420p -c:a aac -b:a 192k /out/output.mp4";
+
+	private final int rows = Integer.parseInt(System.getenv().getOrDefault("BENCH_ROWS", "500000"));
+
+	@Test
+	void reportsInsertCostOfTimeOrderedAndRandomKeys() throws SQLException {
+		try (Connection connection = DriverManager.getConnection(System.getenv("BENCH_JDBC_URL"),
+				System.getenv("BENCH_JDBC_USER"), System.getenv("BENCH_JDBC_PASSWORD"))) {
+			Result random = run(connection, "bench_process_v4", UUID::randomUUID);
+			Result ordered = run(connection, "bench_process_v7", () -> UuidVersion7Strategy.INSTANCE.generateUuid(null));
+
+			// the timings depend on the machine and buffer pool, so they are reported rather than asserted
+			log.info(String.format("%-8s %12s %14s %14s %12s %12s",
+					"scheme", "rows", "rows/s total", "rows/s last10%", "data MB", "index MB"));
+			random.log("uuid v4");
+			ordered.log("uuid v7");
+
+			assertThat(random.rows()).isEqualTo(rows);
+			assertThat(ordered.rows()).isEqualTo(rows);
+		}
+	}
+
+	private Result run(Connection connection, String table, Supplier<UUID> ids) throws SQLException {
+		try (Statement ddl = connection.createStatement()) {
+			ddl.execute("DROP TABLE IF EXISTS " + table);
+			ddl.execute("CREATE TABLE " + table + " ("
+					+ "id BINARY(16) NOT NULL PRIMARY KEY, "
+					+ "user_id VARCHAR(64), "
+					+ "status VARCHAR(16), "
+					+ "file_name VARCHAR(255), "
+					+ "command TEXT, "
+					+ "created_at DATETIME(6), "
+					+ "KEY idx_user_created (user_id, created_at))");
+		}
+
+		connection.setAutoCommit(false);
+		long start = System.nanoTime();
+		long tailStart = start;
+		int tailFrom = rows - rows / 10;
+		try (PreparedStatement insert = connection.prepareStatement("INSERT INTO " + table
+				+ " (id, user_id, status, file_name, command, created_at) VALUES (?, ?, ?, ?, ?, ?)")) {
+			for (int i = 0; i < rows; i++) {
+				if (i == tailFrom)
+					tailStart = System.nanoTime();
+				insert.setBytes(1, bytes(ids.get()));
+				insert.setString(2, "user-" + (i % 5_000));
+				insert.setString(3, "WAITING");
+				insert.setString(4, "output-" + i + ".mp4");
+				insert.setString(5, COMMAND);
+				insert.setTimestamp(6, new Timestamp(System.currentTimeMillis()));
+				insert.addBatch();
+				if ((i + 1) % BATCH == 0) {
+					insert.executeBatch();
+					connection.commit();
+				}
+			}
+			insert.executeBatch();
+			connection.commit();
+		}
+		long end = System.nanoTime();
+		connection.setAutoCommit(true);
+
+		try (Statement stats = connection.createStatement()) {
+			stats.execute("ANALYZE TABLE " + table);
+			try (ResultSet count = stats.executeQuery("SELECT COUNT(*) FROM " + table);
+					ResultSet size = connection.createStatement().executeQuery(
+							"SELECT data_length, index_length FROM information_schema.TABLES "
+									+ "WHERE table_schema = DATABASE() AND table_name = '" + table + "'")) {
+				count.next();
+				size.next();
+				return new Result(count.getInt(1),
+						rows / ((end - start) / 1e9),
+						(rows - tailFrom) / ((end - tailStart) / 1e9),
+						size.getLong(1) / 1048576.0,
+						size.getLong(2) / 1048576.0);
+			}
+		}
+	}
+
+	private static byte[] bytes(UUID id) {
+		return ByteBuffer.allocate(16)
+				.putLong(id.getMostSignificantBits())
+				.putLong(id.getLeastSignificantBits())
+				.array();
+	}
+
+	private record Result(int rows, double rowsPerSecond, double tailRowsPerSecond, double dataMb, double indexMb) {
+
+		void log(String scheme) {
+			log.info(String.format("%-8s %12d %14.0f %14.0f %12.1f %12.1f",
+					scheme, rows, rowsPerSecond, tailRowsPerSecond, dataMb, indexMb));
+		}
+	}
+}
@@ -0,0 +1,60 @@
+package com.mediaalterations.mainservice.cache;
+
+import com.mediaalterations.mainservice.dto.AudioConvertRequest;
+import com.mediaalterations.mainservice.exceptions.IdempotencyKeyReusedException;
+import org.junit.jupiter.api.Test;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class IdempotencyStoreTests {
+
+	private final IdempotencyStore store = new IdempotencyStore(100, Duration.ofHours(1), JsonMapper.builder().build());
+
+	private final AudioConvertRequest request =
+			new AudioConvertRequest("s", "clip.mp4", "00:03:00", "mp3", 128, "stereo", 44100);
+
+	@Test
+	void retryWithTheSameBodyReplaysTheFirstResponse() throws Exception {
+		AtomicInteger calls = new AtomicInteger();
+
+		String first = store.execute("u", "toAudio", "k", request, () -> "job-" + calls.incrementAndGet());
+		String second = store.execute("u", "toAudio", "k",
+				new AudioConvertRequest("s", "clip.mp4", "00:03:00", "mp3", 128, "stereo", 44100),
+				() -> "job-" + calls.incrementAndGet());
+
+		assertThat(second).isEqualTo(first);
+		assertThat(calls).hasValue(1);
+	}
+
+	@Test
+	void keyReusedWithADifferentBodyIsRejected() throws Exception {
+		store.execute("u", "toAudio", "k", request, () -> "job-1");
+
+		AudioConvertRequest other = new AudioConvertRequest("s", "clip.mp4", "00:03:00", "aac", 128, "stereo", 44100);
+		assertThatThrownBy(() -> store.execute("u", "toAudio", "k", other, () -> "job-2"))
+				.isInstanceOf(IdempotencyKeyReusedException.class);
+	}
+
+	@Test
+	void actionFailingWithAnErrorReleasesTheKey() throws Exception {
+		assertThatThrownBy(() -> store.execute("u", "toAudio", "k", request, () -> {
+			throw new StackOverflowError();
+		})).isInstanceOf(StackOverflowError.class);
+
+		String retried = CompletableFuture.supplyAsync(() -> {
+			try {
+				return store.execute("u", "toAudio", "k", request, () -> "job-1");
+			} catch (Exception e) {
+				throw new IllegalStateException(e);
+			}
+		}).get(5, TimeUnit.SECONDS);
+		assertThat(retried).isEqualTo("job-1");
+	}
+}
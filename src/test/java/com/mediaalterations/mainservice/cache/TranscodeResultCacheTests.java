@@ -0,0 +1,47 @@
+package com.mediaalterations.mainservice.cache;
+
+import com.mediaalterations.mainservice.command.FfmpegCommandCompiler;
+import com.mediaalterations.mainservice.dto.AudioConvertRequest;
+import com.mediaalterations.mainservice.dto.ConvertRequest;
+import com.mediaalterations.mainservice.dto.VideoConvertRequest;
+import com.mediaalterations.mainservice.repository.ProcessRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class TranscodeResultCacheTests {
+
+	private final TranscodeResultCache cache = new TranscodeResultCache(mock(ProcessRepository.class),
+			new SimpleMeterRegistry());
+	private final FfmpegCommandCompiler compiler = new FfmpegCommandCompiler();
+
+	@Test
+	void containerIsPartOfTheKeyWhenTheCommandIsTheSame() {
+		assertDistinctKeys(
+				new VideoConvertRequest("s", "v.mp4", "00:10:00", "mkv", "source", "source", "medium", 0, 0, "source"),
+				new VideoConvertRequest("s", "v.mp4", "00:10:00", "mov", "source", "source", "medium", 0, 0, "source"));
+		assertDistinctKeys(
+				new AudioConvertRequest("s", "clip.mp4", "00:03:00", "aac", 128, "stereo", 44100),
+				new AudioConvertRequest("s", "clip.mp4", "00:03:00", "m4a", 128, "stereo", 44100));
+	}
+
+	@Test
+	void containerCaseDoesNotSplitTheKey() {
+		assertThat(cache.keyFor("s", "MKV", "-y -i {input} {output}"))
+				.isEqualTo(cache.keyFor("s", "mkv", "-y -i {input} {output}"));
+	}
+
+	private void assertDistinctKeys(ConvertRequest first, ConvertRequest second) {
+		String firstCommand = template(first);
+		assertThat(template(second)).isEqualTo(firstCommand);
+		assertThat(cache.keyFor("s", first.toMediaType(), firstCommand))
+				.isNotEqualTo(cache.keyFor("s", second.toMediaType(), firstCommand));
+	}
+
+	private String template(ConvertRequest request) {
+		return compiler.compile(request, TranscodeResultCache.INPUT_PLACEHOLDER,
+				TranscodeResultCache.OUTPUT_PLACEHOLDER).render();
+	}
+}
@@ -0,0 +1,222 @@
+package com.mediaalterations.mainservice.command;
+
+import com.mediaalterations.mainservice.dto.AudioConvertRequest;
+import com.mediaalterations.mainservice.dto.ConvertRequest;
+import com.mediaalterations.mainservice.dto.GifConvertRequest;
+import com.mediaalterations.mainservice.dto.MediaType;
+import com.mediaalterations.mainservice.dto.MergeConvertRequest;
+import com.mediaalterations.mainservice.dto.OrderedMedia;
+import com.mediaalterations.mainservice.dto.ResolutionType;
+import com.mediaalterations.mainservice.dto.StreamingFormat;
+import com.mediaalterations.mainservice.dto.VideoConvertRequest;
+import com.mediaalterations.mainservice.exceptions.ProcessCreationException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.params.provider.Arguments.arguments;
+
+/**
+ * Golden outputs captured from the string builders this compiler replaced.
+ */
+class FfmpegCommandCompilerTests {
+
+	private static final String IN = "/in/a b.mp4";
+	private static final String OUT = "/out/c.out";
+
+	private final FfmpegCommandCompiler compiler = new FfmpegCommandCompiler();
+
+	static Stream<Arguments> golden() {
+		return Stream.of(
+				arguments(new AudioConvertRequest("s", "song.wav", "00:03:00", "mp3", 192, "STEREO", 44100),
+						"-y -i /in/a b.mp4 -progress pipe:1 -c:a libmp3lame -ac 2 -ar 44100 -b:a 192k /out/c.out"),
+				arguments(new AudioConvertRequest("s", "clip.MP4", "00:03:00", "aac", 128, "mono", 48000),
+						"-y -i /in/a b.mp4 -progress pipe:1 -vn -c:a aac -ac 1 -ar 48000 -b:a 128k /out/c.out"),
+				arguments(new AudioConvertRequest("s", "clip.mkv", "00:03:00", "wav", 320, "stereo", 44100),
+						"-y -i /in/a b.mp4 -progress pipe:1 -vn -c:a pcm_s16le -ar 44100 /out/c.out"),
+				arguments(new AudioConvertRequest("s", "noext", "00:03:00", "flac", 256, "mono", 96000),
+						"-y -i /in/a b.mp4 -progress pipe:1 -c:a flac -ar 96000 /out/c.out"),
+				arguments(new AudioConvertRequest("s", "a.ogg", "00:03:00", "ogg", 96, "STEREO", 22050),
+						"-y -i /in/a b.mp4 -progress pipe:1 -c:a libvorbis -ac 2 -ar 22050 -b:a 96k /out/c.out"),
+				arguments(new AudioConvertRequest("s", "a.3gp", "00:03:00", "m4a", 64, "STEREO", 44100),
+						"-y -i /in/a b.mp4 -progress pipe:1 -vn -c:a aac -ac 2 -ar 44100 -b:a 64k /out/c.out"),
+				arguments(new VideoConvertRequest("s", "v.mov", "00:10:00", "mp4", "h264", "aac", "medium", 23, 30, "p720"),
+						"-y -i /in/a b.mp4 -progress pipe:1 -map 0:v:0 -map 0:a? -c:v libx264 -preset medium -crf 23 -r 30 -vf scale=-2:720 -pix_fmt yuv420p -c:a aac -b:a 192k -movflags +faststart /out/c.out"),
+				arguments(new VideoConvertRequest("s", "v.mov", "00:10:00", "mkv", "h265", "flac", "veryslow", 0, 0, "source"),
+						"-y -i /in/a b.mp4 -progress pipe:1 -map 0:v:0 -map 0:a? -c:v libx265 -preset veryslow -pix_fmt yuv420p -c:a flac /out/c.out"),
+				arguments(new VideoConvertRequest("s", "v.mov", "00:10:00", "webm", "vp9", "opus", "fast", 30, 60, "p1080"),
+						"-y -i /in/a b.mp4 -progress pipe:1 -map 0:v:0 -map 0:a? -c:v libvpx-vp9 -r 60 -vf scale=-2:1080 -pix_fmt yuv420p -c:a libopus -b:a 192k /out/c.out"),
+				arguments(new VideoConvertRequest("s", "v.mov", "00:10:00", "mp4", "source", "source", "ultrafast", 0, 0, "source"),
+						"-y -i /in/a b.mp4 -progress pipe:1 -map 0:v:0 -map 0:a? -c:v copy -c:a copy -movflags +faststart /out/c.out"),
+				arguments(new VideoConvertRequest("s", "v.mov", "00:10:00", "mkv", "av1", "dts", "slow", 20, 24, "p2160"),
+						"-y -i /in/a b.mp4 -progress pipe:1 -map 0:v:0 -map 0:a? -c:v libaom-av1 -r 24 -vf scale=-2:2160 -pix_fmt yuv420p -c:a dca -b:a 192k /out/c.out"),
+				arguments(new VideoConvertRequest("s", "v.mov", "00:10:00", "avi", "source", "ac3", "slow", 0, 0, "source"),
+						"-y -i /in/a b.mp4 -progress pipe:1 -map 0:v:0 -map 0:a? -c:v copy -c:a ac3 -b:a 192k /out/c.out"),
+				arguments(new VideoConvertRequest("s", "v.mov", "00:10:00", "mov", "h264", "source", "slow", 18, 0, "p144"),
+						"-y -i /in/a b.mp4 -progress pipe:1 -map 0:v:0 -map 0:a? -c:v libx264 -preset slow -crf 18 -vf scale=-2:144 -pix_fmt yuv420p -c:a copy /out/c.out"),
+				arguments(new GifConvertRequest("s", "v.mp4", "00:00:10", "gif", 0, 5, 0, "source"),
+						"-y -i /in/a b.mp4 -t 5 -progress pipe:1 -filter_complex fps=10,scale=-2:480:flags=lanczos,split[s0][s1];[s0]palettegen[p];[s1][p]paletteuse -loop 0 /out/c.out"),
+				arguments(new GifConvertRequest("s", "v.mp4", "00:00:10", "gif", 12, 4, 15, "p360"),
+						"-y -ss 12 -i /in/a b.mp4 -t 4 -progress pipe:1 -filter_complex fps=15,scale=-2:360:flags=lanczos,split[s0][s1];[s0]palettegen[p];[s1][p]paletteuse -loop 0 /out/c.out"),
+				arguments(new GifConvertRequest("s", "v.mp4", "00:00:10", "gif", 3, 2, 24, "p1080"),
+						"-y -ss 3 -i /in/a b.mp4 -t 2 -progress pipe:1 -filter_complex fps=24,scale=-2:1080:flags=lanczos,split[s0][s1];[s0]palettegen[p];[s1][p]paletteuse -loop 0 /out/c.out"));
+	}
+
+	@ParameterizedTest
+	@MethodSource("golden")
+	void rendersSameCommandAsLegacyBuilder(ConvertRequest request, String expected) {
+		assertThat(compiler.compile(request, IN, OUT).render()).isEqualTo(expected);
+	}
+
+	@ParameterizedTest
+	@MethodSource("golden")
+	void compilingTwiceReusesTemplates(ConvertRequest request, String expected) {
+		FfmpegCommand first = compiler.compile(request, IN, OUT);
+		int templates = compiler.cachedTemplateCount();
+
+		assertThat(compiler.compile(request, IN, OUT)).isEqualTo(first);
+		assertThat(compiler.cachedTemplateCount()).isEqualTo(templates);
+	}
+
+	@Test
+	void keepsPathsWithSpacesAsSingleArguments() {
+		FfmpegCommand command = compiler.compile(
+				new AudioConvertRequest("s", "song.wav", "00:03:00", "mp3", 192, "STEREO", 44100), IN, OUT);
+
+		assertThat(command.args()).containsSubsequence("-i", IN).endsWith(OUT);
+	}
+
+	@Test
+	void rendersMergeCommandsLikeLegacyBuilder() {
+		MergeConvertRequest mixed = new MergeConvertRequest(List.of(
+				new OrderedMedia("/in/1.mp4", "video"),
+				new OrderedMedia("/in/2.mp3", "audio"),
+				new OrderedMedia("/in/3.mkv", "VIDEO")), "00:10:00", "mp4", "h264", "aac", 0);
+		MergeConvertRequest audioOnly = new MergeConvertRequest(List.of(
+				new OrderedMedia("/in/1.mp3", "audio")), "00:10:00", "mkv", "libx265", "flac", 1080);
+
+		assertThat(compiler.compile(mixed, "/out/m.mp4").render()).isEqualTo(
+				"-y -i /in/1.mp4 -i /in/2.mp3 -i /in/3.mkv -progress pipe:1 -filter_complex "
+						+ "[0:v:0]scale=-2:720:flags=lanczos[v0];[0:a:0]aformat=sample_fmts=fltp:sample_rates=44100:channel_layouts=stereo[a0];"
+						+ "color=c=black:s=1280x720:r=30:d=10[v1];[1:a:0]aformat=sample_fmts=fltp:sample_rates=44100:channel_layouts=stereo[a1];"
+						+ "[2:v:0]scale=-2:720:flags=lanczos[v2];[2:a:0]aformat=sample_fmts=fltp:sample_rates=44100:channel_layouts=stereo[a2];"
+						+ "[v0][a0][v1][a1][v2][a2]concat=n=3:v=1:a=1[vout][aout] "
+						+ "-map [vout] -map [aout] -c:v h264 -c:a aac -pix_fmt yuv420p -movflags +faststart /out/m.mp4");
+		assertThat(compiler.compile(audioOnly, "/out/m.mkv").render()).isEqualTo(
+				"-y -i /in/1.mp3 -progress pipe:1 -filter_complex "
+						+ "color=c=black:s=1280x1080:r=30:d=10[v0];[0:a:0]aformat=sample_fmts=fltp:sample_rates=44100:channel_layouts=stereo[a0];"
+						+ "[v0][a0]concat=n=1:v=1:a=1[vout][aout] "
+						+ "-map [vout] -map [aout] -c:v libx265 -c:a flac -pix_fmt yuv420p /out/m.mkv");
+	}
+
+	@Test
+	void fanOutDecodesOnceAndWritesEveryOutput() {
+		List<ConvertRequest> outputs = List.of(
+				new AudioConvertRequest("s", "v.mp4", "00:10:00", "mp3", 192, "STEREO", 44100),
+				new VideoConvertRequest("s", "v.mp4", "00:10:00", "mp4", "h264", "aac", "fast", 23, 0, "p720"),
+				new GifConvertRequest("s", "v.mp4", "00:10:00", "gif", 5, 3, 12, "p360"));
+
+		FfmpegCommand command = compiler.compileFanOut(IN, outputs, List.of("/out/a.mp3", "/out/v.mp4", "/out/g.gif"));
+
+		assertThat(command.render()).isEqualTo("-y -i /in/a b.mp4 -progress pipe:1 "
+				+ "-filter_complex [0:v:0]trim=start=5:duration=3,setpts=PTS-STARTPTS,fps=12,scale=-2:360:flags=lanczos,"
+				+ "split[s0_2][s1_2];[s0_2]palettegen[p2];[s1_2][p2]paletteuse[gif2] "
+				+ "-vn -c:a libmp3lame -ac 2 -ar 44100 -b:a 192k /out/a.mp3 "
+				+ "-map 0:v:0 -map 0:a? -c:v libx264 -preset fast -crf 23 -vf scale=-2:720 -pix_fmt yuv420p "
+				+ "-c:a aac -b:a 192k -movflags +faststart /out/v.mp4 "
+				+ "-map [gif2] -loop 0 /out/g.gif");
+		assertThat(command.args()).filteredOn("-i"::equals).hasSize(1);
+	}
+
+	@Test
+	void compilesKeyframeAlignedSegmentsAndACopyConcat() {
+		VideoConvertRequest request = new VideoConvertRequest("s", "v.mov", "02:00:00", "mp4", "h265", "aac", "slow",
+				22, 0, "p1080");
+
+		assertThat(compiler.compileSegment(request, IN, "/out/s1.ts", new VideoSegment(1, 450, 450, false), 2).render())
+				.isEqualTo("-y -ss 450 -i /in/a b.mp4 -t 450 -progress pipe:1 -map 0:v:0 -map 0:a? -c:v libx265 -preset slow "
+						+ "-crf 22 -force_key_frames expr:gte(t,n_forced*2) -vf scale=-2:1080 -pix_fmt yuv420p "
+						+ "-c:a aac -b:a 192k -f mpegts /out/s1.ts");
+		assertThat(compiler.compileSegment(request, IN, "/out/s0.ts", new VideoSegment(0, 0, 450, true), 2).args())
+				.doesNotContain("-ss", "-t");
+		assertThat(compiler.compileConcat(List.of("/out/s0.ts", "/out/s1.ts"), OUT, request).render())
+				.isEqualTo("-y -i concat:/out/s0.ts|/out/s1.ts -progress pipe:1 -map 0 -c copy -bsf:a aac_adtstoasc "
+						+ "-movflags +faststart /out/c.out");
+	}
+
+	@Test
+	void packagesAbrLadderFromOneDecode() {
+		List<AbrRung> ladder = List.of(AbrRung.of(ResolutionType.p360).orElseThrow(),
+				AbrRung.of(ResolutionType.p720).orElseThrow());
+
+		FfmpegCommand hls = compiler.compileAbr(ladder, StreamingFormat.hls, null, 4, true, IN, "/out/movie.m3u8");
+
+		assertThat(hls.render()).isEqualTo("-y -i /in/a b.mp4 -progress pipe:1 "
+				+ "-filter_complex [0:v:0]split=2[s0][s1];[s0]scale=-2:360[v0];[s1]scale=-2:720[v1] "
+				+ "-map [v0] -map [v1] -map 0:a:0? -map 0:a:0? -c:v libx264 -sc_threshold 0 "
+				+ "-force_key_frames expr:gte(t,n_forced*4) -pix_fmt yuv420p "
+				+ "-b:v:0 800k -maxrate:v:0 856k -bufsize:v:0 1200k -b:v:1 2800k -maxrate:v:1 2996k -bufsize:v:1 4200k "
+				+ "-c:a aac -b:a 128k -ac 2 -f hls -hls_time 4 -hls_playlist_type vod -hls_flags independent_segments "
+				+ "-hls_segment_filename /out/movie_%v_%05d.ts -master_pl_name movie.m3u8 "
+				+ "-var_stream_map v:0,a:0 v:1,a:1 /out/movie_%v.m3u8");
+		assertThat(hls.args()).contains("v:0,a:0 v:1,a:1");
+		assertThat(hls.args()).filteredOn("-i"::equals).hasSize(1);
+		assertThat(FfmpegCommandCompiler.hlsVariantName("/out/movie.m3u8", 1)).isEqualTo("movie_1.m3u8");
+		assertThat(AbrRung.of(ResolutionType.source)).isEmpty();
+
+		// video first, so RepresentationID i is rung i and the audio comes after the ladder
+		assertThat(compiler.compileAbr(ladder, StreamingFormat.dash, null, 4, true, IN, "/out/movie.mpd").render())
+				.endsWith("-map [v0] -map [v1] -map 0:a:0? -c:v libx264 -sc_threshold 0 "
+						+ "-force_key_frames expr:gte(t,n_forced*4) -pix_fmt yuv420p "
+						+ "-b:v:0 800k -maxrate:v:0 856k -bufsize:v:0 1200k -b:v:1 2800k -maxrate:v:1 2996k "
+						+ "-bufsize:v:1 4200k -c:a aac -b:a 128k -ac 2 -f dash -seg_duration 4 -use_template 1 "
+						+ "-use_timeline 1 -init_seg_name movie_init_$RepresentationID$.m4s "
+						+ "-media_seg_name movie_$RepresentationID$_$Number%05d$.m4s "
+						+ "-adaptation_sets id=0,streams=v id=1,streams=a /out/movie.mpd");
+	}
+
+	@Test
+	void packagesAbrLadderOfASilentSource() {
+		List<AbrRung> ladder = List.of(AbrRung.of(ResolutionType.p360).orElseThrow(),
+				AbrRung.of(ResolutionType.p720).orElseThrow());
+
+		assertThat(compiler.compileAbr(ladder, StreamingFormat.hls, null, 4, false, IN, "/out/movie.m3u8").render())
+				.isEqualTo("-y -i /in/a b.mp4 -progress pipe:1 "
+						+ "-filter_complex [0:v:0]split=2[s0][s1];[s0]scale=-2:360[v0];[s1]scale=-2:720[v1] "
+						+ "-map [v0] -map [v1] -c:v libx264 -sc_threshold 0 "
+						+ "-force_key_frames expr:gte(t,n_forced*4) -pix_fmt yuv420p "
+						+ "-b:v:0 800k -maxrate:v:0 856k -bufsize:v:0 1200k -b:v:1 2800k -maxrate:v:1 2996k "
+						+ "-bufsize:v:1 4200k -f hls -hls_time 4 -hls_playlist_type vod "
+						+ "-hls_flags independent_segments -hls_segment_filename /out/movie_%v_%05d.ts "
+						+ "-master_pl_name movie.m3u8 -var_stream_map v:0 v:1 /out/movie_%v.m3u8");
+
+		assertThat(compiler.compileAbr(ladder, StreamingFormat.dash, null, 4, false, IN, "/out/movie.mpd").render())
+				.isEqualTo("-y -i /in/a b.mp4 -progress pipe:1 "
+						+ "-filter_complex [0:v:0]split=2[s0][s1];[s0]scale=-2:360[v0];[s1]scale=-2:720[v1] "
+						+ "-map [v0] -map [v1] -c:v libx264 -sc_threshold 0 "
+						+ "-force_key_frames expr:gte(t,n_forced*4) -pix_fmt yuv420p "
+						+ "-b:v:0 800k -maxrate:v:0 856k -bufsize:v:0 1200k -b:v:1 2800k -maxrate:v:1 2996k "
+						+ "-bufsize:v:1 4200k -f dash -seg_duration 4 -use_template 1 -use_timeline 1 "
+						+ "-init_seg_name movie_init_$RepresentationID$.m4s "
+						+ "-media_seg_name movie_$RepresentationID$_$Number%05d$.m4s "
+						+ "-adaptation_sets id=0,streams=v /out/movie.mpd");
+	}
+
+	@Test
+	void rejectsUnknownValuesWithoutThrowingFromLookups() {
+		assertThat(EnumLookup.find(MediaType.class, "MP4")).isEmpty();
+		assertThat(EnumLookup.findIgnoreCase(MediaType.class, "MP4")).isPresent();
+		assertThat(EnumLookup.find(MediaType.class, null)).isEmpty();
+
+		assertThatThrownBy(() -> compiler.compile(
+				new GifConvertRequest("s", "v.mp4", "00:00:10", "gif", 0, 5, 0, "p2160"), IN, OUT))
+				.isInstanceOf(ProcessCreationException.class)
+				.hasMessage("Unsupported resolution");
+	}
+}
@@ -0,0 +1,29 @@
+package com.mediaalterations.mainservice.command;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SegmentPlannerTests {
+
+	@Test
+	void boundariesLieOnTheGopGridAndTheLastSegmentRunsToTheEnd() {
+		List<VideoSegment> plan = SegmentPlanner.plan(7201, 300, 2, 16);
+
+		assertThat(plan).hasSize(16);
+		assertThat(plan).allSatisfy(segment -> assertThat(segment.startSeconds() % 2).isZero());
+		assertThat(plan.get(1).startSeconds()).isEqualTo(plan.get(0).durationSeconds());
+		assertThat(plan).filteredOn(VideoSegment::last).containsExactly(plan.get(15));
+		assertThat(plan.get(15).startSeconds()).isLessThan(7201);
+	}
+
+	@Test
+	void stopsEarlyWhenRoundingCoversTheInput() {
+		List<VideoSegment> plan = SegmentPlanner.plan(10, 3, 4, 16);
+
+		assertThat(plan).extracting(VideoSegment::startSeconds).containsExactly(0.0, 4.0, 8.0);
+		assertThat(plan.get(2).last()).isTrue();
+	}
+}
@@ -0,0 +1,65 @@
+package com.mediaalterations.mainservice.events;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProcessEventHubTests {
+
+	private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+	private final ProcessEventHub hub = new ProcessEventHub(executor, 4, 3, 2,
+			Duration.ofMinutes(1), Duration.ofSeconds(30), Duration.ZERO);
+
+	@AfterEach
+	void shutdown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	void resumesFromLastEventIdWhileRetained() {
+		ProcessEventLog log = new ProcessEventLog(3);
+		for (int i = 0; i < 5; i++)
+			log.append(ProcessEventHub.UPDATED, i);
+
+		assertThat(log.since(3)).hasValueSatisfying(missed -> assertThat(missed)
+				.extracting(ProcessEvent::id).containsExactly(4L, 5L));
+		assertThat(log.since(2)).hasValueSatisfying(missed -> assertThat(missed).hasSize(3));
+		assertThat(log.since(5)).hasValueSatisfying(missed -> assertThat(missed).isEmpty());
+	}
+
+	@Test
+	void asksForResetWhenEventsWereDroppedOrIdIsFromAnotherRun() {
+		ProcessEventLog log = new ProcessEventLog(3);
+		for (int i = 0; i < 5; i++)
+			log.append(ProcessEventHub.UPDATED, i);
+
+		assertThat(log.since(1)).isEmpty();
+		assertThat(log.since(9)).isEmpty();
+		assertThat(new ProcessEventLog(3).since(0)).hasValueSatisfying(missed -> assertThat(missed).isEmpty());
+	}
+
+	@Test
+	void capsSubscribersPerUserAndDropsIdleChannels() {
+		hub.subscribe("u1", null);
+		hub.subscribe("u1", null);
+		hub.subscribe("u1", "17");
+		hub.subscribe("u2", null);
+
+		assertThat(hub.subscriberCount("u1")).isEqualTo(2);
+		assertThat(hub.subscriberCount("u2")).isEqualTo(1);
+
+		// delivered without a transaction; must not block on unattached emitters
+		hub.publishDeleted("u1", List.of(UUID.randomUUID()));
+		hub.publishDeleted("nobody", List.of(UUID.randomUUID()));
+		hub.evictIdleChannels();
+
+		assertThat(hub.subscriberCount("u1")).isEqualTo(2);
+	}
+}
@@ -0,0 +1,43 @@
+package com.mediaalterations.mainservice.feignClients;
+
+import com.mediaalterations.mainservice.config.StorageCallProperties;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StorageCallsTests {
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final ExecutorService virtualExecutor = Executors.newVirtualThreadPerTaskExecutor();
+	private final StorageCalls calls = new StorageCalls(
+			new StorageCallProperties(Duration.ofSeconds(5), Duration.ofMillis(50), Duration.ofMillis(500), null),
+			virtualExecutor, meterRegistry);
+
+	@AfterEach
+	void tearDown() {
+		virtualExecutor.shutdownNow();
+	}
+
+	@Test
+	void callsOfAMethodRecordOnOneTimerPerOutcome() {
+		calls.call(StorageCalls.GET_PATH, () -> "/in/a.mp4");
+		calls.call(StorageCalls.GET_PATH, () -> "/in/b.mp4");
+		assertThatThrownBy(() -> calls.call(StorageCalls.GET_PATH, () -> {
+			throw new IllegalStateException("storage down");
+		})).isInstanceOf(IllegalStateException.class);
+
+		Timer success = meterRegistry.get("storage.call").tag("method", StorageCalls.GET_PATH)
+				.tag("outcome", "success").timer();
+		assertThat(success.count()).isEqualTo(2);
+		assertThat(meterRegistry.get("storage.call").tag("outcome", "error").timer().count()).isEqualTo(1);
+		assertThat(meterRegistry.find("storage.call").timers()).hasSize(2);
+	}
+}
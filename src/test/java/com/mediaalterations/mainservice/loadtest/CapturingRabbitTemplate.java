@@ -0,0 +1,37 @@
+package com.mediaalterations.mainservice.loadtest;
+
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Broker stand-in for the outbox relay: counts what would have been
+ * published per routing key and confirms every message at once, so the
+ * relay's confirm handling runs without a broker connection.
+ */
+class CapturingRabbitTemplate extends RabbitTemplate {
+
+	private final Map<String, LongAdder> published = new ConcurrentHashMap<>();
+
+	@Override
+	public void send(String exchange, String routingKey, Message message, CorrelationData correlationData) {
+		published.computeIfAbsent(routingKey, key -> new LongAdder()).increment();
+		if (correlationData != null)
+			correlationData.getFuture().complete(new CorrelationData.Confirm(true, null));
+	}
+
+	long published() {
+		return published.values().stream().mapToLong(LongAdder::sum).sum();
+	}
+
+	Map<String, Long> publishedByRoutingKey() {
+		Map<String, Long> counts = new TreeMap<>();
+		published.forEach((key, count) -> counts.put(key, count.sum()));
+		return counts;
+	}
+}
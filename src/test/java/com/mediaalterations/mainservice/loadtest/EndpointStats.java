@@ -0,0 +1,80 @@
+package com.mediaalterations.mainservice.loadtest;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Outcomes of one endpoint. Latencies are kept exactly, one long per
+ * request, and sorted once for the report; a run is bounded by rate times
+ * duration, so this stays small.
+ */
+class EndpointStats {
+
+	private final LongAdder issued = new LongAdder();
+	private final LongAdder succeeded = new LongAdder();
+	private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+
+	private long[] latencies = new long[1024];
+	private int count;
+
+	void issued() {
+		issued.increment();
+	}
+
+	void succeeded(long latencyNanos) {
+		succeeded.increment();
+		record(latencyNanos);
+	}
+
+	// failed requests count into the latency too; a fast error is still a response
+	void failed(String reason, long latencyNanos) {
+		errors.computeIfAbsent(reason, key -> new LongAdder()).increment();
+		record(latencyNanos);
+	}
+
+	long issuedCount() {
+		return issued.sum();
+	}
+
+	long succeededCount() {
+		return succeeded.sum();
+	}
+
+	long errorCount() {
+		return errors.values().stream().mapToLong(LongAdder::sum).sum();
+	}
+
+	double errorRate() {
+		long total = succeededCount() + errorCount();
+		return total == 0 ? 0 : (double) errorCount() / total;
+	}
+
+	Map<String, Long> errorsByReason() {
+		Map<String, Long> byReason = new TreeMap<>();
+		errors.forEach((reason, adder) -> byReason.put(reason, adder.sum()));
+		return byReason;
+	}
+
+	/**
+	 * @return latency percentiles in nanoseconds, nearest rank, in the order
+	 *         of {@code quantiles}
+	 */
+	synchronized long[] percentiles(double... quantiles) {
+		long[] sorted = Arrays.copyOf(latencies, count);
+		Arrays.sort(sorted);
+		long[] result = new long[quantiles.length];
+		for (int i = 0; i < quantiles.length; i++)
+			result[i] = sorted.length == 0 ? 0
+					: sorted[Math.min(sorted.length - 1, (int) Math.ceil(quantiles[i] * sorted.length) - 1)];
+		return result;
+	}
+
+	private synchronized void record(long latencyNanos) {
+		if (count == latencies.length)
+			latencies = Arrays.copyOf(latencies, count * 2);
+		latencies[count++] = latencyNanos;
+	}
+}
@@ -0,0 +1,103 @@
+package com.mediaalterations.mainservice.loadtest;
+
+import com.mediaalterations.mainservice.dto.OutputPathResponse;
+import com.mediaalterations.mainservice.feignClients.StorageClient;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory storage service. Every call sleeps for a latency drawn from the
+ * model and fails with 503 at the model's error rate; paths are derived
+ * from the ids, so no state is kept.
+ */
+class FakeStorageClient implements StorageClient {
+
+	private final LatencyModel latency;
+	private final AtomicLong calls = new AtomicLong();
+
+	FakeStorageClient(LatencyModel latency) {
+		this.latency = latency;
+	}
+
+	long calls() {
+		return calls.get();
+	}
+
+	@Override
+	public ResponseEntity<String> getPathFromStorageId(String storageId, String userId) {
+		if (!respond())
+			return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+		return ResponseEntity.ok(inputPath(storageId, userId));
+	}
+
+	@Override
+	public ResponseEntity<OutputPathResponse> generateOutputPath(String filename, String contentType,
+			String duration, String fileType, String userId) {
+		if (!respond())
+			return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+		return ResponseEntity.ok(newOutput(userId, fileType));
+	}
+
+	@Override
+	public ResponseEntity<String[]> uploadMultipleFiles(MultipartFile[] files, String userId) {
+		if (!respond())
+			return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+		return ResponseEntity.ok(Arrays.stream(files).map(file -> UUID.randomUUID().toString()).toArray(String[]::new));
+	}
+
+	@Override
+	public ResponseEntity<Map<String, String>> getAllPathsFromStorageIds(String[] storageIds, String userId) {
+		if (!respond())
+			return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+		Map<String, String> paths = new LinkedHashMap<>();
+		for (String storageId : storageIds)
+			paths.put(storageId, inputPath(storageId, userId));
+		return ResponseEntity.ok(paths);
+	}
+
+	@Override
+	public ResponseEntity<OutputPathResponse> copyStorage(String storageId, String userId) {
+		if (!respond())
+			return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+		return ResponseEntity.ok(newOutput(userId, "mp4"));
+	}
+
+	@Override
+	public ResponseEntity<List<String>> deleteStorage(List<String> storageIds, String userId) {
+		if (!respond())
+			return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+		return ResponseEntity.ok(storageIds);
+	}
+
+	private boolean respond() {
+		calls.incrementAndGet();
+		long nanos = latency.sampleNanos();
+		if (nanos > 0) {
+			try {
+				TimeUnit.NANOSECONDS.sleep(nanos);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return false;
+			}
+		}
+		return !latency.failNext();
+	}
+
+	private static String inputPath(String storageId, String userId) {
+		return "/data/storage/" + userId + "/uploads/" + storageId + ".mp4";
+	}
+
+	private static OutputPathResponse newOutput(String userId, String fileType) {
+		String storageId = UUID.randomUUID().toString();
+		return new OutputPathResponse(storageId, "/data/storage/" + userId + "/outputs/" + storageId + "." + fileType);
+	}
+}
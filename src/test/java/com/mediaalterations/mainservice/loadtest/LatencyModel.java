@@ -0,0 +1,33 @@
+package com.mediaalterations.mainservice.loadtest;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Log-normal latency of a remote call, fitted to a median and a p99; the
+ * long right tail is what exposes head-of-line blocking in the caller.
+ */
+record LatencyModel(Duration median, Duration p99, double errorRate) {
+
+	// standard normal quantile of 0.99
+	private static final double Z_99 = 2.326;
+
+	static LatencyModel fromSystemProperties(String prefix, Duration median, Duration p99, double errorRate) {
+		return new LatencyModel(
+				Duration.ofMillis(Long.getLong(prefix + ".median-ms", median.toMillis())),
+				Duration.ofMillis(Long.getLong(prefix + ".p99-ms", p99.toMillis())),
+				Double.parseDouble(System.getProperty(prefix + ".error-rate", Double.toString(errorRate))));
+	}
+
+	long sampleNanos() {
+		if (median.isZero())
+			return 0;
+		double sigma = Math.log((double) p99.toNanos() / median.toNanos()) / Z_99;
+		double gaussian = ThreadLocalRandom.current().nextGaussian();
+		return (long) (median.toNanos() * Math.exp(sigma * gaussian));
+	}
+
+	boolean failNext() {
+		return errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate;
+	}
+}
@@ -0,0 +1,121 @@
+package com.mediaalterations.mainservice.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Open-model load: requests of each endpoint arrive as a Poisson process at
+ * the endpoint's rate, whether or not earlier requests have finished. Every
+ * request runs on its own virtual thread, and its latency is measured from
+ * the arrival it was scheduled for rather than from when it was sent, so a
+ * stalled server shows up as latency instead of as a lower arrival rate.
+ */
+class OpenModelDriver {
+
+	record Endpoint(String name, String method, Supplier<String> path, Supplier<String> body, double ratePerSecond) {
+	}
+
+	private final String baseUrl;
+	private final List<String> users;
+	private final Duration requestTimeout;
+	private final HttpClient client;
+
+	OpenModelDriver(String baseUrl, List<String> users, Duration requestTimeout) {
+		this.baseUrl = baseUrl;
+		this.users = users;
+		this.requestTimeout = requestTimeout;
+		this.client = HttpClient.newBuilder()
+				.version(HttpClient.Version.HTTP_1_1)
+				.executor(Executors.newVirtualThreadPerTaskExecutor())
+				.build();
+	}
+
+	/**
+	 * Offers load for {@code duration}, then waits up to {@code drain} for
+	 * requests still in flight; those that never finish count as errors.
+	 */
+	Map<String, EndpointStats> run(List<Endpoint> endpoints, Duration duration, Duration drain)
+			throws InterruptedException {
+		Map<String, EndpointStats> stats = new LinkedHashMap<>();
+		endpoints.forEach(endpoint -> stats.put(endpoint.name(), new EndpointStats()));
+
+		try (ExecutorService requests = Executors.newVirtualThreadPerTaskExecutor()) {
+			long start = System.nanoTime();
+			List<Thread> pacers = new ArrayList<>();
+			for (Endpoint endpoint : endpoints) {
+				if (endpoint.ratePerSecond() <= 0)
+					continue;
+				pacers.add(Thread.ofPlatform().name("pacer-" + endpoint.name()).start(
+						() -> pace(endpoint, start, duration.toNanos(), requests, stats.get(endpoint.name()))));
+			}
+			for (Thread pacer : pacers)
+				pacer.join();
+
+			requests.shutdown();
+			if (!requests.awaitTermination(drain.toMillis(), TimeUnit.MILLISECONDS))
+				requests.shutdownNow();
+		}
+		return stats;
+	}
+
+	private void pace(Endpoint endpoint, long start, long durationNanos, ExecutorService requests,
+			EndpointStats stats) {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		double meanGapNanos = TimeUnit.SECONDS.toNanos(1) / endpoint.ratePerSecond();
+		long arrival = start;
+		while (true) {
+			arrival += (long) (-Math.log(1 - random.nextDouble()) * meanGapNanos);
+			if (arrival - start >= durationNanos)
+				return;
+			long wait;
+			while ((wait = arrival - System.nanoTime()) > 0)
+				LockSupport.parkNanos(wait);
+
+			long scheduled = arrival;
+			String user = users.get(random.nextInt(users.size()));
+			stats.issued();
+			requests.execute(() -> send(endpoint, user, scheduled, stats));
+		}
+	}
+
+	private void send(Endpoint endpoint, String user, long scheduled, EndpointStats stats) {
+		String body = endpoint.body() == null ? null : endpoint.body().get();
+		HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + endpoint.path().get()))
+				.timeout(requestTimeout)
+				.header("user_id", user)
+				.header("Content-Type", "application/json")
+				.method(endpoint.method(), body == null
+						? HttpRequest.BodyPublishers.noBody()
+						: HttpRequest.BodyPublishers.ofString(body))
+				.build();
+		try {
+			HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+			long latency = System.nanoTime() - scheduled;
+			if (response.statusCode() / 100 == 2)
+				stats.succeeded(latency);
+			else
+				stats.failed("http_" + response.statusCode(), latency);
+		} catch (HttpTimeoutException e) {
+			stats.failed("timeout", System.nanoTime() - scheduled);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			stats.failed("abandoned", System.nanoTime() - scheduled);
+		} catch (Exception e) {
+			stats.failed(e.getClass().getSimpleName(), System.nanoTime() - scheduled);
+		}
+	}
+}
@@ -0,0 +1,250 @@
+package com.mediaalterations.mainservice.loadtest;
+
+import com.mediaalterations.mainservice.loadtest.OpenModelDriver.Endpoint;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import com.mediaalterations.mainservice.feignClients.StorageClient;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.convention.TestBean;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Drives the process endpoints of a fully booted service with open-model
+ * load and reports throughput, latency percentiles and error rates per
+ * endpoint. The storage client and the RabbitTemplate are replaced by
+ * in-process stand-ins and the loadtest profile switches to an in-memory
+ * database, so the run needs no network. Run with
+ *
+ * <pre>
+ * gradle loadTest -Dloadtest.duration-seconds=60 -Dloadtest.rate.video=80 \
+ *     -Dloadtest.storage.median-ms=10 -Dloadtest.storage.p99-ms=120 -Dloadtest.storage.error-rate=0.001
+ * </pre>
+ *
+ * {@code loadtest.rate-scale} multiplies every endpoint's rate, which is the
+ * quickest way to find the knee on a given machine. Results are also written to build/reports/loadtest/results.json. The run
+ * fails when an endpoint's error rate exceeds {@code loadtest.max-error-rate}
+ * or fewer than {@code loadtest.min-throughput-ratio} of the requests it
+ * was offered complete successfully within the drain period.
+ */
+@Tag("loadtest")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("loadtest")
+class ProcessLoadTest {
+
+	private static final double[] QUANTILES = { 0.5, 0.99, 0.999 };
+
+	@LocalServerPort
+	private int port;
+
+	@TestBean(methodName = "fakeStorage")
+	private StorageClient storageClient;
+
+	@TestBean(methodName = "capturingBroker")
+	private RabbitTemplate rabbitTemplate;
+
+	private FakeStorageClient storage;
+	private CapturingRabbitTemplate broker;
+
+	static StorageClient fakeStorage() {
+		return new FakeStorageClient(LatencyModel.fromSystemProperties("loadtest.storage",
+				Duration.ofMillis(5), Duration.ofMillis(40), 0));
+	}
+
+	static RabbitTemplate capturingBroker() {
+		return new CapturingRabbitTemplate();
+	}
+
+	@Test
+	void endpointsSustainOfferedLoad() throws Exception {
+		storage = (FakeStorageClient) storageClient;
+		broker = (CapturingRabbitTemplate) rabbitTemplate;
+		Duration duration = Duration.ofSeconds(Long.getLong("loadtest.duration-seconds", 20));
+		Duration drain = Duration.ofSeconds(Long.getLong("loadtest.drain-seconds", 15));
+		double maxErrorRate = Double.parseDouble(System.getProperty("loadtest.max-error-rate", "0.01"));
+		double minThroughputRatio = Double.parseDouble(System.getProperty("loadtest.min-throughput-ratio", "0.9"));
+		List<String> users = IntStream.range(0, Integer.getInteger("loadtest.users", 200))
+				.mapToObj(i -> "load-user-" + i)
+				.toList();
+
+		List<Endpoint> endpoints = endpoints();
+		OpenModelDriver driver = new OpenModelDriver("http://localhost:" + port, users,
+				Duration.ofMillis(Long.getLong("loadtest.request-timeout-ms", 10_000)));
+
+		// a short unmeasured pass so JIT and connection pools are warm
+		driver.run(endpoints, Duration.ofSeconds(Long.getLong("loadtest.warmup-seconds", 5)), drain);
+		Map<String, EndpointStats> results = driver.run(endpoints, duration, drain);
+		// lets the outbox relay publish what the last requests created
+		TimeUnit.SECONDS.sleep(1);
+
+		report(endpoints, results, duration);
+
+		for (Endpoint endpoint : endpoints) {
+			EndpointStats stats = results.get(endpoint.name());
+			assertThat(stats.errorRate())
+					.as("error rate of %s, errors %s", endpoint.name(), stats.errorsByReason())
+					.isLessThanOrEqualTo(maxErrorRate);
+			// against the arrivals actually drawn, so Poisson noise at low rates cannot fail the run
+			assertThat((double) stats.succeededCount())
+					.as("completed requests of %s", endpoint.name())
+					.isGreaterThanOrEqualTo(stats.issuedCount() * minThroughputRatio);
+		}
+		assertThat(broker.published()).as("jobs published through the outbox").isPositive();
+	}
+
+	private static List<Endpoint> endpoints() {
+		List<Endpoint> endpoints = new ArrayList<>();
+		endpoints.add(new Endpoint("video", "POST", () -> "/process/video/toVideo", ProcessLoadTest::videoBody,
+				rate("video", 40)));
+		endpoints.add(new Endpoint("audio", "POST", () -> "/process/toAudio", ProcessLoadTest::audioBody,
+				rate("audio", 25)));
+		endpoints.add(new Endpoint("gif", "POST", () -> "/process/video/toGif", ProcessLoadTest::gifBody,
+				rate("gif", 10)));
+		endpoints.add(new Endpoint("merge", "POST", () -> "/process/merge", ProcessLoadTest::mergeBody,
+				rate("merge", 3)));
+		endpoints.add(new Endpoint("batch", "POST", () -> "/process/batch", ProcessLoadTest::batchBody,
+				rate("batch", 2)));
+		endpoints.add(new Endpoint("fanout", "POST", () -> "/process/fanout", ProcessLoadTest::fanOutBody,
+				rate("fanout", 2)));
+		endpoints.add(new Endpoint("history", "GET", () -> "/process/history?limit=50", null,
+				rate("history", 20)));
+		return endpoints;
+	}
+
+	private static double rate(String endpoint, double perSecond) {
+		double scale = Double.parseDouble(System.getProperty("loadtest.rate-scale", "1"));
+		return scale * Double.parseDouble(System.getProperty("loadtest.rate." + endpoint, Double.toString(perSecond)));
+	}
+
+	private void report(List<Endpoint> endpoints, Map<String, EndpointStats> results, Duration duration)
+			throws IOException {
+		StringBuilder table = new StringBuilder(String.format("%n%-8s %10s %10s %9s %8s %8s %9s %9s %9s%n",
+				"endpoint", "offered/s", "done/s", "requests", "errors", "error%", "p50 ms", "p99 ms", "p999 ms"));
+		StringJoiner json = new StringJoiner(",\n", "{\n  \"durationSeconds\": " + duration.toSeconds()
+				+ ",\n  \"published\": " + broker.published()
+				+ ",\n  \"storageCalls\": " + storage.calls()
+				+ ",\n  \"endpoints\": [\n", "\n  ]\n}\n");
+
+		for (Endpoint endpoint : endpoints) {
+			EndpointStats stats = results.get(endpoint.name());
+			long[] percentiles = stats.percentiles(QUANTILES);
+			double achieved = stats.succeededCount() / (double) duration.toSeconds();
+			table.append(String.format("%-8s %10.1f %10.1f %9d %8d %7.2f%% %9.1f %9.1f %9.1f%n",
+					endpoint.name(), endpoint.ratePerSecond(), achieved, stats.issuedCount(), stats.errorCount(),
+					stats.errorRate() * 100, millis(percentiles[0]), millis(percentiles[1]), millis(percentiles[2])));
+			json.add(String.format(Locale.ROOT,
+					"    {\"name\": \"%s\", \"offeredPerSecond\": %.2f, \"throughputPerSecond\": %.2f, "
+							+ "\"requests\": %d, \"errors\": %d, \"errorRate\": %.5f, "
+							+ "\"p50Ms\": %.3f, \"p99Ms\": %.3f, \"p999Ms\": %.3f}",
+					endpoint.name(), endpoint.ratePerSecond(), achieved, stats.issuedCount(), stats.errorCount(),
+					stats.errorRate(), millis(percentiles[0]), millis(percentiles[1]), millis(percentiles[2])));
+			if (stats.errorCount() > 0)
+				table.append(String.format("%-8s errors %s%n", "", stats.errorsByReason()));
+		}
+		table.append(String.format("published=%d %s, storageCalls=%d%n",
+				broker.published(), broker.publishedByRoutingKey(), storage.calls()));
+		System.out.print(table);
+
+		Path file = Path.of("build", "reports", "loadtest", "results.json");
+		Files.createDirectories(file.getParent());
+		Files.writeString(file, json.toString());
+	}
+
+	private static double millis(long nanos) {
+		return nanos / 1_000_000.0;
+	}
+
+	// ===================== REQUEST BODIES =====================
+
+	private static final String[] VIDEO = {
+			"\"mp4\", \"videoCodec\": \"h264\", \"audioCodec\": \"aac\", \"encoderPreset\": \"medium\", \"crf\": 23, \"frameRate\": 30, \"resolution\": \"p720\"",
+			"\"mp4\", \"videoCodec\": \"h264\", \"audioCodec\": \"aac\", \"encoderPreset\": \"fast\", \"crf\": 26, \"frameRate\": 0, \"resolution\": \"p1080\"",
+			"\"mkv\", \"videoCodec\": \"h265\", \"audioCodec\": \"flac\", \"encoderPreset\": \"slow\", \"crf\": 20, \"frameRate\": 0, \"resolution\": \"source\"",
+			"\"webm\", \"videoCodec\": \"vp9\", \"audioCodec\": \"opus\", \"encoderPreset\": \"fast\", \"crf\": 30, \"frameRate\": 60, \"resolution\": \"p1080\"",
+			"\"mp4\", \"videoCodec\": \"source\", \"audioCodec\": \"source\", \"encoderPreset\": \"ultrafast\", \"crf\": 0, \"frameRate\": 0, \"resolution\": \"source\"" };
+
+	private static final String[] AUDIO = {
+			"\"mp3\", \"bitrate\": 192, \"channelType\": \"stereo\", \"sampleRate\": 44100",
+			"\"aac\", \"bitrate\": 128, \"channelType\": \"mono\", \"sampleRate\": 48000",
+			"\"flac\", \"bitrate\": 256, \"channelType\": \"stereo\", \"sampleRate\": 96000",
+			"\"ogg\", \"bitrate\": 96, \"channelType\": \"stereo\", \"sampleRate\": 22050" };
+
+	private static String storageId() {
+		return "src-" + ThreadLocalRandom.current().nextInt(1_000_000);
+	}
+
+	private static String duration() {
+		// mostly short clips, the occasional long recording
+		int seconds = ThreadLocalRandom.current().nextInt(100) < 90
+				? 30 + ThreadLocalRandom.current().nextInt(900)
+				: 900 + ThreadLocalRandom.current().nextInt(3600);
+		return String.format("%02d:%02d:%02d", seconds / 3600, seconds / 60 % 60, seconds % 60);
+	}
+
+	private static String pick(String[] options) {
+		return options[ThreadLocalRandom.current().nextInt(options.length)];
+	}
+
+	private static String videoOptions() {
+		return "\"storageId\": \"" + storageId() + "\", \"fileName\": \"clip.mov\", \"duration\": \"" + duration()
+				+ "\", \"toMediaType\": " + pick(VIDEO);
+	}
+
+	private static String audioOptions() {
+		return "\"storageId\": \"" + storageId() + "\", \"fileName\": \"track.wav\", \"duration\": \"" + duration()
+				+ "\", \"toMediaType\": " + pick(AUDIO);
+	}
+
+	private static String gifOptions() {
+		return "\"storageId\": \"" + storageId() + "\", \"fileName\": \"clip.mp4\", \"duration\": \"00:01:00\", "
+				+ "\"toMediaType\": \"gif\", \"startTimeSeconds\": 5, \"durationSeconds\": 6, \"fps\": 12, "
+				+ "\"resolution\": \"p360\"";
+	}
+
+	private static String videoBody() {
+		return "{" + videoOptions() + "}";
+	}
+
+	private static String audioBody() {
+		return "{" + audioOptions() + "}";
+	}
+
+	private static String gifBody() {
+		return "{" + gifOptions() + "}";
+	}
+
+	private static String mergeBody() {
+		return "{\"mediaFiles\": [{\"storageId\": \"" + storageId() + "\", \"type\": \"video\"}, "
+				+ "{\"storageId\": \"" + storageId() + "\", \"type\": \"audio\"}], "
+				+ "\"duration\": \"00:03:00\", \"toMediaType\": \"mp4\", \"videoCodec\": \"h264\", "
+				+ "\"audioCodec\": \"aac\", \"resolutionHeight\": 720}";
+	}
+
+	private static String batchBody() {
+		return "[{\"video\": {" + videoOptions() + "}}, {\"video\": {" + videoOptions() + "}}, "
+				+ "{\"audio\": {" + audioOptions() + "}}, {\"audio\": {" + audioOptions() + "}}, "
+				+ "{\"gif\": {" + gifOptions() + "}}]";
+	}
+
+	private static String fanOutBody() {
+		return "{\"storageId\": \"" + storageId() + "\", \"fileName\": \"talk.mov\", \"duration\": \"00:12:00\", "
+				+ "\"outputs\": [{\"video\": {" + videoOptions() + "}}, {\"video\": {" + videoOptions() + "}}, "
+				+ "{\"audio\": {" + audioOptions() + "}}]}";
+	}
+}
@@ -0,0 +1,90 @@
+package com.mediaalterations.mainservice.messaging;
+
+import com.mediaalterations.mainservice.dto.ProcessStatusUpdate;
+import com.mediaalterations.mainservice.entity.ProcessStatus;
+import com.mediaalterations.mainservice.service.ProcessLeaseManager;
+import com.mediaalterations.mainservice.service.ProcessStatusUpdater;
+import com.mediaalterations.mainservice.service.ProgressTracker;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageBuilder;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.converter.JacksonJsonMessageConverter;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+class ProcessStatusListenerTests {
+
+	private final ProcessStatusUpdater statusUpdater = mock(ProcessStatusUpdater.class);
+	private final RabbitTemplate rabbitTemplate = mock(RabbitTemplate.class);
+
+	private final ProcessStatusListener listener = new ProcessStatusListener(statusUpdater,
+			mock(ProgressTracker.class), mock(ProcessLeaseManager.class), new JacksonJsonMessageConverter(),
+			rabbitTemplate);
+
+	@BeforeEach
+	void setUp() {
+		ReflectionTestUtils.setField(listener, "exchange", "process.exchange");
+		ReflectionTestUtils.setField(listener, "parkedQueue", "process.reports.parked");
+	}
+
+	@Test
+	void reportThatCannotBeAppliedIsParkedAndTheRestApplied() {
+		Message good = status("good", "10 MB");
+		Message poison = status("poison", "9".repeat(400));
+		List<ProcessStatusUpdate> poisonOnly = List.of(
+				new ProcessStatusUpdate("poison", ProcessStatus.COMPLETED, "9".repeat(400), "00:01:00"));
+		doAnswer(invocation -> {
+			List<ProcessStatusUpdate> updates = invocation.getArgument(0);
+			if (updates.stream().anyMatch(update -> update.processId().equals("poison")))
+				throw new DataIntegrityViolationException("Data too long for column 'file_size'");
+			return null;
+		}).when(statusUpdater).apply(anyList());
+
+		listener.onStatusBatch(List.of(good, poison));
+
+		verify(statusUpdater).apply(List.of(
+				new ProcessStatusUpdate("good", ProcessStatus.COMPLETED, "10 MB", "00:01:00")));
+		verify(statusUpdater).apply(poisonOnly);
+		verify(rabbitTemplate).send("process.exchange", "process.reports.parked", poison);
+		verify(rabbitTemplate, never()).send(anyString(), anyString(), eq(good));
+		assertThat((String) poison.getMessageProperties().getHeader("x-parked-reason")).contains("Data too long");
+	}
+
+	@Test
+	void transientFailureRequeuesTheWholeBatch() {
+		doThrow(new QueryTimeoutException("lock wait timeout")).when(statusUpdater).apply(anyList());
+
+		assertThatThrownBy(() -> listener.onStatusBatch(List.of(status("a", "1 MB"), status("b", "2 MB"))))
+				.isInstanceOf(QueryTimeoutException.class);
+
+		verify(rabbitTemplate, never()).send(anyString(), anyString(), any(Message.class));
+	}
+
+	private static Message status(String processId, String fileSize) {
+		String json = """
+				{"processId":"%s","status":"COMPLETED","fileSize":"%s","fileDuration":"00:01:00"}"""
+				.formatted(processId, fileSize);
+		return MessageBuilder.withBody(json.getBytes(StandardCharsets.UTF_8))
+				.setContentType(MessageProperties.CONTENT_TYPE_JSON)
+				.build();
+	}
+}
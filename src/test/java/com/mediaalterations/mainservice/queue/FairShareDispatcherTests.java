@@ -0,0 +1,81 @@
+package com.mediaalterations.mainservice.queue;
+
+import com.mediaalterations.mainservice.repository.OutboxRepository;
+import com.mediaalterations.mainservice.repository.ProcessRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class FairShareDispatcherTests {
+
+	private final WaitingQueueIndex waitingQueue = new WaitingQueueIndex(mock(ProcessRepository.class));
+	private final FairShareDispatcher dispatcher = new FairShareDispatcher(
+			mock(OutboxRepository.class), mock(ProcessRepository.class), waitingQueue, 60, 2);
+
+	private long nextOutboxId = 1;
+
+	@Test
+	void heavyUserDoesNotStarveOthers() {
+		for (int i = 0; i < 200; i++)
+			dispatcher.enqueue(job("heavy", 60));
+		PendingJob light = job("light", 60);
+		dispatcher.enqueue(light);
+
+		List<PendingJob> batch = dispatcher.nextBatch(10);
+
+		// both users capped at two in flight
+		assertThat(batch).hasSize(3);
+		assertThat(batch).contains(light);
+		assertThat(batch.stream().filter(j -> j.userId().equals("heavy"))).hasSize(2);
+	}
+
+	@Test
+	void finishedJobsFreeInFlightSlots() {
+		dispatcher.enqueue(job("u1", 10));
+		dispatcher.enqueue(job("u1", 10));
+		dispatcher.enqueue(job("u1", 10));
+
+		assertThat(dispatcher.nextBatch(10)).hasSize(2);
+		assertThat(dispatcher.nextBatch(10)).isEmpty();
+
+		dispatcher.finished("u1");
+		assertThat(dispatcher.nextBatch(10)).hasSize(1);
+	}
+
+	@Test
+	void positionReflectsFairOrder() {
+		PendingJob heavyFirst = job("heavy", 60);
+		dispatcher.enqueue(heavyFirst);
+		for (int i = 0; i < 50; i++)
+			dispatcher.enqueue(job("heavy", 60));
+		PendingJob light = job("light", 60);
+		dispatcher.enqueue(light);
+
+		// only the first heavy job would be released before the light one
+		assertThat(dispatcher.positionOf(light.processId(), "light")).hasValue(1);
+		assertThat(dispatcher.positionOf(heavyFirst.processId(), "heavy")).hasValue(0);
+	}
+
+	@Test
+	void unsentJobsGoBackToTheHead() {
+		PendingJob first = job("u1", 10);
+		dispatcher.enqueue(first);
+		dispatcher.enqueue(job("u1", 10));
+
+		List<PendingJob> batch = dispatcher.nextBatch(1);
+		assertThat(batch).containsExactly(first);
+		dispatcher.released(batch);
+		dispatcher.returnUnsent(batch);
+
+		assertThat(waitingQueue.size()).isZero();
+		assertThat(dispatcher.nextBatch(1)).containsExactly(first);
+	}
+
+	private PendingJob job(String userId, double cost) {
+		return new PendingJob(nextOutboxId++, UUID.randomUUID(), userId, cost);
+	}
+}
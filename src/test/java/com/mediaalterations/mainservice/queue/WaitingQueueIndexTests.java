@@ -0,0 +1,48 @@
+package com.mediaalterations.mainservice.queue;
+
+import com.mediaalterations.mainservice.entity.ProcessStatus;
+import com.mediaalterations.mainservice.repository.ProcessRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class WaitingQueueIndexTests {
+
+	@Test
+	void positionsFollowCreationOrderAcrossRemovalsAndResizes() {
+		ProcessRepository repository = mock(ProcessRepository.class);
+		UUID first = UUID.randomUUID();
+		UUID second = UUID.randomUUID();
+		when(repository.findWaitingRefs(ProcessStatus.WAITING)).thenReturn(List.of(
+				new WaitingProcessRef(first, "u1"),
+				new WaitingProcessRef(second, "u2")));
+
+		WaitingQueueIndex index = new WaitingQueueIndex(repository);
+		index.rebuild();
+
+		assertThat(index.positionOf(first, "u1")).hasValue(0);
+		assertThat(index.positionOf(second, "u2")).hasValue(1);
+		assertThat(index.positionOf(second, "u1")).isEmpty();
+
+		List<UUID> added = new ArrayList<>();
+		for (int i = 0; i < 5000; i++) {
+			UUID id = UUID.randomUUID();
+			index.add(id, "u3");
+			added.add(id);
+			if (i % 2 == 0)
+				index.remove(id);
+		}
+		index.remove(first);
+
+		assertThat(index.size()).isEqualTo(2501);
+		assertThat(index.positionOf(second, "u2")).hasValue(0);
+		assertThat(index.positionOf(added.get(1), "u3")).hasValue(1);
+		assertThat(index.positionOf(added.get(4999), "u3")).hasValue(2500);
+	}
+}
@@ -0,0 +1,21 @@
+package com.mediaalterations.mainservice.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BinaryIdsTests {
+
+	@Test
+	void roundTripsInUuidByteOrder() {
+		UUID id = UUID.fromString("01890a5d-ac96-774b-bcce-b302099a8057");
+
+		byte[] raw = BinaryIds.toBytes(id);
+
+		assertThat(raw[0]).isEqualTo((byte) 0x01);
+		assertThat(raw[15]).isEqualTo((byte) 0x57);
+		assertThat(BinaryIds.toUuid(raw)).isEqualTo(id);
+	}
+}
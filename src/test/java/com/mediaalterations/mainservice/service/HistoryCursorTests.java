@@ -0,0 +1,74 @@
+package com.mediaalterations.mainservice.service;
+
+import com.mediaalterations.mainservice.dto.ProcessSummary;
+import com.mediaalterations.mainservice.entity.ProcessStatus;
+import com.mediaalterations.mainservice.exceptions.InvalidRequestException;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class HistoryCursorTests {
+
+	@Test
+	void roundTripsKeepingSubSecondPrecision() {
+		HistoryCursor cursor = new HistoryCursor(LocalDateTime.of(2025, 3, 1, 12, 30, 5, 123_456_000),
+				UUID.randomUUID());
+
+		String encoded = cursor.encode();
+
+		assertThat(encoded).doesNotContain("=", "+", "/");
+		assertThat(HistoryCursor.decode(encoded)).isEqualTo(cursor);
+	}
+
+	@Test
+	void rejectsTamperedCursors() {
+		assertThatThrownBy(() -> HistoryCursor.decode("not a cursor"))
+				.isInstanceOf(InvalidRequestException.class);
+		assertThatThrownBy(() -> HistoryCursor.decode(new HistoryCursor(LocalDateTime.now(), UUID.randomUUID())
+				.encode().substring(4)))
+				.isInstanceOf(InvalidRequestException.class);
+	}
+
+	@Test
+	void acceptsCursorsOfTheArchivePhase() {
+		LocalDateTime createdAt = LocalDateTime.of(2024, 1, 2, 3, 4, 5);
+		UUID id = UUID.randomUUID();
+		String legacy = Base64.getUrlEncoder().withoutPadding()
+				.encodeToString(("archive|" + createdAt + "|" + id).getBytes(StandardCharsets.UTF_8));
+
+		assertThat(HistoryCursor.decode(legacy)).isEqualTo(new HistoryCursor(createdAt, id));
+	}
+
+	@Test
+	void mergesBothTablesNewestFirstListingAMovedProcessOnce() {
+		LocalDateTime now = LocalDateTime.of(2025, 3, 1, 12, 0);
+		ProcessSummary newest = summary(now, UUID.randomUUID());
+		ProcessSummary moved = summary(now.minusMinutes(1), UUID.randomUUID());
+		ProcessSummary archived = summary(now.minusMinutes(2), UUID.randomUUID());
+		ProcessSummary oldest = summary(now.minusMinutes(3), UUID.randomUUID());
+
+		assertThat(HistoryCursor.merge(List.of(newest, moved), List.of(moved, archived, oldest), 3))
+				.containsExactly(newest, moved, archived);
+	}
+
+	@Test
+	void ordersEqualTimestampsByTheUnsignedIdBytes() {
+		LocalDateTime now = LocalDateTime.of(2025, 3, 1, 12, 0);
+		// the high bit set is negative as a long but sorts last as a BINARY(16) column
+		ProcessSummary high = summary(now, new UUID(0x8000_0000_0000_0000L, 0));
+		ProcessSummary low = summary(now, new UUID(0x0000_0000_0000_0001L, 0));
+
+		assertThat(HistoryCursor.merge(List.of(low), List.of(high), 2)).containsExactly(high, low);
+	}
+
+	private static ProcessSummary summary(LocalDateTime createdAt, UUID id) {
+		return new ProcessSummary(id, "f.mp4", "00:01:00", "1 MB", true, "out", ProcessStatus.COMPLETED, createdAt);
+	}
+}
@@ -0,0 +1,99 @@
+package com.mediaalterations.mainservice.service;
+
+import com.mediaalterations.mainservice.dto.ProcessStatusUpdate;
+import com.mediaalterations.mainservice.entity.OutboxEvent;
+import com.mediaalterations.mainservice.entity.Process;
+import com.mediaalterations.mainservice.entity.ProcessStatus;
+import com.mediaalterations.mainservice.events.ProcessEventHub;
+import com.mediaalterations.mainservice.messaging.ProcessEventOutbox;
+import com.mediaalterations.mainservice.queue.FairShareDispatcher;
+import com.mediaalterations.mainservice.repository.OutboxRepository;
+import com.mediaalterations.mainservice.repository.ProcessRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ProcessLeaseManagerTests {
+
+	private final ProcessRepository processRepository = mock(ProcessRepository.class);
+	private final OutboxRepository outboxRepository = mock(OutboxRepository.class);
+	private final ProcessEventOutbox processOutbox = mock(ProcessEventOutbox.class);
+	private final ProcessStatusUpdater statusUpdater = mock(ProcessStatusUpdater.class);
+	private final FairShareDispatcher dispatcher = mock(FairShareDispatcher.class);
+	private final TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	private final ProcessLeaseManager leases = new ProcessLeaseManager(processRepository, outboxRepository,
+			processOutbox, statusUpdater, dispatcher, mock(ProcessEventHub.class), mock(ProcessMetrics.class),
+			mock(EntityManager.class),
+			transactionTemplate, meterRegistry, Duration.ofMinutes(2), 3, 100, 10);
+
+	@BeforeEach
+	void setUp() {
+		when(transactionTemplate.execute(any()))
+				.thenAnswer(invocation -> invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+	}
+
+	@Test
+	void requeuesJobFromItsLastOutboxRow() {
+		Process process = expired(null);
+		OutboxEvent lastJob = new OutboxEvent(process.getId(), "u1", "process.created", 60, "{}", null);
+		when(processRepository.findExpiredLeases(any(), any())).thenReturn(List.of(process));
+		when(outboxRepository.findFirstByProcessIdOrderByIdDesc(process.getId())).thenReturn(Optional.of(lastJob));
+
+		leases.reclaimExpired();
+
+		assertThat(process.getStatus()).isEqualTo(ProcessStatus.WAITING);
+		assertThat(process.getReclaimCount()).isEqualTo(1);
+		assertThat(process.getLeaseOwner()).isNull();
+		assertThat(process.getLeaseExpiresAt()).isNull();
+		verify(processOutbox).requeue(lastJob, 1);
+		verify(dispatcher).finished("u1");
+		verify(statusUpdater, never()).apply(anyList());
+		assertThat(meterRegistry.counter("process.lease.reclaimed", "outcome", "requeued").count()).isEqualTo(1);
+		assertThat(meterRegistry.timer("process.lease.age").count()).isEqualTo(1);
+	}
+
+	@Test
+	void failsJobAfterTooManyReclaims() {
+		Process process = expired(3);
+		when(processRepository.findExpiredLeases(any(), any())).thenReturn(List.of(process));
+
+		leases.reclaimExpired();
+
+		verify(processOutbox, never()).requeue(any(), anyInt());
+		verify(statusUpdater).apply(List.of(
+				new ProcessStatusUpdate(process.getId().toString(), ProcessStatus.FAILED, null, null, 4)));
+		assertThat(process.getReclaimCount()).isEqualTo(4);
+		assertThat(meterRegistry.counter("process.lease.reclaimed", "outcome", "failed").count()).isEqualTo(1);
+	}
+
+	private static Process expired(Integer reclaimCount) {
+		Process process = new Process();
+		process.setId(UUID.randomUUID());
+		process.setUserId("u1");
+		process.setStatus(ProcessStatus.PROCESSING);
+		process.setLeaseOwner("worker-1");
+		process.setLeaseExpiresAt(LocalDateTime.now().minusSeconds(30));
+		process.setReclaimCount(reclaimCount);
+		return process;
+	}
+}
@@ -0,0 +1,126 @@
+package com.mediaalterations.mainservice.service;
+
+import com.mediaalterations.mainservice.dto.VideoConvertRequest;
+import com.mediaalterations.mainservice.entity.Process;
+import com.mediaalterations.mainservice.entity.ProcessRole;
+import com.mediaalterations.mainservice.entity.ProcessStatus;
+import com.mediaalterations.mainservice.repository.ProcessRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ProcessMetricsTests {
+
+	private final ProcessRepository processRepository = mock(ProcessRepository.class);
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final ProcessMetrics metrics = new ProcessMetrics(processRepository, meterRegistry);
+
+	@Test
+	void transitionsMoveProcessesBetweenStatusCounts() {
+		Process process = process(ProcessStatus.WAITING, null);
+		metrics.entered(process);
+
+		process.setStatus(ProcessStatus.PROCESSING);
+		metrics.statusChanged(process, ProcessStatus.WAITING);
+
+		assertThat(metrics.inFlight(ProcessStatus.WAITING)).isZero();
+		assertThat(metrics.inFlight(ProcessStatus.PROCESSING)).isEqualTo(1);
+		assertThat(meterRegistry.get("process.status.count").tag("status", "PROCESSING").gauge().value())
+				.isEqualTo(1);
+
+		process.setStatus(ProcessStatus.COMPLETED);
+		metrics.statusChanged(process, ProcessStatus.PROCESSING);
+
+		assertThat(metrics.inFlight(ProcessStatus.PROCESSING)).isZero();
+		assertThat(meterRegistry.get("process.finished").tag("status", "COMPLETED").counter().count())
+				.isEqualTo(1);
+		assertThat(meterRegistry.get("process.completion.latency").timer().count()).isEqualTo(1);
+	}
+
+	@Test
+	void internalChildrenDoNotRecordCompletionLatency() {
+		Process segment = process(ProcessStatus.COMPLETED, ProcessRole.SEGMENT);
+
+		metrics.statusChanged(segment, ProcessStatus.PROCESSING);
+
+		assertThat(meterRegistry.get("process.completion.latency").timer().count()).isZero();
+		assertThat(meterRegistry.get("process.finished").tag("status", "COMPLETED").counter().count())
+				.isEqualTo(1);
+	}
+
+	@Test
+	void reconcileReplacesDriftedCounts() {
+		metrics.entered(List.of(process(ProcessStatus.WAITING, null), process(ProcessStatus.WAITING, null)));
+		when(processRepository.countByStatus(any()))
+				.thenReturn(List.<Object[]>of(new Object[] { ProcessStatus.PROCESSING, 4L }));
+
+		metrics.reconcile();
+
+		assertThat(metrics.inFlight(ProcessStatus.WAITING)).isZero();
+		assertThat(metrics.inFlight(ProcessStatus.PROCESSING)).isEqualTo(4);
+	}
+
+	@Test
+	void rejectionReasonIsTaggedFromTheMessage() {
+		metrics.rejected(ProcessMetrics.Flow.SINGLE, "VP9/AV1 not recommended in MP4 container");
+
+		assertThat(meterRegistry.get("process.validation.rejected")
+				.tag("flow", "single")
+				.tag("reason", "vp9_av1_not_recommended_in_mp4_container")
+				.counter().count()).isEqualTo(1);
+		assertThat(ProcessMetrics.reasonOf(null)).isEqualTo("unknown");
+	}
+
+	@Test
+	void creationsAreTaggedWithKnownMediaTypeAndCodecOnly() {
+		metrics.created(ProcessMetrics.Flow.SINGLE,
+				new VideoConvertRequest("s1", "a.mov", "10", "MP4", "h264", "aac", "fast", 23, 0, "source"),
+				"transcode");
+		metrics.created(ProcessMetrics.Flow.SINGLE,
+				new VideoConvertRequest("s1", "a.mov", "10", "xyz", "nope", "aac", "fast", 23, 0, "source"),
+				"transcode");
+
+		assertThat(meterRegistry.get("process.created").tag("mediaType", "mp4").tag("codec", "h264")
+				.counter().count()).isEqualTo(1);
+		assertThat(meterRegistry.get("process.created").tag("mediaType", "other").tag("codec", "other")
+				.counter().count()).isEqualTo(1);
+	}
+
+	@Test
+	void phaseTimersExistOnlyForThePhasesOfEachFlow() {
+		assertThat(meterRegistry.find("process.create.phase").tag("flow", "abr").timers()).hasSize(5);
+		assertThat(meterRegistry.find("process.create.phase").tag("flow", "batch").timers())
+				.extracting(timer -> timer.getId().getTag("phase"))
+				.containsExactly("validate");
+
+		metrics.recordPhase(ProcessMetrics.Flow.FANOUT, ProcessMetrics.Phase.STORAGE, System.nanoTime());
+		assertThat(meterRegistry.find("process.create.phase").tag("flow", "fanout").tag("phase", "storage").timer())
+				.isNull();
+	}
+
+	@Test
+	void deletedProcessesLeaveTheStatusCounts() {
+		metrics.entered(List.of(process(ProcessStatus.WAITING, null), process(ProcessStatus.WAITING, null),
+				process(ProcessStatus.PROCESSING, null)));
+
+		metrics.deleted(List.<Object[]>of(new Object[] { ProcessStatus.WAITING, 2L },
+				new Object[] { ProcessStatus.COMPLETED, 5L }));
+
+		assertThat(metrics.inFlight(ProcessStatus.WAITING)).isZero();
+		assertThat(metrics.inFlight(ProcessStatus.PROCESSING)).isEqualTo(1);
+	}
+
+	private static Process process(ProcessStatus status, ProcessRole role) {
+		Process process = new Process("in", "out", "cmd", status, "u1", "10", "out.mp4", "0 KB", true);
+		process.setRole(role);
+		process.setCreatedAt(LocalDateTime.now().minusMinutes(5));
+		return process;
+	}
+}
@@ -0,0 +1,27 @@
+package com.mediaalterations.mainservice.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProcessReaperTests {
+
+	private static final Duration BASE = Duration.ofSeconds(30);
+	private static final Duration MAX = Duration.ofHours(1);
+
+	@Test
+	void backoffDoublesPerAttemptWithinJitterRange() {
+		assertThat(ProcessReaper.backoff(1, BASE, MAX, 0)).isEqualTo(Duration.ofSeconds(15));
+		assertThat(ProcessReaper.backoff(1, BASE, MAX, 1)).isEqualTo(Duration.ofSeconds(30));
+		assertThat(ProcessReaper.backoff(3, BASE, MAX, 0)).isEqualTo(Duration.ofSeconds(60));
+		assertThat(ProcessReaper.backoff(3, BASE, MAX, 1)).isEqualTo(Duration.ofSeconds(120));
+	}
+
+	@Test
+	void backoffIsCappedForManyAttempts() {
+		assertThat(ProcessReaper.backoff(100, BASE, MAX, 1)).isEqualTo(MAX);
+		assertThat(ProcessReaper.backoff(100, BASE, MAX, 0)).isEqualTo(MAX.dividedBy(2));
+	}
+}
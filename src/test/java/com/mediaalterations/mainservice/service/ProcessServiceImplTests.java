@@ -0,0 +1,288 @@
+package com.mediaalterations.mainservice.service;
+
+import com.mediaalterations.mainservice.cache.StoragePathCache;
+import com.mediaalterations.mainservice.cache.TranscodeResultCache;
+import com.mediaalterations.mainservice.command.FfmpegCommandCompiler;
+import com.mediaalterations.mainservice.dto.AbrPackageRequest;
+import com.mediaalterations.mainservice.dto.AudioConvertRequest;
+import com.mediaalterations.mainservice.dto.BatchConvertItem;
+import com.mediaalterations.mainservice.dto.BatchItemResult;
+import com.mediaalterations.mainservice.dto.BatchTranscodeResponse;
+import com.mediaalterations.mainservice.dto.OutputPathResponse;
+import com.mediaalterations.mainservice.dto.ProcessPage;
+import com.mediaalterations.mainservice.dto.ProcessResponseDto;
+import com.mediaalterations.mainservice.dto.ProcessStatusUpdate;
+import com.mediaalterations.mainservice.dto.ProcessSummary;
+import com.mediaalterations.mainservice.dto.QueuePositionResponse;
+import com.mediaalterations.mainservice.entity.ArchivedProcess;
+import com.mediaalterations.mainservice.entity.Process;
+import com.mediaalterations.mainservice.entity.ProcessRole;
+import com.mediaalterations.mainservice.entity.ProcessStatus;
+import com.mediaalterations.mainservice.events.ProcessEventHub;
+import com.mediaalterations.mainservice.exceptions.ExternalServiceException;
+import com.mediaalterations.mainservice.exceptions.ProcessCreationException;
+import com.mediaalterations.mainservice.exceptions.StatusConflictException;
+import com.mediaalterations.mainservice.feignClients.StorageCalls;
+import com.mediaalterations.mainservice.feignClients.StorageClient;
+import com.mediaalterations.mainservice.messaging.ProcessEventOutbox;
+import com.mediaalterations.mainservice.queue.FairShareDispatcher;
+import com.mediaalterations.mainservice.queue.JobCostEstimator;
+import com.mediaalterations.mainservice.queue.WaitingQueueIndex;
+import com.mediaalterations.mainservice.repository.ArchivedProcessRepository;
+import com.mediaalterations.mainservice.repository.OutboxRepository;
+import com.mediaalterations.mainservice.repository.ProcessRenditionRepository;
+import com.mediaalterations.mainservice.repository.ProcessRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ProcessServiceImplTests {
+
+	private static final String USER = "user-1";
+
+	private final ProcessRepository processRepository = mock(ProcessRepository.class);
+	private final OutboxRepository outboxRepository = mock(OutboxRepository.class);
+	private final StorageClient storageClient = mock(StorageClient.class);
+	private final ExecutorService virtualExecutor = Executors.newVirtualThreadPerTaskExecutor();
+	private final WaitingQueueIndex waitingQueue = mock(WaitingQueueIndex.class);
+	private final FairShareDispatcher dispatcher = mock(FairShareDispatcher.class);
+	private final StoragePathCache storagePaths = mock(StoragePathCache.class);
+	private final StorageCalls storageCalls = mock(StorageCalls.class);
+	private final ProcessEventHub processEvents = mock(ProcessEventHub.class);
+	private final ArchivedProcessRepository archivedRepository = mock(ArchivedProcessRepository.class);
+	private final ProcessMetrics metrics = mock(ProcessMetrics.class);
+	private final ProcessStatusUpdater statusUpdater = mock(ProcessStatusUpdater.class);
+	private final ProcessRenditionRepository renditionRepository = mock(ProcessRenditionRepository.class);
+	private final TranscodeResultCache resultCache = mock(TranscodeResultCache.class);
+
+	private final ProcessServiceImpl service = new ProcessServiceImpl(processRepository, outboxRepository,
+			mock(ProcessEventOutbox.class), storageClient, virtualExecutor, mock(TransactionTemplate.class),
+			resultCache, waitingQueue, dispatcher, mock(JobCostEstimator.class),
+			new FfmpegCommandCompiler(), storagePaths, storageCalls, statusUpdater,
+			mock(ProgressTracker.class), mock(SegmentedEncodingService.class),
+			renditionRepository, processEvents, archivedRepository,
+			mock(ProcessLeaseManager.class), metrics, new GeneratedOutputs(storageClient, storageCalls));
+
+	@AfterEach
+	void tearDown() {
+		virtualExecutor.shutdownNow();
+	}
+
+	@Test
+	void deletingReleasedJobsFreesTheirInFlightSlots() {
+		UUID held = UUID.randomUUID();
+		UUID running = UUID.randomUUID();
+		UUID published = UUID.randomUUID();
+		List<UUID> ids = List.of(held, running, published);
+		when(processRepository.findReleasedIds(ids, USER)).thenReturn(List.of(running, published));
+		when(processRepository.tombstone(anyList(), eq(USER), any())).thenReturn(3);
+
+		service.deleteProcessAndStorage(ids.stream().map(UUID::toString).toList(), USER);
+
+		// the held job only leaves its queue; the two released ones give their slots back
+		verify(dispatcher).remove(held, USER);
+		verify(dispatcher, times(2)).finished(USER);
+	}
+
+	@Test
+	void deletingAFanOutCarrierKeepsItsSiblings() {
+		UUID carrier = UUID.randomUUID();
+		Process done = fanOutOutput(carrier, ProcessStatus.COMPLETED);
+		Process waiting = fanOutOutput(carrier, ProcessStatus.WAITING);
+		when(processRepository.findByParentIdInAndUserIdAndRole(List.of(carrier), USER, ProcessRole.FANOUT_OUTPUT))
+				.thenReturn(List.of(done, waiting));
+		when(processRepository.tombstone(anyList(), eq(USER), any())).thenReturn(1);
+
+		service.deleteProcessAndStorage(List.of(carrier.toString()), USER);
+
+		verify(processRepository).tombstone(eq(List.of(carrier)), eq(USER), any());
+		assertThat(done.getParentId()).isNull();
+		assertThat(waiting.getParentId()).isNull();
+		// the carrier's job is gone, so the output that was still waiting on it fails
+		verify(statusUpdater).apply(List.of(
+				new ProcessStatusUpdate(waiting.getId().toString(), ProcessStatus.FAILED, null, null)));
+		verify(processEvents).publishDeleted(USER, List.of(carrier));
+	}
+
+	@Test
+	void rejectedStatusReportIsAnsweredWithAConflict() {
+		UUID id = UUID.randomUUID();
+		when(statusUpdater.apply(any(ProcessStatusUpdate.class))).thenReturn(ProcessStatusUpdater.Outcome.REJECTED);
+
+		assertThatThrownBy(() -> service.updateStatusForProcess(ProcessStatus.WAITING, null, null, id.toString(), 0))
+				.isInstanceOf(StatusConflictException.class);
+	}
+
+	@Test
+	void rejectedAbrRequestIsCounted() {
+		AbrPackageRequest request = new AbrPackageRequest("s", "v.mp4", "00:10:00", "smooth", List.of(), null, 0,
+				null);
+
+		assertThatThrownBy(() -> service.packageAbr(request, USER)).isInstanceOf(ProcessCreationException.class);
+
+		verify(metrics).rejected(ProcessMetrics.Flow.ABR, "Unsupported streaming format");
+	}
+
+	@Test
+	void deletedProcessesLeaveTheStatusGauges() {
+		UUID id = UUID.randomUUID();
+		List<Object[]> counts = List.<Object[]>of(new Object[] { ProcessStatus.WAITING, 1L });
+		when(processRepository.countByStatusForIds(List.of(id), USER)).thenReturn(counts);
+		when(processRepository.tombstone(anyList(), eq(USER), any())).thenReturn(1);
+
+		service.deleteProcessAndStorage(List.of(id.toString()), USER);
+
+		verify(metrics).deleted(counts);
+	}
+
+	@Test
+	void archivedProcessKeepsItsQueuePositionAndRenditions() {
+		UUID id = UUID.randomUUID();
+		ArchivedProcess archived = mock(ArchivedProcess.class);
+		when(archived.getStatus()).thenReturn(ProcessStatus.COMPLETED);
+		when(archivedRepository.findByIdAndUserId(id, USER)).thenReturn(Optional.of(archived));
+
+		assertThat(service.getQueuePosition(id.toString(), USER))
+				.isEqualTo(new QueuePositionResponse(id.toString(), ProcessStatus.COMPLETED, 0));
+		assertThat(service.getRenditions(id.toString(), USER)).isEmpty();
+		verify(renditionRepository).findByProcessIdOrderByRenditionIndex(id);
+	}
+
+	@Test
+	void historyMergesTheArchiveOnlyWhenItCanHoldRowsOfThePage() {
+		ReflectionTestUtils.setField(service, "maxHistoryPageSize", 200);
+		ReflectionTestUtils.setField(service, "archiveAfter", Duration.ofDays(30));
+		LocalDateTime now = LocalDateTime.now();
+		ProcessSummary recent = summary(now.minusMinutes(1));
+		ProcessSummary older = summary(now.minusMinutes(2));
+		ProcessSummary archived = summary(now.minusDays(40));
+		when(processRepository.findHistoryPage(eq(USER), any(), any(), any(), any(), any()))
+				.thenReturn(List.of(recent, older));
+		when(archivedRepository.findHistoryPage(eq(USER), any(), any(), any(), any(), any()))
+				.thenReturn(List.of(archived));
+
+		// a full page of recent rows, the archive cannot contribute
+		ProcessPage first = service.getProcessHistory(USER, null, 1, null, null);
+		verify(archivedRepository, never()).findHistoryPage(any(), any(), any(), any(), any(), any());
+		assertThat(first.items()).extracting(ProcessResponseDto::processId).containsExactly(recent.id().toString());
+
+		ProcessPage all = service.getProcessHistory(USER, null, 5, null, null);
+		assertThat(all.items()).extracting(ProcessResponseDto::processId)
+				.containsExactly(recent.id().toString(), older.id().toString(), archived.id().toString());
+		assertThat(all.nextCursor()).isNull();
+	}
+
+	@Test
+	void failedInputLookupDeletesTheGeneratedOutput() {
+		when(storageCalls.submit(eq(StorageCalls.GENERATE_OUTPUT_PATH), any())).thenReturn(
+				CompletableFuture.completedFuture(ResponseEntity.ok(new OutputPathResponse("out-1", "/out/a.mp3"))));
+		when(storageCalls.submit(eq(StorageCalls.DELETE_STORAGE), any())).thenAnswer(invocation -> {
+			Supplier<?> call = invocation.getArgument(1);
+			return CompletableFuture.completedFuture(call.get());
+		});
+		when(storagePaths.getPath("s", USER)).thenThrow(new ExternalServiceException("Storage service failure"));
+
+		assertThatThrownBy(() -> service.extractAndConvertAudio(
+				new AudioConvertRequest("s", "clip.mp4", "00:03:00", "mp3", 128, "stereo", 44100), USER))
+				.isInstanceOf(ProcessCreationException.class);
+
+		verify(storageClient).deleteStorage(List.of("out-1"), USER);
+	}
+
+	@Test
+	void cachedResultOfAnotherUsersInputIsNotCopied() {
+		Process owners = new Process("s", "owner-out", "-y", ProcessStatus.COMPLETED, "user-2", "00:03:00",
+				"a.mp3", "3 MB", false);
+		owners.setId(UUID.randomUUID());
+		when(resultCache.keyFor(any(), any(), any())).thenReturn("key");
+		when(resultCache.findCompleted("key")).thenReturn(Optional.of(owners));
+		when(storageCalls.submit(eq(StorageCalls.GENERATE_OUTPUT_PATH), any())).thenReturn(
+				CompletableFuture.completedFuture(ResponseEntity.ok(new OutputPathResponse("out-1", "/out/a.mp3"))));
+		when(storageCalls.submit(eq(StorageCalls.DELETE_STORAGE), any()))
+				.thenReturn(CompletableFuture.completedFuture(null));
+		when(storagePaths.getPath("s", USER)).thenThrow(new ExternalServiceException("Storage service failure"));
+
+		assertThatThrownBy(() -> service.extractAndConvertAudio(
+				new AudioConvertRequest("s", "clip.mp4", "00:03:00", "mp3", 128, "stereo", 44100), USER))
+				.isInstanceOf(ProcessCreationException.class);
+
+		verify(storageCalls, never()).call(eq(StorageCalls.COPY_STORAGE), any());
+		verify(storageClient, never()).copyStorage(any(), any());
+	}
+
+	@Test
+	void batchReusesCachedResultsOnlyForTheCallersInputs() {
+		ReflectionTestUtils.setField(service, "maxBatchItems", 10);
+		when(resultCache.keyFor(any(), any(), any())).thenAnswer(invocation -> invocation.getArgument(0));
+		when(resultCache.findCompleted("mine")).thenReturn(Optional.of(completed("mine", USER)));
+		when(resultCache.findCompleted("theirs")).thenReturn(Optional.of(completed("theirs", "user-2")));
+		when(storagePaths.getPaths(any(), eq(USER))).thenReturn(Map.of("mine", "/in/mine.mp4"));
+		when(storageCalls.submit(eq(StorageCalls.COPY_STORAGE), any())).thenAnswer(invocation -> {
+			Supplier<?> call = invocation.getArgument(1);
+			return CompletableFuture.completedFuture(call.get());
+		});
+		when(storageClient.copyStorage("mine-out", USER))
+				.thenReturn(ResponseEntity.ok(new OutputPathResponse("copy-1", "/out/copy.mp3")));
+		when(processRepository.saveAndFlush(any())).thenAnswer(invocation -> {
+			Process process = invocation.getArgument(0);
+			process.setId(UUID.randomUUID());
+			return process;
+		});
+
+		BatchTranscodeResponse response = service.submitBatch(List.of(
+				new BatchConvertItem(new AudioConvertRequest("mine", "a.mp4", "00:03:00", "mp3", 128, "stereo", 44100),
+						null, null),
+				new BatchConvertItem(new AudioConvertRequest("theirs", "b.mp4", "00:03:00", "mp3", 128, "stereo", 44100),
+						null, null)), USER);
+
+		assertThat(response.results()).extracting(BatchItemResult::message)
+				.containsExactly("Reused existing result", "Input file not found");
+		verify(storageClient, never()).copyStorage(eq("theirs-out"), any());
+		verify(storageCalls, never()).call(eq(StorageCalls.COPY_STORAGE), any());
+		verify(storageCalls, never()).submit(eq(StorageCalls.GENERATE_OUTPUT_PATH), any());
+	}
+
+	private static ProcessSummary summary(LocalDateTime createdAt) {
+		return new ProcessSummary(UUID.randomUUID(), "f.mp4", "00:01:00", "1 MB", true, "out",
+				ProcessStatus.COMPLETED, createdAt);
+	}
+
+	private static Process completed(String storageId, String userId) {
+		Process process = new Process(storageId, storageId + "-out", "-y", ProcessStatus.COMPLETED, userId,
+				"00:03:00", "a.mp3", "3 MB", false);
+		process.setId(UUID.randomUUID());
+		return process;
+	}
+
+	private static Process fanOutOutput(UUID carrier, ProcessStatus status) {
+		Process process = new Process("in", "out", "-y", status, USER, "00:01:00", "f.mp4", "0 KB", true);
+		process.setId(UUID.randomUUID());
+		process.setParentId(carrier);
+		process.setRole(ProcessRole.FANOUT_OUTPUT);
+		return process;
+	}
+}
@@ -0,0 +1,125 @@
+package com.mediaalterations.mainservice.service;
+
+import com.mediaalterations.mainservice.dto.ProcessStatusUpdate;
+import com.mediaalterations.mainservice.entity.Process;
+import com.mediaalterations.mainservice.entity.ProcessStatus;
+import com.mediaalterations.mainservice.events.ProcessEventHub;
+import com.mediaalterations.mainservice.messaging.WorkerLanes;
+import com.mediaalterations.mainservice.queue.FairShareDispatcher;
+import com.mediaalterations.mainservice.queue.WaitingQueueIndex;
+import com.mediaalterations.mainservice.repository.ProcessRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ProcessStatusUpdaterTests {
+
+	private final ProcessRepository processRepository = mock(ProcessRepository.class);
+	private final EntityManager entityManager = mock(EntityManager.class);
+	private final Query query = mock(Query.class);
+	private final FairShareDispatcher dispatcher = mock(FairShareDispatcher.class);
+
+	private final ProcessStatusUpdater updater = new ProcessStatusUpdater(processRepository, entityManager,
+			mock(WaitingQueueIndex.class), dispatcher, mock(WorkerLanes.class),
+			mock(SegmentedEncodingService.class), mock(ProcessEventHub.class), mock(ProgressTracker.class),
+			mock(ProcessMetrics.class));
+
+	private final Process completed = process(ProcessStatus.COMPLETED);
+	private final Process waiting = process(ProcessStatus.WAITING);
+
+	@BeforeEach
+	void setUp() {
+		when(entityManager.createQuery(anyString())).thenReturn(query);
+		when(query.setParameter(anyString(), any())).thenReturn(query);
+		when(processRepository.findAllByIdForUpdate(any())).thenReturn(List.of(completed, waiting));
+	}
+
+	@Test
+	void lateProcessingNeverOverwritesCompleted() {
+		when(query.executeUpdate()).thenReturn(1);
+		when(processRepository.findAllById(any())).thenAnswer(invocation -> {
+			waiting.setStatus(ProcessStatus.COMPLETED);
+			return List.of(waiting);
+		});
+
+		updater.apply(List.of(
+				update(completed, ProcessStatus.PROCESSING, null),
+				update(waiting, ProcessStatus.PROCESSING, null),
+				update(waiting, ProcessStatus.COMPLETED, "12 MB"),
+				update(waiting, ProcessStatus.PROCESSING, null)));
+
+		// one statement for the single target status that survived the state machine
+		ArgumentCaptor<String> jpql = ArgumentCaptor.forClass(String.class);
+		verify(entityManager, times(1)).createQuery(jpql.capture());
+		assertThat(jpql.getValue()).isEqualTo("UPDATE Process p SET p.status = :status, "
+				+ "p.finalFileSize = CASE WHEN p.id = :finalFileSizeId0 THEN :finalFileSize0 ELSE p.finalFileSize END "
+				+ "WHERE p.id IN :ids AND p.status IN :from AND COALESCE(p.reclaimCount, 0) = :attempt");
+		verify(query).setParameter("status", ProcessStatus.COMPLETED);
+		verify(query).setParameter("ids", List.of(waiting.getId()));
+		verify(query).setParameter("from", List.of(ProcessStatus.WAITING, ProcessStatus.PROCESSING));
+		verify(query).setParameter("attempt", 0);
+		verify(dispatcher).finished("u1");
+	}
+
+	@Test
+	void reportsOfAReclaimedRunAreFencedOff() {
+		// reclaimed once and dispatched again; the first run is still alive and reports late
+		waiting.setReclaimCount(1);
+		when(processRepository.findAllByIdForUpdate(any())).thenReturn(List.of(waiting));
+
+		updater.apply(List.of(
+				new ProcessStatusUpdate(waiting.getId().toString(), ProcessStatus.PROCESSING, null, null),
+				new ProcessStatusUpdate(waiting.getId().toString(), ProcessStatus.COMPLETED, "12 MB", null, 0)));
+
+		verify(entityManager, never()).createQuery(anyString());
+		verify(dispatcher, never()).finished(anyString());
+		assertThat(waiting.getStatus()).isEqualTo(ProcessStatus.WAITING);
+	}
+
+	@Test
+	void reportsOnlyKnownProcesses() {
+		when(processRepository.findAllByIdForUpdate(any())).thenReturn(List.of(completed));
+
+		Collection<UUID> found = updater.apply(List.of(
+				update(completed, ProcessStatus.FAILED, null),
+				new ProcessStatusUpdate(UUID.randomUUID().toString(), ProcessStatus.PROCESSING, null, null),
+				new ProcessStatusUpdate("not-a-uuid", ProcessStatus.PROCESSING, null, null)));
+
+		assertThat(found).containsExactly(completed.getId());
+		verify(entityManager, never()).createQuery(anyString());
+	}
+
+	@Test
+	void statusesOnlyMoveForward() {
+		assertThat(ProcessStatus.WAITING.canMoveTo(ProcessStatus.COMPLETED)).isTrue();
+		assertThat(ProcessStatus.PROCESSING.canMoveTo(ProcessStatus.PROCESSING)).isTrue();
+		assertThat(ProcessStatus.PROCESSING.canMoveTo(ProcessStatus.WAITING)).isFalse();
+		assertThat(ProcessStatus.COMPLETED.canMoveTo(ProcessStatus.FAILED)).isFalse();
+		assertThat(ProcessStatus.FAILED.predecessors()).containsExactly(ProcessStatus.WAITING, ProcessStatus.PROCESSING);
+	}
+
+	private static Process process(ProcessStatus status) {
+		Process process = new Process("in", "out", "-y", status, "u1", "00:01:00", "f.mp4", "0 KB", true);
+		process.setId(UUID.randomUUID());
+		return process;
+	}
+
+	private static ProcessStatusUpdate update(Process process, ProcessStatus status, String fileSize) {
+		return new ProcessStatusUpdate(process.getId().toString(), status, fileSize, null);
+	}
+}
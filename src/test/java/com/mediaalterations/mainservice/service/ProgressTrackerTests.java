@@ -0,0 +1,95 @@
+package com.mediaalterations.mainservice.service;
+
+import com.mediaalterations.mainservice.dto.ProgressReport;
+import com.mediaalterations.mainservice.entity.Process;
+import com.mediaalterations.mainservice.entity.ProcessStatus;
+import com.mediaalterations.mainservice.repository.ProcessRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ProgressTrackerTests {
+
+	private final ProcessRepository processRepository = mock(ProcessRepository.class);
+	private final EntityManager entityManager = mock(EntityManager.class);
+	private final Query query = mock(Query.class);
+	private final TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+	private final ProgressTracker tracker = new ProgressTracker(processRepository, entityManager, transactionTemplate,
+			200, Duration.ofMinutes(10));
+
+	private final UUID id = UUID.randomUUID();
+
+	@BeforeEach
+	@SuppressWarnings("unchecked")
+	void setUp() {
+		when(processRepository.findProgressTargets(anyList()))
+				.thenReturn(List.<Object[]>of(new Object[] { id, "00:02:00", ProcessStatus.PROCESSING }));
+		when(entityManager.createQuery(anyString())).thenReturn(query);
+		when(query.setParameter(anyString(), any())).thenReturn(query);
+		doAnswer(invocation -> {
+			invocation.<Consumer<Object>>getArgument(0).accept(null);
+			return null;
+		}).when(transactionTemplate).executeWithoutResult(any());
+	}
+
+	@Test
+	void derivesPercentAndEtaFromDuration() {
+		ProgressTracker.Progress progress = ProgressTracker.compute(120,
+				new ProgressReport(id.toString(), 30_000_000, 750, 2.0), LocalDateTime.now());
+
+		assertThat(progress.percent()).isCloseTo(25.0, within(1e-9));
+		assertThat(progress.etaSeconds()).isCloseTo(45.0, within(1e-9));
+		assertThat(ProgressTracker.compute(120, new ProgressReport(id.toString(), 500_000_000, 0, 0),
+				LocalDateTime.now()).percent()).isEqualTo(99.9);
+		assertThat(ProgressTracker.compute(0, new ProgressReport(id.toString(), 1, 0, 1),
+				LocalDateTime.now()).percent()).isNull();
+	}
+
+	@Test
+	void coalescesTicksIntoOneWritePerFlush() {
+		for (int tick = 1; tick <= 50; tick++)
+			tracker.record(List.of(new ProgressReport(id.toString(), tick * 1_000_000L, tick * 25L, 1.0)));
+
+		tracker.flush();
+		tracker.flush();
+
+		verify(processRepository, times(1)).findProgressTargets(anyList());
+		verify(query, times(1)).executeUpdate();
+		verify(query).setParameter("etaSeconds0", 70.0);
+		assertThat(tracker.live(id)).hasValueSatisfying(live -> assertThat(live.frame()).isEqualTo(1250));
+	}
+
+	@Test
+	void terminalStatusWritesFinalValueAndDropsLateTicks() {
+		tracker.record(List.of(new ProgressReport(id.toString(), 60_000_000, 10, 1.0)));
+		Process process = new Process("in", "out", "-y", ProcessStatus.COMPLETED, "u1", "00:02:00", "f.mp4", "0 KB", true);
+		process.setId(id);
+
+		tracker.finish(process);
+		tracker.record(List.of(new ProgressReport(id.toString(), 90_000_000, 20, 1.0)));
+		tracker.flush();
+
+		assertThat(process.getProgressPercent()).isEqualTo(100.0);
+		assertThat(tracker.live(id)).isEmpty();
+		verify(query, times(0)).executeUpdate();
+	}
+}
@@ -0,0 +1,156 @@
+package com.mediaalterations.mainservice.service;
+
+import com.mediaalterations.mainservice.cache.StoragePathCache;
+import com.mediaalterations.mainservice.command.FfmpegCommandCompiler;
+import com.mediaalterations.mainservice.dto.OutputPathResponse;
+import com.mediaalterations.mainservice.dto.VideoConvertRequest;
+import com.mediaalterations.mainservice.entity.Process;
+import com.mediaalterations.mainservice.entity.ProcessRole;
+import com.mediaalterations.mainservice.entity.ProcessStatus;
+import com.mediaalterations.mainservice.events.ProcessEventHub;
+import com.mediaalterations.mainservice.exceptions.ExternalServiceException;
+import com.mediaalterations.mainservice.feignClients.StorageCalls;
+import com.mediaalterations.mainservice.feignClients.StorageClient;
+import com.mediaalterations.mainservice.messaging.ProcessEventOutbox;
+import com.mediaalterations.mainservice.queue.FairShareDispatcher;
+import com.mediaalterations.mainservice.queue.JobCostEstimator;
+import com.mediaalterations.mainservice.queue.WaitingQueueIndex;
+import com.mediaalterations.mainservice.repository.OutboxRepository;
+import com.mediaalterations.mainservice.repository.ProcessRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SegmentedEncodingServiceTests {
+
+	private static final String USER = "user-1";
+	private static final VideoConvertRequest REQUEST = new VideoConvertRequest(
+			"s", "v.mp4", "00:10:00", "mp4", "h264", "aac", "medium", 23, 30, "p720");
+
+	private final ProcessRepository processRepository = mock(ProcessRepository.class);
+	private final OutboxRepository outboxRepository = mock(OutboxRepository.class);
+	private final StorageClient storageClient = mock(StorageClient.class);
+	private final StorageCalls storageCalls = mock(StorageCalls.class);
+	private final StoragePathCache storagePaths = mock(StoragePathCache.class);
+	private final FairShareDispatcher dispatcher = mock(FairShareDispatcher.class);
+	private final ExecutorService virtualExecutor = Executors.newVirtualThreadPerTaskExecutor();
+	private final ProcessMetrics metrics = mock(ProcessMetrics.class);
+
+	private final SegmentedEncodingService service = new SegmentedEncodingService(processRepository,
+			outboxRepository, mock(ProcessEventOutbox.class), storageClient, storageCalls, storagePaths,
+			new FfmpegCommandCompiler(), mock(JobCostEstimator.class), dispatcher, mock(WaitingQueueIndex.class),
+			mock(TransactionTemplate.class),
+			virtualExecutor, mock(ProcessEventHub.class), metrics, new GeneratedOutputs(storageClient, storageCalls));
+
+	@BeforeEach
+	void setUp() {
+		ReflectionTestUtils.setField(service, "segmentSeconds", 300);
+		ReflectionTestUtils.setField(service, "gopSeconds", 2);
+		ReflectionTestUtils.setField(service, "maxSegments", 16);
+		when(storageCalls.submit(eq(StorageCalls.DELETE_STORAGE), any())).thenAnswer(invocation -> {
+			Supplier<?> call = invocation.getArgument(1);
+			return CompletableFuture.completedFuture(call.get());
+		});
+	}
+
+	@AfterEach
+	void tearDown() {
+		virtualExecutor.shutdownNow();
+	}
+
+	@Test
+	void failedInputLookupDeletesTheFinalAndSegmentOutputs() {
+		when(storageCalls.<ResponseEntity<OutputPathResponse>>submit(eq(StorageCalls.GENERATE_OUTPUT_PATH), any()))
+				.thenReturn(generated("final"), generated("seg-0"), generated("seg-1"));
+		when(storagePaths.getPath("s", USER)).thenThrow(new ExternalServiceException("Storage service failure"));
+
+		assertThatThrownBy(() -> service.create(REQUEST, "key", USER)).isInstanceOf(ExecutionException.class);
+
+		assertThat(deletedStorageIds()).containsExactlyInAnyOrder("final", "seg-0", "seg-1");
+	}
+
+	@Test
+	void failedSegmentOutputDeletesTheOtherGeneratedOutputs() {
+		when(storageCalls.<ResponseEntity<OutputPathResponse>>submit(eq(StorageCalls.GENERATE_OUTPUT_PATH), any()))
+				.thenReturn(generated("final"), generated("seg-0"),
+						CompletableFuture.failedFuture(new ExternalServiceException("Storage service timed out")));
+		when(storagePaths.getPath("s", USER)).thenReturn("/in/v.mp4");
+
+		assertThatThrownBy(() -> service.create(REQUEST, "key", USER)).isInstanceOf(ExecutionException.class);
+
+		assertThat(deletedStorageIds()).containsExactlyInAnyOrder("final", "seg-0");
+	}
+
+	@Test
+	void failedSegmentCancelsWaitingSiblingsAndLeavesRunningOnes() {
+		Process parent = child(null, ProcessStatus.PROCESSING);
+		parent.setRole(ProcessRole.SEGMENTED);
+		Process failed = child(parent, ProcessStatus.FAILED);
+		Process running = child(parent, ProcessStatus.PROCESSING);
+		Process released = child(parent, ProcessStatus.WAITING);
+		Process held = child(parent, ProcessStatus.WAITING);
+		Process concat = child(parent, ProcessStatus.WAITING);
+		concat.setRole(ProcessRole.CONCAT);
+		when(processRepository.findByIdForUpdate(parent.getId())).thenReturn(Optional.of(parent));
+		when(processRepository.findByParentId(parent.getId()))
+				.thenReturn(List.of(failed, running, released, held, concat));
+		when(processRepository.findReleasedIds(any(), eq(USER))).thenReturn(List.of(released.getId()));
+
+		service.onChildStatus(failed, ProcessStatus.PROCESSING);
+
+		List<UUID> cancelled = List.of(released.getId(), held.getId(), concat.getId());
+		assertThat(parent.getStatus()).isEqualTo(ProcessStatus.FAILED);
+		assertThat(running.getStatus()).isEqualTo(ProcessStatus.PROCESSING);
+		assertThat(List.of(released, held, concat)).extracting(Process::getStatus).containsOnly(ProcessStatus.FAILED);
+		verify(outboxRepository).deleteUnsentByProcessIds(cancelled, USER);
+		cancelled.forEach(id -> verify(dispatcher).remove(id, USER));
+		verify(dispatcher, never()).remove(running.getId(), USER);
+		verify(dispatcher, times(1)).finished(USER);
+		verify(metrics).statusChanged(held, ProcessStatus.WAITING);
+	}
+
+	private static Process child(Process parent, ProcessStatus status) {
+		Process process = new Process("s", "out", "-y", status, USER, "00:05:00", "v.ts", "0 KB", true);
+		process.setId(UUID.randomUUID());
+		if (parent != null) {
+			process.setParentId(parent.getId());
+			process.setRole(ProcessRole.SEGMENT);
+		}
+		return process;
+	}
+
+	@SuppressWarnings("unchecked")
+	private List<String> deletedStorageIds() {
+		ArgumentCaptor<List<String>> storageIds = ArgumentCaptor.forClass(List.class);
+		verify(storageClient).deleteStorage(storageIds.capture(), eq(USER));
+		return storageIds.getValue();
+	}
+
+	private static CompletableFuture<ResponseEntity<OutputPathResponse>> generated(String storageId) {
+		return CompletableFuture.completedFuture(
+				ResponseEntity.ok(new OutputPathResponse(storageId, "/out/" + storageId)));
+	}
+}